@@ -1,13 +1,31 @@
 package com.orderflow.benchmark;
 
+import com.orderflow.analytics.CountMinSketch;
+import com.orderflow.analytics.OhlcvBars;
+import com.orderflow.analytics.PriceQuantiles;
+import com.orderflow.analytics.RollingBars;
+import com.orderflow.analytics.SpaceSavingSketch;
+import com.orderflow.analytics.StreamingAnalytics;
+import com.orderflow.analytics.TradeStats;
+import com.orderflow.analytics.TradeStore;
 import com.orderflow.model.Order;
+import com.orderflow.model.OrderRecord;
 import com.orderflow.model.TradeResult;
+import com.orderflow.service.AnalyticsResultCache;
 import com.orderflow.service.AnalyticsService;
+import com.orderflow.util.OrderDataGenerator;
+import com.orderflow.util.SymbolTable;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -25,37 +43,44 @@ import java.util.concurrent.TimeUnit;
  */
 @BenchmarkMode(Mode.Throughput)
 @OutputTimeUnit(TimeUnit.MILLISECONDS)
-@State(Scope.Benchmark)
 @Fork(value = 2, jvmArgs = {"-Xms1G", "-Xmx1G"})
 @Warmup(iterations = 3, time = 1)
 @Measurement(iterations = 5, time = 1)
 public class AnalyticsBenchmark {
     
-    @Param({"100", "1000", "10000"})
-    private int orderCount;
-    
-    private AnalyticsService analyticsService;
-    private List<Order> orders;
-    private List<TradeResult> trades;
-    
-    @Setup
-    public void setup() {
-        analyticsService = new AnalyticsService();
+    /**
+     * Order and trade objects for the List-based AnalyticsService methods.
+     * Only the benchmarks that take it run once per orderCount.
+     */
+    @State(Scope.Benchmark)
+    public static class Orders {
         
-        // Generate test orders
-        orders = new ArrayList<>(orderCount);
-        trades = new ArrayList<>(orderCount);
+        @Param({"100", "1000", "10000"})
+        int orderCount;
         
-        // TODO: Generate test data when Order/TradeResult constructors are ready
-        // for (int i = 0; i < orderCount; i++) {
-        //     orders.add(new Order(
-        //         "ORD" + i,
-        //         symbols[i % symbols.length],
-        //         i % 2 == 0 ? Order.Side.BUY : Order.Side.SELL,
-        //         new BigDecimal(100 + (i % 100)),
-        //         100 + (i % 500)
-        //     ));
-        // }
+        AnalyticsService analyticsService;
+        List<Order> orders;
+        List<TradeResult> trades;
+        
+        @Setup
+        public void setup() {
+            analyticsService = new AnalyticsService();
+            
+            // Generate test orders
+            orders = new ArrayList<>(orderCount);
+            trades = new ArrayList<>(orderCount);
+            
+            // TODO: Generate test data when Order/TradeResult constructors are ready
+            // for (int i = 0; i < orderCount; i++) {
+            //     orders.add(new Order(
+            //         "ORD" + i,
+            //         symbols[i % symbols.length],
+            //         i % 2 == 0 ? Order.Side.BUY : Order.Side.SELL,
+            //         new BigDecimal(100 + (i % 100)),
+            //         100 + (i % 500)
+            //     ));
+            // }
+        }
     }
     
     /**
@@ -64,9 +89,9 @@ public class AnalyticsBenchmark {
      * Look at gc.alloc.rate.norm - high values indicate boxing overhead.
      */
     @Benchmark
-    public Double calculateAveragePrice(Blackhole bh) {
+    public Double calculateAveragePrice(Orders state, Blackhole bh) {
         // TODO: Implement when AnalyticsService is ready
-        // return analyticsService.calculateAveragePrice(orders);
+        // return state.analyticsService.calculateAveragePrice(state.orders);
         throw new UnsupportedOperationException(
             "Implement AnalyticsService.calculateAveragePrice() first");
     }
@@ -75,9 +100,9 @@ public class AnalyticsBenchmark {
      * Benchmark total value calculation.
      */
     @Benchmark
-    public Double calculateTotalValue(Blackhole bh) {
+    public Double calculateTotalValue(Orders state, Blackhole bh) {
         // TODO: Implement when AnalyticsService is ready
-        // return analyticsService.calculateTotalValue(orders);
+        // return state.analyticsService.calculateTotalValue(state.orders);
         throw new UnsupportedOperationException(
             "Implement AnalyticsService.calculateTotalValue() first");
     }
@@ -88,10 +113,531 @@ public class AnalyticsBenchmark {
      * This should show very high allocation due to multiple passes.
      */
     @Benchmark
-    public Object calculatePriceStatistics(Blackhole bh) {
+    public Object calculatePriceStatistics(Orders state, Blackhole bh) {
         // TODO: Implement
-        // return analyticsService.calculatePriceStatistics(orders);
+        // return state.analyticsService.calculatePriceStatistics(state.orders);
         throw new UnsupportedOperationException(
             "Implement AnalyticsService.calculatePriceStatistics() first");
     }
+    
+    /**
+     * Primitive trade columns plus a StreamingAnalytics fed the same trades.
+     * 
+     * Setup checks that streaming statistics match a batch rescan, so the
+     * benchmarks below answer the same question.
+     */
+    @State(Scope.Benchmark)
+    public static class Trades {
+        static final int SYMBOLS = 10;
+        
+        @Param({"10000", "10000000"})
+        int tradeCount;
+        
+        int[] symbolIds;
+        long[] priceTicks;
+        int[] quantities;
+        StreamingAnalytics streaming;
+        final TradeStats snapshot = new TradeStats();
+        
+        // Trades TRADE_GAP_NANOS apart; the clock keeps moving in rollingOnTrade
+        static final long TRADE_GAP_NANOS = 1_000_000;
+        RollingBars rolling;
+        final OhlcvBars.Bar bar = new OhlcvBars.Bar();
+        long clockNanos;
+        
+        // Batch results, per symbol
+        final long[] count = new long[SYMBOLS];
+        final long[] volume = new long[SYMBOLS];
+        final long[] notional = new long[SYMBOLS];
+        final long[] min = new long[SYMBOLS];
+        final long[] max = new long[SYMBOLS];
+        final double[] sum = new double[SYMBOLS];
+        final double[] squares = new double[SYMBOLS];
+        
+        @Setup(Level.Trial)
+        public void setup() {
+            SplittableRandom random = new SplittableRandom(42);
+            symbolIds = new int[tradeCount];
+            priceTicks = new long[tradeCount];
+            quantities = new int[tradeCount];
+            long[] mids = new long[SYMBOLS];
+            for (int s = 0; s < SYMBOLS; s++) {
+                mids[s] = 10_000 + 2_500L * s;
+            }
+            streaming = new StreamingAnalytics(OrderDataGenerator.symbolTable());
+            rolling = new RollingBars(streaming.getSymbols());
+            for (int i = 0; i < tradeCount; i++) {
+                int s = Math.min(SYMBOLS - 1, (int) (-Math.log(1 - random.nextDouble()) * 3));
+                mids[s] = Math.max(100, mids[s] + random.nextInt(3) - 1);
+                symbolIds[i] = s;
+                priceTicks[i] = mids[s];
+                quantities[i] = 100 * (1 + random.nextInt(10));
+                streaming.onTrade(s, priceTicks[i], quantities[i], i);
+                clockNanos += TRADE_GAP_NANOS;
+                rolling.onTrade(s, priceTicks[i], quantities[i], clockNanos);
+            }
+            
+            batchRescan(this);
+            for (int s = 0; s < SYMBOLS; s++) {
+                TradeStats actual = streaming.getStats(s, snapshot);
+                double mean = count[s] == 0 ? 0 : sum[s] / count[s];
+                double stdDev = count[s] == 0 ? 0 : Math.sqrt(squares[s] / count[s]);
+                if (actual.getCount() != count[s] || actual.getVolume() != volume[s]
+                        || actual.getNotionalTicks() != notional[s]
+                        || actual.getMinPriceTicks() != min[s] || actual.getMaxPriceTicks() != max[s]
+                        || !close(actual.getMeanPriceTicks(), mean) || !close(actual.getPriceStdDev(), stdDev)) {
+                    throw new IllegalStateException("Streaming and batch statistics differ for symbol " + s);
+                }
+            }
+        }
+        
+        private static boolean close(double a, double b) {
+            return Math.abs(a - b) <= 1e-9 * Math.max(1, Math.abs(b));
+        }
+    }
+    
+    /**
+     * Per-symbol VWAP, volume, min/max, mean and stddev by rescanning every
+     * trade, as the batch methods do: one pass for sums and extremes, a
+     * second for the variance. Unboxed, so this is the best case for batch.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double batchRescanAllSymbols(Trades trades) {
+        return batchRescan(trades);
+    }
+    
+    /**
+     * The same answers from StreamingAnalytics: O(symbols), independent of
+     * tradeCount, and 0 B/op.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double streamingQueryAllSymbols(Trades trades) {
+        double checksum = 0;
+        for (int s = 0; s < Trades.SYMBOLS; s++) {
+            TradeStats stats = trades.streaming.getStats(s, trades.snapshot);
+            checksum += stats.getVwapTicks() + stats.getPriceStdDev() + stats.getVolume()
+                + stats.getMinPriceTicks() + stats.getMaxPriceTicks();
+        }
+        return checksum;
+    }
+    
+    /**
+     * Cost of keeping the statistics current: one onTrade per trade.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @OperationsPerInvocation(1024)
+    public long streamingOnTrade(Trades trades) {
+        StreamingAnalytics streaming = trades.streaming;
+        int n = Math.min(1024, trades.tradeCount);
+        for (int i = 0; i < 1024; i++) {
+            int t = i % n;
+            streaming.onTrade(trades.symbolIds[t], trades.priceTicks[t], trades.quantities[t], t);
+        }
+        return streaming.getTradeCount();
+    }
+    
+    /**
+     * A dashboard refresh from RollingBars: per symbol, the 5-minute
+     * rolling VWAP and the latest 1-minute bar. O(symbols) and 0 B/op,
+     * where rescanning the history costs batchRescanAllSymbols.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double rollingQueryAllSymbols(Trades trades) {
+        double checksum = 0;
+        OhlcvBars seconds = trades.rolling.getSecondBars();
+        OhlcvBars minutes = trades.rolling.getMinuteBars();
+        for (int s = 0; s < Trades.SYMBOLS; s++) {
+            OhlcvBars.Bar bar = minutes.getBar(s, 0, trades.bar);
+            checksum += seconds.getRollingVwapTicks(s) + bar.getOpenTicks() + bar.getHighTicks()
+                + bar.getLowTicks() + bar.getCloseTicks() + bar.getVolume();
+        }
+        return checksum;
+    }
+    
+    /**
+     * Cost of keeping 1s, 1m and 5m bars current, per trade, with time
+     * moving forward so buckets roll and expire as in a live stream.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @OperationsPerInvocation(1024)
+    public long rollingOnTrade(Trades trades) {
+        RollingBars rolling = trades.rolling;
+        int n = Math.min(1024, trades.tradeCount);
+        long clock = trades.clockNanos;
+        for (int i = 0; i < 1024; i++) {
+            int t = i % n;
+            clock += Trades.TRADE_GAP_NANOS;
+            rolling.onTrade(trades.symbolIds[t], trades.priceTicks[t], trades.quantities[t], clock);
+        }
+        trades.clockNanos = clock;
+        return clock;
+    }
+    
+    /**
+     * A high-cardinality trade stream for the sketches: symbol keys drawn
+     * log-uniformly (Zipf exponent 1) from a universe of a million, so a
+     * few symbols dominate and most appear once or never.
+     */
+    @State(Scope.Benchmark)
+    public static class Sketches {
+        static final int UNIVERSE = 1_000_000;
+        static final int STREAM = 1 << 16;
+        
+        @Param({"1000"})
+        int counters;
+        
+        final long[] keys = new long[STREAM];
+        final long[] priceTicks = new long[STREAM];
+        final int[] quantities = new int[STREAM];
+        SpaceSavingSketch spaceSaving;
+        CountMinSketch countMin;
+        PriceQuantiles quantiles;
+        int next;
+        
+        @Setup(Level.Trial)
+        public void setup() {
+            SplittableRandom random = new SplittableRandom(42);
+            for (int i = 0; i < STREAM; i++) {
+                keys[i] = (long) Math.pow(UNIVERSE, random.nextDouble()) - 1;
+                priceTicks[i] = 10_000 + (long) (random.nextGaussian() * 200);
+                quantities[i] = 100 * (1 + random.nextInt(10));
+            }
+            spaceSaving = new SpaceSavingSketch(counters);
+            countMin = CountMinSketch.withErrorBounds(1.0 / counters, 0.01, 42);
+            quantiles = new PriceQuantiles();
+        }
+    }
+    
+    /**
+     * Space-Saving update: volume per symbol key in `counters` counters.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @OperationsPerInvocation(1024)
+    public long sketchSpaceSavingAdd(Sketches sketches) {
+        SpaceSavingSketch sketch = sketches.spaceSaving;
+        int base = sketches.next;
+        for (int i = 0; i < 1024; i++) {
+            int t = (base + i) & (Sketches.STREAM - 1);
+            sketch.add(sketches.keys[t], sketches.quantities[t]);
+        }
+        sketches.next = base + 1024;
+        return sketch.getTotalWeight();
+    }
+    
+    /**
+     * Count-Min update with epsilon = 1 / counters, delta = 1%.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @OperationsPerInvocation(1024)
+    public long sketchCountMinAdd(Sketches sketches) {
+        CountMinSketch sketch = sketches.countMin;
+        int base = sketches.next;
+        for (int i = 0; i < 1024; i++) {
+            int t = (base + i) & (Sketches.STREAM - 1);
+            sketch.add(sketches.keys[t], sketches.quantities[t]);
+        }
+        sketches.next = base + 1024;
+        return sketch.getTotalWeight();
+    }
+    
+    /**
+     * Volume-weighted price histogram update (HdrHistogram, 3 digits).
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @OperationsPerInvocation(1024)
+    public long sketchPriceQuantilesRecord(Sketches sketches) {
+        PriceQuantiles quantiles = sketches.quantiles;
+        int base = sketches.next;
+        for (int i = 0; i < 1024; i++) {
+            int t = (base + i) & (Sketches.STREAM - 1);
+            quantiles.record(0, sketches.priceTicks[t], sketches.quantities[t]);
+        }
+        sketches.next = base + 1024;
+        return quantiles.getCount(0);
+    }
+    
+    /**
+     * The same trades twice: as objects shaped like TradeResult (symbol
+     * String, BigDecimal price, boxed execution time) and in a TradeStore.
+     * 
+     * TradeResult itself is still a lab stub, so the object side uses a
+     * local class with the same fields. Setup checks both sides agree.
+     * 
+     * For the full-size comparison, run with
+     *   -p storeTrades=50000000 -jvmArgs -Xmx8G
+     * 
+     * sequentialThreshold is the largest row range one fork-join leaf
+     * scans; at or above storeTrades the columnar scans are sequential.
+     * Compare thresholds across -jvmArgs -XX:ActiveProcessorCount=N.
+     */
+    @State(Scope.Benchmark)
+    public static class Columns {
+        
+        @Param({"1000000"})
+        int storeTrades;
+        
+        @Param({"65536", "262144", "1000000"})
+        int sequentialThreshold;
+        
+        List<ObjectTrade> objects;
+        TradeStore store;
+        AnalyticsService service;
+        
+        @Setup(Level.Trial)
+        public void setup() {
+            SymbolTable symbols = OrderDataGenerator.symbolTable();
+            SplittableRandom random = new SplittableRandom(42);
+            int symbolCount = symbols.size();
+            long[] mids = new long[symbolCount];
+            for (int s = 0; s < symbolCount; s++) {
+                mids[s] = 10_000 + 2_500L * s;
+            }
+            objects = new ArrayList<>(storeTrades);
+            store = new TradeStore(symbols);
+            Instant start = Instant.parse("2024-01-02T14:30:00Z");
+            for (int i = 0; i < storeTrades; i++) {
+                int s = Math.min(symbolCount - 1, (int) (-Math.log(1 - random.nextDouble()) * 3));
+                mids[s] = Math.max(100, mids[s] + random.nextInt(3) - 1);
+                int quantity = 100 * (1 + random.nextInt(10));
+                Instant executedAt = start.plusNanos(1_000L * i);
+                objects.add(new ObjectTrade(symbols.symbol(s), OrderRecord.toPrice(mids[s]), quantity, executedAt));
+                store.append(s, mids[s], quantity, start.getEpochSecond() * 1_000_000_000L + 1_000L * i);
+            }
+            
+            service = new AnalyticsService(ForkJoinPool.commonPool(), sequentialThreshold);
+            double objectTotal = objectTotalValue(objects);
+            double columnarTotal = service.calculateTotalValue(store);
+            Map<String, TradeStats> objectStats = objectPriceStatistics(objects);
+            Map<String, TradeStats> columnarStats = service.calculatePriceStatistics(store);
+            if (Math.abs(objectTotal - columnarTotal) > 1e-9 * columnarTotal
+                    || !objectStats.keySet().equals(columnarStats.keySet())) {
+                throw new IllegalStateException("Object and columnar analytics differ");
+            }
+            for (Map.Entry<String, TradeStats> e : objectStats.entrySet()) {
+                TradeStats expected = e.getValue();
+                TradeStats actual = columnarStats.get(e.getKey());
+                if (actual.getCount() != expected.getCount() || actual.getNotionalTicks() != expected.getNotionalTicks()
+                        || actual.getMinPriceTicks() != expected.getMinPriceTicks()
+                        || actual.getMaxPriceTicks() != expected.getMaxPriceTicks()
+                        || !Trades.close(actual.getPriceStdDev(), expected.getPriceStdDev())) {
+                    throw new IllegalStateException("Object and columnar statistics differ for " + e.getKey());
+                }
+            }
+        }
+    }
+    
+    /** Object-form trade with TradeResult's analytic fields. */
+    static final class ObjectTrade {
+        final String symbol;
+        final BigDecimal price;
+        final int quantity;
+        final Instant executedAt;
+        
+        ObjectTrade(String symbol, BigDecimal price, int quantity, Instant executedAt) {
+            this.symbol = symbol;
+            this.price = price;
+            this.quantity = quantity;
+            this.executedAt = executedAt;
+        }
+    }
+    
+    /**
+     * sum(price * quantity) over trade objects: one pointer chase per
+     * trade plus a BigDecimal conversion. A plain loop, no boxing.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double objectTotalValue(Columns columns) {
+        return objectTotalValue(columns.objects);
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double columnarTotalValue(Columns columns) {
+        return columns.service.calculateTotalValue(columns.store);
+    }
+    
+    /**
+     * Per-symbol statistics over trade objects, grouped through a
+     * HashMap keyed by symbol.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object objectPriceStatistics(Columns columns) {
+        return objectPriceStatistics(columns.objects);
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object columnarPriceStatistics(Columns columns) {
+        return columns.service.calculatePriceStatistics(columns.store);
+    }
+    
+    /**
+     * A dashboard refreshing price statistics, top symbols and VWAP over a
+     * 1M-trade store, with {@code newTrades} appended between refreshes.
+     * Each iteration starts from the same 1M trades.
+     */
+    @State(Scope.Benchmark)
+    public static class Dashboard {
+        
+        static final int BASE_TRADES = 1_000_000;
+        static final int FRESH_TRADES = 1 << 16;
+        
+        @Param({"0", "10"})
+        int newTrades;
+        
+        TradeStore store;
+        AnalyticsService service;
+        AnalyticsResultCache cache;
+        final long[] freshPrices = new long[FRESH_TRADES];
+        final int[] freshQuantities = new int[FRESH_TRADES];
+        final int[] freshSymbols = new int[FRESH_TRADES];
+        int next;
+        long clockNanos;
+        
+        @Setup(Level.Iteration)
+        public void setup() {
+            SymbolTable symbols = OrderDataGenerator.symbolTable();
+            SplittableRandom random = new SplittableRandom(42);
+            int symbolCount = symbols.size();
+            long[] mids = new long[symbolCount];
+            for (int s = 0; s < symbolCount; s++) {
+                mids[s] = 10_000 + 2_500L * s;
+            }
+            store = new TradeStore(symbols);
+            for (int i = 0; i < BASE_TRADES + FRESH_TRADES; i++) {
+                int s = Math.min(symbolCount - 1, (int) (-Math.log(1 - random.nextDouble()) * 3));
+                mids[s] = Math.max(100, mids[s] + random.nextInt(3) - 1);
+                int quantity = 100 * (1 + random.nextInt(10));
+                if (i < BASE_TRADES) {
+                    store.append(s, mids[s], quantity, 1_000L * i);
+                } else {
+                    freshPrices[i - BASE_TRADES] = mids[s];
+                    freshQuantities[i - BASE_TRADES] = quantity;
+                    freshSymbols[i - BASE_TRADES] = s;
+                }
+            }
+            clockNanos = 1_000L * BASE_TRADES;
+            next = 0;
+            service = new AnalyticsService();
+            cache = new AnalyticsResultCache(service, store);
+            if (!cache.getPriceStatistics().keySet().equals(service.calculatePriceStatistics(store).keySet())
+                    || !cache.calculateVWAP().equals(service.calculateVWAP(store))) {
+                throw new IllegalStateException("Cached and scanned analytics differ");
+            }
+        }
+        
+        void appendNewTrades() {
+            for (int i = 0; i < newTrades; i++) {
+                int t = next++ & (FRESH_TRADES - 1);
+                clockNanos += 1_000;
+                store.append(freshSymbols[t], freshPrices[t], freshQuantities[t], clockNanos);
+            }
+        }
+    }
+    
+    /**
+     * Each refresh folds the new trades into the cache's running sums and
+     * rebuilds results only for symbols they touched.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void cachedDashboard(Dashboard dashboard, Blackhole bh) {
+        dashboard.appendNewTrades();
+        bh.consume(dashboard.cache.getPriceStatistics());
+        bh.consume(dashboard.cache.getTopSymbolsByVolume(5));
+        bh.consume(dashboard.cache.calculateVWAP());
+    }
+    
+    /**
+     * The same refresh as three full scans.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void uncachedDashboard(Dashboard dashboard, Blackhole bh) {
+        dashboard.appendNewTrades();
+        bh.consume(dashboard.service.calculatePriceStatistics(dashboard.store));
+        bh.consume(dashboard.service.getTopSymbolsByVolume(dashboard.store, 5));
+        bh.consume(dashboard.service.calculateVWAP(dashboard.store));
+    }
+    
+    private static double objectTotalValue(List<ObjectTrade> trades) {
+        double total = 0;
+        for (ObjectTrade trade : trades) {
+            total += trade.price.doubleValue() * trade.quantity;
+        }
+        return total;
+    }
+    
+    private static Map<String, TradeStats> objectPriceStatistics(List<ObjectTrade> trades) {
+        Map<String, TradeStats> stats = new HashMap<>();
+        for (ObjectTrade trade : trades) {
+            stats.computeIfAbsent(trade.symbol, symbol -> new TradeStats())
+                .add(Math.round(trade.price.doubleValue() * OrderRecord.TICKS_PER_UNIT), trade.quantity);
+        }
+        return stats;
+    }
+    
+    private static double batchRescan(Trades trades) {
+        int n = trades.tradeCount;
+        long[] count = trades.count;
+        long[] volume = trades.volume;
+        long[] notional = trades.notional;
+        long[] min = trades.min;
+        long[] max = trades.max;
+        double[] sum = trades.sum;
+        double[] squares = trades.squares;
+        Arrays.fill(count, 0);
+        Arrays.fill(volume, 0);
+        Arrays.fill(notional, 0);
+        Arrays.fill(min, Long.MAX_VALUE);
+        Arrays.fill(max, Long.MIN_VALUE);
+        Arrays.fill(sum, 0);
+        Arrays.fill(squares, 0);
+        for (int i = 0; i < n; i++) {
+            int s = trades.symbolIds[i];
+            long price = trades.priceTicks[i];
+            count[s]++;
+            volume[s] += trades.quantities[i];
+            notional[s] += price * trades.quantities[i];
+            min[s] = Math.min(min[s], price);
+            max[s] = Math.max(max[s], price);
+            sum[s] += price;
+        }
+        for (int i = 0; i < n; i++) {
+            int s = trades.symbolIds[i];
+            double deviation = trades.priceTicks[i] - sum[s] / count[s];
+            squares[s] += deviation * deviation;
+        }
+        double checksum = 0;
+        for (int s = 0; s < Trades.SYMBOLS; s++) {
+            if (count[s] == 0) continue;
+            checksum += (double) notional[s] / volume[s] + Math.sqrt(squares[s] / count[s]) + volume[s]
+                + min[s] + max[s];
+        }
+        return checksum;
+    }
 }
@@ -1,11 +1,20 @@
 package com.orderflow.benchmark;
 
+import com.orderflow.analytics.BookSignals;
 import com.orderflow.model.Order;
+import com.orderflow.model.OrderBatch;
 import com.orderflow.model.OrderBook;
+import com.orderflow.model.OrderRecord;
 import com.orderflow.service.MatchingEngine;
+import com.orderflow.util.MarketFlowGenerator;
+import com.orderflow.util.OrderDataGenerator;
+import com.orderflow.util.OrderIds;
+import com.orderflow.util.SymbolTable;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -89,7 +98,6 @@ public class MatchingEngineBenchmark {
      * With fine-grained locking, this should scale better!
      */
     @Benchmark
-    @Threads(4)
     @Group("multiSymbol")
     @GroupThreads(1)
     public void submitOrderAAPL(Blackhole bh) {
@@ -98,7 +106,6 @@ public class MatchingEngineBenchmark {
     }
     
     @Benchmark
-    @Threads(4)
     @Group("multiSymbol")
     @GroupThreads(1)
     public void submitOrderGOOG(Blackhole bh) {
@@ -107,7 +114,6 @@ public class MatchingEngineBenchmark {
     }
     
     @Benchmark
-    @Threads(4)
     @Group("multiSymbol")
     @GroupThreads(1)
     public void submitOrderMSFT(Blackhole bh) {
@@ -116,11 +122,132 @@ public class MatchingEngineBenchmark {
     }
     
     @Benchmark
-    @Threads(4)
     @Group("multiSymbol")
     @GroupThreads(1)
     public void submitOrderAMZN(Blackhole bh) {
         // TODO: Submit AMZN orders
         throw new UnsupportedOperationException("Implement");
     }
+    
+    /**
+     * 200k messages from MarketFlowGenerator, held in primitive form so
+     * building them is outside the measurement.
+     */
+    @State(Scope.Benchmark)
+    public static class MarketFlow {
+        static final int MESSAGES = 200_000;
+        final SymbolTable symbols = OrderDataGenerator.symbolTable();
+        final OrderBatch messages = new OrderBatch(MESSAGES);
+        final MarketFlowGenerator.MessageType[] types = new MarketFlowGenerator.MessageType[MESSAGES];
+        final long[] timestamps = new long[MESSAGES];
+        // For AMEND: the price and quantity being replaced
+        final long[] previousPrices = new long[MESSAGES];
+        final int[] previousQuantities = new int[MESSAGES];
+        
+        @Setup(Level.Trial)
+        public void setup() {
+            MarketFlowGenerator generator = new MarketFlowGenerator(42);
+            OrderRecord record = new OrderRecord();
+            Map<Long, OrderRecord> issued = new HashMap<>();
+            for (int i = 0; i < MESSAGES; i++) {
+                types[i] = generator.next(record);
+                timestamps[i] = generator.getTimestampNanos();
+                messages.add(record);
+                OrderRecord last = issued.get(record.getOrderId());
+                if (types[i] == MarketFlowGenerator.MessageType.AMEND && last != null) {
+                    previousPrices[i] = last.getPriceTicks();
+                    previousQuantities[i] = last.getQuantity();
+                }
+                if (types[i] == MarketFlowGenerator.MessageType.CANCEL) {
+                    issued.remove(record.getOrderId());
+                } else {
+                    issued.put(record.getOrderId(), new OrderRecord().copyFrom(record));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Replay realistic flow - resting depth, ~30% fill ratio, cancels and
+     * amends of live orders - into a fresh engine.
+     * 
+     * Compare with submitOrderSingleThread: book depth changes the cost
+     * of matching and of cancel lookups.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Threads(1)
+    public int replayMarketFlow(MarketFlow flow) {
+        MatchingEngine replayEngine = new MatchingEngine();
+        OrderRecord record = new OrderRecord();
+        int trades = 0;
+        for (int i = 0; i < MarketFlow.MESSAGES; i++) {
+            flow.messages.get(i, record);
+            switch (flow.types[i]) {
+                case NEW -> trades += replayEngine.submitOrder(record.toOrder(flow.symbols)).size();
+                case CANCEL -> replayEngine.cancelOrder(flow.symbols.symbol(record.getSymbolId()),
+                    OrderIds.format(record.getOrderId()));
+                case AMEND -> {
+                    // Cancel/replace: the amended order loses time priority
+                    if (replayEngine.cancelOrder(flow.symbols.symbol(record.getSymbolId()),
+                            OrderIds.format(record.getOrderId()))) {
+                        trades += replayEngine.submitOrder(record.toOrder(flow.symbols)).size();
+                    }
+                }
+            }
+        }
+        return trades;
+    }
+    
+    /**
+     * Replay the same flow as level events into per-symbol BookSignals -
+     * NEW sweeps the opposite side and rests the remainder, CANCEL and
+     * the old half of AMEND leave their level - reading imbalance,
+     * microprice and spread after every message.
+     * 
+     * Compare per message with replayMarketFlow: the signals cost a few
+     * array updates rather than a book walk.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Threads(1)
+    public double replayBookSignals(MarketFlow flow) {
+        BookSignals[] books = new BookSignals[flow.symbols.size()];
+        for (int s = 0; s < books.length; s++) {
+            books[s] = new BookSignals();
+        }
+        OrderRecord record = new OrderRecord();
+        double signal = 0;
+        for (int i = 0; i < MarketFlow.MESSAGES; i++) {
+            flow.messages.get(i, record);
+            BookSignals book = books[record.getSymbolId()];
+            boolean buy = record.getSide() == Order.Side.BUY;
+            long now = flow.timestamps[i];
+            switch (flow.types[i]) {
+                case NEW -> rest(book, buy, record.getPriceTicks(), record.getQuantity(), now);
+                case CANCEL -> book.onCancel(buy, record.getPriceTicks(), record.getQuantity(), now);
+                case AMEND -> {
+                    book.onCancel(buy, flow.previousPrices[i], flow.previousQuantities[i], now);
+                    rest(book, buy, record.getPriceTicks(), record.getQuantity(), now);
+                }
+            }
+            signal += book.getImbalance(5);
+            if (book.isTwoSided()) {
+                signal += book.getMicropriceTicks() - book.getMidTicks();
+            }
+        }
+        for (BookSignals book : books) {
+            signal += book.getTimeWeightedSpreadTicks();
+        }
+        return signal;
+    }
+    
+    private static void rest(BookSignals book, boolean buy, long priceTicks, int quantity, long now) {
+        long remaining = book.sweep(buy, priceTicks, quantity, now);
+        if (remaining > 0) {
+            book.onAdd(buy, priceTicks, remaining, now);
+        }
+    }
 }
@@ -1,9 +1,19 @@
 package com.orderflow.benchmark;
 
 import com.orderflow.model.Order;
+import com.orderflow.model.OrderBatch;
+import com.orderflow.model.OrderRecord;
+import com.orderflow.util.ByteOrderParser;
+import com.orderflow.util.OrderIdDeduplicator;
 import com.orderflow.util.OrderParser;
+import com.orderflow.util.RejectJournal;
+import com.orderflow.util.RejectResult;
+import com.orderflow.util.SymbolTable;
+import com.orderflow.util.VectorOrderParser;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -39,6 +49,18 @@ public class OrderParsingBenchmark {
     private java.util.List<String> batchLines;
     private OrderParser parser;
     
+    // Byte-level variants of the same data
+    private byte[] singleLineBytes;
+    private ByteBuffer batchBuffer;
+    private ByteOrderParser byteParser;
+    private OrderRecord record;
+    
+    // Same 1000 lines with every fifth one (20%) garbage
+    private ByteBuffer garbageBuffer;
+    private RejectResult rejectResult;
+    private OrderBatch rejectBatch;
+    private RejectJournal rejectJournal;
+    
     @Setup
     public void setup() {
         parser = new OrderParser();
@@ -50,6 +72,23 @@ public class OrderParsingBenchmark {
             batchLines.add(String.format("ORD%05d,AAPL,BUY,%.2f,%d", 
                 i, 100.0 + (i % 100), 100 + (i % 50)));
         }
+        
+        byteParser = new ByteOrderParser();
+        record = new OrderRecord();
+        singleLineBytes = singleLine.getBytes(StandardCharsets.US_ASCII);
+        batchBuffer = ByteBuffer.wrap(
+            (String.join("\n", batchLines) + "\n").getBytes(StandardCharsets.US_ASCII));
+        
+        String[] garbage = {"ORDxx,AAPL,BUY,1.00,1", "ORD1,AAPL,HOLD,1.00,1", "ORD1,AAPL,BUY,abc,1",
+            "ORD1,AAPL,BUY,1.00,-5", "not,a,valid,order", "ORD1,AAPL"};
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < batchLines.size(); i++) {
+            sb.append(i % 5 == 4 ? garbage[(i / 5) % garbage.length] : batchLines.get(i)).append('\n');
+        }
+        garbageBuffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.US_ASCII));
+        rejectResult = new RejectResult();
+        rejectBatch = new OrderBatch(1000);
+        rejectJournal = new RejectJournal();
     }
     
     /**
@@ -79,6 +118,189 @@ public class OrderParsingBenchmark {
             "Implement OrderParser.parseAll() first, then uncomment benchmark");
     }
     
+    /**
+     * Benchmark single line parsing from bytes.
+     * 
+     * Compare gc.alloc.rate.norm with parseSingleLine - the target is 0 B/op.
+     */
+    @Benchmark
+    public OrderRecord parseSingleLineBytes() {
+        return byteParser.parse(singleLineBytes, 0, singleLineBytes.length, record);
+    }
+    
+    /**
+     * Benchmark batch parsing from a buffer holding the same 1000 lines as parseBatch.
+     * 
+     * Divide gc.alloc.rate.norm by 1000 for allocation per parsed order.
+     */
+    @Benchmark
+    public void parseBatchBytes(Blackhole bh) {
+        ByteBuffer buf = batchBuffer;
+        int limit = buf.limit();
+        for (int pos = 0; pos < limit; ) {
+            pos = byteParser.parseLine(buf, pos, limit, record);
+            bh.consume(record.getPriceTicks());
+        }
+    }
+    
+    /**
+     * Benchmark a 20% garbage buffer with the throwing parser.
+     * 
+     * Each bad line pays for an exception and its stack trace.
+     */
+    @Benchmark
+    public int parseGarbageExceptions(Blackhole bh) {
+        ByteBuffer buf = garbageBuffer;
+        int limit = buf.limit();
+        int rejected = 0;
+        for (int pos = 0; pos < limit; ) {
+            int next = ByteOrderParser.nextLine(buf, pos, limit);
+            try {
+                byteParser.parse(buf, pos, next, record);
+                bh.consume(record.getPriceTicks());
+            } catch (IllegalArgumentException e) {
+                rejected++;
+            }
+            pos = next;
+        }
+        return rejected;
+    }
+    
+    /**
+     * Benchmark the same buffer with reject codes and a batched reject journal.
+     * 
+     * Compare ops/ms and gc.alloc.rate.norm with parseGarbageExceptions.
+     */
+    @Benchmark
+    public int parseGarbageRejectCodes(Blackhole bh) {
+        ByteBuffer buf = garbageBuffer;
+        int limit = buf.limit();
+        OrderBatch batch = rejectBatch;
+        batch.clear();
+        for (int pos = 0; pos < limit; ) {
+            int next = ByteOrderParser.nextLine(buf, pos, limit);
+            if (byteParser.tryParse(buf, pos, next, record, rejectResult)) {
+                bh.consume(record.getPriceTicks());
+            } else {
+                batch.reject(rejectResult.getCode(), pos);
+            }
+            pos = next;
+        }
+        rejectJournal.append(batch);
+        return batch.getRejected();
+    }
+    
+    /**
+     * One million generated lines for the bulk parser comparison; kept in
+     * its own state so the other benchmarks don't pay for building it.
+     */
+    @State(Scope.Benchmark)
+    public static class MillionLines {
+        ByteBuffer buffer;
+        OrderBatch batch;
+        VectorOrderParser scalarParser;
+        VectorOrderParser vectorParser;
+        
+        @Setup
+        public void setup() {
+            String[] symbols = {"AAPL", "GOOG", "MSFT", "AMZN", "META"};
+            java.util.Random random = new java.util.Random(42);
+            StringBuilder sb = new StringBuilder(32 * 1_000_000);
+            for (int i = 0; i < 1_000_000; i++) {
+                sb.append("ORD").append(String.format("%08d", i)).append(',')
+                  .append(symbols[random.nextInt(symbols.length)]).append(',')
+                  .append(random.nextBoolean() ? "BUY" : "SELL").append(',')
+                  .append(100 + random.nextInt(400)).append('.').append(10 + random.nextInt(90)).append(',')
+                  .append(1 + random.nextInt(1000)).append('\n');
+            }
+            buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.US_ASCII));
+            batch = new OrderBatch(1_000_000);
+            SymbolTable table = new SymbolTable();
+            scalarParser = new VectorOrderParser(table, false);
+            vectorParser = new VectorOrderParser(table, true);
+            if (!vectorParser.isVectorEnabled()) {
+                throw new IllegalStateException("Vector API unavailable; run with --add-modules jdk.incubator.vector");
+            }
+        }
+    }
+    
+    /**
+     * Benchmark bulk parsing of 1M lines with scalar delimiter scanning.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 2, jvmArgs = {"-Xms1G", "-Xmx1G", "--add-modules=jdk.incubator.vector"})
+    public int parseMillionScalar(MillionLines state) {
+        state.batch.clear();
+        return state.scalarParser.parse(state.buffer, 0, state.buffer.limit(), state.batch, 0);
+    }
+    
+    /**
+     * Benchmark the same 1M lines with Vector API delimiter and digit scanning.
+     * 
+     * Output is identical to parseMillionScalar; compare ms/op.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 2, jvmArgs = {"-Xms1G", "-Xmx1G", "--add-modules=jdk.incubator.vector"})
+    public int parseMillionVector(MillionLines state) {
+        state.batch.clear();
+        return state.vectorParser.parse(state.buffer, 0, state.buffer.limit(), state.batch, 0);
+    }
+    
+    /**
+     * An endless stream of increasing order IDs in which about 5% are
+     * retries of an ID from the last few thousand, against a full 1M window.
+     */
+    @State(Scope.Benchmark)
+    public static class DedupeStream {
+        static final int IDS_PER_OP = 1024;
+        OrderIdDeduplicator deduplicator;
+        int[] retryDistance;
+        long nextId;
+        int cursor;
+        
+        @Setup
+        public void setup() {
+            deduplicator = new OrderIdDeduplicator(OrderIdDeduplicator.DEFAULT_WINDOW, 0);
+            java.util.Random random = new java.util.Random(42);
+            retryDistance = new int[1 << 16];
+            for (int i = 0; i < retryDistance.length; i++) {
+                retryDistance[i] = random.nextInt(20) == 0 ? 1 + random.nextInt(4096) : 0;
+            }
+            // Fill the window so lookups probe every slice
+            for (nextId = 0; nextId < 2L * OrderIdDeduplicator.DEFAULT_WINDOW; nextId++) {
+                deduplicator.firstSeen(nextId);
+            }
+        }
+    }
+    
+    /**
+     * Benchmark duplicate detection per order ID; the target is well under 100 ns/op.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @OperationsPerInvocation(DedupeStream.IDS_PER_OP)
+    public int dedupeOrderIds(DedupeStream state) {
+        int duplicates = 0;
+        int[] retry = state.retryDistance;
+        int cursor = state.cursor;
+        long nextId = state.nextId;
+        for (int i = 0; i < DedupeStream.IDS_PER_OP; i++) {
+            int distance = retry[cursor++ & (retry.length - 1)];
+            long id = distance == 0 ? nextId++ : nextId - distance;
+            if (!state.deduplicator.firstSeen(id)) {
+                duplicates++;
+            }
+        }
+        state.cursor = cursor;
+        state.nextId = nextId;
+        return duplicates;
+    }
+    
     /**
      * Benchmark order ID validation.
      * 
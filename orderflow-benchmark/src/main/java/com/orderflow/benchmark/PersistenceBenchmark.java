@@ -0,0 +1,311 @@
+package com.orderflow.benchmark;
+
+import com.orderflow.io.WriteAheadLog;
+import com.orderflow.model.Order;
+import com.orderflow.model.OrderRecord;
+import com.orderflow.model.OrderState;
+import com.orderflow.service.BulkOrderLoader;
+import com.orderflow.service.OrderTiering;
+import com.orderflow.service.PersistenceService;
+import com.orderflow.service.WriteBehindWriter;
+import com.orderflow.util.OrderDataGenerator;
+import com.orderflow.util.OrderIds;
+import com.orderflow.util.SymbolTable;
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * JMH Benchmarks for order persistence against embedded H2 in file mode.
+ *
+ * ============================================================
+ * Lab F: I/O & Batching Optimization
+ * ============================================================
+ *
+ * Run with:
+ *   java -jar benchmarks.jar PersistenceBenchmark -f 1
+ *
+ * Scores are rows per second. Compare the per-row pattern described in
+ * PersistenceService (connection, INSERT and commit per order) with
+ * write-behind batching and group commit.
+ * 
+ * insert* run single auto-committed INSERTs from 4 threads through a
+ * new connection per call, the service's connection pool, and one shared
+ * connection, to separate connection cost from commit cost.
+ * 
+ * bulkLoad loads orders with secondary indexes dropped and MERGE batches
+ * in large transactions; its score includes rebuilding the indexes over
+ * the whole table at the end of each load.
+ * 
+ * wal* append to the memory-mapped write-ahead log: walAppend with the
+ * background sync policy (every 1024 records or 5 ms), walDurableAppend
+ * waiting for each record to be forced to disk, scored as latency.
+ * 
+ * archive* look up orders in an OrderTiering store where 90% of
+ * {@value #ARCHIVE_ORDERS} orders are filled or cancelled and tiered out
+ * to segment files: archiveLookupRandom reads and inflates a block per
+ * lookup, archiveLookupSequential mostly hits the block it read last,
+ * archiveLookupLive answers from memory. Scored as latency.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms1G", "-Xmx1G"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PersistenceBenchmark {
+
+    static final int PER_ROW_ORDERS = 100;
+    static final int WRITE_BEHIND_ORDERS = 10_000;
+    static final int BULK_ORDERS = 100_000;
+    static final int POOL_SIZE = 4;
+    static final int ARCHIVE_ORDERS = 1_000_000;
+
+    @Param({"1000"})
+    int maxGroupRows;
+
+    private Path directory;
+    private String jdbcUrl;
+    private PersistenceService persistence;
+    private PersistenceService pooled;
+    private SymbolTable symbols;
+    private WriteBehindWriter writer;
+    private WriteAheadLog wal;
+    private Connection shared;
+    private PreparedStatement sharedInsert;
+    private final OrderRecord record = new OrderRecord();
+    private final AtomicLong nextOrderId = new AtomicLong();
+
+    /** Per-thread row for the multi-threaded inserts. */
+    @State(Scope.Thread)
+    public static class ThreadOrder {
+        final OrderRecord record = new OrderRecord();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("orderflow-persistence-bench");
+        jdbcUrl = "jdbc:h2:file:" + directory.resolve("orders").toAbsolutePath();
+        persistence = new PersistenceService(jdbcUrl, "sa", "");
+        persistence.initializeSchema();
+        symbols = OrderDataGenerator.symbolTable();
+        writer = persistence.openWriteBehind(symbols, 4 * maxGroupRows, maxGroupRows, 5);
+        pooled = new PersistenceService(jdbcUrl, "sa", "", POOL_SIZE);
+        wal = WriteAheadLog.open(directory.resolve("wal"), symbols, WriteAheadLog.DEFAULT_SEGMENT_BYTES, 1024, 5);
+        try {
+            shared = DriverManager.getConnection(jdbcUrl, "sa", "");
+            sharedInsert = shared.prepareStatement(
+                "INSERT INTO orders (order_id, symbol, side, price, quantity, created_at) VALUES (?, ?, ?, ?, ?, ?)");
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        System.out.printf("%n  pool: %,d checkouts, %,d waited, max wait %,d us%n", pooled.getPool().getCheckouts(),
+            pooled.getPool().getWaits(), pooled.getPool().getMaxWaitNanos() / 1_000);
+        shared.close();
+        pooled.close();
+        writer.close();
+        wal.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Baseline: a new connection, one INSERT and an auto-commit per order.
+     */
+    @Benchmark
+    @OperationsPerInvocation(PER_ROW_ORDERS)
+    public void perRowAutoCommit() {
+        for (int i = 0; i < PER_ROW_ORDERS; i++) {
+            nextOrder(record);
+            persistence.saveOrder(record, symbols.symbol(record.getSymbolId()),
+                System.currentTimeMillis() * 1_000_000L);
+        }
+    }
+
+    /**
+     * Queue orders for the write-behind writer and wait until they are
+     * committed.
+     */
+    @Benchmark
+    @OperationsPerInvocation(WRITE_BEHIND_ORDERS)
+    public long writeBehind() {
+        for (int i = 0; i < WRITE_BEHIND_ORDERS; i++) {
+            writer.saveOrder(nextOrder(record));
+        }
+        writer.flush();
+        return writer.getRowsCommitted();
+    }
+
+    /**
+     * A historical load: MERGE batches committed every
+     * {@value BulkOrderLoader#DEFAULT_TRANSACTION_ROWS} rows, then the
+     * index rebuild.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BULK_ORDERS)
+    public long bulkLoad() {
+        try (BulkOrderLoader loader = persistence.openBulkLoader(symbols, BulkOrderLoader.DEFAULT_TRANSACTION_ROWS)) {
+            for (int i = 0; i < BULK_ORDERS; i++) {
+                loader.append(nextOrder(record));
+            }
+            return loader.finish();
+        }
+    }
+
+    /** Keep the log's disk use bounded; nothing compacts it here. */
+    @TearDown(Level.Iteration)
+    public void truncateWal() {
+        wal.sync();
+        wal.truncateBefore(wal.getDurableSequence());
+    }
+
+    @Benchmark
+    public long walAppend() {
+        return wal.appendOrder(nextOrder(record), System.nanoTime());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long walDurableAppend() {
+        long sequence = wal.appendOrder(nextOrder(record), System.nanoTime());
+        wal.awaitDurable(sequence);
+        return sequence;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void insertPerCallConnection(ThreadOrder order) {
+        nextOrder(order.record);
+        persistence.saveOrder(order.record, symbols.symbol(order.record.getSymbolId()), System.nanoTime());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void insertPooled(ThreadOrder order) {
+        nextOrder(order.record);
+        pooled.saveOrder(order.record, symbols.symbol(order.record.getSymbolId()), System.nanoTime());
+    }
+
+    /**
+     * One connection and statement shared by all threads, which take turns.
+     */
+    @Benchmark
+    @Threads(4)
+    public void insertSingleConnection(ThreadOrder order) throws SQLException {
+        OrderRecord record = nextOrder(order.record);
+        synchronized (sharedInsert) {
+            sharedInsert.setString(1, OrderIds.format(record.getOrderId()));
+            sharedInsert.setString(2, symbols.symbol(record.getSymbolId()));
+            sharedInsert.setString(3, record.getSide().name());
+            sharedInsert.setBigDecimal(4, BigDecimal.valueOf(record.getPriceTicks(), OrderRecord.PRICE_SCALE));
+            sharedInsert.setInt(5, record.getQuantity());
+            sharedInsert.setLong(6, System.nanoTime());
+            sharedInsert.executeUpdate();
+        }
+    }
+
+    /**
+     * Orders opened 1 ms apart; all but every tenth are filled or
+     * cancelled 50 orders later and tiered a minute after that.
+     */
+    @State(Scope.Benchmark)
+    public static class Archive {
+        static final long MILLI = 1_000_000L;
+
+        Path directory;
+        OrderTiering tiering;
+        final OrderState state = new OrderState();
+        final SplittableRandom random = new SplittableRandom(42);
+        long nextId;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            directory = Files.createTempDirectory("orderflow-archive-bench");
+            SymbolTable symbols = OrderDataGenerator.symbolTable();
+            tiering = new OrderTiering(directory, symbols, 60_000 * MILLI, 3_600_000 * MILLI);
+            OrderRecord record = new OrderRecord();
+            long now = 0;
+            for (long id = 0; id < ARCHIVE_ORDERS; id++) {
+                now += MILLI;
+                tiering.onNew(record.set(id, (int) (id % symbols.size()), (id & 1) == 0 ? Order.Side.BUY
+                    : Order.Side.SELL, 10_000 + id % 500, 100), now);
+                long closing = id - 50;
+                if (closing >= 0 && closing % 10 != 0) {
+                    if (closing % 3 == 0) {
+                        tiering.onCancel(closing, now);
+                    } else {
+                        tiering.onFill(closing, 100, now);
+                    }
+                }
+                if (id % 100_000 == 0) {
+                    tiering.tier(now);
+                }
+            }
+            tiering.tier(now + 60_000 * MILLI);
+            System.out.printf("%n  archive: %,d live, %,d archived in %,d segments%n", tiering.liveCount(),
+                tiering.archivedCount(), tiering.segmentCount());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            tiering.close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+
+        /** An id the store archived. */
+        long archivedId() {
+            long id = random.nextLong(ARCHIVE_ORDERS - 100);
+            return id % 10 == 0 ? id + 1 : id;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean archiveLookupRandom(Archive archive) {
+        return archive.tiering.lookup(archive.archivedId(), archive.state);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean archiveLookupSequential(Archive archive) {
+        long id = archive.nextId++ % (ARCHIVE_ORDERS - 100);
+        return archive.tiering.lookup(id % 10 == 0 ? id + 1 : id, archive.state);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean archiveLookupLive(Archive archive) {
+        return archive.tiering.lookup(archive.random.nextLong(ARCHIVE_ORDERS / 10) * 10, archive.state);
+    }
+
+    private OrderRecord nextOrder(OrderRecord record) {
+        long id = nextOrderId.getAndIncrement();
+        return record.set(id, (int) (id % symbols.size()), (id & 1) == 0 ? Order.Side.BUY : Order.Side.SELL,
+            10_000 + id % 500, 100 * (1 + (int) (id % 10)));
+    }
+}
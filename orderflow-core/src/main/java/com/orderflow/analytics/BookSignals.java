@@ -0,0 +1,394 @@
+package com.orderflow.analytics;
+
+/**
+ * Quoting signals for one symbol's book - depth imbalance, microprice,
+ * time-weighted spread and queue-position estimates - kept current from
+ * book change events instead of recomputed by walking and copying
+ * {@link com.orderflow.model.OrderBook} levels.
+ *
+ * The book is mirrored as a price ladder: resting quantity per price tick
+ * in two primitive arrays, plus the best bid and ask. Events are
+ * level-based (what a matching engine or an L2 feed reports):
+ *
+ *   - {@link #onAdd}: quantity joins the back of a level
+ *   - {@link #onCancel}: quantity leaves a level from an unknown position
+ *   - {@link #onExecution}: quantity trades at the front of a level
+ *
+ * and {@link #sweep} applies an aggressive order as executions against
+ * the opposite side. Each event is O(1) except when it empties the best
+ * level, which scans to the next one (usually a few ticks). The ladder
+ * grows, re-centred, if a price falls outside it.
+ *
+ * Queue position is tracked for orders added with {@link #addTracked}
+ * (e.g. our own quotes): the quantity ahead starts at the level's
+ * quantity, executions at the level consume it from the front, and
+ * cancels by others reduce it pro rata - the standard estimate when the
+ * feed does not say which order cancelled. Tracked orders cancelling
+ * ahead of each other are applied exactly.
+ *
+ * Prices are ticks. Not thread-safe: apply events and read signals on the
+ * symbol's lane (see {@link com.orderflow.executor.SymbolLaneExecutor}).
+ */
+public class BookSignals {
+
+    /** No price: an empty side. */
+    public static final long NONE = Long.MIN_VALUE;
+
+    public static final int MAX_TRACKED = 64;
+
+    private static final int INITIAL_LADDER_TICKS = 1024;
+    private static final int MAX_LADDER_TICKS = 1 << 24;
+
+    // Resting quantity at price base + i
+    private long base;
+    private long[] bidQty = new long[0];
+    private long[] askQty = new long[0];
+    private int bidLevels;
+    private int askLevels;
+    private long bestBid = NONE;
+    private long bestAsk = NONE;
+
+    // Time-weighted spread, over time the book was two-sided
+    private long lastEventNanos = NONE;
+    private double spreadTickNanos;
+    private long twoSidedNanos;
+
+    // Tracked orders, by handle
+    private final boolean[] trackedLive = new boolean[MAX_TRACKED];
+    private final boolean[] trackedBuy = new boolean[MAX_TRACKED];
+    private final long[] trackedPrice = new long[MAX_TRACKED];
+    private final long[] trackedAhead = new long[MAX_TRACKED];
+    private final long[] trackedRemaining = new long[MAX_TRACKED];
+    private final long[] trackedSequence = new long[MAX_TRACKED];
+    private int trackedCount;
+    private long nextSequence;
+
+    // ---- events -----------------------------------------------------------
+
+    /**
+     * Resting quantity joins the back of a level.
+     *
+     * @throws IllegalArgumentException if {@code quantity} is not positive;
+     *         an empty add would open a level with nothing resting at it
+     */
+    public void onAdd(boolean buy, long priceTicks, long quantity, long timeNanos) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Add quantity must be positive: " + quantity);
+        }
+        advanceClock(timeNanos);
+        int i = index(priceTicks);
+        long[] levels = buy ? bidQty : askQty;
+        if (levels[i] == 0) {
+            if (buy) {
+                bidLevels++;
+                if (bestBid == NONE || priceTicks > bestBid) bestBid = priceTicks;
+            } else {
+                askLevels++;
+                if (bestAsk == NONE || priceTicks < bestAsk) bestAsk = priceTicks;
+            }
+        }
+        levels[i] += quantity;
+    }
+
+    /**
+     * Quantity leaves a level by cancel or amend-down. More than the level
+     * holds (e.g. a cancel racing a fill) empties it.
+     */
+    public void onCancel(boolean buy, long priceTicks, long quantity, long timeNanos) {
+        advanceClock(timeNanos);
+        long level = quantity(buy, priceTicks);
+        long removed = Math.min(quantity, level);
+        if (removed <= 0) return;
+        if (trackedCount > 0) {
+            // Only others' quantity can have cancelled: each tracked order loses
+            // the share of it that was ahead, not counting tracked orders ahead
+            long others = level - trackedAt(buy, priceTicks, Long.MAX_VALUE);
+            for (int h = 0; h < trackedCount; h++) {
+                if (isTrackedAt(h, buy, priceTicks) && others > 0) {
+                    long othersAhead = Math.max(0, trackedAhead[h] - trackedAt(buy, priceTicks, trackedSequence[h]));
+                    long share = Math.round((double) Math.min(removed, others) * othersAhead / others);
+                    trackedAhead[h] = Math.max(0, trackedAhead[h] - share);
+                }
+            }
+        }
+        remove(buy, priceTicks, removed);
+    }
+
+    /**
+     * Resting quantity trades at the front of a level.
+     *
+     * @param buy side of the resting orders
+     */
+    public void onExecution(boolean buy, long priceTicks, long quantity, long timeNanos) {
+        advanceClock(timeNanos);
+        long executed = Math.min(quantity, quantity(buy, priceTicks));
+        if (executed <= 0) return;
+        for (int h = 0; h < trackedCount; h++) {
+            if (!isTrackedAt(h, buy, priceTicks)) continue;
+            long ahead = trackedAhead[h];
+            if (executed <= ahead) {
+                trackedAhead[h] = ahead - executed;
+            } else {
+                trackedAhead[h] = 0;
+                trackedRemaining[h] = Math.max(0, trackedRemaining[h] - (executed - ahead));
+                if (trackedRemaining[h] == 0) {
+                    trackedLive[h] = false;
+                }
+            }
+        }
+        remove(buy, priceTicks, executed);
+    }
+
+    /**
+     * Apply an aggressive order: execute it against the opposite side,
+     * best price first, down to {@code limitPriceTicks}.
+     *
+     * @param buy side of the aggressive order
+     * @return quantity left unfilled, which the caller may rest with onAdd
+     */
+    public long sweep(boolean buy, long limitPriceTicks, long quantity, long timeNanos) {
+        long remaining = quantity;
+        while (remaining > 0) {
+            long best = buy ? bestAsk : bestBid;
+            if (best == NONE || (buy ? best > limitPriceTicks : best < limitPriceTicks)) break;
+            long fill = Math.min(remaining, quantity(!buy, best));
+            onExecution(!buy, best, fill, timeNanos);
+            remaining -= fill;
+        }
+        return remaining;
+    }
+
+    // ---- queue position ---------------------------------------------------
+
+    /**
+     * Add an order whose queue position should be followed.
+     *
+     * @return handle for the queue queries, or -1 if MAX_TRACKED orders are tracked already
+     * @throws IllegalArgumentException if {@code quantity} is not positive
+     */
+    public int addTracked(boolean buy, long priceTicks, long quantity, long timeNanos) {
+        int h = 0;
+        while (h < trackedCount && trackedLive[h]) h++;
+        if (h == MAX_TRACKED) return -1;
+        long ahead = quantity(buy, priceTicks);
+        onAdd(buy, priceTicks, quantity, timeNanos);
+        trackedLive[h] = true;
+        trackedBuy[h] = buy;
+        trackedPrice[h] = priceTicks;
+        trackedAhead[h] = ahead;
+        trackedRemaining[h] = quantity;
+        trackedSequence[h] = nextSequence++;
+        if (h == trackedCount) trackedCount++;
+        return h;
+    }
+
+    /**
+     * Cancel a tracked order's remaining quantity. Tracked orders behind
+     * it at the same level move up by exactly that much.
+     */
+    public void cancelTracked(int handle, long timeNanos) {
+        if (!trackedLive[handle]) return;
+        advanceClock(timeNanos);
+        long remaining = trackedRemaining[handle];
+        trackedLive[handle] = false;
+        for (int h = 0; h < trackedCount; h++) {
+            if (isTrackedAt(h, trackedBuy[handle], trackedPrice[handle])
+                    && trackedSequence[h] > trackedSequence[handle]) {
+                trackedAhead[h] = Math.max(0, trackedAhead[h] - remaining);
+            }
+        }
+        remove(trackedBuy[handle], trackedPrice[handle], Math.min(remaining,
+            quantity(trackedBuy[handle], trackedPrice[handle])));
+        while (trackedCount > 0 && !trackedLive[trackedCount - 1]) trackedCount--;
+    }
+
+    /** Estimated quantity ahead of a tracked order; 0 once it is filled or cancelled. */
+    public long getQueueAhead(int handle) {
+        return trackedLive[handle] ? trackedAhead[handle] : 0;
+    }
+
+    /** Unfilled quantity of a tracked order; 0 once it is filled or cancelled. */
+    public long getTrackedRemaining(int handle) {
+        return trackedLive[handle] ? trackedRemaining[handle] : 0;
+    }
+
+    // ---- signals ----------------------------------------------------------
+
+    public long getBestBidTicks() { return bestBid; }
+    public long getBestAskTicks() { return bestAsk; }
+
+    public boolean isTwoSided() {
+        return bestBid != NONE && bestAsk != NONE;
+    }
+
+    /** Best ask minus best bid, or NONE if a side is empty. */
+    public long getSpreadTicks() {
+        return isTwoSided() ? bestAsk - bestBid : NONE;
+    }
+
+    /** Quantity resting at a price on one side. */
+    public long quantity(boolean buy, long priceTicks) {
+        long i = priceTicks - base;
+        long[] levels = buy ? bidQty : askQty;
+        return i < 0 || i >= levels.length ? 0 : levels[(int) i];
+    }
+
+    /**
+     * Depth imbalance over the best {@code levels} non-empty levels per
+     * side: (bid - ask) / (bid + ask), in [-1, 1]; 0 for an empty book.
+     */
+    public double getImbalance(int levels) {
+        long bids = depth(true, levels);
+        long asks = depth(false, levels);
+        return bids + asks == 0 ? 0 : (double) (bids - asks) / (bids + asks);
+    }
+
+    /**
+     * Total quantity in the best {@code levels} non-empty levels of a side.
+     */
+    public long depth(boolean buy, int levels) {
+        long best = buy ? bestBid : bestAsk;
+        if (best == NONE) return 0;
+        long[] qty = buy ? bidQty : askQty;
+        int remainingLevels = Math.min(levels, buy ? bidLevels : askLevels);
+        long total = 0;
+        for (int i = (int) (best - base); remainingLevels > 0; i += buy ? -1 : 1) {
+            if (qty[i] != 0) {
+                total += qty[i];
+                remainingLevels--;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Best prices weighted by the opposite side's size - nearer the ask
+     * when bids outweigh asks - or NaN if a side is empty.
+     */
+    public double getMicropriceTicks() {
+        if (!isTwoSided()) return Double.NaN;
+        long bidSize = bidQty[(int) (bestBid - base)];
+        long askSize = askQty[(int) (bestAsk - base)];
+        return ((double) bestBid * askSize + (double) bestAsk * bidSize) / (bidSize + askSize);
+    }
+
+    /** Midpoint of the best prices, or NaN if a side is empty. */
+    public double getMidTicks() {
+        return isTwoSided() ? (bestBid + bestAsk) / 2.0 : Double.NaN;
+    }
+
+    /**
+     * Spread averaged over the time the book was two-sided, as of the
+     * last event, since creation or {@link #resetTimeWeightedSpread}.
+     */
+    public double getTimeWeightedSpreadTicks() {
+        return twoSidedNanos == 0 ? 0 : spreadTickNanos / twoSidedNanos;
+    }
+
+    /** Nanoseconds the book was two-sided in the current spread window. */
+    public long getTwoSidedNanos() {
+        return twoSidedNanos;
+    }
+
+    public void resetTimeWeightedSpread() {
+        spreadTickNanos = 0;
+        twoSidedNanos = 0;
+    }
+
+    // ---- internals --------------------------------------------------------
+
+    /**
+     * Accrue the spread that held from the previous event until now.
+     */
+    private void advanceClock(long timeNanos) {
+        if (lastEventNanos != NONE && timeNanos > lastEventNanos) {
+            if (isTwoSided()) {
+                long dt = timeNanos - lastEventNanos;
+                spreadTickNanos += (double) (bestAsk - bestBid) * dt;
+                twoSidedNanos += dt;
+            }
+        }
+        if (lastEventNanos == NONE || timeNanos > lastEventNanos) {
+            lastEventNanos = timeNanos;
+        }
+    }
+
+    private void remove(boolean buy, long priceTicks, long quantity) {
+        if (quantity <= 0) return;
+        int i = (int) (priceTicks - base);
+        long[] levels = buy ? bidQty : askQty;
+        levels[i] -= quantity;
+        if (levels[i] != 0) return;
+        if (buy) {
+            if (--bidLevels == 0) {
+                bestBid = NONE;
+            } else if (priceTicks == bestBid) {
+                while (levels[--i] == 0) { }
+                bestBid = base + i;
+            }
+        } else {
+            if (--askLevels == 0) {
+                bestAsk = NONE;
+            } else if (priceTicks == bestAsk) {
+                while (levels[++i] == 0) { }
+                bestAsk = base + i;
+            }
+        }
+    }
+
+    private boolean isTrackedAt(int h, boolean buy, long priceTicks) {
+        return trackedLive[h] && trackedBuy[h] == buy && trackedPrice[h] == priceTicks;
+    }
+
+    /** Remaining quantity of tracked orders at a level added before {@code sequence}. */
+    private long trackedAt(boolean buy, long priceTicks, long sequence) {
+        long total = 0;
+        for (int h = 0; h < trackedCount; h++) {
+            if (isTrackedAt(h, buy, priceTicks) && trackedSequence[h] < sequence) total += trackedRemaining[h];
+        }
+        return total;
+    }
+
+    /**
+     * Ladder index of a price, growing and re-centring the ladder if needed.
+     */
+    private int index(long priceTicks) {
+        long i = priceTicks - base;
+        if (i >= 0 && i < bidQty.length) {
+            return (int) i;
+        }
+        if (bidQty.length == 0) {
+            bidQty = new long[INITIAL_LADDER_TICKS];
+            askQty = new long[INITIAL_LADDER_TICKS];
+            base = priceTicks - INITIAL_LADDER_TICKS / 2;
+            return INITIAL_LADDER_TICKS / 2;
+        }
+        long low = Math.min(base, priceTicks);
+        long high = Math.max(base + bidQty.length - 1, priceTicks);
+        long span = high - low + 1;
+        if (span > MAX_LADDER_TICKS / 2) {
+            throw new IllegalArgumentException("Price " + priceTicks + " is more than " + MAX_LADDER_TICKS / 2
+                + " ticks from the book at " + base);
+        }
+        int length = Integer.highestOneBit((int) span) << 2;
+        long newBase = low - (length - span) / 2;
+        int shift = (int) (base - newBase);
+        bidQty = grow(bidQty, length, shift);
+        askQty = grow(askQty, length, shift);
+        base = newBase;
+        return (int) (priceTicks - base);
+    }
+
+    private static long[] grow(long[] levels, int length, int shift) {
+        long[] grown = new long[length];
+        System.arraycopy(levels, 0, grown, shift, levels.length);
+        return grown;
+    }
+
+    @Override
+    public String toString() {
+        return "BookSignals[bid=" + (bestBid == NONE ? "-" : bestBid) + " x " + depth(true, 1)
+            + ", ask=" + (bestAsk == NONE ? "-" : bestAsk) + " x " + depth(false, 1)
+            + ", levels=" + bidLevels + "/" + askLevels + "]";
+    }
+}
@@ -0,0 +1,133 @@
+package com.orderflow.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Count-Min sketch (Cormode and Muthukrishnan) of total weight per key,
+ * e.g. traded volume per symbol, for key universes too large to count
+ * exactly.
+ *
+ * {@code depth} rows of {@code width} counters; a key adds its weight to
+ * one counter per row and is estimated by the smallest of them. With
+ * {@code width >= e / epsilon} and {@code depth >= ln(1 / delta)}, an
+ * estimate never undercounts and overcounts by more than
+ * {@code epsilon * totalWeight} with probability at most {@code delta}.
+ * Memory is {@code 8 * width * depth} bytes whatever the number of keys.
+ *
+ * Unlike {@link SpaceSavingSketch}, which only knows the keys holding its
+ * counters, this answers for any key; the two together give top-N with
+ * a bounded point estimate for everything else.
+ *
+ * Sketches built with the same dimensions and seed merge by adding
+ * counters, so shards can be summarized independently.
+ *
+ * Not thread-safe.
+ */
+public final class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final long seed;
+    private final int widthMask;
+    private final long[] counters;
+    private long totalWeight;
+
+    /**
+     * @param epsilon relative error bound, as a share of total weight
+     * @param delta probability of exceeding it
+     */
+    public static CountMinSketch withErrorBounds(double epsilon, double delta, long seed) {
+        if (!(epsilon > 0 && epsilon < 1) || !(delta > 0 && delta < 1)) {
+            throw new IllegalArgumentException("epsilon and delta must be in (0, 1): " + epsilon + ", " + delta);
+        }
+        int width = (int) Math.min(1 << 30, (long) Math.ceil(Math.E / epsilon));
+        int depth = (int) Math.ceil(Math.log(1 / delta));
+        return new CountMinSketch(width, Math.max(1, depth), seed);
+    }
+
+    /**
+     * @param width counters per row; rounded up to a power of two
+     * @param depth rows
+     */
+    public CountMinSketch(int width, int depth, long seed) {
+        if (width <= 0 || width > 1 << 30 || depth <= 0) {
+            throw new IllegalArgumentException("width must be in [1, 2^30] and depth positive: "
+                + width + ", " + depth);
+        }
+        this.width = Integer.highestOneBit(Math.max(width, 2) - 1) << 1;
+        this.depth = depth;
+        this.seed = seed;
+        this.widthMask = this.width - 1;
+        this.counters = new long[Math.multiplyExact(this.width, depth)];
+    }
+
+    /**
+     * Add {@code weight} to {@code key}.
+     *
+     * @param weight non-negative, or estimates could fall below the truth
+     */
+    public void add(long key, long weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight must not be negative: " + weight);
+        }
+        totalWeight += weight;
+        long hash = mix(key ^ seed);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int row = 0, base = 0; row < depth; row++, base += width) {
+            counters[base + ((h1 + row * h2) & widthMask)] += weight;
+        }
+    }
+
+    /**
+     * Estimated total weight of {@code key}: never below the truth.
+     */
+    public long estimate(long key) {
+        long hash = mix(key ^ seed);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long min = Long.MAX_VALUE;
+        for (int row = 0, base = 0; row < depth; row++, base += width) {
+            min = Math.min(min, counters[base + ((h1 + row * h2) & widthMask)]);
+        }
+        return min;
+    }
+
+    /**
+     * Add the counts of a sketch of a disjoint stream.
+     *
+     * @throws IllegalArgumentException if dimensions or seed differ
+     */
+    public CountMinSketch merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth || other.seed != seed) {
+            throw new IllegalArgumentException("Cannot merge Count-Min sketches of different shape: "
+                + width + "x" + depth + "/" + seed + " vs " + other.width + "x" + other.depth + "/" + other.seed);
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += other.counters[i];
+        }
+        totalWeight += other.totalWeight;
+        return this;
+    }
+
+    public void clear() {
+        Arrays.fill(counters, 0);
+        totalWeight = 0;
+    }
+
+    public long getTotalWeight() { return totalWeight; }
+    public int getWidth() { return width; }
+    public int getDepth() { return depth; }
+
+    /** Overcount bound holding with probability 1 - e^-depth: e * totalWeight / width. */
+    public long getErrorBound() {
+        return (long) Math.ceil(Math.E * totalWeight / width);
+    }
+
+    // Stafford variant 13 of the MurmurHash3 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,361 @@
+package com.orderflow.analytics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Per-symbol OHLCV bars of one fixed interval, built incrementally from
+ * trades, with a rolling VWAP over the bars kept.
+ *
+ * Each symbol owns a ring of {@code capacity} bars in one primitive
+ * array, eight contiguous longs per bar, indexed by
+ * {@code bucket % capacity} where a bucket is {@code timestamp / interval}.
+ * The ring always holds exactly the buckets in
+ * {@code (latest - capacity, latest]}, where {@code latest} is the
+ * symbol's newest bucket. Memory per symbol is fixed, and moving the
+ * window forward evicts each expired bar in O(1): its volume and notional
+ * come off running window sums, so the rolling VWAP over
+ * {@code capacity * interval} is a division, not a rescan.
+ *
+ * Trades may arrive out of order within the window and update their own
+ * bar; open and close are the first and last trade to arrive. Trades
+ * older than the window are dropped and counted.
+ *
+ * One thread updates; any thread may query. Each symbol's ring is guarded
+ * by a sequence lock as in {@link StreamingAnalytics}, so a reader never
+ * sees a bar or the window sums half updated.
+ *
+ * PERF-LAB: Lab B - AnalyticsBenchmark.rolling*
+ */
+public class OhlcvBars {
+
+    public static final long SECOND_NANOS = 1_000_000_000L;
+    public static final long MINUTE_NANOS = 60 * SECOND_NANOS;
+
+    private static final long NONE = Long.MIN_VALUE;
+
+    private static final VarHandle VERSION;
+
+    static {
+        try {
+            VERSION = MethodHandles.lookup().findVarHandle(Ring.class, "version", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * One bar, read back from {@link #getBar}. A bar with no trades has
+     * {@code getTradeCount() == 0} and zero prices.
+     */
+    public static final class Bar {
+        private long startNanos;
+        private long open;
+        private long high;
+        private long low;
+        private long close;
+        private long volume;
+        private long notionalTicks;
+        private int tradeCount;
+
+        public long getStartNanos() { return startNanos; }
+        public long getOpenTicks() { return open; }
+        public long getHighTicks() { return high; }
+        public long getLowTicks() { return low; }
+        public long getCloseTicks() { return close; }
+        public long getVolume() { return volume; }
+        public long getNotionalTicks() { return notionalTicks; }
+        public int getTradeCount() { return tradeCount; }
+
+        /** Volume-weighted average price in ticks, or 0 for an empty bar. */
+        public double getVwapTicks() {
+            return volume == 0 ? 0 : (double) notionalTicks / volume;
+        }
+
+        private void clear(long startNanos) {
+            this.startNanos = startNanos;
+            open = high = low = close = volume = notionalTicks = 0;
+            tradeCount = 0;
+        }
+    }
+
+    // One bar is eight contiguous longs, so a trade touches 64 bytes per
+    // ring. The array has a 16-byte header and no alignment guarantee, so
+    // those 64 bytes usually span two cache lines, not one.
+    private static final int BUCKET = 0;
+    private static final int OPEN = 1;
+    private static final int HIGH = 2;
+    private static final int LOW = 3;
+    private static final int CLOSE = 4;
+    private static final int VOLUME = 5;
+    private static final int NOTIONAL = 6;
+    private static final int TRADES = 7;
+    private static final int BAR_LONGS = 8;
+
+    /** One symbol's bars, window sums and sequence lock. */
+    private static final class Ring {
+        @SuppressWarnings("unused") // accessed through VERSION
+        private long version;
+        final long[] bars;
+        long latest = NONE;
+        long latestStartNanos = Long.MAX_VALUE; // latest * interval, for the no-division fast path
+        int latestSlot;
+        long windowVolume;
+        long windowNotional;
+
+        Ring(int capacity) {
+            bars = new long[capacity * BAR_LONGS];
+            for (int i = 0; i < bars.length; i += BAR_LONGS) {
+                bars[i + BUCKET] = NONE;
+            }
+        }
+    }
+
+    private final long intervalNanos;
+    private final int capacity;
+
+    // Grown copy-on-write by the writer; rings themselves are never replaced
+    private volatile Ring[] rings = new Ring[16];
+
+    private long lateTrades;
+
+    /**
+     * @param intervalNanos bar length
+     * @param capacity bars kept per symbol; the rolling window is
+     *                 {@code capacity * intervalNanos}
+     */
+    public OhlcvBars(long intervalNanos, int capacity) {
+        if (intervalNanos <= 0) {
+            throw new IllegalArgumentException("intervalNanos must be positive: " + intervalNanos);
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.intervalNanos = intervalNanos;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Apply one trade. Must be called from a single thread (or under
+     * external synchronization).
+     *
+     * @return false if the trade is older than the symbol's window and was dropped
+     */
+    public boolean onTrade(int symbolId, long priceTicks, int quantity, long executedAtNanos) {
+        Ring ring = ring(symbolId);
+        // Most trades land in the symbol's latest bar: no division needed
+        long sinceLatest = executedAtNanos - ring.latestStartNanos;
+        long bucket;
+        int slot;
+        if (sinceLatest >= 0 && sinceLatest < intervalNanos) {
+            bucket = ring.latest;
+            slot = ring.latestSlot;
+        } else {
+            bucket = Math.floorDiv(executedAtNanos, intervalNanos);
+            slot = (int) Math.floorMod(bucket, (long) capacity);
+            if (ring.latest != NONE && bucket <= ring.latest - capacity) {
+                lateTrades++;
+                return false;
+            }
+        }
+        long version = (long) VERSION.getOpaque(ring);
+        VERSION.setOpaque(ring, version + 1);
+        VarHandle.storeStoreFence();
+
+        if (ring.latest == NONE || bucket > ring.latest) {
+            advance(ring, bucket, slot);
+        }
+        long[] bars = ring.bars;
+        int bar = slot * BAR_LONGS;
+        if (bars[bar + BUCKET] != bucket) {
+            bars[bar + BUCKET] = bucket;
+            bars[bar + OPEN] = priceTicks;
+            bars[bar + HIGH] = priceTicks;
+            bars[bar + LOW] = priceTicks;
+            bars[bar + VOLUME] = 0;
+            bars[bar + NOTIONAL] = 0;
+            bars[bar + TRADES] = 0;
+        } else {
+            if (priceTicks > bars[bar + HIGH]) bars[bar + HIGH] = priceTicks;
+            if (priceTicks < bars[bar + LOW]) bars[bar + LOW] = priceTicks;
+        }
+        long notional = priceTicks * quantity;
+        bars[bar + CLOSE] = priceTicks;
+        bars[bar + VOLUME] += quantity;
+        bars[bar + NOTIONAL] += notional;
+        bars[bar + TRADES]++;
+        ring.windowVolume += quantity;
+        ring.windowNotional += notional;
+
+        VERSION.setRelease(ring, version + 2);
+        return true;
+    }
+
+    /**
+     * Move every symbol's window forward to {@code nowNanos}, evicting bars
+     * that have aged out, so rolling values of quiet symbols expire. Must
+     * be called from the updating thread.
+     */
+    public void advanceTo(long nowNanos) {
+        long bucket = Math.floorDiv(nowNanos, intervalNanos);
+        for (Ring ring : rings) {
+            if (ring == null || ring.latest == NONE || bucket <= ring.latest) continue;
+            long version = (long) VERSION.getOpaque(ring);
+            VERSION.setOpaque(ring, version + 1);
+            VarHandle.storeStoreFence();
+            advance(ring, bucket, (int) Math.floorMod(bucket, (long) capacity));
+            VERSION.setRelease(ring, version + 2);
+        }
+    }
+
+    /**
+     * Copy one of a symbol's bars into {@code out}.
+     *
+     * @param barsAgo 0 for the bar of the symbol's latest bucket, 1 for the
+     *                one before, up to {@code capacity - 1}
+     */
+    public Bar getBar(int symbolId, int barsAgo, Bar out) {
+        if (barsAgo < 0 || barsAgo >= capacity) {
+            throw new IllegalArgumentException("barsAgo must be in [0, " + capacity + "): " + barsAgo);
+        }
+        Ring ring = existing(symbolId);
+        if (ring == null) {
+            out.clear(0);
+            return out;
+        }
+        while (true) {
+            long before = (long) VERSION.getAcquire(ring);
+            if ((before & 1) == 0) {
+                long bucket = ring.latest - barsAgo;
+                int slot = (int) Math.floorMod(bucket, (long) capacity);
+                out.clear(bucket * intervalNanos);
+                long[] bars = ring.bars;
+                int bar = slot * BAR_LONGS;
+                if (ring.latest != NONE && bars[bar + BUCKET] == bucket) {
+                    out.open = bars[bar + OPEN];
+                    out.high = bars[bar + HIGH];
+                    out.low = bars[bar + LOW];
+                    out.close = bars[bar + CLOSE];
+                    out.volume = bars[bar + VOLUME];
+                    out.notionalTicks = bars[bar + NOTIONAL];
+                    out.tradeCount = (int) bars[bar + TRADES];
+                }
+                VarHandle.loadLoadFence();
+                if ((long) VERSION.getOpaque(ring) == before) {
+                    return out;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * VWAP in ticks over the symbol's window, or 0 if it has no volume there.
+     */
+    public double getRollingVwapTicks(int symbolId) {
+        Ring ring = existing(symbolId);
+        if (ring == null) return 0;
+        while (true) {
+            long before = (long) VERSION.getAcquire(ring);
+            if ((before & 1) == 0) {
+                long volume = ring.windowVolume;
+                long notional = ring.windowNotional;
+                VarHandle.loadLoadFence();
+                if ((long) VERSION.getOpaque(ring) == before) {
+                    return volume == 0 ? 0 : (double) notional / volume;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Traded quantity over the symbol's window.
+     */
+    public long getRollingVolume(int symbolId) {
+        Ring ring = existing(symbolId);
+        if (ring == null) return 0;
+        while (true) {
+            long before = (long) VERSION.getAcquire(ring);
+            if ((before & 1) == 0) {
+                long volume = ring.windowVolume;
+                VarHandle.loadLoadFence();
+                if ((long) VERSION.getOpaque(ring) == before) {
+                    return volume;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Start of the symbol's latest bar, or Long.MIN_VALUE if it has not traded.
+     */
+    public long getLatestBarStartNanos(int symbolId) {
+        Ring ring = existing(symbolId);
+        if (ring == null) return NONE;
+        while (true) {
+            long before = (long) VERSION.getAcquire(ring);
+            if ((before & 1) == 0) {
+                long latest = ring.latest;
+                VarHandle.loadLoadFence();
+                if ((long) VERSION.getOpaque(ring) == before) {
+                    return latest == NONE ? NONE : latest * intervalNanos;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    public long getIntervalNanos() { return intervalNanos; }
+    public int getCapacity() { return capacity; }
+
+    /** Trades dropped for being older than their symbol's window; read by the updating thread. */
+    public long getLateTrades() { return lateTrades; }
+
+    /**
+     * Make {@code bucket} the latest, evicting the bars it pushes out of
+     * the window. Only slots of buckets in (latest, bucket] can hold
+     * expired bars, so at most {@code capacity} slots are visited.
+     */
+    private void advance(Ring ring, long bucket, int slot) {
+        if (ring.latest != NONE) {
+            long first = Math.max(ring.latest + 1, bucket - capacity + 1);
+            int expired = (int) (bucket - first + 1);
+            int s = (int) Math.floorMod(first, (long) capacity);
+            for (int i = 0; i < expired; i++, s = s + 1 == capacity ? 0 : s + 1) {
+                int bar = s * BAR_LONGS;
+                if (ring.bars[bar + BUCKET] != NONE) {
+                    ring.windowVolume -= ring.bars[bar + VOLUME];
+                    ring.windowNotional -= ring.bars[bar + NOTIONAL];
+                    ring.bars[bar + BUCKET] = NONE;
+                }
+            }
+        }
+        ring.latest = bucket;
+        ring.latestStartNanos = bucket * intervalNanos;
+        ring.latestSlot = slot;
+    }
+
+    private Ring existing(int symbolId) {
+        Ring[] current = rings;
+        return symbolId < current.length ? current[symbolId] : null;
+    }
+
+    private Ring ring(int symbolId) {
+        Ring[] current = rings;
+        if (symbolId < current.length && current[symbolId] != null) {
+            return current[symbolId];
+        }
+        if (symbolId >= current.length) {
+            current = Arrays.copyOf(current, Math.max(symbolId + 1, current.length * 2));
+        } else {
+            current = current.clone();
+        }
+        Ring ring = new Ring(capacity);
+        current[symbolId] = ring;
+        rings = current;
+        return ring;
+    }
+}
@@ -0,0 +1,125 @@
+package com.orderflow.analytics;
+
+import org.HdrHistogram.AbstractHistogram;
+import org.HdrHistogram.PackedHistogram;
+import java.util.Arrays;
+
+/**
+ * Per-symbol price distributions for percentile queries (median, p99 ...),
+ * as HdrHistograms over price ticks.
+ *
+ * A histogram with {@code significantDigits} digits reports any
+ * percentile to within a relative error of {@code 10^-significantDigits}
+ * of the true price, and records in O(1). PackedHistogram stores only the
+ * buckets actually hit, so a symbol trading in a narrow band costs a few
+ * KB rather than the full range; the tracked range grows on demand past
+ * {@code highestTrackableTicks}.
+ *
+ * Recording a trade's quantity as the count gives volume-weighted
+ * percentiles; recording 1 gives trade-weighted ones.
+ *
+ * Histograms for the same symbol from different shards merge exactly (the
+ * bucket counts add), so percentiles of the union are as accurate as if
+ * one sketch had seen every trade.
+ *
+ * Not thread-safe.
+ */
+public final class PriceQuantiles {
+
+    public static final int DEFAULT_SIGNIFICANT_DIGITS = 3;
+
+    private final long highestTrackableTicks;
+    private final int significantDigits;
+    private AbstractHistogram[] histograms = new AbstractHistogram[16];
+
+    public PriceQuantiles() {
+        this(1_000_000, DEFAULT_SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * @param highestTrackableTicks initial upper end of the range; grown on demand
+     * @param significantDigits decimal digits of precision, 0 to 5
+     */
+    public PriceQuantiles(long highestTrackableTicks, int significantDigits) {
+        if (significantDigits < 0 || significantDigits > 5) {
+            throw new IllegalArgumentException("significantDigits must be in [0, 5]: " + significantDigits);
+        }
+        if (highestTrackableTicks < 2) {
+            throw new IllegalArgumentException("highestTrackableTicks must be at least 2: " + highestTrackableTicks);
+        }
+        this.highestTrackableTicks = highestTrackableTicks;
+        this.significantDigits = significantDigits;
+    }
+
+    /**
+     * Record {@code count} observations of a price (1 per trade, or the
+     * traded quantity for volume weighting).
+     */
+    public void record(int symbolId, long priceTicks, long count) {
+        if (priceTicks < 0) {
+            throw new IllegalArgumentException("priceTicks must not be negative: " + priceTicks);
+        }
+        histogram(symbolId).recordValueWithCount(priceTicks, count);
+    }
+
+    /**
+     * Price in ticks at {@code percentile} (0-100) for a symbol, or 0 if
+     * nothing was recorded for it. Equal to the true value within the
+     * histogram's precision.
+     */
+    public long getPriceTicksAtPercentile(int symbolId, double percentile) {
+        AbstractHistogram histogram = existing(symbolId);
+        return histogram == null ? 0 : histogram.getValueAtPercentile(percentile);
+    }
+
+    /** Total count recorded for a symbol. */
+    public long getCount(int symbolId) {
+        AbstractHistogram histogram = existing(symbolId);
+        return histogram == null ? 0 : histogram.getTotalCount();
+    }
+
+    /**
+     * Fold in another sketch's histograms, symbol by symbol.
+     */
+    public PriceQuantiles merge(PriceQuantiles other) {
+        for (int s = 0; s < other.histograms.length; s++) {
+            AbstractHistogram histogram = other.histograms[s];
+            if (histogram != null) {
+                histogram(s).add(histogram);
+            }
+        }
+        return this;
+    }
+
+    /** Bytes held by all histograms, for sizing. */
+    public long getEstimatedFootprintBytes() {
+        long bytes = 0;
+        for (AbstractHistogram histogram : histograms) {
+            if (histogram != null) {
+                bytes += histogram.getEstimatedFootprintInBytes();
+            }
+        }
+        return bytes;
+    }
+
+    public int getSignificantDigits() {
+        return significantDigits;
+    }
+
+    private AbstractHistogram existing(int symbolId) {
+        return symbolId < histograms.length ? histograms[symbolId] : null;
+    }
+
+    private AbstractHistogram histogram(int symbolId) {
+        if (symbolId >= histograms.length) {
+            histograms = Arrays.copyOf(histograms, Math.max(symbolId + 1, histograms.length * 2));
+        }
+        AbstractHistogram histogram = histograms[symbolId];
+        if (histogram == null) {
+            histogram = new PackedHistogram(1, highestTrackableTicks, significantDigits);
+            histogram.setAutoResize(true);
+            histograms[symbolId] = histogram;
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,91 @@
+package com.orderflow.analytics;
+
+import com.orderflow.model.OrderRecord;
+import com.orderflow.model.TradeResult;
+import com.orderflow.util.SymbolTable;
+import java.time.Instant;
+import java.util.concurrent.Flow;
+
+/**
+ * 1-second, 1-minute and 5-minute OHLCV bars per symbol, fed from one
+ * trade stream.
+ *
+ * Each interval is an {@link OhlcvBars} ring, so the rolling VWAP of each
+ * is over its whole ring:
+ *
+ *   - seconds: {@value #SECOND_BARS} bars, a 5-minute rolling window
+ *   - minutes: {@value #MINUTE_BARS} bars, a 1-hour rolling window
+ *   - five minutes: {@value #FIVE_MINUTE_BARS} bars, a 1-day rolling window
+ *
+ * A dashboard refresh reads the bars and window sums it shows instead of
+ * recomputing them from the trade history; memory is fixed per symbol
+ * (about 40 KB) however long the stream runs.
+ *
+ * Same threading rules as {@link OhlcvBars}: one updating thread, queries
+ * from any thread.
+ */
+public class RollingBars implements Flow.Subscriber<TradeResult> {
+
+    public static final int SECOND_BARS = 300;
+    public static final int MINUTE_BARS = 60;
+    public static final int FIVE_MINUTE_BARS = 288;
+
+    private final SymbolTable symbols;
+    private final OhlcvBars seconds = new OhlcvBars(OhlcvBars.SECOND_NANOS, SECOND_BARS);
+    private final OhlcvBars minutes = new OhlcvBars(OhlcvBars.MINUTE_NANOS, MINUTE_BARS);
+    private final OhlcvBars fiveMinutes = new OhlcvBars(5 * OhlcvBars.MINUTE_NANOS, FIVE_MINUTE_BARS);
+
+    public RollingBars(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * Apply one trade to every interval. Must be called from a single thread.
+     */
+    public void onTrade(int symbolId, long priceTicks, int quantity, long executedAtNanos) {
+        seconds.onTrade(symbolId, priceTicks, quantity, executedAtNanos);
+        minutes.onTrade(symbolId, priceTicks, quantity, executedAtNanos);
+        fiveMinutes.onTrade(symbolId, priceTicks, quantity, executedAtNanos);
+    }
+
+    /**
+     * Expire bars of symbols that have not traded up to {@code nowNanos}.
+     * Must be called from the updating thread.
+     */
+    public void advanceTo(long nowNanos) {
+        seconds.advanceTo(nowNanos);
+        minutes.advanceTo(nowNanos);
+        fiveMinutes.advanceTo(nowNanos);
+    }
+
+    public OhlcvBars getSecondBars() { return seconds; }
+    public OhlcvBars getMinuteBars() { return minutes; }
+    public OhlcvBars getFiveMinuteBars() { return fiveMinutes; }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    // ---- Flow.Subscriber ------------------------------------------------
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(TradeResult trade) {
+        Instant executedAt = trade.getExecutedAt();
+        onTrade(symbols.intern(trade.getSymbol()), OrderRecord.toTicks(trade.getPrice()), trade.getQuantity(),
+            executedAt.getEpochSecond() * 1_000_000_000L + executedAt.getNano());
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        // Bars so far stay queryable; the source reports its own failure
+    }
+
+    @Override
+    public void onComplete() {
+    }
+}
@@ -0,0 +1,311 @@
+package com.orderflow.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Weighted Space-Saving summary (Metwally et al.) for the heaviest keys of
+ * a stream - e.g. top symbols by traded volume - in memory fixed by the
+ * number of counters, however many distinct keys the stream has.
+ *
+ * Each of the {@code capacity} counters holds a key, an estimated weight
+ * and the most that estimate can overstate it. A new key takes over the
+ * smallest counter and inherits its weight as error. Every estimate
+ * satisfies {@code true <= estimate <= true + totalWeight / capacity},
+ * and every key whose true weight exceeds {@code totalWeight / capacity}
+ * holds a counter - so {@code capacity = 1 / epsilon} counters find the
+ * heavy hitters above an epsilon share.
+ *
+ * Summaries of disjoint streams (shards, threads, fork-join leaves) are
+ * combined with {@link #merge}, which keeps the same bound over the
+ * combined weight. Keys must mean the same thing in both, e.g. ids from a
+ * shared SymbolTable.
+ *
+ * Counters live in primitive arrays: a min-heap of counter slots ordered
+ * by estimate, and an open-addressing key-to-slot table. An update is a
+ * table probe plus O(log capacity) heap steps, and allocates nothing.
+ *
+ * Not thread-safe.
+ */
+public final class SpaceSavingSketch {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final int capacity;
+
+    // Per counter slot
+    private final long[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    private final int[] heapIndex;
+
+    // Min-heap of slots by count
+    private final int[] heap;
+
+    // Key -> slot, linear probing; EMPTY marks a free entry
+    private final long[] tableKeys;
+    private final int[] tableSlots;
+    private final int tableMask;
+
+    private int size;
+    private long totalWeight;
+
+    /**
+     * @param capacity number of counters; estimates are within
+     *                 totalWeight / capacity of the truth
+     */
+    public SpaceSavingSketch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        keys = new long[capacity];
+        counts = new long[capacity];
+        errors = new long[capacity];
+        heapIndex = new int[capacity];
+        heap = new int[capacity];
+        int tableSize = Integer.highestOneBit(Math.max(capacity, 8) - 1) << 2; // load <= 0.5
+        tableKeys = new long[tableSize];
+        tableSlots = new int[tableSize];
+        tableMask = tableSize - 1;
+        Arrays.fill(tableKeys, EMPTY);
+    }
+
+    /**
+     * Add {@code weight} (e.g. traded quantity) to {@code key}.
+     *
+     * @param key any value but Long.MIN_VALUE
+     * @param weight non-negative
+     */
+    public void add(long key, long weight) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("key must not be Long.MIN_VALUE");
+        }
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight must not be negative: " + weight);
+        }
+        totalWeight += weight;
+        int slot = find(key);
+        if (slot >= 0) {
+            counts[slot] += weight;
+            siftDown(heapIndex[slot]);
+        } else if (size < capacity) {
+            slot = size;
+            keys[slot] = key;
+            counts[slot] = weight;
+            errors[slot] = 0;
+            heap[size] = slot;
+            heapIndex[slot] = size;
+            size++;
+            insert(key, slot);
+            siftUp(size - 1);
+        } else {
+            // Take over the smallest counter; its count bounds what the new key may have had
+            slot = heap[0];
+            remove(keys[slot]);
+            keys[slot] = key;
+            errors[slot] = counts[slot];
+            counts[slot] += weight;
+            insert(key, slot);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Upper bound on the key's total weight.
+     */
+    public long estimate(long key) {
+        int slot = find(key);
+        if (slot >= 0) return counts[slot];
+        return size < capacity ? 0 : counts[heap[0]];
+    }
+
+    /**
+     * Lower bound on the key's total weight: its estimate minus the error
+     * it inherited, or 0 if it holds no counter.
+     */
+    public long guaranteed(long key) {
+        int slot = find(key);
+        return slot < 0 ? 0 : counts[slot] - errors[slot];
+    }
+
+    /**
+     * Copy the {@code n} keys with the largest estimates, largest first.
+     *
+     * @return number of keys copied: min(n, counters in use)
+     */
+    public int top(int n, long[] keysOut, long[] estimatesOut) {
+        int count = Math.min(n, size);
+        int[] top = new int[count];
+        int filled = 0;
+        for (int h = 0; h < size; h++) {
+            int slot = heap[h];
+            long c = counts[slot];
+            if (filled == count && c <= counts[top[filled - 1]]) continue;
+            int i = filled < count ? filled++ : filled - 1;
+            while (i > 0 && counts[top[i - 1]] < c) {
+                top[i] = top[i - 1];
+                i--;
+            }
+            top[i] = slot;
+        }
+        for (int i = 0; i < count; i++) {
+            keysOut[i] = keys[top[i]];
+            estimatesOut[i] = counts[top[i]];
+        }
+        return count;
+    }
+
+    /**
+     * Fold in a summary of a disjoint stream. A key missing from one side
+     * may have had up to that side's smallest count there (if it was
+     * full), so it is credited that much, as estimate and as error; the
+     * {@code capacity} largest counters are then kept.
+     */
+    public SpaceSavingSketch merge(SpaceSavingSketch other) {
+        long minThis = size < capacity ? 0 : counts[heap[0]];
+        long minOther = other.size < other.capacity ? 0 : other.counts[other.heap[0]];
+        int n = size + other.size;
+        long[] mergedKeys = new long[n];
+        long[] mergedCounts = new long[n];
+        long[] mergedErrors = new long[n];
+        int m = 0;
+        for (int slot = 0; slot < size; slot++) {
+            int o = other.find(keys[slot]);
+            mergedKeys[m] = keys[slot];
+            mergedCounts[m] = counts[slot] + (o >= 0 ? other.counts[o] : minOther);
+            mergedErrors[m] = errors[slot] + (o >= 0 ? other.errors[o] : minOther);
+            m++;
+        }
+        for (int o = 0; o < other.size; o++) {
+            if (find(other.keys[o]) >= 0) continue;
+            mergedKeys[m] = other.keys[o];
+            mergedCounts[m] = other.counts[o] + minThis;
+            mergedErrors[m] = other.errors[o] + minThis;
+            m++;
+        }
+
+        // Keep the largest `capacity`: everything above the cut-off count, then ties
+        long cutoff = Long.MIN_VALUE;
+        if (m > capacity) {
+            long[] sorted = Arrays.copyOf(mergedCounts, m);
+            Arrays.sort(sorted);
+            cutoff = sorted[m - capacity];
+        }
+        long total = totalWeight + other.totalWeight;
+        clear();
+        totalWeight = total;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < m && size < capacity; i++) {
+                boolean keep = pass == 0 ? mergedCounts[i] > cutoff : mergedCounts[i] == cutoff;
+                if (!keep) continue;
+                int slot = size;
+                keys[slot] = mergedKeys[i];
+                counts[slot] = mergedCounts[i];
+                errors[slot] = mergedErrors[i];
+                heap[size] = slot;
+                heapIndex[slot] = size;
+                size++;
+                insert(mergedKeys[i], slot);
+            }
+        }
+        for (int h = size / 2 - 1; h >= 0; h--) {
+            siftDown(h);
+        }
+        return this;
+    }
+
+    public void clear() {
+        size = 0;
+        totalWeight = 0;
+        Arrays.fill(tableKeys, EMPTY);
+    }
+
+    /** Sum of all weights added (including merged summaries). */
+    public long getTotalWeight() { return totalWeight; }
+
+    /** Largest possible overestimate of any key: totalWeight / capacity. */
+    public long getErrorBound() { return totalWeight / capacity; }
+
+    public int getCapacity() { return capacity; }
+
+    /** Counters in use. */
+    public int size() { return size; }
+
+    // ---- heap -------------------------------------------------------------
+
+    private void siftDown(int h) {
+        int slot = heap[h];
+        long count = counts[slot];
+        while (true) {
+            int child = 2 * h + 1;
+            if (child >= size) break;
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) child++;
+            if (counts[heap[child]] >= count) break;
+            heap[h] = heap[child];
+            heapIndex[heap[h]] = h;
+            h = child;
+        }
+        heap[h] = slot;
+        heapIndex[slot] = h;
+    }
+
+    private void siftUp(int h) {
+        int slot = heap[h];
+        long count = counts[slot];
+        while (h > 0) {
+            int parent = (h - 1) >>> 1;
+            if (counts[heap[parent]] <= count) break;
+            heap[h] = heap[parent];
+            heapIndex[heap[h]] = h;
+            h = parent;
+        }
+        heap[h] = slot;
+        heapIndex[slot] = h;
+    }
+
+    // ---- key table ----------------------------------------------------------
+
+    private int find(long key) {
+        for (int i = index(key); ; i = (i + 1) & tableMask) {
+            long k = tableKeys[i];
+            if (k == key) return tableSlots[i];
+            if (k == EMPTY) return -1;
+        }
+    }
+
+    private void insert(long key, int slot) {
+        int i = index(key);
+        while (tableKeys[i] != EMPTY) {
+            i = (i + 1) & tableMask;
+        }
+        tableKeys[i] = key;
+        tableSlots[i] = slot;
+    }
+
+    /**
+     * Delete with backward shift, so probe chains stay unbroken without
+     * tombstones.
+     */
+    private void remove(long key) {
+        int i = index(key);
+        while (tableKeys[i] != key) {
+            i = (i + 1) & tableMask;
+        }
+        int hole = i;
+        for (int j = (hole + 1) & tableMask; tableKeys[j] != EMPTY; j = (j + 1) & tableMask) {
+            int home = index(tableKeys[j]);
+            // Move j into the hole unless its home lies cyclically in (hole, j]
+            if (((j - home) & tableMask) >= ((j - hole) & tableMask)) {
+                tableKeys[hole] = tableKeys[j];
+                tableSlots[hole] = tableSlots[j];
+                hole = j;
+            }
+        }
+        tableKeys[hole] = EMPTY;
+    }
+
+    private int index(long key) {
+        long z = key * 0x9E3779B97F4A7C15L;
+        return (int) (z ^ (z >>> 32)) & tableMask;
+    }
+}
@@ -0,0 +1,213 @@
+package com.orderflow.analytics;
+
+import com.orderflow.model.OrderRecord;
+import com.orderflow.model.TradeResult;
+import com.orderflow.util.SymbolTable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.Flow;
+
+/**
+ * Per-symbol trade analytics kept up to date on every trade.
+ *
+ * Each symbol has a {@link TradeStats} updated in O(1) per trade, so
+ * VWAP, volume, min/max and mean/variance are answered in O(1) instead
+ * of rescanning every trade as AnalyticsService's batch methods do.
+ * Neither updates nor queries allocate once a symbol has been seen.
+ *
+ * Trades come either from {@link #onTrade} (primitive, for the byte-level
+ * paths) or by subscribing this object to a trade publisher such as
+ * {@code OrderIngestionService.ingest}.
+ *
+ * One thread updates; any thread may query. Each symbol is guarded by a
+ * sequence lock: the writer bumps a version to odd before changing the
+ * fields and back to even afterwards, and readers retry until they copy
+ * the fields under one unchanged, even version - so a query never sees a
+ * trade half applied, and the writer never waits.
+ *
+ * PERF-LAB: Lab B - AnalyticsBenchmark.streaming* vs batch*
+ */
+public class StreamingAnalytics implements Flow.Subscriber<TradeResult> {
+
+    private static final VarHandle VERSION;
+
+    static {
+        try {
+            VERSION = MethodHandles.lookup().findVarHandle(Slot.class, "version", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** One symbol's statistics and its sequence lock. */
+    private static final class Slot {
+        @SuppressWarnings("unused") // accessed through VERSION
+        private long version;
+        final TradeStats stats = new TradeStats();
+        long lastTradeNanos;
+    }
+
+    private final SymbolTable symbols;
+
+    // Grown copy-on-write by the writer; slots themselves are never replaced
+    private volatile Slot[] slots = new Slot[16];
+
+    private long trades;
+
+    public StreamingAnalytics(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * Apply one trade. Must be called from a single thread (or under
+     * external synchronization).
+     */
+    public void onTrade(int symbolId, long priceTicks, int quantity, long executedAtNanos) {
+        Slot slot = slot(symbolId);
+        long version = (long) VERSION.getOpaque(slot);
+        VERSION.setOpaque(slot, version + 1);
+        VarHandle.storeStoreFence();
+        slot.stats.add(priceTicks, quantity);
+        slot.lastTradeNanos = executedAtNanos;
+        VERSION.setRelease(slot, version + 2);
+        trades++;
+    }
+
+    /**
+     * Copy a consistent snapshot of a symbol's statistics into {@code out}.
+     * A symbol with no trades yields cleared statistics.
+     */
+    public TradeStats getStats(int symbolId, TradeStats out) {
+        Slot[] current = slots;
+        Slot slot = symbolId < current.length ? current[symbolId] : null;
+        if (slot == null) {
+            out.clear();
+            return out;
+        }
+        while (true) {
+            long before = (long) VERSION.getAcquire(slot);
+            if ((before & 1) == 0) {
+                out.copyFrom(slot.stats);
+                VarHandle.loadLoadFence();
+                if ((long) VERSION.getOpaque(slot) == before) {
+                    return out;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Volume-weighted average price in ticks, or 0 if the symbol has not traded.
+     */
+    public double getVwapTicks(int symbolId) {
+        Slot slot = existing(symbolId);
+        if (slot == null) return 0;
+        while (true) {
+            long before = (long) VERSION.getAcquire(slot);
+            if ((before & 1) == 0) {
+                double vwap = slot.stats.getVwapTicks();
+                VarHandle.loadLoadFence();
+                if ((long) VERSION.getOpaque(slot) == before) {
+                    return vwap;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Traded quantity, or 0 if the symbol has not traded.
+     */
+    public long getVolume(int symbolId) {
+        Slot slot = existing(symbolId);
+        if (slot == null) return 0;
+        while (true) {
+            long before = (long) VERSION.getAcquire(slot);
+            if ((before & 1) == 0) {
+                long volume = slot.stats.getVolume();
+                VarHandle.loadLoadFence();
+                if ((long) VERSION.getOpaque(slot) == before) {
+                    return volume;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Nanoseconds since the epoch of the symbol's latest trade, or 0.
+     */
+    public long getLastTradeNanos(int symbolId) {
+        Slot slot = existing(symbolId);
+        if (slot == null) return 0;
+        while (true) {
+            long before = (long) VERSION.getAcquire(slot);
+            if ((before & 1) == 0) {
+                long nanos = slot.lastTradeNanos;
+                VarHandle.loadLoadFence();
+                if ((long) VERSION.getOpaque(slot) == before) {
+                    return nanos;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Trades applied so far; read by the updating thread.
+     */
+    public long getTradeCount() {
+        return trades;
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    // ---- Flow.Subscriber ------------------------------------------------
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(TradeResult trade) {
+        Instant executedAt = trade.getExecutedAt();
+        onTrade(symbols.intern(trade.getSymbol()), OrderRecord.toTicks(trade.getPrice()), trade.getQuantity(),
+            executedAt.getEpochSecond() * 1_000_000_000L + executedAt.getNano());
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        // Statistics so far stay queryable; the source reports its own failure
+    }
+
+    @Override
+    public void onComplete() {
+    }
+
+    private Slot existing(int symbolId) {
+        Slot[] current = slots;
+        return symbolId < current.length ? current[symbolId] : null;
+    }
+
+    private Slot slot(int symbolId) {
+        Slot[] current = slots;
+        if (symbolId < current.length && current[symbolId] != null) {
+            return current[symbolId];
+        }
+        if (symbolId >= current.length) {
+            current = Arrays.copyOf(current, Math.max(symbolId + 1, current.length * 2));
+        } else {
+            current = current.clone();
+        }
+        Slot slot = new Slot();
+        current[symbolId] = slot;
+        slots = current;
+        return slot;
+    }
+}
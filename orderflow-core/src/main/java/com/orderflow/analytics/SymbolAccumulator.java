@@ -0,0 +1,136 @@
+package com.orderflow.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Per-symbol trade sums in primitive arrays indexed by symbol id: count,
+ * volume, notional, min, max, and sum and sum of squares of price.
+ *
+ * One accumulator is filled per slice of a {@link TradeStore} scan, and
+ * slices are combined with {@link #merge}, so a scan can be split across
+ * threads with no shared state.
+ *
+ * Prices are summed as offsets from the first price the accumulator saw
+ * for each symbol, which keeps the one-pass variance
+ * {@code sum(d^2) - sum(d)^2 / n} from cancelling; merging re-bases the
+ * other accumulator's sums onto this one's offsets.
+ *
+ * Not thread-safe.
+ */
+public final class SymbolAccumulator {
+
+    private final long[] count;
+    private final long[] volume;
+    private final long[] notional;
+    private final long[] min;
+    private final long[] max;
+    private final long[] shift;
+    private final long[] sum;
+    private final double[] squares;
+
+    /**
+     * @param symbolCount number of symbol ids; ids must be below it
+     */
+    public SymbolAccumulator(int symbolCount) {
+        count = new long[symbolCount];
+        volume = new long[symbolCount];
+        notional = new long[symbolCount];
+        min = new long[symbolCount];
+        max = new long[symbolCount];
+        shift = new long[symbolCount];
+        sum = new long[symbolCount];
+        squares = new double[symbolCount];
+        Arrays.fill(min, Long.MAX_VALUE);
+        Arrays.fill(max, Long.MIN_VALUE);
+    }
+
+    /**
+     * Add rows {@code [from, to)} of one chunk's columns.
+     */
+    public void add(long[] prices, int[] quantities, int[] symbolIds, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int s = symbolIds[i];
+            long price = prices[i];
+            if (count[s]++ == 0) {
+                shift[s] = price;
+            }
+            volume[s] += quantities[i];
+            notional[s] += price * quantities[i];
+            min[s] = Math.min(min[s], price);
+            max[s] = Math.max(max[s], price);
+            long d = price - shift[s];
+            sum[s] += d;
+            squares[s] += (double) d * d;
+        }
+    }
+
+    /**
+     * Fold in an accumulator over disjoint trades with the same symbol ids.
+     * It may cover fewer ids than this one, not more.
+     */
+    public SymbolAccumulator merge(SymbolAccumulator other) {
+        if (other.count.length > count.length) {
+            throw new IllegalArgumentException("Cannot merge " + other.count.length + " symbols into "
+                + count.length);
+        }
+        for (int s = 0; s < other.count.length; s++) {
+            long n = other.count[s];
+            if (n == 0) continue;
+            if (count[s] == 0) {
+                shift[s] = other.shift[s];
+            }
+            // sum(p - a) and sum((p - a)^2) from sums about b, with d = b - a
+            long d = other.shift[s] - shift[s];
+            sum[s] += other.sum[s] + n * d;
+            squares[s] += other.squares[s] + 2.0 * d * other.sum[s] + (double) n * d * d;
+            count[s] += n;
+            volume[s] += other.volume[s];
+            notional[s] += other.notional[s];
+            min[s] = Math.min(min[s], other.min[s]);
+            max[s] = Math.max(max[s], other.max[s]);
+        }
+        return this;
+    }
+
+    /** Number of symbol ids covered. */
+    public int symbolCount() {
+        return count.length;
+    }
+
+    /**
+     * A copy covering {@code symbolCount} ids, for when new symbols appear.
+     */
+    public SymbolAccumulator grow(int symbolCount) {
+        return new SymbolAccumulator(Math.max(symbolCount, count.length)).merge(this);
+    }
+
+    /**
+     * Add rows {@code [fromRow, toRow)} of a store, chunk by chunk.
+     */
+    public void add(TradeStore trades, long fromRow, long toRow) {
+        for (long row = fromRow; row < toRow; ) {
+            int c = (int) (row >>> TradeStore.CHUNK_SHIFT);
+            int from = (int) (row - ((long) c << TradeStore.CHUNK_SHIFT));
+            int to = (int) Math.min(trades.chunkLength(c), from + (toRow - row));
+            add(trades.priceChunk(c), trades.quantityChunk(c), trades.symbolChunk(c), from, to);
+            row += to - from;
+        }
+    }
+
+    public long getCount(int symbolId) { return count[symbolId]; }
+    public long getVolume(int symbolId) { return volume[symbolId]; }
+    public long getNotionalTicks(int symbolId) { return notional[symbolId]; }
+
+    /**
+     * Load one symbol's statistics into {@code out}; cleared if it has no trades.
+     */
+    public TradeStats getStats(int symbolId, TradeStats out) {
+        out.clear();
+        long n = count[symbolId];
+        if (n == 0) return out;
+        double meanOffset = (double) sum[symbolId] / n;
+        double m2 = Math.max(0, squares[symbolId] - meanOffset * sum[symbolId]);
+        return out.merge(n, volume[symbolId], notional[symbolId], min[symbolId], max[symbolId],
+            shift[symbolId] + meanOffset, m2);
+    }
+}
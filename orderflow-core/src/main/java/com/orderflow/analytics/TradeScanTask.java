@@ -0,0 +1,98 @@
+package com.orderflow.analytics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Fork-join reduction over the rows of a {@link TradeStore}.
+ *
+ * A row range is halved (on chunk boundaries where possible) until it
+ * holds at most {@code sequentialThreshold} rows; each leaf fills its own
+ * accumulator from the chunk columns and sibling results are combined
+ * with {@code merge} on the way back up. Leaves share nothing but the
+ * read-only store, so the scan scales with cores until memory bandwidth
+ * runs out; below the threshold it runs on the calling thread with no
+ * task overhead at all.
+ *
+ * @param <A> accumulator type; {@code merge} may return either argument
+ */
+public final class TradeScanTask<A> extends RecursiveTask<A> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Folds rows {@code [from, to)} of one chunk's columns into an accumulator.
+     */
+    @FunctionalInterface
+    public interface Leaf<A> {
+        void scan(A accumulator, long[] prices, int[] quantities, int[] symbolIds, int from, int to);
+    }
+
+    private final TradeStore store;
+    private final long from;
+    private final long to;
+    private final int sequentialThreshold;
+    private final Supplier<A> accumulators;
+    private final Leaf<A> leaf;
+    private final BinaryOperator<A> merge;
+
+    private TradeScanTask(TradeStore store, long from, long to, int sequentialThreshold,
+                          Supplier<A> accumulators, Leaf<A> leaf, BinaryOperator<A> merge) {
+        this.store = store;
+        this.from = from;
+        this.to = to;
+        this.sequentialThreshold = sequentialThreshold;
+        this.accumulators = accumulators;
+        this.leaf = leaf;
+        this.merge = merge;
+    }
+
+    /**
+     * Reduce every row of {@code store}.
+     *
+     * @param pool pool for the forked halves; unused when the store holds
+     *             at most {@code sequentialThreshold} rows
+     * @param sequentialThreshold largest row range scanned without splitting
+     */
+    public static <A> A scan(ForkJoinPool pool, TradeStore store, int sequentialThreshold,
+                             Supplier<A> accumulators, Leaf<A> leaf, BinaryOperator<A> merge) {
+        if (sequentialThreshold <= 0) {
+            throw new IllegalArgumentException("sequentialThreshold must be positive: " + sequentialThreshold);
+        }
+        TradeScanTask<A> task = new TradeScanTask<>(store, 0, store.size(), sequentialThreshold,
+            accumulators, leaf, merge);
+        return store.size() <= sequentialThreshold ? task.compute() : pool.invoke(task);
+    }
+
+    @Override
+    protected A compute() {
+        if (to - from <= sequentialThreshold) {
+            return scanRange();
+        }
+        long mid = (from + to) >>> 1;
+        long aligned = mid & -TradeStore.CHUNK_SIZE;
+        if (aligned > from) {
+            mid = aligned;
+        }
+        TradeScanTask<A> right = new TradeScanTask<>(store, mid, to, sequentialThreshold,
+            accumulators, leaf, merge);
+        right.fork();
+        A left = new TradeScanTask<>(store, from, mid, sequentialThreshold, accumulators, leaf, merge).compute();
+        return merge.apply(left, right.join());
+    }
+
+    private A scanRange() {
+        A accumulator = accumulators.get();
+        long row = from;
+        while (row < to) {
+            int c = (int) (row >>> TradeStore.CHUNK_SHIFT);
+            int start = (int) (row - ((long) c << TradeStore.CHUNK_SHIFT));
+            int end = (int) Math.min(store.chunkLength(c), start + (to - row));
+            leaf.scan(accumulator, store.priceChunk(c), store.quantityChunk(c), store.symbolChunk(c), start, end);
+            row += end - start;
+        }
+        return accumulator;
+    }
+}
@@ -0,0 +1,135 @@
+package com.orderflow.analytics;
+
+import com.orderflow.model.OrderRecord;
+
+/**
+ * Running trade statistics in primitive fields: count, volume, notional,
+ * min/max price and Welford mean/variance of price.
+ *
+ * Prices are in ticks (see {@link OrderRecord#PRICE_SCALE}). Volume and
+ * notional are exact integers, so VWAP equals a batch
+ * {@code sum(price * qty) / sum(qty)} exactly; mean and variance are
+ * unweighted over trades and agree with a two-pass computation to
+ * floating-point rounding.
+ *
+ * Two accumulators over disjoint inputs combine with {@link #merge}
+ * (Chan et al.'s pairwise update), so partial results from chunks or
+ * threads can be built independently.
+ *
+ * Not thread-safe.
+ */
+public final class TradeStats {
+
+    private long count;
+    private long volume;
+    private long notionalTicks;
+    private long minPriceTicks = Long.MAX_VALUE;
+    private long maxPriceTicks = Long.MIN_VALUE;
+    private double mean;
+    private double m2;
+
+    /**
+     * Add one trade.
+     */
+    public void add(long priceTicks, long quantity) {
+        count++;
+        volume += quantity;
+        notionalTicks += priceTicks * quantity;
+        if (priceTicks < minPriceTicks) minPriceTicks = priceTicks;
+        if (priceTicks > maxPriceTicks) maxPriceTicks = priceTicks;
+        double delta = priceTicks - mean;
+        mean += delta / count;
+        m2 += delta * (priceTicks - mean);
+    }
+
+    /**
+     * Fold in the statistics of a disjoint set of trades.
+     */
+    public TradeStats merge(TradeStats other) {
+        return merge(other.count, other.volume, other.notionalTicks, other.minPriceTicks, other.maxPriceTicks,
+            other.mean, other.m2);
+    }
+
+    /**
+     * Fold in a disjoint set of trades given by its moments, for scans
+     * that accumulate sums in primitive columns rather than per trade.
+     *
+     * @param mean mean price in ticks
+     * @param m2 sum of squared deviations of price from {@code mean}
+     */
+    public TradeStats merge(long count, long volume, long notionalTicks, long minPriceTicks, long maxPriceTicks,
+                            double mean, double m2) {
+        if (count == 0) return this;
+        if (this.count == 0) {
+            this.count = count;
+            this.volume = volume;
+            this.notionalTicks = notionalTicks;
+            this.minPriceTicks = minPriceTicks;
+            this.maxPriceTicks = maxPriceTicks;
+            this.mean = mean;
+            this.m2 = m2;
+            return this;
+        }
+        long total = this.count + count;
+        double delta = mean - this.mean;
+        this.mean += delta * count / total;
+        this.m2 += m2 + delta * delta * ((double) this.count * count / total);
+        this.count = total;
+        this.volume += volume;
+        this.notionalTicks += notionalTicks;
+        this.minPriceTicks = Math.min(this.minPriceTicks, minPriceTicks);
+        this.maxPriceTicks = Math.max(this.maxPriceTicks, maxPriceTicks);
+        return this;
+    }
+
+    public TradeStats copyFrom(TradeStats other) {
+        count = other.count;
+        volume = other.volume;
+        notionalTicks = other.notionalTicks;
+        minPriceTicks = other.minPriceTicks;
+        maxPriceTicks = other.maxPriceTicks;
+        mean = other.mean;
+        m2 = other.m2;
+        return this;
+    }
+
+    public void clear() {
+        count = 0;
+        volume = 0;
+        notionalTicks = 0;
+        minPriceTicks = Long.MAX_VALUE;
+        maxPriceTicks = Long.MIN_VALUE;
+        mean = 0;
+        m2 = 0;
+    }
+
+    public long getCount() { return count; }
+    public long getVolume() { return volume; }
+    public long getNotionalTicks() { return notionalTicks; }
+
+    /** Lowest trade price, or Long.MAX_VALUE if there were no trades. */
+    public long getMinPriceTicks() { return minPriceTicks; }
+
+    /** Highest trade price, or Long.MIN_VALUE if there were no trades. */
+    public long getMaxPriceTicks() { return maxPriceTicks; }
+
+    /** Unweighted mean trade price in ticks, or 0 if there were no trades. */
+    public double getMeanPriceTicks() { return mean; }
+
+    /**
+     * Volume-weighted average price in ticks, or 0 if there was no volume.
+     */
+    public double getVwapTicks() {
+        return volume == 0 ? 0 : (double) notionalTicks / volume;
+    }
+
+    /** Population variance of trade price, in ticks squared. */
+    public double getPriceVariance() {
+        return count == 0 ? 0 : m2 / count;
+    }
+
+    /** Population standard deviation of trade price, in ticks. */
+    public double getPriceStdDev() {
+        return Math.sqrt(getPriceVariance());
+    }
+}
@@ -0,0 +1,186 @@
+package com.orderflow.analytics;
+
+import com.orderflow.model.OrderRecord;
+import com.orderflow.model.TradeResult;
+import com.orderflow.util.SymbolTable;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Append-only columnar store of executed trades.
+ *
+ * Each field lives in its own primitive column - price ticks, quantity,
+ * symbol id and execution time - so a scan reads a few dense arrays
+ * instead of chasing a pointer per trade to a TradeResult and its
+ * BigDecimal, String and Instant. A store of N trades is 24 * N bytes.
+ *
+ * Columns grow in chunks of {@value #CHUNK_SIZE} rows: a full chunk is
+ * never copied or moved, so appending stays O(1) with no copy pauses at
+ * tens of millions of trades, and a scan works chunk by chunk over plain
+ * arrays (see {@link #priceChunk} and friends) in loops the JIT can
+ * unroll and vectorize. Chunks are also the natural unit for splitting a
+ * scan across threads.
+ *
+ * Each symbol has a version - trades appended for it since the last
+ * {@link #clear} - and the store a generation, bumped by clear, so a
+ * cache of results can tell which symbols changed since it last looked
+ * (see {@link com.orderflow.service.AnalyticsResultCache}).
+ *
+ * PERF-LAB: Lab B - AnalyticsBenchmark.columnar* vs object*
+ *
+ * Not thread-safe. A store may be scanned by other threads once appends
+ * have stopped, as long as nobody appends while they read.
+ */
+public final class TradeStore {
+
+    public static final int CHUNK_SHIFT = 16;
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final SymbolTable symbols;
+
+    private long[][] priceTicks = new long[8][];
+    private int[][] quantities = new int[8][];
+    private int[][] symbolIds = new int[8][];
+    private long[][] executedAtNanos = new long[8][];
+    private int chunks;
+    private long size;
+    private long maxPriceTicks;
+    private long[] symbolVersions = new long[16];
+    private long generation;
+
+    public TradeStore(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * Append one trade.
+     *
+     * @throws IllegalArgumentException if {@code symbolId} is not in the
+     *         store's symbol table; scans size their per-symbol arrays from it
+     */
+    public void append(int symbolId, long priceTicks, int quantity, long executedAtNanos) {
+        if (symbolId < 0 || symbolId >= symbols.size()) {
+            throw new IllegalArgumentException("Unknown symbol id: " + symbolId);
+        }
+        int row = (int) size & CHUNK_MASK;
+        if (row == 0) {
+            addChunk();
+        }
+        int c = chunks - 1;
+        this.priceTicks[c][row] = priceTicks;
+        this.quantities[c][row] = quantity;
+        this.symbolIds[c][row] = symbolId;
+        this.executedAtNanos[c][row] = executedAtNanos;
+        size++;
+        if (priceTicks > maxPriceTicks) {
+            maxPriceTicks = priceTicks;
+        }
+        if (symbolId >= symbolVersions.length) {
+            symbolVersions = Arrays.copyOf(symbolVersions, Math.max(symbolId + 1, symbolVersions.length * 2));
+        }
+        symbolVersions[symbolId]++;
+    }
+
+    /**
+     * Append a trade object, interning its symbol. This is the boundary
+     * where object-form trades enter the columns.
+     */
+    public void append(TradeResult trade) {
+        Instant executedAt = trade.getExecutedAt();
+        append(symbols.intern(trade.getSymbol()), OrderRecord.toTicks(trade.getPrice()), trade.getQuantity(),
+            executedAt.getEpochSecond() * 1_000_000_000L + executedAt.getNano());
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /** Highest price in ticks since the last clear, or 0 if there is none. */
+    public long getMaxPriceTicks() {
+        return maxPriceTicks;
+    }
+
+    public int chunkCount() {
+        return chunks;
+    }
+
+    /**
+     * Number of valid rows in chunk {@code c}: {@value #CHUNK_SIZE} for all
+     * but the last.
+     */
+    public int chunkLength(int c) {
+        return c < chunks - 1 ? CHUNK_SIZE : (int) (size - ((long) c << CHUNK_SHIFT));
+    }
+
+    // Chunk columns, for scans. Only the first chunkLength(c) entries are
+    // valid, and the arrays must not be modified.
+
+    public long[] priceChunk(int c) { return priceTicks[c]; }
+    public int[] quantityChunk(int c) { return quantities[c]; }
+    public int[] symbolChunk(int c) { return symbolIds[c]; }
+    public long[] executedAtChunk(int c) { return executedAtNanos[c]; }
+
+    // Row access, by global row index
+
+    public long getPriceTicks(long row) { return priceTicks[chunk(row)][offset(row)]; }
+    public int getQuantity(long row) { return quantities[chunk(row)][offset(row)]; }
+    public int getSymbolId(long row) { return symbolIds[chunk(row)][offset(row)]; }
+    public long getExecutedAtNanos(long row) { return executedAtNanos[chunk(row)][offset(row)]; }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Trades appended for a symbol since the last clear: changes exactly
+     * when the symbol's results may have.
+     */
+    public long getSymbolVersion(int symbolId) {
+        return symbolId < symbolVersions.length ? symbolVersions[symbolId] : 0;
+    }
+
+    /**
+     * Number of clears. Versions and row numbers restart at 0 with each
+     * generation.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Drop all trades. Chunks are kept and reused by later appends.
+     */
+    public void clear() {
+        size = 0;
+        chunks = 0;
+        maxPriceTicks = 0;
+        Arrays.fill(symbolVersions, 0);
+        generation++;
+    }
+
+    private void addChunk() {
+        if (chunks == priceTicks.length) {
+            int capacity = chunks * 2;
+            priceTicks = Arrays.copyOf(priceTicks, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            symbolIds = Arrays.copyOf(symbolIds, capacity);
+            executedAtNanos = Arrays.copyOf(executedAtNanos, capacity);
+        }
+        if (priceTicks[chunks] == null) {
+            priceTicks[chunks] = new long[CHUNK_SIZE];
+            quantities[chunks] = new int[CHUNK_SIZE];
+            symbolIds[chunks] = new int[CHUNK_SIZE];
+            executedAtNanos[chunks] = new long[CHUNK_SIZE];
+        }
+        chunks++;
+    }
+
+    private static int chunk(long row) {
+        return (int) (row >>> CHUNK_SHIFT);
+    }
+
+    private static int offset(long row) {
+        return (int) row & CHUNK_MASK;
+    }
+}
@@ -0,0 +1,75 @@
+package com.orderflow.executor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed set of single-threaded lanes, with each symbol pinned to one lane.
+ *
+ * Tasks submitted to the same lane run one at a time in submission order,
+ * so work for a given symbol keeps its order while different symbols
+ * proceed in parallel. This is the usual way to scale matching without
+ * giving up per-book sequencing.
+ *
+ * PERF-LAB: Lab E - compare against a single lock around all symbols
+ */
+public class SymbolLaneExecutor implements AutoCloseable {
+
+    private final ExecutorService[] lanes;
+
+    public SymbolLaneExecutor(int laneCount, String namePrefix) {
+        if (laneCount <= 0) {
+            throw new IllegalArgumentException("laneCount must be positive: " + laneCount);
+        }
+        this.lanes = new ExecutorService[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            String name = namePrefix + "-" + i;
+            lanes[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    public int laneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * Lane that owns a symbol id. Stable for the lifetime of this executor.
+     */
+    public int laneFor(int symbolId) {
+        return symbolId % lanes.length;
+    }
+
+    /**
+     * Run a task on the given lane after everything already queued there.
+     */
+    public void execute(int lane, Runnable task) {
+        lanes[lane].execute(task);
+    }
+
+    /**
+     * Wait for all queued work to finish, then stop the lane threads.
+     */
+    @Override
+    public void close() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        try {
+            for (ExecutorService lane : lanes) {
+                while (!lane.awaitTermination(1, TimeUnit.SECONDS)) {
+                    // keep waiting - queued orders must not be dropped
+                }
+            }
+        } catch (InterruptedException e) {
+            for (ExecutorService lane : lanes) {
+                lane.shutdownNow();
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.orderflow.io;
+
+import com.orderflow.model.OrderBatch;
+import com.orderflow.model.OrderRecord;
+import com.orderflow.util.SymbolTable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Reads a binary order file (see {@link OrderWireFormat}) through
+ * memory-mapped windows.
+ *
+ * Records are decoded in place with an {@link OrderFlyweight} into one
+ * reusable {@link OrderBatch}; there is no text to scan and nothing to
+ * allocate per order.
+ */
+public class BinaryOrderFileReader {
+
+    // Records per mapped window (~64 MB)
+    private static final int WINDOW_RECORDS = (64 << 20) / OrderFlyweight.LENGTH;
+
+    private final Path path;
+    private final SymbolTable symbols;
+    private final int batchSize;
+
+    public BinaryOrderFileReader(Path path, SymbolTable symbols, int batchSize) {
+        this.path = path;
+        this.symbols = symbols;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Decode every record. The same batch instance is passed to
+     * {@code sink} repeatedly, so the sink must finish with it before returning.
+     *
+     * @return number of orders read
+     * @throws IOException if the header or a record is corrupt; batches
+     *         before the corrupt record have already been passed to {@code sink}
+     */
+    public long read(Consumer<OrderBatch> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            // Pages are only touched as far as the dictionary goes
+            MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                Math.min(size, OrderWireFormat.MAX_HEADER_SIZE));
+            int[] remap;
+            try {
+                remap = OrderWireFormat.readHeader(head, OrderWireFormat.RECORD_TYPE_ORDER, symbols);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(path + ": " + e.getMessage(), e);
+            }
+            long position = head.position();
+            if ((size - position) % OrderFlyweight.LENGTH != 0) {
+                throw new IOException(path + ": truncated record at end of file");
+            }
+
+            OrderFlyweight flyweight = new OrderFlyweight();
+            OrderRecord record = new OrderRecord();
+            OrderBatch batch = new OrderBatch(batchSize);
+            long count = 0;
+            while (position < size) {
+                long windowLength = Math.min(size - position, (long) WINDOW_RECORDS * OrderFlyweight.LENGTH);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowLength);
+                for (int offset = 0; offset < windowLength; offset += OrderFlyweight.LENGTH) {
+                    try {
+                        flyweight.wrap(window, offset).decode(record, remap);
+                    } catch (IllegalArgumentException e) {
+                        throw new IOException(path + ": corrupt record at byte " + (position + offset) + ": "
+                            + e.getMessage(), e);
+                    }
+                    batch.add(record);
+                    if (batch.size() == batchSize) {
+                        count += batch.size();
+                        sink.accept(batch);
+                        batch.clear();
+                    }
+                }
+                position += windowLength;
+            }
+            if (batch.size() > 0) {
+                count += batch.size();
+                sink.accept(batch);
+            }
+            return count;
+        }
+    }
+}
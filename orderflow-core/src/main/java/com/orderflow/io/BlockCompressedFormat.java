@@ -0,0 +1,171 @@
+package com.orderflow.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Block-compressed CSV container ("OFZ1").
+ *
+ * The CSV text is cut into line-aligned blocks of at most
+ * {@code blockSize} bytes, each deflated independently, followed by an
+ * index so a reader can find, inflate and parse every block on its own
+ * thread. All fields are little-endian.
+ *
+ * <pre>
+ *   header    0  int    magic "OFZ1"
+ *             4  short  version
+ *             6  short  reserved
+ *             8  int    block size (max uncompressed bytes per block)
+ *   blocks       raw DEFLATE streams, back to back
+ *   index        per block: long file offset, int compressed length,
+ *                           int uncompressed length
+ *   footer    0  long   index offset
+ *             8  int    block count
+ *            12  int    magic "OFZ1"
+ * </pre>
+ *
+ * No line spans two blocks, so a block's text always starts at a line
+ * boundary. Plain gzip files are not in this format; see {@link #isGzip}.
+ *
+ * PERF-LAB: Lab F - compare inflate throughput with one GZIPInputStream
+ */
+public final class BlockCompressedFormat {
+
+    public static final int MAGIC = 0x315A464F; // "OFZ1" read little-endian
+    public static final short VERSION = 1;
+
+    public static final int HEADER_LENGTH = 12;
+    public static final int INDEX_ENTRY_LENGTH = 16;
+    public static final int FOOTER_LENGTH = 16;
+
+    public static final int DEFAULT_BLOCK_SIZE = 4 << 20;
+
+    /** Block sizes a file may declare; readers allocate one block per worker. */
+    public static final int MIN_BLOCK_SIZE = 1024;
+    public static final int MAX_BLOCK_SIZE = 64 << 20;
+
+    /** File extension used by the generator. */
+    public static final String EXTENSION = ".ofz";
+
+    private static final int GZIP_MAGIC = 0x8B1F;
+
+    private BlockCompressedFormat() {
+    }
+
+    /**
+     * Block locations read from a file's index.
+     */
+    public static final class Index {
+        final int blockSize;
+        final long[] offsets;
+        final int[] compressedLengths;
+        final int[] uncompressedLengths;
+
+        Index(int blockSize, int blockCount) {
+            this.blockSize = blockSize;
+            this.offsets = new long[blockCount];
+            this.compressedLengths = new int[blockCount];
+            this.uncompressedLengths = new int[blockCount];
+        }
+
+        public int blockCount() {
+            return offsets.length;
+        }
+
+        public int blockSize() {
+            return blockSize;
+        }
+
+        public long uncompressedSize() {
+            long total = 0;
+            for (int length : uncompressedLengths) {
+                total += length;
+            }
+            return total;
+        }
+    }
+
+    public static boolean isBlockCompressed(Path path) throws IOException {
+        return readPrefix(path, 4) == MAGIC;
+    }
+
+    /**
+     * Whether the file starts with the gzip magic bytes.
+     */
+    public static boolean isGzip(Path path) throws IOException {
+        return (readPrefix(path, 2) & 0xFFFF) == GZIP_MAGIC;
+    }
+
+    static void writeHeader(ByteBuffer buf, int blockSize) {
+        buf.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putInt(blockSize);
+    }
+
+    /**
+     * Read and validate the header, footer and index.
+     *
+     * @throws IOException if the file is not a complete OFZ1 file
+     */
+    public static Index readIndex(FileChannel channel, Path path) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_LENGTH + FOOTER_LENGTH) {
+            throw new IOException(path + ": too short for a block-compressed file");
+        }
+        ByteBuffer header = readAt(channel, 0, HEADER_LENGTH);
+        if (header.getInt() != MAGIC) {
+            throw new IOException(path + ": not a block-compressed file");
+        }
+        short version = header.getShort();
+        if (version != VERSION) {
+            throw new IOException(path + ": unsupported version " + version);
+        }
+        header.getShort();
+        int blockSize = header.getInt();
+        if (blockSize < MIN_BLOCK_SIZE || blockSize > MAX_BLOCK_SIZE) {
+            throw new IOException(path + ": block size out of range: " + blockSize);
+        }
+
+        ByteBuffer footer = readAt(channel, size - FOOTER_LENGTH, FOOTER_LENGTH);
+        long indexOffset = footer.getLong();
+        int blockCount = footer.getInt();
+        if (footer.getInt() != MAGIC || blockCount < 0
+                || indexOffset + (long) blockCount * INDEX_ENTRY_LENGTH != size - FOOTER_LENGTH) {
+            throw new IOException(path + ": missing or corrupt block index (truncated file?)");
+        }
+
+        Index index = new Index(blockSize, blockCount);
+        ByteBuffer entries = readAt(channel, indexOffset, blockCount * INDEX_ENTRY_LENGTH);
+        for (int i = 0; i < blockCount; i++) {
+            index.offsets[i] = entries.getLong();
+            index.compressedLengths[i] = entries.getInt();
+            index.uncompressedLengths[i] = entries.getInt();
+            if (index.offsets[i] < HEADER_LENGTH || index.compressedLengths[i] < 0
+                    || index.offsets[i] + index.compressedLengths[i] > indexOffset
+                    || index.uncompressedLengths[i] < 0 || index.uncompressedLengths[i] > blockSize) {
+                throw new IOException(path + ": corrupt index entry for block " + i);
+            }
+        }
+        return index;
+    }
+
+    private static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        return buf.flip();
+    }
+
+    private static int readPrefix(Path path, int length) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < length) return 0;
+            ByteBuffer buf = readAt(channel, 0, length);
+            return length == 4 ? buf.getInt() : buf.getShort();
+        }
+    }
+}
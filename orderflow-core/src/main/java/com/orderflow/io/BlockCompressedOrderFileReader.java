@@ -0,0 +1,175 @@
+package com.orderflow.io;
+
+import com.orderflow.model.OrderBatch;
+import com.orderflow.util.ByteOrderParser;
+import com.orderflow.util.SymbolTable;
+import com.orderflow.util.VectorOrderParser;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a block-compressed CSV order file (see {@link BlockCompressedFormat}).
+ *
+ * Each block is inflated and parsed as one task on a {@link ForkJoinPool};
+ * batches are handed to the consumer strictly in file order, with at most
+ * {@code maxBlocksInFlight} blocks decompressed ahead of it. Inflaters
+ * and block buffers are borrowed per block from a shared free list and
+ * reused, so memory stays at a few block sizes however large the
+ * inflated file would be.
+ *
+ * {@link #close} ends the pooled inflaters, releasing their native
+ * memory; the reader cannot be used afterwards.
+ *
+ * Reject offsets recorded in the batches are offsets in the inflated text.
+ */
+public class BlockCompressedOrderFileReader implements AutoCloseable {
+
+    // Average CSV line is ~32 bytes; used to pre-size batches
+    private static final int BYTES_PER_LINE_ESTIMATE = 32;
+
+    private final Path path;
+    private final SymbolTable symbols;
+    private final ForkJoinPool pool;
+    private final int maxBlocksInFlight;
+
+    // Scratch not in use by a block task, reused across blocks
+    private final ConcurrentLinkedQueue<Scratch> scratch = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    public BlockCompressedOrderFileReader(Path path, SymbolTable symbols, ForkJoinPool pool, int maxBlocksInFlight) {
+        this.path = path;
+        this.symbols = symbols;
+        this.pool = pool;
+        this.maxBlocksInFlight = Math.max(1, maxBlocksInFlight);
+    }
+
+    /**
+     * Inflate and parse the whole file, passing each block's batch to
+     * {@code sink} in file order. The sink runs on the calling thread.
+     *
+     * @return number of lines parsed successfully
+     */
+    public long read(Consumer<OrderBatch> sink) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Reader is closed");
+        }
+        ArrayDeque<ForkJoinTask<OrderBatch>> pending = new ArrayDeque<>(maxBlocksInFlight);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            BlockCompressedFormat.Index index = BlockCompressedFormat.readIndex(channel, path);
+            int blocks = index.blockCount();
+
+            int next = 0;
+            long textOffset = 0;
+            long parsed = 0;
+            while (next < blocks && pending.size() < maxBlocksInFlight) {
+                pending.add(submit(channel, index, next, textOffset));
+                textOffset += index.uncompressedLengths[next++];
+            }
+            while (!pending.isEmpty()) {
+                OrderBatch batch = join(pending.poll());
+                if (next < blocks) {
+                    pending.add(submit(channel, index, next, textOffset));
+                    textOffset += index.uncompressedLengths[next++];
+                }
+                parsed += batch.size();
+                sink.accept(batch);
+            }
+            return parsed;
+        } finally {
+            // On failure, let blocks already submitted finish so their
+            // scratch is back on the free list before close() ends it
+            for (ForkJoinTask<OrderBatch> task : pending) {
+                task.quietlyJoin();
+            }
+        }
+    }
+
+    /** End the pooled inflaters. */
+    @Override
+    public void close() {
+        closed = true;
+        Scratch s;
+        while ((s = scratch.poll()) != null) {
+            s.inflater.end();
+        }
+    }
+
+    private ForkJoinTask<OrderBatch> submit(FileChannel channel, BlockCompressedFormat.Index index,
+                                            int block, long textOffset) {
+        return pool.submit(() -> parseBlock(channel, index, block, textOffset));
+    }
+
+    private OrderBatch parseBlock(FileChannel channel, BlockCompressedFormat.Index index,
+                                  int block, long textOffset) throws IOException {
+        int length = index.uncompressedLengths[block];
+        Scratch s = scratch.poll();
+        if (s == null) {
+            s = new Scratch();
+        }
+        try {
+            if (s.text.length <= index.blockSize) {
+                // One spare byte so trailing garbage shows up as a length mismatch
+                s.text = new byte[index.blockSize + 1];
+            }
+            byte[] text = s.text;
+
+            MappedByteBuffer input = channel.map(FileChannel.MapMode.READ_ONLY,
+                index.offsets[block], index.compressedLengths[block]);
+            Inflater inflater = s.inflater;
+            inflater.reset();
+            inflater.setInput(input);
+            try {
+                int inflated = 0;
+                while (!inflater.finished() && inflated < text.length) {
+                    int n = inflater.inflate(text, inflated, text.length - inflated);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                    inflated += n;
+                }
+                if (inflated != length || !inflater.finished()) {
+                    throw new IOException(path + ": block " + block + " inflated to " + inflated
+                        + " bytes, expected " + length);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException(path + ": corrupt block " + block, e);
+            }
+
+            ByteBuffer buf = ByteBuffer.wrap(text, 0, length);
+            OrderBatch batch = new OrderBatch(length / BYTES_PER_LINE_ESTIMATE);
+            int pos = block == 0 ? ByteOrderParser.skipHeader(buf, 0, length) : 0;
+            new VectorOrderParser(symbols).parse(buf, pos, length, batch, textOffset);
+            return batch;
+        } finally {
+            scratch.add(s);
+        }
+    }
+
+    private static OrderBatch join(ForkJoinTask<OrderBatch> task) throws IOException {
+        try {
+            return task.join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static final class Scratch {
+        final Inflater inflater = new Inflater(true);
+        byte[] text = new byte[0];
+    }
+}
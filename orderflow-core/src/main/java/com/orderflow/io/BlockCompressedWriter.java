@@ -0,0 +1,147 @@
+package com.orderflow.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Writes text as a block-compressed file (see {@link BlockCompressedFormat}).
+ *
+ * Bytes are collected into a block buffer; when it fills, the block is cut
+ * after its last newline, deflated, and the partial line carried over to
+ * the next block. The index and footer are written by {@link #close()},
+ * so an unclosed file is rejected by readers as truncated.
+ *
+ * Not thread-safe.
+ */
+public class BlockCompressedWriter extends OutputStream {
+
+    private final FileChannel channel;
+    private final int blockSize;
+    private final Deflater deflater;
+    private final byte[] block;
+    private byte[] compressed;
+    private int length;
+    private long position;
+
+    private long[] offsets = new long[64];
+    private int[] compressedLengths = new int[64];
+    private int[] uncompressedLengths = new int[64];
+    private int blockCount;
+    private boolean closed;
+
+    public BlockCompressedWriter(Path path) throws IOException {
+        this(path, BlockCompressedFormat.DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public BlockCompressedWriter(Path path, int blockSize, int level) throws IOException {
+        if (blockSize < BlockCompressedFormat.MIN_BLOCK_SIZE || blockSize > BlockCompressedFormat.MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("blockSize out of range: " + blockSize);
+        }
+        this.blockSize = blockSize;
+        this.block = new byte[blockSize];
+        this.compressed = new byte[blockSize + blockSize / 16 + 64];
+        this.deflater = new Deflater(level, true);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(BlockCompressedFormat.HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        BlockCompressedFormat.writeHeader(header, blockSize);
+        writeFully(header.flip());
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (length == blockSize) {
+            flushBlock(false);
+        }
+        block[length++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (length == blockSize) {
+                flushBlock(false);
+            }
+            int n = Math.min(len, blockSize - length);
+            System.arraycopy(b, off, block, length, n);
+            length += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            while (length > 0) {
+                flushBlock(true);
+            }
+            long indexOffset = position;
+            ByteBuffer index = ByteBuffer.allocate(blockCount * BlockCompressedFormat.INDEX_ENTRY_LENGTH
+                + BlockCompressedFormat.FOOTER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < blockCount; i++) {
+                index.putLong(offsets[i]).putInt(compressedLengths[i]).putInt(uncompressedLengths[i]);
+            }
+            index.putLong(indexOffset).putInt(blockCount).putInt(BlockCompressedFormat.MAGIC);
+            writeFully(index.flip());
+        } finally {
+            deflater.end();
+            channel.close();
+        }
+    }
+
+    /**
+     * Deflate the block up to its last newline (or everything, at end of input).
+     */
+    private void flushBlock(boolean last) throws IOException {
+        int cut = length;
+        if (!last) {
+            while (cut > 0 && block[cut - 1] != '\n') {
+                cut--;
+            }
+            if (cut == 0) {
+                throw new IOException("Line longer than block size (" + blockSize + " bytes)");
+            }
+        }
+
+        deflater.reset();
+        deflater.setInput(block, 0, cut);
+        deflater.finish();
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+
+        if (blockCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, blockCount * 2);
+            compressedLengths = Arrays.copyOf(compressedLengths, blockCount * 2);
+            uncompressedLengths = Arrays.copyOf(uncompressedLengths, blockCount * 2);
+        }
+        offsets[blockCount] = position;
+        compressedLengths[blockCount] = compressedLength;
+        uncompressedLengths[blockCount] = cut;
+        blockCount++;
+        writeFully(ByteBuffer.wrap(compressed, 0, compressedLength));
+
+        System.arraycopy(block, cut, block, 0, length - cut);
+        length -= cut;
+    }
+
+    private void writeFully(ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            position += channel.write(buf);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.orderflow.io;
+
+import com.orderflow.model.OrderBatch;
+import com.orderflow.util.ByteOrderParser;
+import com.orderflow.util.SymbolTable;
+import com.orderflow.util.VectorOrderParser;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Reads a CSV order file by memory-mapping it and parsing line-aligned
+ * chunks in parallel.
+ *
+ * The file is cut at roughly {@code chunkSize} bytes, with each cut moved
+ * forward to just after the next newline so no line straddles two chunks.
+ * Chunks are mapped and parsed with {@link VectorOrderParser} (scalar
+ * unless the Vector API is enabled) on a {@link ForkJoinPool}, but handed
+ * to the consumer strictly in file order.
+ * At most {@code maxChunksInFlight} chunks are parsed ahead of the
+ * consumer, which bounds memory regardless of file size.
+ *
+ * PERF-LAB: Lab F - compare with reading all lines into a List first
+ */
+public class MappedOrderFileReader {
+
+    public static final long DEFAULT_CHUNK_SIZE = 16L << 20;
+
+    // Average CSV line is ~32 bytes; used to pre-size batches
+    private static final int BYTES_PER_LINE_ESTIMATE = 32;
+
+    private final Path path;
+    private final SymbolTable symbols;
+    private final long chunkSize;
+    private final ForkJoinPool pool;
+    private final int maxChunksInFlight;
+
+    public MappedOrderFileReader(Path path, SymbolTable symbols, long chunkSize,
+                                 ForkJoinPool pool, int maxChunksInFlight) {
+        if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("chunkSize out of range: " + chunkSize);
+        }
+        this.path = path;
+        this.symbols = symbols;
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+        this.maxChunksInFlight = Math.max(1, maxChunksInFlight);
+    }
+
+    /**
+     * Parse the whole file, passing each chunk's batch to {@code sink} in
+     * file order. The sink runs on the calling thread.
+     *
+     * @return number of lines parsed successfully
+     */
+    public long read(Consumer<OrderBatch> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] bounds = lineAlignedBoundaries(channel, chunkSize);
+            int chunks = bounds.length - 1;
+
+            ArrayDeque<ForkJoinTask<OrderBatch>> pending = new ArrayDeque<>(maxChunksInFlight);
+            int next = 0;
+            long parsed = 0;
+            while (next < chunks && pending.size() < maxChunksInFlight) {
+                pending.add(submit(channel, bounds[next], bounds[next + 1], next == 0));
+                next++;
+            }
+            while (!pending.isEmpty()) {
+                OrderBatch batch = join(pending.poll());
+                if (next < chunks) {
+                    pending.add(submit(channel, bounds[next], bounds[next + 1], false));
+                    next++;
+                }
+                parsed += batch.size();
+                sink.accept(batch);
+            }
+            return parsed;
+        }
+    }
+
+    private ForkJoinTask<OrderBatch> submit(FileChannel channel, long start, long end, boolean first) {
+        return pool.submit(() -> parseChunk(channel, start, end, first));
+    }
+
+    private OrderBatch parseChunk(FileChannel channel, long start, long end, boolean first) throws IOException {
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        int limit = buf.limit();
+        OrderBatch batch = new OrderBatch(limit / BYTES_PER_LINE_ESTIMATE);
+        int pos = first ? ByteOrderParser.skipHeader(buf, 0, limit) : 0;
+        new VectorOrderParser(symbols).parse(buf, pos, limit, batch, start);
+        return batch;
+    }
+
+    private static OrderBatch join(ForkJoinTask<OrderBatch> task) throws IOException {
+        try {
+            return task.join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Compute chunk boundaries: 0, then each multiple of {@code chunkSize}
+     * moved forward to the byte after the next newline, then the file size.
+     */
+    static long[] lineAlignedBoundaries(FileChannel channel, long chunkSize) throws IOException {
+        long size = channel.size();
+        long[] bounds = new long[(int) (size / chunkSize) + 2];
+        int count = 0;
+        bounds[count++] = 0;
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long cut = chunkSize;
+        while (cut < size) {
+            long aligned = findLineEnd(channel, cut, size, probe);
+            if (aligned >= size) break;
+            bounds[count++] = aligned;
+            cut = aligned + chunkSize;
+        }
+        bounds[count++] = size;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    private static long findLineEnd(FileChannel channel, long from, long size, ByteBuffer probe) throws IOException {
+        long pos = from;
+        while (pos < size) {
+            probe.clear();
+            int read = channel.read(probe, pos);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') return pos + i + 1;
+            }
+            pos += read;
+        }
+        return size;
+    }
+}
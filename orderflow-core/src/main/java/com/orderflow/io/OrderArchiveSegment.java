@@ -0,0 +1,553 @@
+package com.orderflow.io;
+
+import com.orderflow.model.Order;
+import com.orderflow.model.OrderState;
+import com.orderflow.util.SymbolTable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable archive file of terminal orders ("OFA1"), answering point
+ * lookups by order id without loading it.
+ *
+ * Rows are sorted by order id and cut into blocks of {@code rowsPerBlock}
+ * rows, each deflated on its own. A sparse index - the first order id of
+ * every block - is all a reader keeps in memory: a lookup binary-searches
+ * it, inflates one block and binary-searches the block's rows. All fields
+ * are little-endian.
+ *
+ * <pre>
+ *   header      0  int    magic "OFA1"
+ *               4  short  version
+ *               6  short  reserved
+ *               8  int    rows per block
+ *              12  int    row count
+ *   blocks         raw DEFLATE streams of {@value #ROW_LENGTH}-byte rows:
+ *                   0  long   orderId
+ *                   8  long   price ticks
+ *                  16  long   createdAt, epoch nanos
+ *                  24  long   closedAt, epoch nanos
+ *                  32  int    quantity
+ *                  36  int    filled quantity
+ *                  40  short  symbol id (file dictionary)
+ *                  42  byte   side (0 = BUY, 1 = SELL)
+ *                  43  byte   status ordinal
+ *   dictionary     per symbol: byte length + ASCII bytes, in symbol-id order
+ *   index          per block: long first orderId, long offset,
+ *                             int compressed length, int rows
+ *   footer      0  long   min closedAt
+ *               8  long   max closedAt
+ *              16  long   max orderId
+ *              24  long   dictionary offset
+ *              32  long   index offset
+ *              40  int    block count
+ *              44  int    magic "OFA1"
+ * </pre>
+ *
+ * {@link #write} writes to a temporary file and renames it into place, so
+ * a segment is either complete or absent.
+ *
+ * PERF-LAB: Lab F - PersistenceBenchmark.archive*
+ *
+ * Thread-safe for concurrent lookups, each with its own {@link Lookup}.
+ */
+public final class OrderArchiveSegment implements AutoCloseable {
+
+    public static final int MAGIC = 0x3141464F; // "OFA1" read little-endian
+    public static final short VERSION = 1;
+
+    // Field by field, as in the layout above
+    public static final int HEADER_LENGTH =
+        Integer.BYTES       // magic
+        + Short.BYTES       // version
+        + Short.BYTES       // reserved
+        + Integer.BYTES     // rows per block
+        + Integer.BYTES;    // row count
+    public static final int INDEX_ENTRY_LENGTH =
+        Long.BYTES          // first orderId
+        + Long.BYTES        // offset
+        + Integer.BYTES     // compressed length
+        + Integer.BYTES;    // rows
+    public static final int FOOTER_LENGTH =
+        5 * Long.BYTES      // min and max closedAt, max orderId, dictionary and index offsets
+        + Integer.BYTES     // block count
+        + Integer.BYTES;    // magic
+    public static final int ROW_LENGTH = 44;
+
+    public static final int DEFAULT_ROWS_PER_BLOCK = 256;
+
+    /** File extension of segments; temporary files add ".tmp". */
+    public static final String EXTENSION = ".ofa";
+
+    private static final Order.Side[] SIDES = Order.Side.values();
+    private static final Order.Status[] STATUSES = Order.Status.values();
+
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Columnar rows to write, in any order. Not thread-safe.
+     */
+    public static final class Rows {
+        long[] orderIds = new long[64];
+        long[] priceTicks = new long[64];
+        long[] createdAt = new long[64];
+        long[] closedAt = new long[64];
+        int[] quantities = new int[64];
+        int[] filled = new int[64];
+        int[] symbolIds = new int[64];
+        byte[] sides = new byte[64];
+        byte[] statuses = new byte[64];
+        int size;
+
+        public void add(OrderState order) {
+            if (size == orderIds.length) {
+                int capacity = size * 2;
+                orderIds = Arrays.copyOf(orderIds, capacity);
+                priceTicks = Arrays.copyOf(priceTicks, capacity);
+                createdAt = Arrays.copyOf(createdAt, capacity);
+                closedAt = Arrays.copyOf(closedAt, capacity);
+                quantities = Arrays.copyOf(quantities, capacity);
+                filled = Arrays.copyOf(filled, capacity);
+                symbolIds = Arrays.copyOf(symbolIds, capacity);
+                sides = Arrays.copyOf(sides, capacity);
+                statuses = Arrays.copyOf(statuses, capacity);
+            }
+            int i = size++;
+            orderIds[i] = order.getOrderId();
+            priceTicks[i] = order.getPriceTicks();
+            createdAt[i] = order.getCreatedAtNanos();
+            closedAt[i] = order.getClosedAtNanos();
+            quantities[i] = order.getQuantity();
+            filled[i] = order.getFilledQuantity();
+            symbolIds[i] = order.getSymbolId();
+            sides[i] = (byte) order.getSide().ordinal();
+            statuses[i] = (byte) order.getStatus().ordinal();
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public void clear() {
+            size = 0;
+        }
+    }
+
+    /**
+     * Per-thread lookup state: the inflater, block buffers and the last
+     * block inflated, so consecutive lookups in the same block inflate it
+     * once. Not thread-safe. {@link #close} ends the inflater; a closed
+     * lookup cannot be used again.
+     */
+    public static final class Lookup implements AutoCloseable {
+        private final Inflater inflater = new Inflater(true);
+        private boolean closed;
+        private byte[] compressed = new byte[4096];
+        private byte[] block = new byte[4096];
+        private OrderArchiveSegment cachedSegment;
+        private int cachedBlock = -1;
+        private long blocksRead;
+
+        /** Blocks read from disk and inflated. */
+        public long getBlocksRead() {
+            return blocksRead;
+        }
+
+        /** Forget the cached block, e.g. before its segment is deleted. */
+        public void invalidate() {
+            cachedSegment = null;
+            cachedBlock = -1;
+        }
+
+        /** End the inflater, releasing its native memory. */
+        @Override
+        public void close() {
+            closed = true;
+            invalidate();
+            inflater.end();
+        }
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int rowCount;
+    private final long minClosedAtNanos;
+    private final long maxClosedAtNanos;
+    private final long maxOrderId;
+    private final int[] symbolRemap;
+    private final long[] firstOrderIds;
+    private final long[] blockOffsets;
+    private final int[] compressedLengths;
+    private final int[] blockRows;
+
+    private OrderArchiveSegment(Path path, FileChannel channel, SymbolTable symbols) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        long size = channel.size();
+        if (size < HEADER_LENGTH + FOOTER_LENGTH) {
+            throw new IOException(path + ": too short for an order archive segment");
+        }
+        ByteBuffer header = readAt(channel, 0, HEADER_LENGTH);
+        if (header.getInt() != MAGIC || header.getShort() != VERSION) {
+            throw new IOException(path + ": not an order archive segment");
+        }
+        header.getShort();
+        header.getInt();
+        this.rowCount = header.getInt();
+
+        ByteBuffer footer = readAt(channel, size - FOOTER_LENGTH, FOOTER_LENGTH);
+        this.minClosedAtNanos = footer.getLong();
+        this.maxClosedAtNanos = footer.getLong();
+        this.maxOrderId = footer.getLong();
+        long dictionaryOffset = footer.getLong();
+        long indexOffset = footer.getLong();
+        int blockCount = footer.getInt();
+        if (footer.getInt() != MAGIC || blockCount < 0 || dictionaryOffset > indexOffset
+                || indexOffset + (long) blockCount * INDEX_ENTRY_LENGTH != size - FOOTER_LENGTH) {
+            throw new IOException(path + ": missing or corrupt segment index");
+        }
+
+        ByteBuffer dictionary = readAt(channel, dictionaryOffset, (int) (indexOffset - dictionaryOffset));
+        int symbolCount = dictionary.getShort() & 0xFFFF;
+        this.symbolRemap = new int[symbolCount];
+        for (int id = 0; id < symbolCount; id++) {
+            int length = dictionary.get() & 0xFF;
+            symbolRemap[id] = symbols.intern(dictionary, dictionary.position(), length);
+            dictionary.position(dictionary.position() + length);
+        }
+
+        this.firstOrderIds = new long[blockCount];
+        this.blockOffsets = new long[blockCount];
+        this.compressedLengths = new int[blockCount];
+        this.blockRows = new int[blockCount];
+        ByteBuffer index = readAt(channel, indexOffset, blockCount * INDEX_ENTRY_LENGTH);
+        for (int b = 0; b < blockCount; b++) {
+            firstOrderIds[b] = index.getLong();
+            blockOffsets[b] = index.getLong();
+            compressedLengths[b] = index.getInt();
+            blockRows[b] = index.getInt();
+        }
+    }
+
+    /**
+     * Open a segment, interning its symbols into {@code symbols}.
+     */
+    public static OrderArchiveSegment open(Path path, SymbolTable symbols) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new OrderArchiveSegment(path, channel, symbols);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Write {@code rows} as a segment at {@code path} and open it. The rows
+     * are sorted by order id in place.
+     *
+     * @param symbols the table the rows' symbol ids refer to
+     */
+    public static OrderArchiveSegment write(Path path, Rows rows, SymbolTable symbols, int rowsPerBlock)
+            throws IOException {
+        if (rows.size == 0 || rowsPerBlock <= 0) {
+            throw new IllegalArgumentException("No rows, or rowsPerBlock not positive: " + rowsPerBlock);
+        }
+        int[] order = sortedByOrderId(rows);
+
+        // File-local symbol dictionary, in order of first use
+        int[] fileIds = new int[symbols.size()];
+        Arrays.fill(fileIds, -1);
+        int[] fileSymbols = new int[16];
+        int symbolCount = 0;
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        int blockCount = (rows.size + rowsPerBlock - 1) / rowsPerBlock;
+        ByteBuffer index = ByteBuffer.allocate(blockCount * INDEX_ENTRY_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] block = new byte[Math.min(rows.size, rowsPerBlock) * ROW_LENGTH];
+        byte[] compressed = new byte[block.length + block.length / 16 + 64];
+        long minClosedAt = Long.MAX_VALUE;
+        long maxClosedAt = Long.MIN_VALUE;
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putInt(rowsPerBlock).putInt(rows.size);
+            writeFully(out, header.flip());
+            long position = HEADER_LENGTH;
+
+            for (int first = 0; first < rows.size; first += rowsPerBlock) {
+                int count = Math.min(rowsPerBlock, rows.size - first);
+                for (int r = 0; r < count; r++) {
+                    int i = order[first + r];
+                    int symbolId = rows.symbolIds[i];
+                    if (symbolId >= fileIds.length) {
+                        int length = fileIds.length;
+                        fileIds = Arrays.copyOf(fileIds, Math.max(symbolId + 1, length * 2));
+                        Arrays.fill(fileIds, length, fileIds.length, -1);
+                    }
+                    if (fileIds[symbolId] < 0) {
+                        if (symbolCount == fileSymbols.length) {
+                            fileSymbols = Arrays.copyOf(fileSymbols, symbolCount * 2);
+                        }
+                        fileSymbols[symbolCount] = symbolId;
+                        fileIds[symbolId] = symbolCount++;
+                    }
+                    int offset = r * ROW_LENGTH;
+                    LONG.set(block, offset, rows.orderIds[i]);
+                    LONG.set(block, offset + 8, rows.priceTicks[i]);
+                    LONG.set(block, offset + 16, rows.createdAt[i]);
+                    LONG.set(block, offset + 24, rows.closedAt[i]);
+                    INT.set(block, offset + 32, rows.quantities[i]);
+                    INT.set(block, offset + 36, rows.filled[i]);
+                    SHORT.set(block, offset + 40, (short) fileIds[symbolId]);
+                    block[offset + 42] = rows.sides[i];
+                    block[offset + 43] = rows.statuses[i];
+                    minClosedAt = Math.min(minClosedAt, rows.closedAt[i]);
+                    maxClosedAt = Math.max(maxClosedAt, rows.closedAt[i]);
+                }
+                deflater.reset();
+                deflater.setInput(block, 0, count * ROW_LENGTH);
+                deflater.finish();
+                int compressedLength = 0;
+                while (!deflater.finished()) {
+                    if (compressedLength == compressed.length) {
+                        compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                    }
+                    compressedLength += deflater.deflate(compressed, compressedLength,
+                        compressed.length - compressedLength);
+                }
+                index.putLong(rows.orderIds[order[first]]).putLong(position).putInt(compressedLength).putInt(count);
+                writeFully(out, ByteBuffer.wrap(compressed, 0, compressedLength));
+                position += compressedLength;
+            }
+
+            if (symbolCount > 0xFFFF) {
+                throw new IllegalArgumentException("Too many symbols for an archive segment: " + symbolCount);
+            }
+            long dictionaryOffset = position;
+            int dictionaryLength = 2;
+            for (int s = 0; s < symbolCount; s++) {
+                dictionaryLength += 1 + symbols.symbol(fileSymbols[s]).length();
+            }
+            ByteBuffer dictionary = ByteBuffer.allocate(dictionaryLength).order(ByteOrder.LITTLE_ENDIAN);
+            dictionary.putShort((short) symbolCount);
+            for (int s = 0; s < symbolCount; s++) {
+                byte[] name = symbols.symbol(fileSymbols[s]).getBytes(StandardCharsets.US_ASCII);
+                if (name.length > OrderWireFormat.MAX_SYMBOL_LENGTH) {
+                    throw new IllegalArgumentException("Symbol too long for an archive segment: "
+                        + symbols.symbol(fileSymbols[s]));
+                }
+                dictionary.put((byte) name.length).put(name);
+            }
+            writeFully(out, dictionary.flip());
+            long indexOffset = dictionaryOffset + dictionaryLength;
+            writeFully(out, index.flip());
+
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+            footer.putLong(minClosedAt).putLong(maxClosedAt).putLong(rows.orderIds[order[rows.size - 1]])
+                .putLong(dictionaryOffset).putLong(indexOffset).putInt(blockCount).putInt(MAGIC);
+            writeFully(out, footer.flip());
+            out.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        } finally {
+            deflater.end();
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+        return open(path, symbols);
+    }
+
+    /**
+     * Look up one order.
+     *
+     * @return true, with {@code out} filled, if the segment holds the order
+     * @throws IOException if the block cannot be read or inflated
+     */
+    public boolean find(long orderId, OrderState out, Lookup lookup) throws IOException {
+        if (firstOrderIds.length == 0 || orderId < firstOrderIds[0] || orderId > maxOrderId) {
+            return false;
+        }
+        int b = Arrays.binarySearch(firstOrderIds, orderId);
+        if (b < 0) {
+            b = -b - 2; // last block starting below the id
+        }
+        byte[] block = readBlock(b, lookup);
+        int low = 0;
+        int high = blockRows[b] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long id = (long) LONG.get(block, mid * ROW_LENGTH);
+            if (id < orderId) {
+                low = mid + 1;
+            } else if (id > orderId) {
+                high = mid - 1;
+            } else {
+                int offset = mid * ROW_LENGTH;
+                out.set(orderId, symbolRemap[(short) SHORT.get(block, offset + 40) & 0xFFFF],
+                    SIDES[block[offset + 42]], (long) LONG.get(block, offset + 8),
+                    (int) INT.get(block, offset + 32), (int) INT.get(block, offset + 36),
+                    STATUSES[block[offset + 43]], (long) LONG.get(block, offset + 16),
+                    (long) LONG.get(block, offset + 24));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Path getPath() { return path; }
+    public int rowCount() { return rowCount; }
+    public int blockCount() { return firstOrderIds.length; }
+    public long getMinOrderId() { return firstOrderIds.length == 0 ? Long.MAX_VALUE : firstOrderIds[0]; }
+    public long getMaxOrderId() { return maxOrderId; }
+    public long getMinClosedAtNanos() { return minClosedAtNanos; }
+    public long getMaxClosedAtNanos() { return maxClosedAtNanos; }
+
+    /** Bytes of the file on disk. */
+    public long fileSize() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private byte[] readBlock(int b, Lookup lookup) throws IOException {
+        int length = blockRows[b] * ROW_LENGTH;
+        if (lookup.cachedSegment == this && lookup.cachedBlock == b) {
+            return lookup.block;
+        }
+        if (lookup.closed) {
+            throw new IllegalStateException("Lookup is closed");
+        }
+        lookup.invalidate();
+        int compressedLength = compressedLengths[b];
+        if (lookup.compressed.length < compressedLength) {
+            lookup.compressed = new byte[compressedLength];
+        }
+        if (lookup.block.length < length) {
+            lookup.block = new byte[length];
+        }
+        ByteBuffer buf = ByteBuffer.wrap(lookup.compressed, 0, compressedLength);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, blockOffsets[b] + buf.position()) < 0) {
+                throw new IOException(path + ": unexpected end of file in block " + b);
+            }
+        }
+        lookup.inflater.reset();
+        lookup.inflater.setInput(lookup.compressed, 0, compressedLength);
+        try {
+            int inflated = 0;
+            while (inflated < length && !lookup.inflater.finished()) {
+                int n = lookup.inflater.inflate(lookup.block, inflated, length - inflated);
+                if (n == 0 && (lookup.inflater.needsInput() || lookup.inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += n;
+            }
+            if (inflated != length) {
+                throw new IOException(path + ": block " + b + " inflated to " + inflated + " bytes, expected " + length);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(path + ": corrupt block " + b, e);
+        }
+        lookup.cachedSegment = this;
+        lookup.cachedBlock = b;
+        lookup.blocksRead++;
+        return lookup.block;
+    }
+
+    /**
+     * Row indexes in order-id order. Terminal orders arrive roughly in id
+     * order, so this is usually a single pass over already sorted ids.
+     */
+    private static int[] sortedByOrderId(Rows rows) {
+        int n = rows.size;
+        int[] order = new int[n];
+        boolean sorted = true;
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+            if (i > 0 && rows.orderIds[i] < rows.orderIds[i - 1]) {
+                sorted = false;
+            }
+        }
+        if (sorted) {
+            return order;
+        }
+        // Sort (id, row) pairs: ids in a long[], rows carried alongside
+        long[] ids = Arrays.copyOf(rows.orderIds, n);
+        sortPairs(ids, order, 0, n - 1);
+        return order;
+    }
+
+    private static void sortPairs(long[] keys, int[] values, int from, int to) {
+        while (to - from > 16) {
+            long pivot = keys[(from + to) >>> 1];
+            int i = from;
+            int j = to;
+            while (i <= j) {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+                if (i <= j) {
+                    long k = keys[i]; keys[i] = keys[j]; keys[j] = k;
+                    int v = values[i]; values[i] = values[j]; values[j] = v;
+                    i++;
+                    j--;
+                }
+            }
+            // Recurse into the smaller half, loop on the larger
+            if (j - from < to - i) {
+                sortPairs(keys, values, from, j);
+                from = i;
+            } else {
+                sortPairs(keys, values, i, to);
+                to = j;
+            }
+        }
+        for (int i = from + 1; i <= to; i++) {
+            long k = keys[i];
+            int v = values[i];
+            int j = i - 1;
+            while (j >= from && keys[j] > k) {
+                keys[j + 1] = keys[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            keys[j + 1] = k;
+            values[j + 1] = v;
+        }
+    }
+
+    private static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        return buf.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+}
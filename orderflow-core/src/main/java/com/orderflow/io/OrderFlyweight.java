@@ -0,0 +1,127 @@
+package com.orderflow.io;
+
+import com.orderflow.model.Order;
+import com.orderflow.model.OrderRecord;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Flyweight over one binary order record in a {@link ByteBuffer}.
+ *
+ * <pre>
+ *    0  long   orderId
+ *    8  int    price ticks
+ *   12  int    quantity
+ *   16  short  symbol id (file dictionary)
+ *   18  byte   side (0 = BUY, 1 = SELL)
+ *   19  byte   flags
+ * </pre>
+ *
+ * Fields are read and written in place with little-endian VarHandles, so
+ * the buffer's own byte order and position are never touched and no
+ * objects are created. Re-point the same instance with {@link #wrap} to
+ * walk a buffer of records.
+ *
+ * PERF-LAB: Lab B - decode cost vs ByteOrderParser on CSV
+ */
+public final class OrderFlyweight {
+
+    public static final int LENGTH = 20;
+
+    private static final int ORDER_ID_OFFSET = 0;
+    private static final int PRICE_OFFSET = 8;
+    private static final int QUANTITY_OFFSET = 12;
+    private static final int SYMBOL_OFFSET = 16;
+    private static final int SIDE_OFFSET = 18;
+    private static final int FLAGS_OFFSET = 19;
+
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle SHORT = MethodHandles.byteBufferViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final Order.Side[] SIDES = Order.Side.values();
+
+    private ByteBuffer buffer;
+    private int offset;
+
+    public OrderFlyweight wrap(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+        return this;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    public long orderId() { return (long) LONG.get(buffer, offset + ORDER_ID_OFFSET); }
+    public int priceTicks() { return (int) INT.get(buffer, offset + PRICE_OFFSET); }
+    public int quantity() { return (int) INT.get(buffer, offset + QUANTITY_OFFSET); }
+    public int symbolId() { return (short) SHORT.get(buffer, offset + SYMBOL_OFFSET) & 0xFFFF; }
+    public byte flags() { return buffer.get(offset + FLAGS_OFFSET); }
+
+    /**
+     * @throws IllegalArgumentException if the side byte is neither 0 nor 1
+     */
+    public Order.Side side() {
+        int side = buffer.get(offset + SIDE_OFFSET);
+        if (side < 0 || side >= SIDES.length) {
+            throw new IllegalArgumentException("Invalid side byte: " + side);
+        }
+        return SIDES[side];
+    }
+
+    public OrderFlyweight orderId(long value) { LONG.set(buffer, offset + ORDER_ID_OFFSET, value); return this; }
+    public OrderFlyweight priceTicks(int value) { INT.set(buffer, offset + PRICE_OFFSET, value); return this; }
+    public OrderFlyweight quantity(int value) { INT.set(buffer, offset + QUANTITY_OFFSET, value); return this; }
+    public OrderFlyweight symbolId(int value) { SHORT.set(buffer, offset + SYMBOL_OFFSET, (short) value); return this; }
+    public OrderFlyweight side(Order.Side value) { buffer.put(offset + SIDE_OFFSET, (byte) value.ordinal()); return this; }
+    public OrderFlyweight flags(byte value) { buffer.put(offset + FLAGS_OFFSET, value); return this; }
+
+    /**
+     * Write all fields of a record at the wrapped offset.
+     *
+     * @throws IllegalArgumentException if the price does not fit the 32-bit
+     *         tick field, or the price or quantity is not positive
+     */
+    public OrderFlyweight encode(OrderRecord record) {
+        long ticks = record.getPriceTicks();
+        if (ticks <= 0 || ticks > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Price ticks not positive or out of wire range: " + ticks);
+        }
+        if (record.getQuantity() <= 0) {
+            throw new IllegalArgumentException("Quantity not positive: " + record.getQuantity());
+        }
+        return orderId(record.getOrderId())
+            .priceTicks((int) ticks)
+            .quantity(record.getQuantity())
+            .symbolId(record.getSymbolId())
+            .side(record.getSide())
+            .flags((byte) 0);
+    }
+
+    /**
+     * Read the wrapped record into {@code out}, translating the file symbol
+     * id through {@code symbolRemap} (pass null to keep it as-is).
+     *
+     * @throws IllegalArgumentException if the side byte is invalid, the
+     *         price or quantity is not positive, or the symbol id is not in
+     *         {@code symbolRemap}
+     */
+    public OrderRecord decode(OrderRecord out, int[] symbolRemap) {
+        int symbol = symbolId();
+        if (symbolRemap != null && symbol >= symbolRemap.length) {
+            throw new IllegalArgumentException("Symbol id " + symbol + " not in dictionary of "
+                + symbolRemap.length);
+        }
+        // A negative int is a price over 31 bits, which encode never writes
+        if (priceTicks() <= 0 || quantity() <= 0) {
+            throw new IllegalArgumentException("Price ticks or quantity not positive: " + priceTicks()
+                + ", " + quantity());
+        }
+        return out.set(orderId(), symbolRemap != null ? symbolRemap[symbol] : symbol,
+            side(), priceTicks(), quantity());
+    }
+}
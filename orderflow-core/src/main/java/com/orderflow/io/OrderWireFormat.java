@@ -0,0 +1,142 @@
+package com.orderflow.io;
+
+import com.orderflow.util.SymbolTable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed-layout binary encoding for orders and trades.
+ *
+ * All multi-byte fields are little-endian. A binary file is a header,
+ * a symbol dictionary, then back-to-back fixed-length records:
+ *
+ * <pre>
+ *   header      0  int    magic "OFB1"
+ *               4  short  version
+ *               6  byte   record type (ORDER / TRADE)
+ *               7  byte   reserved
+ *               8  short  record length
+ *              10  short  symbol count
+ *   dictionary     per symbol: byte length + ASCII bytes, in symbol-id order
+ *   records        see {@link OrderFlyweight} and {@link TradeFlyweight}
+ * </pre>
+ *
+ * Symbol ids inside a file refer to that file's dictionary, so readers
+ * remap them onto their own {@link SymbolTable}.
+ *
+ * PERF-LAB: Lab F - compare file size and decode cost with CSV
+ */
+public final class OrderWireFormat {
+
+    public static final int MAGIC = 0x3142464F; // "OFB1" read little-endian
+    public static final short VERSION = 1;
+
+    public static final byte RECORD_TYPE_ORDER = 1;
+    public static final byte RECORD_TYPE_TRADE = 2;
+
+    /** Size of the fixed part of the header, before the dictionary. */
+    public static final int HEADER_LENGTH = 12;
+
+    /** Longest symbol the dictionary can carry. */
+    public static final int MAX_SYMBOL_LENGTH = 255;
+
+    /** Largest header a valid file can have: a full dictionary of the longest symbols. */
+    public static final int MAX_HEADER_SIZE = HEADER_LENGTH + Short.MAX_VALUE * (1 + MAX_SYMBOL_LENGTH);
+
+    private OrderWireFormat() {
+    }
+
+    /**
+     * Bytes needed for the header plus a dictionary of every symbol in the table.
+     */
+    public static int headerSize(SymbolTable symbols) {
+        int size = HEADER_LENGTH;
+        for (int id = 0; id < symbols.size(); id++) {
+            size += 1 + symbols.symbol(id).length();
+        }
+        return size;
+    }
+
+    /**
+     * Write the header and dictionary at the buffer's position.
+     */
+    public static void writeHeader(ByteBuffer buf, byte recordType, SymbolTable symbols) {
+        ByteOrder original = buf.order();
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        int count = symbols.size();
+        if (count > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many symbols for wire format: " + count);
+        }
+        buf.putInt(MAGIC);
+        buf.putShort(VERSION);
+        buf.put(recordType);
+        buf.put((byte) 0);
+        buf.putShort((short) recordLength(recordType));
+        buf.putShort((short) count);
+        for (int id = 0; id < count; id++) {
+            byte[] name = symbols.symbol(id).getBytes(StandardCharsets.US_ASCII);
+            if (name.length > MAX_SYMBOL_LENGTH) {
+                throw new IllegalArgumentException("Symbol too long for wire format: " + symbols.symbol(id));
+            }
+            buf.put((byte) name.length);
+            buf.put(name);
+        }
+        buf.order(original);
+    }
+
+    /**
+     * Read and validate the header at the buffer's position, leaving the
+     * position at the first record.
+     *
+     * @param expectedType RECORD_TYPE_ORDER or RECORD_TYPE_TRADE
+     * @param symbols table to intern the file's symbols into
+     * @return map from file symbol id to {@code symbols} id
+     * @throws IllegalArgumentException if the header is not a supported
+     *         binary order file, or its dictionary runs past the buffer
+     */
+    public static int[] readHeader(ByteBuffer buf, byte expectedType, SymbolTable symbols) {
+        ByteOrder original = buf.order();
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (buf.remaining() < HEADER_LENGTH || buf.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a binary order file (bad magic)");
+            }
+            short version = buf.getShort();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported binary order file version: " + version);
+            }
+            byte type = buf.get();
+            buf.get();
+            int length = buf.getShort();
+            if (type != expectedType || length != recordLength(expectedType)) {
+                throw new IllegalArgumentException("Unexpected record type " + type + " / length " + length);
+            }
+            int count = buf.getShort();
+            if (count < 0) {
+                throw new IllegalArgumentException("Negative symbol count: " + count);
+            }
+            int[] remap = new int[count];
+            for (int id = 0; id < count; id++) {
+                int nameLength = buf.hasRemaining() ? buf.get(buf.position()) & 0xFF : 0;
+                if (buf.remaining() < 1 + nameLength) {
+                    throw new IllegalArgumentException("Symbol dictionary truncated at symbol " + id + " of " + count);
+                }
+                buf.get();
+                remap[id] = symbols.intern(buf, buf.position(), nameLength);
+                buf.position(buf.position() + nameLength);
+            }
+            return remap;
+        } finally {
+            buf.order(original);
+        }
+    }
+
+    public static int recordLength(byte recordType) {
+        switch (recordType) {
+            case RECORD_TYPE_ORDER: return OrderFlyweight.LENGTH;
+            case RECORD_TYPE_TRADE: return TradeFlyweight.LENGTH;
+            default: throw new IllegalArgumentException("Unknown record type: " + recordType);
+        }
+    }
+}
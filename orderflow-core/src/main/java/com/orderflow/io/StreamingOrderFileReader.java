@@ -0,0 +1,136 @@
+package com.orderflow.io;
+
+import com.orderflow.model.OrderBatch;
+import com.orderflow.model.OrderRecord;
+import com.orderflow.util.ByteOrderParser;
+import com.orderflow.util.RejectResult;
+import com.orderflow.util.SymbolTable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Reads CSV orders from a channel through one fixed-size direct buffer.
+ *
+ * Memory use is independent of the input size: bytes are read into the
+ * buffer, complete lines are parsed into {@link OrderBatch}es, and a
+ * trailing partial line is moved to the front before the next read.
+ * Batches come from, and go to, caller-supplied functions - typically a
+ * pair of bounded queues - so the caller decides how many batches exist
+ * and a slow consumer blocks the reader instead of growing the heap.
+ *
+ * PERF-LAB: Lab F - compare heap usage with "read all lines first"
+ */
+public class StreamingOrderFileReader implements AutoCloseable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private final ReadableByteChannel channel;
+    private final ByteOrderParser parser;
+    private final ByteBuffer buffer;
+    private final int batchSize;
+    private long bytesRead;
+
+    public StreamingOrderFileReader(ReadableByteChannel channel, SymbolTable symbols,
+                                    int bufferSize, int batchSize) {
+        this.channel = channel;
+        this.parser = new ByteOrderParser(symbols);
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.batchSize = batchSize;
+    }
+
+    public static StreamingOrderFileReader open(Path path, SymbolTable symbols, int batchSize) throws IOException {
+        return new StreamingOrderFileReader(FileChannel.open(path, StandardOpenOption.READ),
+            symbols, DEFAULT_BUFFER_SIZE, batchSize);
+    }
+
+    /**
+     * Read to end of input.
+     *
+     * @param emptyBatches supplies a cleared batch to fill; may block
+     * @param fullBatches receives each batch once it holds {@code batchSize}
+     *                    lines, orders and rejects together (the last one
+     *                    may hold fewer); may block
+     * @return number of lines consumed, including rejected ones
+     */
+    public long read(Supplier<OrderBatch> emptyBatches, Consumer<OrderBatch> fullBatches) throws IOException {
+        OrderRecord record = new OrderRecord();
+        RejectResult result = new RejectResult();
+        OrderBatch batch = emptyBatches.get();
+        long bufferBase = 0; // file offset of buffer index 0
+        long lines = 0;
+        boolean firstLine = true;
+        boolean eof = false;
+        buffer.clear();
+
+        while (!eof) {
+            int read = channel.read(buffer);
+            if (read < 0) {
+                eof = true;
+            } else {
+                bytesRead += read;
+            }
+            buffer.flip();
+            int limit = buffer.limit();
+            int pos = 0;
+
+            while (pos < limit) {
+                int next = ByteOrderParser.nextLine(buffer, pos, limit);
+                if (buffer.get(next - 1) != '\n' && !eof) {
+                    break; // partial line; finish it after the next read
+                }
+                if (firstLine) {
+                    firstLine = false;
+                    if (ByteOrderParser.skipHeader(buffer, pos, next) != pos) {
+                        pos = next;
+                        continue;
+                    }
+                }
+                byte first = buffer.get(pos);
+                if (first != '\n' && first != '\r') {
+                    lines++;
+                    if (parser.tryParse(buffer, pos, next, record, result)) {
+                        batch.add(record);
+                    } else {
+                        batch.reject(result.getCode(), bufferBase + pos);
+                    }
+                    // Rejects count too, so a run of bad lines cannot grow
+                    // one batch's reject columns without bound
+                    if (batch.size() + batch.getRejected() == batchSize) {
+                        fullBatches.accept(batch);
+                        batch = emptyBatches.get();
+                    }
+                }
+                pos = next;
+            }
+
+            buffer.position(pos);
+            buffer.compact();
+            bufferBase += pos;
+            if (!eof && !buffer.hasRemaining()) {
+                throw new IOException("Line longer than read buffer (" + buffer.capacity() + " bytes)");
+            }
+        }
+        if (batch.size() > 0 || batch.getRejected() > 0) {
+            fullBatches.accept(batch);
+        }
+        return lines;
+    }
+
+    /**
+     * Total bytes read from the channel so far.
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,132 @@
+package com.orderflow.io;
+
+import com.orderflow.model.OrderRecord;
+import com.orderflow.model.TradeResult;
+import com.orderflow.util.OrderIds;
+import com.orderflow.util.SymbolTable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+
+/**
+ * Flyweight over one binary trade record in a {@link ByteBuffer}.
+ *
+ * <pre>
+ *    0  long   trade sequence
+ *    8  long   buy orderId
+ *   16  long   sell orderId
+ *   24  long   executedAt, nanoseconds since the epoch
+ *   32  int    price ticks
+ *   36  int    quantity
+ *   40  short  symbol id (file dictionary)
+ *   42  short  flags
+ * </pre>
+ *
+ * Same access rules as {@link OrderFlyweight}: little-endian, in place,
+ * allocation-free. Trade IDs are carried as a numeric sequence; textual
+ * IDs such as UUIDs are not part of the wire format.
+ */
+public final class TradeFlyweight {
+
+    public static final int LENGTH = 44;
+
+    private static final int TRADE_ID_OFFSET = 0;
+    private static final int BUY_ORDER_OFFSET = 8;
+    private static final int SELL_ORDER_OFFSET = 16;
+    private static final int EXECUTED_AT_OFFSET = 24;
+    private static final int PRICE_OFFSET = 32;
+    private static final int QUANTITY_OFFSET = 36;
+    private static final int SYMBOL_OFFSET = 40;
+    private static final int FLAGS_OFFSET = 42;
+
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle SHORT = MethodHandles.byteBufferViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private ByteBuffer buffer;
+    private int offset;
+
+    public TradeFlyweight wrap(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+        return this;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    public long tradeId() { return (long) LONG.get(buffer, offset + TRADE_ID_OFFSET); }
+    public long buyOrderId() { return (long) LONG.get(buffer, offset + BUY_ORDER_OFFSET); }
+    public long sellOrderId() { return (long) LONG.get(buffer, offset + SELL_ORDER_OFFSET); }
+    public long executedAtNanos() { return (long) LONG.get(buffer, offset + EXECUTED_AT_OFFSET); }
+    public int priceTicks() { return (int) INT.get(buffer, offset + PRICE_OFFSET); }
+    public int quantity() { return (int) INT.get(buffer, offset + QUANTITY_OFFSET); }
+    public int symbolId() { return (short) SHORT.get(buffer, offset + SYMBOL_OFFSET) & 0xFFFF; }
+    public short flags() { return (short) SHORT.get(buffer, offset + FLAGS_OFFSET); }
+
+    public TradeFlyweight tradeId(long value) { LONG.set(buffer, offset + TRADE_ID_OFFSET, value); return this; }
+    public TradeFlyweight buyOrderId(long value) { LONG.set(buffer, offset + BUY_ORDER_OFFSET, value); return this; }
+    public TradeFlyweight sellOrderId(long value) { LONG.set(buffer, offset + SELL_ORDER_OFFSET, value); return this; }
+    public TradeFlyweight executedAtNanos(long value) { LONG.set(buffer, offset + EXECUTED_AT_OFFSET, value); return this; }
+    public TradeFlyweight priceTicks(int value) { INT.set(buffer, offset + PRICE_OFFSET, value); return this; }
+    public TradeFlyweight quantity(int value) { INT.set(buffer, offset + QUANTITY_OFFSET, value); return this; }
+    public TradeFlyweight symbolId(int value) { SHORT.set(buffer, offset + SYMBOL_OFFSET, (short) value); return this; }
+    public TradeFlyweight flags(short value) { SHORT.set(buffer, offset + FLAGS_OFFSET, value); return this; }
+
+    /**
+     * Encode a {@link TradeResult}. Order IDs must be in "ORD" + digits form.
+     *
+     * @param tradeSequence numeric id to carry in place of the textual trade ID
+     * @throws IllegalArgumentException if an order ID is not in that form, or
+     *         the price or quantity is not positive or does not fit its field
+     */
+    public TradeFlyweight encode(TradeResult trade, long tradeSequence, SymbolTable symbols) {
+        long buyOrderId = orderId(trade.getBuyOrderId());
+        long sellOrderId = orderId(trade.getSellOrderId());
+        long ticks = OrderRecord.toTicks(trade.getPrice());
+        checkPositive(ticks, trade.getQuantity());
+        Instant executedAt = trade.getExecutedAt();
+        return tradeId(tradeSequence)
+            .buyOrderId(buyOrderId)
+            .sellOrderId(sellOrderId)
+            .executedAtNanos(executedAt.getEpochSecond() * 1_000_000_000L + executedAt.getNano())
+            .priceTicks((int) ticks)
+            .quantity(trade.getQuantity())
+            .symbolId(symbols.intern(trade.getSymbol()))
+            .flags((short) 0);
+    }
+
+    /**
+     * Materialize a {@link TradeResult} from the wrapped record.
+     *
+     * @param symbols the table the record's symbol id refers to
+     * @throws IllegalArgumentException if the price or quantity is not positive
+     */
+    public TradeResult toTradeResult(SymbolTable symbols) {
+        // A negative int is a price over 31 bits, which encode never writes
+        checkPositive(priceTicks(), quantity());
+        long nanos = executedAtNanos();
+        return new TradeResult(Long.toString(tradeId()),
+            OrderIds.format(buyOrderId()), OrderIds.format(sellOrderId()),
+            symbols.symbol(symbolId()), OrderRecord.toPrice(priceTicks()), quantity(),
+            Instant.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L), Math.floorMod(nanos, 1_000_000_000L)));
+    }
+
+    private static long orderId(String orderId) {
+        long id = OrderIds.parse(orderId);
+        if (id < 0) {
+            throw new IllegalArgumentException("Order ID not in ORD + digits form: " + orderId);
+        }
+        return id;
+    }
+
+    private static void checkPositive(long priceTicks, int quantity) {
+        if (priceTicks <= 0 || priceTicks > Integer.MAX_VALUE || quantity <= 0) {
+            throw new IllegalArgumentException("Price ticks or quantity not positive or out of wire range: "
+                + priceTicks + ", " + quantity);
+        }
+    }
+}
@@ -0,0 +1,803 @@
+package com.orderflow.io;
+
+import com.orderflow.model.OrderRecord;
+import com.orderflow.util.MetricsCollector;
+import com.orderflow.util.SymbolTable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only write-ahead log of orders and trades in memory-mapped
+ * segment files.
+ *
+ * An append copies one small binary record into the mapped segment and
+ * returns its sequence number - no system call, no allocation. Records
+ * become durable when the dirty range is forced to disk, which happens
+ * every {@code syncEveryRecords} records on the appending thread, every
+ * {@code syncIntervalMillis} on a background thread, or when a caller
+ * needs it: {@link #awaitDurable} forces everything up to the record it
+ * waits for, so concurrent waiters share one sync (group commit). A
+ * record is acknowledged once {@link #getDurableSequence} has reached it.
+ *
+ * <pre>
+ *   segment  "wal-" + first sequence (20 digits) + ".log", preallocated
+ *            0  int    magic "OFW1"
+ *            4  short  version
+ *            6  short  reserved
+ *            8  long   first sequence
+ *           16  records, each 8-byte aligned
+ *   record   0  int    length, header included
+ *            4  int    CRC32C of bytes [8, length)
+ *            8  long   sequence, +1 per record across segments
+ *           16  byte   type (ORDER / TRADE / SYMBOL)
+ *           17  3 bytes reserved
+ *           20  payload: {@link OrderFlyweight} + long createdAt nanos,
+ *               {@link TradeFlyweight}, or int symbol id + byte length +
+ *               ASCII name
+ * </pre>
+ *
+ * Symbol ids are those of the writer's {@link SymbolTable}; a SYMBOL
+ * record defines an id before its first use in each segment and after
+ * each restart, and readers remap onto their own table as they go.
+ *
+ * Opening a log recovers it: records are checked in order - length, CRC
+ * and sequence - and appending resumes after the last valid one, so a
+ * record torn by a crash is dropped along with anything after it. Only
+ * unacknowledged records can be torn, because a sync covers every byte
+ * up to the record it acknowledges. That includes the segment the log
+ * last rolled over, which the next sync forces - off the appending
+ * thread - before anything in the new segment: if a crash leaves it
+ * torn, the segment after it is deleted unread. A new segment file is
+ * also made durable by syncing the directory before any of its records
+ * is acknowledged. Older segments are removed with
+ * {@link #truncateBefore} once their records are stored elsewhere (see
+ * {@link com.orderflow.service.WalCompactor}).
+ *
+ * Metrics:
+ *   persistence.wal.appends   records appended, counted at each sync (counter)
+ *   persistence.wal.syncs     syncs to disk (counter)
+ *   persistence.wal.sync      time per sync (timer)
+ *
+ * PERF-LAB: Lab F - PersistenceBenchmark.wal* vs writeBehind
+ *
+ * Thread-safe. Appends are serialized; syncs run outside the append lock.
+ */
+public final class WriteAheadLog implements AutoCloseable {
+
+    public static final int MAGIC = 0x3157464F; // "OFW1" read little-endian
+    public static final short VERSION = 1;
+
+    public static final byte RECORD_TYPE_ORDER = 1;
+    public static final byte RECORD_TYPE_TRADE = 2;
+    public static final byte RECORD_TYPE_SYMBOL = 3;
+
+    public static final int DEFAULT_SEGMENT_BYTES = 64 << 20;
+
+    static final int SEGMENT_HEADER_LENGTH = 16;
+    static final int RECORD_HEADER_LENGTH = 20;
+
+    private static final int LENGTH_OFFSET = 0;
+    private static final int CRC_OFFSET = 4;
+    private static final int SEQUENCE_OFFSET = 8;
+    private static final int TYPE_OFFSET = 16;
+
+    private static final int ORDER_RECORD_LENGTH = RECORD_HEADER_LENGTH + OrderFlyweight.LENGTH + 8;
+    private static final int TRADE_RECORD_LENGTH = RECORD_HEADER_LENGTH + TradeFlyweight.LENGTH;
+
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle SHORT = MethodHandles.byteBufferViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // Windows cannot open a directory as a channel, and NTFS journals
+    // file creation anyway
+    private static final boolean SYNC_DIRECTORY = !System.getProperty("os.name").startsWith("Windows");
+
+    /**
+     * Receives records in sequence order from {@link #replay}. Symbol ids
+     * refer to the table passed to replay.
+     */
+    public interface Visitor {
+        void onOrder(long sequence, OrderRecord order, long createdAtNanos);
+
+        void onTrade(long sequence, long tradeId, long buyOrderId, long sellOrderId, int symbolId,
+                     long priceTicks, int quantity, long executedAtNanos);
+    }
+
+    /** One segment file; {@code buffer} is mapped only for the active one. */
+    private static final class Segment {
+        final long firstSequence;
+        final Path path;
+        MappedByteBuffer buffer;
+        int syncedPosition = SEGMENT_HEADER_LENGTH; // guarded by syncLock
+
+        Segment(long firstSequence, Path path) {
+            this.firstSequence = firstSequence;
+            this.path = path;
+        }
+    }
+
+    private final Path directory;
+    private final SymbolTable symbols;
+    private final int segmentBytes;
+    private final int syncEveryRecords;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final List<Segment> segments = new ArrayList<>();
+    private final OrderFlyweight orderFlyweight = new OrderFlyweight();
+    private final TradeFlyweight tradeFlyweight = new TradeFlyweight();
+    private final BitSet definedSymbols = new BitSet();
+    private final AtomicLong durableSequence = new AtomicLong();
+    private Thread syncer;
+    private long syncedDirectoryVersion; // guarded by syncLock
+
+    // Guarded by appendLock
+    private final CRC32C crc = new CRC32C();
+    private Segment active;
+    private Segment retiring; // rolled over, not yet forced
+    private long directoryVersion;
+    private ByteBuffer crcView;
+    private int position;
+    private long lastSequence;
+    private int unsynced;
+    private boolean closed;
+
+    private WriteAheadLog(Path directory, SymbolTable symbols, int segmentBytes, int syncEveryRecords) {
+        this.directory = directory;
+        this.symbols = symbols;
+        this.segmentBytes = segmentBytes;
+        this.syncEveryRecords = syncEveryRecords;
+    }
+
+    /**
+     * Open the log in {@code directory}, creating it if needed, and
+     * recover it: appending resumes after the last complete record, and
+     * everything recovered is forced to disk before this returns.
+     *
+     * @param symbols resolves the symbol ids of appended records
+     * @param segmentBytes size of each segment file
+     * @param syncEveryRecords sync on the appending thread after this many
+     *        unsynced records; 1 makes every append durable on return
+     * @param syncIntervalMillis sync in the background this often; 0 for never
+     * @throws IllegalStateException if a segment other than the last one is
+     *         damaged, or segments are missing from the sequence
+     */
+    public static WriteAheadLog open(Path directory, SymbolTable symbols, int segmentBytes, int syncEveryRecords,
+                                     long syncIntervalMillis) {
+        if (segmentBytes < SEGMENT_HEADER_LENGTH + 2 * TRADE_RECORD_LENGTH || syncEveryRecords <= 0) {
+            throw new IllegalArgumentException("segmentBytes too small or syncEveryRecords not positive: "
+                + segmentBytes + ", " + syncEveryRecords);
+        }
+        WriteAheadLog log = new WriteAheadLog(directory, symbols, segmentBytes, syncEveryRecords);
+        try {
+            Files.createDirectories(directory);
+            log.recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.durableSequence.set(log.lastSequence);
+        if (syncIntervalMillis > 0) {
+            long intervalNanos = TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis);
+            log.syncer = new Thread(() -> log.syncPeriodically(intervalNanos), "wal-sync");
+            log.syncer.setDaemon(true);
+            log.syncer.start();
+        }
+        return log;
+    }
+
+    /**
+     * Append an order.
+     *
+     * @return the record's sequence number
+     */
+    public long appendOrder(OrderRecord order, long createdAtNanos) {
+        long sequence;
+        boolean due;
+        appendLock.lock();
+        try {
+            checkPayload(order.getSymbolId(), order.getPriceTicks(), order.getSide() != null);
+            int offset = reserve(ORDER_RECORD_LENGTH, order.getSymbolId());
+            sequence = ++lastSequence;
+            try {
+                orderFlyweight.wrap(active.buffer, offset + RECORD_HEADER_LENGTH).encode(order);
+                LONG.set(active.buffer, offset + RECORD_HEADER_LENGTH + OrderFlyweight.LENGTH, createdAtNanos);
+                seal(offset, ORDER_RECORD_LENGTH, sequence, RECORD_TYPE_ORDER);
+            } catch (RuntimeException e) {
+                release(offset, sequence);
+                throw e;
+            }
+            due = ++unsynced >= syncEveryRecords;
+        } finally {
+            appendLock.unlock();
+        }
+        if (due) {
+            sync();
+        }
+        return sequence;
+    }
+
+    /**
+     * Append a trade. Price ticks must fit in an unsigned 31-bit int, as
+     * in the binary trade format.
+     *
+     * @return the record's sequence number
+     */
+    public long appendTrade(long tradeId, long buyOrderId, long sellOrderId, int symbolId, long priceTicks,
+                            int quantity, long executedAtNanos) {
+        long sequence;
+        boolean due;
+        appendLock.lock();
+        try {
+            checkPayload(symbolId, priceTicks, true);
+            int offset = reserve(TRADE_RECORD_LENGTH, symbolId);
+            sequence = ++lastSequence;
+            try {
+                tradeFlyweight.wrap(active.buffer, offset + RECORD_HEADER_LENGTH)
+                    .tradeId(tradeId)
+                    .buyOrderId(buyOrderId)
+                    .sellOrderId(sellOrderId)
+                    .executedAtNanos(executedAtNanos)
+                    .priceTicks((int) priceTicks)
+                    .quantity(quantity)
+                    .symbolId(symbolId)
+                    .flags((short) 0);
+                seal(offset, TRADE_RECORD_LENGTH, sequence, RECORD_TYPE_TRADE);
+            } catch (RuntimeException e) {
+                release(offset, sequence);
+                throw e;
+            }
+            due = ++unsynced >= syncEveryRecords;
+        } finally {
+            appendLock.unlock();
+        }
+        if (due) {
+            sync();
+        }
+        return sequence;
+    }
+
+    /**
+     * Wait until the record with {@code sequence} is on disk, syncing now
+     * if no sync covering it has happened yet.
+     */
+    public void awaitDurable(long sequence) {
+        if (durableSequence.get() < sequence) {
+            sync();
+        }
+    }
+
+    /**
+     * Force every record appended so far to disk.
+     */
+    public void sync() {
+        sync(false);
+    }
+
+    private void sync(boolean closing) {
+        syncLock.lock();
+        try {
+            Segment segment;
+            MappedByteBuffer buffer;
+            Segment retired;
+            MappedByteBuffer retiredBuffer;
+            long directory;
+            int to;
+            long sequence;
+            int appended;
+            appendLock.lock();
+            try {
+                if (closed && !closing) return;
+                segment = active;
+                buffer = active.buffer;
+                retired = retiring;
+                retiredBuffer = retired != null ? retired.buffer : null;
+                directory = directoryVersion;
+                to = position;
+                sequence = lastSequence;
+                appended = unsynced;
+                unsynced = 0;
+            } finally {
+                appendLock.unlock();
+            }
+            MetricsCollector metrics = MetricsCollector.getInstance();
+            metrics.incrementBy("persistence.wal.appends", appended);
+            if (sequence <= durableSequence.get() && retired == null && directory == syncedDirectoryVersion) return;
+            long start = System.nanoTime();
+            // Everything before the active segment first: the segment
+            // rolled over, then the directory entry of the active one
+            if (retired != null) {
+                retiredBuffer.force();
+            }
+            if (directory != syncedDirectoryVersion) {
+                syncDirectory();
+                syncedDirectoryVersion = directory;
+            }
+            // Appends continue past `to` meanwhile
+            buffer.force(segment.syncedPosition, to - segment.syncedPosition);
+            segment.syncedPosition = to;
+            if (retired != null) {
+                appendLock.lock();
+                try {
+                    if (retiring == retired) {
+                        retiring = null;
+                        retired.buffer = null;
+                    }
+                } finally {
+                    appendLock.unlock();
+                }
+            }
+            durableSequence.accumulateAndGet(sequence, Math::max);
+            metrics.increment("persistence.wal.syncs");
+            metrics.recordTime("persistence.wal.sync", System.nanoTime() - start);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /** Sequence of the last record appended; 0 for an empty log. */
+    public long getLastSequence() {
+        appendLock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /** Every record up to this sequence is on disk. */
+    public long getDurableSequence() {
+        return durableSequence.get();
+    }
+
+    /** Segment files currently making up the log. */
+    public int segmentCount() {
+        appendLock.lock();
+        try {
+            return segments.size();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Read records with sequence in [fromSequence, toSequence], in order.
+     * Records appended while the replay runs are not guaranteed to be
+     * seen.
+     *
+     * @param symbols table the visitor's symbol ids refer to
+     * @return sequence of the last record read in the range, symbol
+     *         records included, or fromSequence - 1; below toSequence if
+     *         the log ends early
+     */
+    public long replay(long fromSequence, long toSequence, SymbolTable symbols, Visitor visitor) {
+        List<Segment> snapshot;
+        int activeLimit;
+        appendLock.lock();
+        try {
+            snapshot = new ArrayList<>(segments);
+            activeLimit = position;
+            toSequence = Math.min(toSequence, lastSequence);
+        } finally {
+            appendLock.unlock();
+        }
+        long last = fromSequence - 1;
+        Reader reader = new Reader(symbols);
+        for (int i = 0; i < snapshot.size() && last < toSequence; i++) {
+            Segment segment = snapshot.get(i);
+            if (i + 1 < snapshot.size() && snapshot.get(i + 1).firstSequence <= fromSequence) {
+                continue; // wholly before the range
+            }
+            boolean isActive = i == snapshot.size() - 1;
+            try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    isActive ? activeLimit : channel.size());
+                last = reader.read(buffer, segment.firstSequence, fromSequence, toSequence, visitor, last);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Delete segments whose records all have sequence below
+     * {@code sequence}. The active segment is always kept.
+     *
+     * @return number of segments deleted
+     */
+    public int truncateBefore(long sequence) {
+        List<Segment> deleted = new ArrayList<>();
+        appendLock.lock();
+        try {
+            while (segments.size() > 1 && segments.get(1).firstSequence <= sequence) {
+                deleted.add(segments.remove(0));
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        for (Segment segment : deleted) {
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return deleted.size();
+    }
+
+    /**
+     * Stop appends and the background syncer, then sync. Appends after
+     * close fail, so none can slip in after the final sync.
+     */
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+        } finally {
+            appendLock.unlock();
+        }
+        if (syncer != null) {
+            syncer.interrupt();
+            try {
+                syncer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        sync(true);
+    }
+
+    /**
+     * Make room for a record of {@code length} bytes that uses
+     * {@code symbolId}, defining the symbol first if this segment has not,
+     * and rolling to a new segment if it would not fit.
+     *
+     * @return offset to write the record at
+     */
+    private int reserve(int length, int symbolId) {
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+        int symbolLength = definedSymbols.get(symbolId) ? 0 : symbolRecordLength(symbolId);
+        if (position + symbolLength + aligned(length) > segmentBytes) {
+            roll();
+            symbolLength = symbolRecordLength(symbolId);
+        }
+        if (symbolLength > 0) {
+            writeSymbol(symbolId, symbolLength);
+        }
+        int offset = position;
+        position += aligned(length);
+        return offset;
+    }
+
+    /**
+     * Reject a record the formats cannot hold before any space is
+     * reserved for it. A reserved slot left unsealed would end the log
+     * for recovery, dropping every later, acknowledged record.
+     */
+    private void checkPayload(int symbolId, long priceTicks, boolean hasSide) {
+        if (symbolId < 0 || symbolId > 0xFFFF || symbolId >= symbols.size()) {
+            throw new IllegalArgumentException("Symbol id not in the log's table or over 16 bits: " + symbolId);
+        }
+        if (priceTicks < 0 || priceTicks > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Price ticks out of wire range: " + priceTicks);
+        }
+        if (!hasSide) {
+            throw new IllegalArgumentException("Order has no side");
+        }
+    }
+
+    /**
+     * Give back the slot of a record that failed after {@link #reserve},
+     * so the next append overwrites it instead of leaving a hole.
+     */
+    private void release(int offset, long sequence) {
+        position = offset;
+        lastSequence = sequence - 1;
+        INT.set(active.buffer, offset + LENGTH_OFFSET, 0);
+    }
+
+    private int symbolRecordLength(int symbolId) {
+        return RECORD_HEADER_LENGTH + 5 + symbols.symbol(symbolId).length();
+    }
+
+    private void writeSymbol(int symbolId, int length) {
+        byte[] name = symbols.symbol(symbolId).getBytes(StandardCharsets.US_ASCII);
+        if (name.length > OrderWireFormat.MAX_SYMBOL_LENGTH) {
+            throw new IllegalArgumentException("Symbol too long for write-ahead log: " + symbols.symbol(symbolId));
+        }
+        int offset = position;
+        position += aligned(length);
+        ByteBuffer buffer = active.buffer;
+        INT.set(buffer, offset + RECORD_HEADER_LENGTH, symbolId);
+        buffer.put(offset + RECORD_HEADER_LENGTH + 4, (byte) name.length);
+        buffer.put(offset + RECORD_HEADER_LENGTH + 5, name);
+        seal(offset, length, ++lastSequence, RECORD_TYPE_SYMBOL);
+        definedSymbols.set(symbolId);
+    }
+
+    /**
+     * Write the header of the record whose payload is in place. The length
+     * goes last, so the record only becomes visible to a reader once it is
+     * complete.
+     */
+    private void seal(int offset, int length, long sequence, byte type) {
+        ByteBuffer buffer = active.buffer;
+        LONG.set(buffer, offset + SEQUENCE_OFFSET, sequence);
+        buffer.put(offset + TYPE_OFFSET, type);
+        INT.set(buffer, offset + CRC_OFFSET, crc(crc, crcView, offset + SEQUENCE_OFFSET, offset + length));
+        INT.set(buffer, offset + LENGTH_OFFSET, length);
+    }
+
+    /**
+     * Start a new segment. The old one is left for the next sync to force,
+     * which wakes the background syncer if there is one, so the appending
+     * thread does not wait for a whole segment to reach disk. Only if the
+     * segment rolled over before is still unforced is it forced here:
+     * at most one segment is ever incomplete on disk, the one before the
+     * active segment.
+     */
+    private void roll() {
+        if (retiring != null) {
+            retiring.buffer.force();
+            retiring.buffer = null;
+        }
+        retiring = active;
+        try {
+            active = createSegment(lastSequence + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (syncer != null) {
+            LockSupport.unpark(syncer);
+        }
+    }
+
+    private Segment createSegment(long firstSequence) throws IOException {
+        Segment segment = new Segment(firstSequence, directory.resolve(segmentName(firstSequence)));
+        try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        writeSegmentHeader(segment.buffer, firstSequence);
+        segments.add(segment);
+        directoryVersion++;
+        crcView = segment.buffer.duplicate();
+        position = SEGMENT_HEADER_LENGTH;
+        definedSymbols.clear();
+        return segment;
+    }
+
+    private void recover() throws IOException {
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(p -> p.getFileName().toString().matches("wal-\\d{20}\\.log")).sorted().toList();
+        }
+        if (paths.isEmpty()) {
+            active = createSegment(1);
+            return;
+        }
+        long expected = -1;
+        Reader reader = new Reader(new SymbolTable());
+        for (int i = 0; i < paths.size(); i++) {
+            Path path = paths.get(i);
+            boolean last = i == paths.size() - 1;
+            long named = firstSequence(path);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    Math.max(channel.size(), i >= paths.size() - 2 ? segmentBytes : SEGMENT_HEADER_LENGTH));
+                if (last && (int) INT.get(buffer, 0) == 0) {
+                    // Crashed while creating it
+                    writeSegmentHeader(buffer, named);
+                }
+                if ((int) INT.get(buffer, 0) != MAGIC || (short) SHORT.get(buffer, 4) != VERSION
+                        || (long) LONG.get(buffer, 8) != named) {
+                    throw new IllegalStateException("Not a write-ahead log segment: " + path);
+                }
+                if (expected != -1 && named != expected) {
+                    throw new IllegalStateException("Write-ahead log segment " + path + " starts at " + named
+                        + ", expected " + expected);
+                }
+                Segment segment = new Segment(named, path);
+                segments.add(segment);
+                int end = reader.validate(buffer, named);
+                expected = reader.nextSequence;
+                if (!last) {
+                    boolean damaged = end + 4 <= buffer.limit() && (int) INT.get(buffer, end) != 0;
+                    if (i < paths.size() - 2) {
+                        if (damaged) {
+                            throw new IllegalStateException("Damaged record at offset " + end
+                                + " of write-ahead log segment " + path + " (sequence " + expected + ")");
+                        }
+                        continue;
+                    }
+                    if (!damaged && firstSequence(paths.get(i + 1)) == expected) {
+                        continue;
+                    }
+                    // Crashed before the sync that forces a segment after
+                    // rolling over it, so nothing in the next one was
+                    // acknowledged. This one becomes the active segment.
+                    Files.delete(paths.get(i + 1));
+                    syncDirectory();
+                }
+                // Records after a torn one were never acknowledged. Clear
+                // them, or a later recovery could find one where the
+                // sequence continues and take it for a new record.
+                int p = end;
+                for (; p + 8 <= buffer.limit(); p += 8) {
+                    if ((long) LONG.get(buffer, p) != 0) {
+                        LONG.set(buffer, p, 0L);
+                    }
+                }
+                for (; p < buffer.limit(); p++) {
+                    buffer.put(p, (byte) 0);
+                }
+                buffer.force();
+                lastSequence = expected - 1;
+                segment.buffer = buffer;
+                segment.syncedPosition = end;
+                active = segment;
+                crcView = buffer.duplicate();
+                position = end;
+                return;
+            }
+        }
+    }
+
+    private void syncDirectory() {
+        if (!SYNC_DIRECTORY) return;
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long firstSequence(Path segment) {
+        return Long.parseLong(segment.getFileName().toString().substring(4, 24));
+    }
+
+    private static void writeSegmentHeader(MappedByteBuffer buffer, long firstSequence) {
+        INT.set(buffer, 0, MAGIC);
+        SHORT.set(buffer, 4, VERSION);
+        SHORT.set(buffer, 6, (short) 0);
+        LONG.set(buffer, 8, firstSequence);
+        buffer.force(0, SEGMENT_HEADER_LENGTH);
+    }
+
+    private void syncPeriodically(long intervalNanos) {
+        // Woken early by a rollover, to force the old segment
+        while (true) {
+            LockSupport.parkNanos(this, intervalNanos);
+            if (Thread.currentThread().isInterrupted()) return;
+            sync();
+        }
+    }
+
+    private static String segmentName(long firstSequence) {
+        return String.format("wal-%020d.log", firstSequence);
+    }
+
+    private static int aligned(int length) {
+        return (length + 7) & ~7;
+    }
+
+    private static int crc(CRC32C crc, ByteBuffer view, int from, int to) {
+        crc.reset();
+        view.limit(to).position(from);
+        crc.update(view);
+        view.clear();
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Walks the records of one segment after another, remapping symbol
+     * ids as SYMBOL records define them.
+     */
+    private static final class Reader {
+        final SymbolTable symbols;
+        final OrderFlyweight order = new OrderFlyweight();
+        final TradeFlyweight trade = new TradeFlyweight();
+        final OrderRecord record = new OrderRecord();
+        final CRC32C crc = new CRC32C();
+        ByteBuffer view;
+        int[] remap = new int[64];
+        long nextSequence;
+
+        Reader(SymbolTable symbols) {
+            this.symbols = symbols;
+        }
+
+        /**
+         * Check records from the start of a segment until the first one
+         * that is incomplete, corrupt or out of sequence.
+         *
+         * @return offset just past the last valid record
+         */
+        int validate(ByteBuffer buffer, long firstSequence) {
+            nextSequence = firstSequence;
+            view = buffer.duplicate();
+            int offset = SEGMENT_HEADER_LENGTH;
+            int length;
+            while ((length = validLength(buffer, offset)) > 0) {
+                nextSequence++;
+                offset += aligned(length);
+            }
+            return offset;
+        }
+
+        long read(ByteBuffer buffer, long firstSequence, long from, long to, Visitor visitor, long last) {
+            nextSequence = firstSequence;
+            view = buffer.duplicate();
+            int offset = SEGMENT_HEADER_LENGTH;
+            int length;
+            while (nextSequence <= to && (length = validLength(buffer, offset)) > 0) {
+                long sequence = nextSequence++;
+                int payload = offset + RECORD_HEADER_LENGTH;
+                byte type = buffer.get(offset + TYPE_OFFSET);
+                if (type == RECORD_TYPE_SYMBOL) {
+                    define(buffer, payload);
+                } else if (sequence >= from) {
+                    if (type == RECORD_TYPE_ORDER) {
+                        order.wrap(buffer, payload).decode(record, remap);
+                        visitor.onOrder(sequence, record, (long) LONG.get(buffer, payload + OrderFlyweight.LENGTH));
+                    } else if (type == RECORD_TYPE_TRADE) {
+                        trade.wrap(buffer, payload);
+                        visitor.onTrade(sequence, trade.tradeId(), trade.buyOrderId(), trade.sellOrderId(),
+                            remap[trade.symbolId()], trade.priceTicks(), trade.quantity(), trade.executedAtNanos());
+                    }
+                }
+                if (sequence >= from) {
+                    last = sequence;
+                }
+                offset += aligned(length);
+            }
+            return last;
+        }
+
+        private void define(ByteBuffer buffer, int payload) {
+            int id = (int) INT.get(buffer, payload);
+            int nameLength = buffer.get(payload + 4) & 0xFF;
+            if (id >= remap.length) {
+                remap = Arrays.copyOf(remap, Math.max(id + 1, remap.length * 2));
+            }
+            remap[id] = symbols.intern(buffer, payload + 5, nameLength);
+        }
+
+        /**
+         * Length of the record at {@code offset} if it is complete, intact
+         * and the next in sequence; otherwise 0.
+         */
+        private int validLength(ByteBuffer buffer, int offset) {
+            if (offset + RECORD_HEADER_LENGTH > buffer.limit()) return 0;
+            int length = (int) INT.get(buffer, offset + LENGTH_OFFSET);
+            if (length < RECORD_HEADER_LENGTH || length > buffer.limit() - offset) return 0;
+            if ((long) LONG.get(buffer, offset + SEQUENCE_OFFSET) != nextSequence) return 0;
+            int stored = (int) INT.get(buffer, offset + CRC_OFFSET);
+            return crc(crc, view, offset + SEQUENCE_OFFSET, offset + length) == stored ? length : 0;
+        }
+    }
+}
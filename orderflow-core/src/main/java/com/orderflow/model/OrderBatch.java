@@ -0,0 +1,137 @@
+package com.orderflow.model;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * Growable columnar batch of parsed orders.
+ *
+ * Each field lives in its own primitive array, so a batch of N orders is
+ * five arrays rather than N objects, and it can be cleared and refilled
+ * without allocating. Rows are read back through a reusable
+ * {@link OrderRecord}.
+ *
+ * Not thread-safe. A batch may be handed to other threads once it is
+ * fully populated, as long as nobody writes to it while they read.
+ */
+public final class OrderBatch {
+
+    private long[] orderIds;
+    private int[] symbolIds;
+    private byte[] sides;
+    private long[] priceTicks;
+    private int[] quantities;
+    private int size;
+
+    // Rejected lines: packed RejectResult code and line offset
+    private int[] rejectCodes = EMPTY_CODES;
+    private long[] rejectOffsets = EMPTY_OFFSETS;
+    private int rejected;
+
+    public OrderBatch(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        this.orderIds = new long[capacity];
+        this.symbolIds = new int[capacity];
+        this.sides = new byte[capacity];
+        this.priceTicks = new long[capacity];
+        this.quantities = new int[capacity];
+    }
+
+    /**
+     * Append a copy of the record's fields.
+     */
+    public void add(OrderRecord record) {
+        if (size == orderIds.length) {
+            grow();
+        }
+        int i = size++;
+        orderIds[i] = record.getOrderId();
+        symbolIds[i] = record.getSymbolId();
+        sides[i] = (byte) record.getSide().ordinal();
+        priceTicks[i] = record.getPriceTicks();
+        quantities[i] = record.getQuantity();
+    }
+
+    /**
+     * Load row {@code index} into {@code out}.
+     */
+    public OrderRecord get(int index, OrderRecord out) {
+        return out.set(orderIds[index], symbolIds[index], SIDES[sides[index]],
+            priceTicks[index], quantities[index]);
+    }
+
+    public long getOrderId(int index) { return orderIds[index]; }
+    public int getSymbolId(int index) { return symbolIds[index]; }
+    public long getPriceTicks(int index) { return priceTicks[index]; }
+    public int getQuantity(int index) { return quantities[index]; }
+
+    /**
+     * Record a line that could not be parsed into this batch.
+     *
+     * @param code packed {@link com.orderflow.util.RejectResult} code
+     * @param offset offset of the line in its source
+     */
+    public void reject(int code, long offset) {
+        if (rejected == rejectCodes.length) {
+            int capacity = Math.max(16, rejected * 2);
+            rejectCodes = Arrays.copyOf(rejectCodes, capacity);
+            rejectOffsets = Arrays.copyOf(rejectOffsets, capacity);
+        }
+        rejectCodes[rejected] = code;
+        rejectOffsets[rejected] = offset;
+        rejected++;
+    }
+
+    /**
+     * Keep only the rows whose order ID passes {@code filter}, preserving
+     * their order. The filter is called once per row, in row order.
+     *
+     * @return number of rows removed
+     */
+    public int retainIf(LongPredicate filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!filter.test(orderIds[i])) continue;
+            if (kept != i) {
+                orderIds[kept] = orderIds[i];
+                symbolIds[kept] = symbolIds[i];
+                sides[kept] = sides[i];
+                priceTicks[kept] = priceTicks[i];
+                quantities[kept] = quantities[i];
+            }
+            kept++;
+        }
+        int removed = size - kept;
+        size = kept;
+        return removed;
+    }
+
+    public int getRejectCode(int index) { return rejectCodes[index]; }
+    public long getRejectOffset(int index) { return rejectOffsets[index]; }
+
+    public int size() {
+        return size;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public void clear() {
+        size = 0;
+        rejected = 0;
+    }
+
+    private void grow() {
+        int capacity = orderIds.length * 2;
+        orderIds = Arrays.copyOf(orderIds, capacity);
+        symbolIds = Arrays.copyOf(symbolIds, capacity);
+        sides = Arrays.copyOf(sides, capacity);
+        priceTicks = Arrays.copyOf(priceTicks, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+    }
+
+    private static final Order.Side[] SIDES = Order.Side.values();
+    private static final int[] EMPTY_CODES = new int[0];
+    private static final long[] EMPTY_OFFSETS = new long[0];
+}
@@ -0,0 +1,83 @@
+package com.orderflow.model;
+
+import com.orderflow.util.OrderIds;
+import com.orderflow.util.SymbolTable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Mutable, reusable primitive view of an order.
+ *
+ * Unlike {@link Order}, this holds no Strings or BigDecimals: the order ID
+ * is numeric, the symbol is an id from a {@link SymbolTable}, and the price
+ * is a fixed-point count of ticks (1 tick = 10^-{@value #PRICE_SCALE}).
+ * Parsers and decoders fill one instance per thread and overwrite it for
+ * every order, so the hot path allocates nothing.
+ *
+ * PERF-LAB: Lab B - compare allocation per order against {@link Order}
+ *
+ * Not thread-safe; do not hold on to an instance you were handed by a parser.
+ */
+public final class OrderRecord {
+
+    /** Decimal places carried by price ticks. */
+    public static final int PRICE_SCALE = 2;
+
+    /** Ticks per whole currency unit. */
+    public static final long TICKS_PER_UNIT = 100;
+
+    private long orderId;
+    private int symbolId;
+    private Order.Side side;
+    private long priceTicks;
+    private int quantity;
+
+    public OrderRecord set(long orderId, int symbolId, Order.Side side, long priceTicks, int quantity) {
+        this.orderId = orderId;
+        this.symbolId = symbolId;
+        this.side = side;
+        this.priceTicks = priceTicks;
+        this.quantity = quantity;
+        return this;
+    }
+
+    public OrderRecord copyFrom(OrderRecord other) {
+        return set(other.orderId, other.symbolId, other.side, other.priceTicks, other.quantity);
+    }
+
+    public long getOrderId() { return orderId; }
+    public int getSymbolId() { return symbolId; }
+    public Order.Side getSide() { return side; }
+    public long getPriceTicks() { return priceTicks; }
+    public int getQuantity() { return quantity; }
+
+    public void setOrderId(long orderId) { this.orderId = orderId; }
+    public void setSymbolId(int symbolId) { this.symbolId = symbolId; }
+    public void setSide(Order.Side side) { this.side = side; }
+    public void setPriceTicks(long priceTicks) { this.priceTicks = priceTicks; }
+    public void setQuantity(int quantity) { this.quantity = quantity; }
+
+    /**
+     * Materialize a full {@link Order}. This is where the allocations
+     * deferred by the primitive form finally happen - call it only at the
+     * boundary to code that needs an Order.
+     */
+    public Order toOrder(SymbolTable symbols) {
+        return new Order(OrderIds.format(orderId), symbols.symbol(symbolId), side,
+            toPrice(priceTicks), quantity);
+    }
+
+    /**
+     * Convert ticks to a BigDecimal price with {@value #PRICE_SCALE} decimals.
+     */
+    public static BigDecimal toPrice(long priceTicks) {
+        return BigDecimal.valueOf(priceTicks, PRICE_SCALE);
+    }
+
+    /**
+     * Convert a price to ticks, rounding half-up to the tick size.
+     */
+    public static long toTicks(BigDecimal price) {
+        return price.setScale(PRICE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,56 @@
+package com.orderflow.model;
+
+/**
+ * Mutable, reusable primitive view of an order and where it is in its
+ * lifecycle: the {@link OrderRecord} fields plus filled quantity, status,
+ * and when it was created and reached a terminal status.
+ *
+ * Filled by lookups of live and archived orders (see
+ * {@link com.orderflow.service.OrderTiering}); like OrderRecord it holds
+ * no Strings or BigDecimals, so one instance can be reused for any number
+ * of lookups.
+ *
+ * Not thread-safe.
+ */
+public final class OrderState {
+
+    private final OrderRecord order = new OrderRecord();
+    private int filledQuantity;
+    private Order.Status status;
+    private long createdAtNanos;
+    private long closedAtNanos;
+
+    public OrderState set(long orderId, int symbolId, Order.Side side, long priceTicks, int quantity,
+                          int filledQuantity, Order.Status status, long createdAtNanos, long closedAtNanos) {
+        order.set(orderId, symbolId, side, priceTicks, quantity);
+        this.filledQuantity = filledQuantity;
+        this.status = status;
+        this.createdAtNanos = createdAtNanos;
+        this.closedAtNanos = closedAtNanos;
+        return this;
+    }
+
+    /** The order fields; overwritten by the next {@link #set}. */
+    public OrderRecord getOrder() { return order; }
+
+    public long getOrderId() { return order.getOrderId(); }
+    public int getSymbolId() { return order.getSymbolId(); }
+    public Order.Side getSide() { return order.getSide(); }
+    public long getPriceTicks() { return order.getPriceTicks(); }
+    public int getQuantity() { return order.getQuantity(); }
+    public int getFilledQuantity() { return filledQuantity; }
+    public Order.Status getStatus() { return status; }
+    public long getCreatedAtNanos() { return createdAtNanos; }
+
+    /** When the order was filled or cancelled; 0 while it is open. */
+    public long getClosedAtNanos() { return closedAtNanos; }
+
+    /** Filled or cancelled: the order can no longer change. */
+    public boolean isTerminal() {
+        return isTerminal(status);
+    }
+
+    public static boolean isTerminal(Order.Status status) {
+        return status == Order.Status.FILLED || status == Order.Status.CANCELLED;
+    }
+}
@@ -0,0 +1,122 @@
+package com.orderflow.net;
+
+import com.orderflow.io.OrderFlyweight;
+import com.orderflow.io.TradeFlyweight;
+import com.orderflow.model.OrderRecord;
+import com.orderflow.model.TradeResult;
+import com.orderflow.util.SymbolTable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Length-prefixed framing used by {@link OrderGateway}.
+ *
+ * <pre>
+ *   frame     0  int   length of type + payload (little-endian)
+ *             4  byte  message type
+ *             5  ...   payload
+ *
+ *   NEW_ORDER  client -> gateway   {@link OrderFlyweight} record
+ *   ACK        gateway -> client   long orderId, int filled quantity, byte status, 3 pad
+ *   FILL       gateway -> client   {@link TradeFlyweight} record
+ * </pre>
+ *
+ * Symbol ids in NEW_ORDER and FILL refer to the gateway's
+ * {@link SymbolTable}; both ends must intern symbols in the same order.
+ * Buffers passed to the write helpers must be little-endian.
+ */
+public final class GatewayProtocol {
+
+    public static final int LENGTH_FIELD = 4;
+    public static final int HEADER_LENGTH = LENGTH_FIELD + 1;
+
+    public static final byte NEW_ORDER = 1;
+    public static final byte ACK = 2;
+    public static final byte FILL = 3;
+
+    public static final byte STATUS_ACCEPTED = 0;
+    public static final byte STATUS_REJECTED = 1;
+
+    public static final int ACK_LENGTH = 16;
+
+    public static final int NEW_ORDER_FRAME = HEADER_LENGTH + OrderFlyweight.LENGTH;
+    public static final int ACK_FRAME = HEADER_LENGTH + ACK_LENGTH;
+    public static final int FILL_FRAME = HEADER_LENGTH + TradeFlyweight.LENGTH;
+
+    /** Largest frame either side will accept. */
+    public static final int MAX_FRAME = 1024;
+
+    private GatewayProtocol() {
+    }
+
+    /**
+     * Allocate a direct buffer in the byte order the protocol uses.
+     */
+    public static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public static void writeNewOrder(ByteBuffer buf, OrderRecord order, OrderFlyweight flyweight) {
+        int start = writeHeader(buf, NEW_ORDER, OrderFlyweight.LENGTH);
+        flyweight.wrap(buf, start).encode(order);
+        buf.position(start + OrderFlyweight.LENGTH);
+    }
+
+    public static void writeAck(ByteBuffer buf, long orderId, int filledQuantity, byte status) {
+        int start = writeHeader(buf, ACK, ACK_LENGTH);
+        buf.putLong(orderId);
+        buf.putInt(filledQuantity);
+        buf.put(status);
+        buf.put((byte) 0).put((byte) 0).put((byte) 0);
+        assert buf.position() == start + ACK_LENGTH;
+    }
+
+    public static void writeFill(ByteBuffer buf, TradeResult trade, long tradeSequence,
+                                 SymbolTable symbols, TradeFlyweight flyweight) {
+        int start = writeHeader(buf, FILL, TradeFlyweight.LENGTH);
+        flyweight.wrap(buf, start).encode(trade, tradeSequence, symbols);
+        buf.position(start + TradeFlyweight.LENGTH);
+    }
+
+    /**
+     * Length of the complete frame starting at {@code pos}, or -1 if the
+     * buffer (up to its limit) does not yet hold all of it.
+     *
+     * @throws IllegalStateException if the length field is out of range
+     */
+    public static int completeFrameLength(ByteBuffer buf, int pos) {
+        if (buf.limit() - pos < LENGTH_FIELD) return -1;
+        int length = buf.getInt(pos);
+        if (length < 1 || length > MAX_FRAME - LENGTH_FIELD) {
+            throw new IllegalStateException("Bad frame length " + length);
+        }
+        int frame = LENGTH_FIELD + length;
+        return buf.limit() - pos >= frame ? frame : -1;
+    }
+
+    public static byte messageType(ByteBuffer buf, int framePos) {
+        return buf.get(framePos + LENGTH_FIELD);
+    }
+
+    public static int payloadOffset(int framePos) {
+        return framePos + HEADER_LENGTH;
+    }
+
+    public static long ackOrderId(ByteBuffer buf, int framePos) {
+        return buf.getLong(payloadOffset(framePos));
+    }
+
+    public static int ackFilledQuantity(ByteBuffer buf, int framePos) {
+        return buf.getInt(payloadOffset(framePos) + 8);
+    }
+
+    public static byte ackStatus(ByteBuffer buf, int framePos) {
+        return buf.get(payloadOffset(framePos) + 12);
+    }
+
+    private static int writeHeader(ByteBuffer buf, byte type, int payloadLength) {
+        buf.putInt(1 + payloadLength);
+        buf.put(type);
+        return buf.position();
+    }
+}
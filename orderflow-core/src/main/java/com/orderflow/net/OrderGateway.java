@@ -0,0 +1,338 @@
+package com.orderflow.net;
+
+import com.orderflow.io.OrderFlyweight;
+import com.orderflow.io.TradeFlyweight;
+import com.orderflow.model.Order;
+import com.orderflow.model.OrderRecord;
+import com.orderflow.model.TradeResult;
+import com.orderflow.service.MatchingEngine;
+import com.orderflow.util.MetricsCollector;
+import com.orderflow.util.SymbolTable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Non-blocking order gateway over TCP or Unix domain sockets.
+ *
+ * A single selector thread owns every connection. Each read decodes all
+ * complete {@link GatewayProtocol} frames straight out of the connection's
+ * direct buffer, submits the resulting orders to the matching engine as
+ * one batch, and queues an ACK per order plus a FILL per trade. Acks and
+ * fills are collected in two direct buffers and sent together with one
+ * gathering write.
+ *
+ * When a client stops reading its responses, the gateway stops reading
+ * its orders (OP_WRITE instead of OP_READ) until the backlog drains, so a
+ * slow client cannot make the gateway buffer without bound.
+ *
+ * Metrics:
+ *   gateway.connections  connections accepted (counter)
+ *   gateway.orders       orders received (counter)
+ *   gateway.rejected     orders acked as rejected (counter)
+ *
+ * PERF-LAB: Lab H - wire-to-ack latency via LoadGenerator --mode socket
+ *
+ * Usage:
+ *   OrderGateway gateway = new OrderGateway(new InetSocketAddress("127.0.0.1", 9000), engine, symbols);
+ *   gateway.start();
+ *   ...
+ *   gateway.close();
+ */
+public class OrderGateway implements AutoCloseable {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int ACK_BUFFER_SIZE = 64 * 1024;
+    private static final int FILL_BUFFER_SIZE = 256 * 1024;
+
+    private final SocketAddress address;
+    private final MatchingEngine matchingEngine;
+    private final SymbolTable symbols;
+
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread thread;
+    private volatile boolean running;
+
+    // Selector-thread state, reused across reads
+    private final OrderFlyweight orderFlyweight = new OrderFlyweight();
+    private final TradeFlyweight tradeFlyweight = new TradeFlyweight();
+    private final OrderRecord record = new OrderRecord();
+    private final List<Order> batch = new ArrayList<>();
+    private long tradeSequence;
+
+    public OrderGateway(SocketAddress address, MatchingEngine matchingEngine, SymbolTable symbols) {
+        this.address = address;
+        this.matchingEngine = matchingEngine;
+        this.symbols = symbols;
+    }
+
+    /**
+     * Bind and start the selector thread.
+     *
+     * @return the bound address (useful with port 0)
+     */
+    public synchronized SocketAddress start() throws IOException {
+        if (running) {
+            throw new IllegalStateException("Gateway already started");
+        }
+        selector = Selector.open();
+        if (address instanceof UnixDomainSocketAddress) {
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            server = ServerSocketChannel.open();
+            server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        }
+        server.bind(address);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        running = true;
+        thread = new Thread(this::runLoop, "order-gateway");
+        thread.setDaemon(true);
+        thread.start();
+        return server.getLocalAddress();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!running) return;
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+            if (address instanceof UnixDomainSocketAddress) {
+                Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing gateway: " + e.getMessage());
+        }
+    }
+
+    private void runLoop() {
+        while (running) {
+            try {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (!key.isValid()) continue;
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else if (key.isReadable()) {
+                            onReadable(key);
+                        } else if (key.isWritable()) {
+                            onWritable(key);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        // One broken client must not take the gateway down
+                        disconnect(key);
+                    }
+                }
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Gateway selector failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        if (!(address instanceof UnixDomainSocketAddress)) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+        channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+        MetricsCollector.getInstance().increment("gateway.connections");
+    }
+
+    private void onReadable(SelectionKey key) throws IOException {
+        Connection c = (Connection) key.attachment();
+        int read = c.channel.read(c.in);
+        if (read < 0) {
+            disconnect(key);
+            return;
+        }
+        processFrames(c);
+        flush(key, c);
+    }
+
+    private void onWritable(SelectionKey key) throws IOException {
+        Connection c = (Connection) key.attachment();
+        c.channel.write(c.out);
+        if (c.acks.hasRemaining() || c.fills.hasRemaining()) {
+            return;
+        }
+        c.acks.clear();
+        c.fills.clear();
+        // Orders left unread while the client was catching up
+        processFrames(c);
+        flush(key, c);
+    }
+
+    /**
+     * Decode every complete frame in the read buffer (as far as response
+     * space allows), submit the orders as one batch, and encode responses.
+     *
+     * @throws IllegalStateException on a malformed frame; the caller
+     *         disconnects the client
+     */
+    private void processFrames(Connection c) {
+        ByteBuffer in = c.in;
+        in.flip();
+        int pos = 0;
+        int maxOrders = c.acks.remaining() / GatewayProtocol.ACK_FRAME;
+        int frame;
+        try {
+            while (batch.size() < maxOrders && (frame = GatewayProtocol.completeFrameLength(in, pos)) > 0) {
+                if (GatewayProtocol.messageType(in, pos) != GatewayProtocol.NEW_ORDER) {
+                    throw new IllegalStateException("Unexpected message type " + GatewayProtocol.messageType(in, pos));
+                }
+                if (frame != GatewayProtocol.NEW_ORDER_FRAME) {
+                    throw new IllegalStateException("Bad NEW_ORDER frame length " + frame);
+                }
+                // Read the id first: a record that does not decode is still acked
+                long orderId = orderFlyweight.wrap(in, GatewayProtocol.payloadOffset(pos)).orderId();
+                c.pendingIds[batch.size()] = orderId;
+                batch.add(toOrder(orderFlyweight));
+                pos += frame;
+            }
+            in.position(pos);
+            in.compact();
+
+            int rejected = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                Order order = batch.get(i);
+                long orderId = c.pendingIds[i];
+                if (order == null) {
+                    GatewayProtocol.writeAck(c.acks, orderId, 0, GatewayProtocol.STATUS_REJECTED);
+                    rejected++;
+                    continue;
+                }
+                try {
+                    List<TradeResult> trades = matchingEngine.submitOrder(order);
+                    int filled = 0;
+                    for (TradeResult trade : trades) {
+                        filled += trade.getQuantity();
+                        c.ensureFillSpace();
+                        GatewayProtocol.writeFill(c.fills, trade, ++tradeSequence, symbols, tradeFlyweight);
+                    }
+                    GatewayProtocol.writeAck(c.acks, orderId, filled, GatewayProtocol.STATUS_ACCEPTED);
+                } catch (RuntimeException e) {
+                    GatewayProtocol.writeAck(c.acks, orderId, 0, GatewayProtocol.STATUS_REJECTED);
+                    rejected++;
+                }
+            }
+            if (!batch.isEmpty()) {
+                MetricsCollector metrics = MetricsCollector.getInstance();
+                metrics.incrementBy("gateway.orders", batch.size());
+                metrics.incrementBy("gateway.rejected", rejected);
+            }
+        } finally {
+            // The batch is shared by every connection; never let one
+            // client's orders leak into the next read
+            batch.clear();
+        }
+    }
+
+    /**
+     * Materialize an order, or null if the record cannot be one; the
+     * caller rejects it. That covers an unknown symbol id, a corrupt
+     * field, and any failure to build the {@link Order} - including the
+     * Order model throwing because it is not implemented yet, in which
+     * case every order is rejected (see the gateway.rejected metric).
+     */
+    private Order toOrder(OrderFlyweight flyweight) {
+        if (flyweight.symbolId() >= symbols.size()) {
+            return null;
+        }
+        try {
+            return flyweight.decode(record, null).toOrder(symbols);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Send queued acks and fills with one gathering write; switch the key
+     * to OP_WRITE if the socket could not take everything.
+     */
+    private void flush(SelectionKey key, Connection c) throws IOException {
+        if (c.acks.position() == 0 && c.fills.position() == 0) {
+            key.interestOps(SelectionKey.OP_READ);
+            return;
+        }
+        c.acks.flip();
+        c.fills.flip();
+        c.channel.write(c.out);
+        if (c.acks.hasRemaining() || c.fills.hasRemaining()) {
+            key.interestOps(SelectionKey.OP_WRITE);
+        } else {
+            c.acks.clear();
+            c.fills.clear();
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void disconnect(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            // already closing
+        }
+    }
+
+    /**
+     * Per-connection buffers. Only touched by the selector thread.
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer in = GatewayProtocol.allocate(READ_BUFFER_SIZE);
+        final ByteBuffer acks = GatewayProtocol.allocate(ACK_BUFFER_SIZE);
+        ByteBuffer fills = GatewayProtocol.allocate(FILL_BUFFER_SIZE);
+        final ByteBuffer[] out = {acks, fills};
+        final long[] pendingIds = new long[ACK_BUFFER_SIZE / GatewayProtocol.ACK_FRAME];
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Grow the fill buffer if one more FILL would not fit. Rare: only a
+         * read whose orders sweep many price levels gets here.
+         */
+        void ensureFillSpace() {
+            if (fills.remaining() >= GatewayProtocol.FILL_FRAME) return;
+            ByteBuffer bigger = GatewayProtocol.allocate(fills.capacity() * 2);
+            fills.flip();
+            bigger.put(fills);
+            fills = bigger;
+            out[1] = bigger;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.orderflow.service;
+
+import com.orderflow.analytics.SymbolAccumulator;
+import com.orderflow.analytics.TradeStats;
+import com.orderflow.analytics.TradeStore;
+import com.orderflow.util.SymbolTable;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Memoized {@link AnalyticsService} queries over one {@link TradeStore},
+ * for dashboards asking the same questions many times a second of data
+ * that mostly has not changed.
+ *
+ * The cache keeps running per-symbol sums covering the store up to a row
+ * watermark. A query first folds in only the rows appended since - so the
+ * work is proportional to new trades, not to the store - and then:
+ *
+ *   - returns the previous result if the store has not changed at all
+ *     (results are keyed by query and store version)
+ *   - otherwise rebuilds per-symbol results only for symbols whose
+ *     {@link TradeStore#getSymbolVersion version} moved, reusing the
+ *     cached ones for everything else
+ *
+ * The first query, and the first after {@link TradeStore#clear}, scans
+ * the whole store with the service's fork-join scan.
+ *
+ * Returned maps, lists and TradeStats are shared between callers and
+ * must not be modified.
+ *
+ * PERF-LAB: Lab B - AnalyticsBenchmark.cachedDashboard vs uncachedDashboard
+ *
+ * Thread-safe for concurrent queries; like any scan of the store, not
+ * while trades are being appended to it.
+ */
+public class AnalyticsResultCache {
+
+    private final AnalyticsService service;
+    private final TradeStore trades;
+
+    // Running sums over rows [0, scannedRows) of generation `generation`
+    private long generation = -1;
+    private long scannedRows;
+    private SymbolAccumulator bySymbol;
+
+    // Per-symbol statistics, and the symbol version each was built at
+    private TradeStats[] stats = new TradeStats[0];
+    private long[] statsVersions = new long[0];
+    private Map<String, TradeStats> statsResult;
+    private long statsRows = -1;
+
+    private List<String> topResult;
+    private int topN;
+    private long topRows = -1;
+
+    private BigDecimal vwapResult;
+    private long vwapRows = -1;
+
+    private long hits;
+    private long misses;
+    private long symbolsRebuilt;
+
+    public AnalyticsResultCache(AnalyticsService service, TradeStore trades) {
+        this.service = service;
+        this.trades = trades;
+    }
+
+    /**
+     * Price statistics per symbol, as {@link AnalyticsService#calculatePriceStatistics(TradeStore)}.
+     */
+    public synchronized Map<String, TradeStats> getPriceStatistics() {
+        refresh();
+        if (statsRows == scannedRows) {
+            hits++;
+            return statsResult;
+        }
+        misses++;
+        SymbolTable symbols = trades.getSymbols();
+        Map<String, TradeStats> result = new LinkedHashMap<>();
+        for (int s = 0; s < bySymbol.symbolCount(); s++) {
+            if (bySymbol.getCount(s) != 0) {
+                result.put(symbols.symbol(s), symbolStats(s));
+            }
+        }
+        statsResult = Collections.unmodifiableMap(result);
+        statsRows = scannedRows;
+        return statsResult;
+    }
+
+    /**
+     * One symbol's price statistics, rebuilt only if the symbol traded
+     * since they were last built; null if it has not traded.
+     */
+    public synchronized TradeStats getPriceStatistics(int symbolId) {
+        refresh();
+        if (symbolId >= bySymbol.symbolCount() || bySymbol.getCount(symbolId) == 0) {
+            return null;
+        }
+        return symbolStats(symbolId);
+    }
+
+    /**
+     * Top symbols by volume, as {@link AnalyticsService#getTopSymbolsByVolume(TradeStore, int)}.
+     */
+    public synchronized List<String> getTopSymbolsByVolume(int topN) {
+        if (topN <= 0) {
+            throw new IllegalArgumentException("topN must be positive: " + topN);
+        }
+        refresh();
+        if (topRows == scannedRows && this.topN == topN) {
+            hits++;
+            return topResult;
+        }
+        misses++;
+        topResult = Collections.unmodifiableList(
+            AnalyticsService.topByVolume(bySymbol, trades.getSymbols(), topN));
+        this.topN = topN;
+        topRows = scannedRows;
+        return topResult;
+    }
+
+    /**
+     * VWAP over all trades, as {@link AnalyticsService#calculateVWAP(TradeStore)}.
+     */
+    public synchronized BigDecimal calculateVWAP() {
+        refresh();
+        if (vwapRows == scannedRows) {
+            hits++;
+            return vwapResult;
+        }
+        misses++;
+        long notional = 0;
+        long volume = 0;
+        for (int s = 0; s < bySymbol.symbolCount(); s++) {
+            notional += bySymbol.getNotionalTicks(s);
+            volume += bySymbol.getVolume(s);
+        }
+        vwapResult = AnalyticsService.vwap(notional, volume);
+        vwapRows = scannedRows;
+        return vwapResult;
+    }
+
+    /** Queries answered with the previous result. */
+    public synchronized long getHits() { return hits; }
+
+    /** Queries whose result had to be rebuilt. */
+    public synchronized long getMisses() { return misses; }
+
+    /** Per-symbol statistics rebuilt, over all queries. */
+    public synchronized long getSymbolsRebuilt() { return symbolsRebuilt; }
+
+    /**
+     * Bring the running sums up to the store's current rows: a full scan
+     * after a clear (or the first time), otherwise just the new rows.
+     */
+    private void refresh() {
+        if (generation != trades.getGeneration() || bySymbol == null || trades.size() < scannedRows) {
+            bySymbol = service.bySymbol(trades);
+            generation = trades.getGeneration();
+            scannedRows = trades.size();
+            Arrays.fill(stats, null);
+            statsRows = topRows = vwapRows = -1;
+            return;
+        }
+        long size = trades.size();
+        if (size == scannedRows) return;
+        int symbolCount = trades.getSymbols().size();
+        if (symbolCount > bySymbol.symbolCount()) {
+            bySymbol = bySymbol.grow(symbolCount);
+        }
+        bySymbol.add(trades, scannedRows, size);
+        scannedRows = size;
+    }
+
+    private TradeStats symbolStats(int symbolId) {
+        if (symbolId >= stats.length) {
+            int length = Math.max(symbolId + 1, bySymbol.symbolCount());
+            stats = Arrays.copyOf(stats, length);
+            statsVersions = Arrays.copyOf(statsVersions, length);
+        }
+        long version = trades.getSymbolVersion(symbolId);
+        if (stats[symbolId] == null || statsVersions[symbolId] != version) {
+            // A new instance: results already handed out keep their values
+            stats[symbolId] = bySymbol.getStats(symbolId, new TradeStats());
+            statsVersions[symbolId] = version;
+            symbolsRebuilt++;
+        }
+        return stats[symbolId];
+    }
+}
@@ -1,10 +1,24 @@
 package com.orderflow.service;
 
+import com.orderflow.analytics.BookSignals;
+import com.orderflow.analytics.PriceQuantiles;
+import com.orderflow.analytics.SpaceSavingSketch;
+import com.orderflow.analytics.SymbolAccumulator;
+import com.orderflow.analytics.TradeScanTask;
+import com.orderflow.analytics.TradeStats;
+import com.orderflow.analytics.TradeStore;
 import com.orderflow.model.Order;
+import com.orderflow.model.OrderRecord;
 import com.orderflow.model.TradeResult;
+import com.orderflow.util.SymbolTable;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 /**
@@ -31,9 +45,50 @@ import java.util.stream.Collectors;
  *   - How many Double objects are created per analytics call?
  *   - What's the difference between boxed and primitive streams?
  *   - When is boxing unavoidable?
+ * 
+ * The {@link TradeStore} overloads answer the same questions over
+ * primitive trade columns: one pass per call, long arithmetic on price
+ * ticks, no per-trade objects. Whole-store reductions are branch-free
+ * loops over one chunk's arrays, which C2 unrolls and vectorizes;
+ * per-symbol ones accumulate into a {@link SymbolAccumulator}. Stores
+ * larger than the sequential threshold are split into fork-join leaves
+ * ({@link TradeScanTask}) whose accumulators are merged.
+ * 
+ * For per-symbol results kept current on every trade instead of
+ * recomputed per call, see {@link com.orderflow.analytics.StreamingAnalytics};
+ * for OHLCV bars and rolling-window VWAP, {@link com.orderflow.analytics.RollingBars};
+ * for imbalance, microprice and spread signals maintained from book
+ * events, {@link #getBookSignals}. Dashboards repeating the same queries
+ * over a growing store should go through an {@link AnalyticsResultCache}.
  */
 public class AnalyticsService {
     
+    /** Rows per fork-join leaf: a few chunks, enough to amortize a task. */
+    public static final int DEFAULT_SEQUENTIAL_THRESHOLD = 4 * TradeStore.CHUNK_SIZE;
+    
+    private final ForkJoinPool pool;
+    private final int sequentialThreshold;
+    
+    // Grown copy-on-write; each symbol's signals are created once and never replaced
+    private volatile BookSignals[] bookSignals = new BookSignals[16];
+    
+    public AnalyticsService() {
+        this(ForkJoinPool.commonPool(), DEFAULT_SEQUENTIAL_THRESHOLD);
+    }
+    
+    /**
+     * @param pool pool for parallel TradeStore scans
+     * @param sequentialThreshold stores (and slices) up to this many rows
+     *                            are scanned on one thread
+     */
+    public AnalyticsService(ForkJoinPool pool, int sequentialThreshold) {
+        if (sequentialThreshold <= 0) {
+            throw new IllegalArgumentException("sequentialThreshold must be positive: " + sequentialThreshold);
+        }
+        this.pool = pool;
+        this.sequentialThreshold = sequentialThreshold;
+    }
+    
     /**
      * Calculate average price of orders.
      * 
@@ -149,4 +204,237 @@ public class AnalyticsService {
         //
         throw new UnsupportedOperationException("Implement calculateVWAP");
     }
+    
+    // ---- Columnar scans over a TradeStore ------------------------------
+    
+    /**
+     * Mean trade price, unweighted, or 0.0 for an empty store.
+     */
+    public double calculateAveragePrice(TradeStore trades) {
+        Totals totals = totals(trades, AnalyticsService::addPrices);
+        return trades.size() == 0 ? 0.0 : (double) totals.priceTicks / trades.size() / OrderRecord.TICKS_PER_UNIT;
+    }
+    
+    /**
+     * Total traded value, sum(price * quantity).
+     */
+    public double calculateTotalValue(TradeStore trades) {
+        return (double) totals(trades, AnalyticsService::addNotional).notionalTicks / OrderRecord.TICKS_PER_UNIT;
+    }
+    
+    /**
+     * Traded quantity per symbol, for symbols that traded.
+     */
+    public Map<String, Long> calculateVolumeBySymbol(TradeStore trades) {
+        SymbolAccumulator bySymbol = bySymbol(trades);
+        SymbolTable symbols = trades.getSymbols();
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int s = 0; s < bySymbol.symbolCount(); s++) {
+            if (bySymbol.getVolume(s) != 0) {
+                result.put(symbols.symbol(s), bySymbol.getVolume(s));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Price statistics per symbol (count, volume, min, max, mean, stddev,
+     * VWAP) in one pass.
+     */
+    public Map<String, TradeStats> calculatePriceStatistics(TradeStore trades) {
+        SymbolAccumulator bySymbol = bySymbol(trades);
+        SymbolTable symbols = trades.getSymbols();
+        Map<String, TradeStats> result = new LinkedHashMap<>();
+        for (int s = 0; s < bySymbol.symbolCount(); s++) {
+            if (bySymbol.getCount(s) != 0) {
+                result.put(symbols.symbol(s), bySymbol.getStats(s, new TradeStats()));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Symbols with the highest traded quantity, highest first.
+     * 
+     * Keeps the best {@code topN} in a small sorted array instead of
+     * sorting every symbol.
+     */
+    public List<String> getTopSymbolsByVolume(TradeStore trades, int topN) {
+        if (topN <= 0) {
+            throw new IllegalArgumentException("topN must be positive: " + topN);
+        }
+        return topByVolume(bySymbol(trades), trades.getSymbols(), topN);
+    }
+    
+    /**
+     * Approximate top symbols by traded quantity, for symbol universes too
+     * large to total exactly: each fork-join leaf keeps a Space-Saving
+     * summary of {@code counters} counters and the summaries are merged.
+     * Memory is O(counters) per leaf whatever the number of symbols; any
+     * symbol with more than 1 / counters of total volume is found, and
+     * its volume is overstated by at most total / counters.
+     */
+    public List<String> getTopSymbolsByVolume(TradeStore trades, int topN, int counters) {
+        if (topN <= 0) {
+            throw new IllegalArgumentException("topN must be positive: " + topN);
+        }
+        SpaceSavingSketch sketch = TradeScanTask.scan(pool, trades, sequentialThreshold,
+            () -> new SpaceSavingSketch(counters),
+            (s, prices, quantities, symbolIds, from, to) -> {
+                for (int i = from; i < to; i++) {
+                    s.add(symbolIds[i], quantities[i]);
+                }
+            },
+            SpaceSavingSketch::merge);
+        long[] keys = new long[topN];
+        int n = sketch.top(topN, keys, new long[topN]);
+        SymbolTable symbols = trades.getSymbols();
+        List<String> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            result.add(symbols.symbol((int) keys[i]));
+        }
+        return result;
+    }
+    
+    /**
+     * Per-symbol price distributions, volume-weighted, for percentile
+     * queries: exact to {@code significantDigits} decimal digits, built
+     * per fork-join leaf and merged. Histograms are sized to the store's
+     * highest price, so none resizes mid-scan.
+     */
+    public PriceQuantiles calculatePriceQuantiles(TradeStore trades, int significantDigits) {
+        long highestTicks = Math.max(2, trades.getMaxPriceTicks());
+        return TradeScanTask.scan(pool, trades, sequentialThreshold,
+            () -> new PriceQuantiles(highestTicks, significantDigits),
+            (q, prices, quantities, symbolIds, from, to) -> {
+                for (int i = from; i < to; i++) {
+                    q.record(symbolIds[i], prices[i], quantities[i]);
+                }
+            },
+            PriceQuantiles::merge);
+    }
+    
+    /**
+     * VWAP over all trades, exact to {@value OrderRecord#PRICE_SCALE} + 4
+     * decimals, or null for a store with no volume.
+     */
+    public BigDecimal calculateVWAP(TradeStore trades) {
+        Totals totals = totals(trades, (t, prices, quantities, symbolIds, from, to) -> {
+            addNotional(t, prices, quantities, symbolIds, from, to);
+            addVolume(t, prices, quantities, symbolIds, from, to);
+        });
+        return vwap(totals.notionalTicks, totals.volume);
+    }
+    
+    public int getSequentialThreshold() {
+        return sequentialThreshold;
+    }
+    
+    /**
+     * Book signals for a symbol, created on first use. The book events
+     * that feed them, and the reads, belong on that symbol's lane.
+     */
+    public BookSignals getBookSignals(int symbolId) {
+        BookSignals[] current = bookSignals;
+        if (symbolId < current.length && current[symbolId] != null) {
+            return current[symbolId];
+        }
+        synchronized (this) {
+            current = bookSignals;
+            if (symbolId >= current.length) {
+                current = Arrays.copyOf(current, Math.max(symbolId + 1, current.length * 2));
+            } else if (current[symbolId] != null) {
+                return current[symbolId];
+            } else {
+                current = current.clone();
+            }
+            BookSignals signals = new BookSignals();
+            current[symbolId] = signals;
+            bookSignals = current;
+            return signals;
+        }
+    }
+    
+    /** Whole-store sums; one per leaf of a scan. */
+    private static final class Totals {
+        long priceTicks;
+        long notionalTicks;
+        long volume;
+        
+        Totals merge(Totals other) {
+            priceTicks += other.priceTicks;
+            notionalTicks += other.notionalTicks;
+            volume += other.volume;
+            return this;
+        }
+    }
+    
+    private Totals totals(TradeStore trades, TradeScanTask.Leaf<Totals> leaf) {
+        return TradeScanTask.scan(pool, trades, sequentialThreshold, Totals::new, leaf, Totals::merge);
+    }
+    
+    SymbolAccumulator bySymbol(TradeStore trades) {
+        int symbolCount = trades.getSymbols().size();
+        return TradeScanTask.scan(pool, trades, sequentialThreshold, () -> new SymbolAccumulator(symbolCount),
+            SymbolAccumulator::add, SymbolAccumulator::merge);
+    }
+    
+    /** The {@code topN} symbols of an accumulator by volume, highest first. */
+    static List<String> topByVolume(SymbolAccumulator bySymbol, SymbolTable symbols, int topN) {
+        int symbolCount = bySymbol.symbolCount();
+        int[] top = new int[Math.min(topN, symbolCount)];
+        int size = 0;
+        for (int s = 0; s < symbolCount; s++) {
+            long volume = bySymbol.getVolume(s);
+            if (volume == 0 || (size == top.length && volume <= bySymbol.getVolume(top[size - 1]))) continue;
+            int i = size < top.length ? size++ : size - 1;
+            while (i > 0 && bySymbol.getVolume(top[i - 1]) < volume) {
+                top[i] = top[i - 1];
+                i--;
+            }
+            top[i] = s;
+        }
+        List<String> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(symbols.symbol(top[i]));
+        }
+        return result;
+    }
+    
+    /** notional / volume to PRICE_SCALE + 4 decimals, or null for no volume. */
+    static BigDecimal vwap(long notionalTicks, long volume) {
+        if (volume == 0) return null;
+        return BigDecimal.valueOf(notionalTicks, OrderRecord.PRICE_SCALE)
+            .divide(BigDecimal.valueOf(volume), OrderRecord.PRICE_SCALE + 4, RoundingMode.HALF_EVEN);
+    }
+    
+    // Branch-free leaves over part of a chunk, each computing only what its
+    // caller needs, so C2 can vectorize the loop
+    
+    private static void addPrices(Totals totals, long[] prices, int[] quantities, int[] symbolIds,
+                                  int from, int to) {
+        long priceTicks = 0;
+        for (int i = from; i < to; i++) {
+            priceTicks += prices[i];
+        }
+        totals.priceTicks += priceTicks;
+    }
+    
+    private static void addNotional(Totals totals, long[] prices, int[] quantities, int[] symbolIds,
+                                    int from, int to) {
+        long notionalTicks = 0;
+        for (int i = from; i < to; i++) {
+            notionalTicks += prices[i] * quantities[i];
+        }
+        totals.notionalTicks += notionalTicks;
+    }
+    
+    private static void addVolume(Totals totals, long[] prices, int[] quantities, int[] symbolIds,
+                                  int from, int to) {
+        long volume = 0;
+        for (int i = from; i < to; i++) {
+            volume += quantities[i];
+        }
+        totals.volume += volume;
+    }
 }
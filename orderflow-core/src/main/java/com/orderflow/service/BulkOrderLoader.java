@@ -0,0 +1,275 @@
+package com.orderflow.service;
+
+import com.orderflow.model.Order;
+import com.orderflow.model.OrderBatch;
+import com.orderflow.model.OrderRecord;
+import com.orderflow.util.MetricsCollector;
+import com.orderflow.util.OrderIds;
+import com.orderflow.util.SymbolTable;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Bulk load of historical orders into the orders table, for loads of
+ * millions of rows where per-row persistence is the bottleneck.
+ *
+ * Opening a loader drops the secondary indexes, so each row only updates
+ * the primary key; {@link #finish} rebuilds them in one pass over the
+ * loaded table, which is far cheaper than maintaining them row by row.
+ * Rows are written over one connection as JDBC batches of MERGE
+ * statements keyed by order id, committed every {@code transactionRows}
+ * rows: reloading a file that was partly loaded before updates those
+ * rows instead of failing on the primary key.
+ *
+ * Transactions are large but bounded. H2 keeps a transaction's undo log
+ * until commit, and a single transaction over the whole file loads more
+ * slowly than commits every few tens of thousands of rows.
+ *
+ * Rows get created_at = load start (epoch nanos) + their sequence in the
+ * load, so file order is kept.
+ *
+ * Metrics:
+ *   persistence.bulk.rows          rows written (counter)
+ *   persistence.bulk.commits       transactions committed (counter)
+ *   persistence.bulk.load          whole load, open to finish (timer)
+ *   persistence.bulk.indexRebuild  time to rebuild secondary indexes (timer)
+ *
+ * PERF-LAB: Lab F - PersistenceBenchmark.bulkLoad
+ *
+ * Not thread-safe. Nothing else should write to the orders table during
+ * the load, and queries by symbol are slow until {@link #finish}.
+ */
+public class BulkOrderLoader implements AutoCloseable {
+
+    public static final int DEFAULT_BATCH_ROWS = 1024;
+    public static final int DEFAULT_TRANSACTION_ROWS = 32 * 1024;
+
+    private static final int PRICE_CACHE_SIZE = 1024;
+
+    static final String MERGE_ORDER =
+        "MERGE INTO orders (order_id, symbol, side, price, quantity, created_at) KEY (order_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final Connection connection;
+    private final SymbolTable symbols;
+    private final int batchRows;
+    private final int transactionRows;
+    private final PreparedStatement merge;
+    private final OrderRecord record = new OrderRecord();
+    private final BigDecimal[] prices = new BigDecimal[PRICE_CACHE_SIZE];
+    private final long[] priceTicks = new long[PRICE_CACHE_SIZE];
+    private final long startNanos;
+    private final long createdAtBase;
+
+    private int batched;
+    private int uncommitted;
+    private long rows;
+    private long commits;
+    private long indexRebuildNanos;
+    private boolean failed;
+    private boolean finished;
+
+    /**
+     * Takes ownership of {@code connection} and drops the secondary
+     * indexes.
+     *
+     * @param batchRows rows per JDBC batch
+     * @param transactionRows rows per commit, a multiple of batchRows in practice
+     */
+    BulkOrderLoader(Connection connection, SymbolTable symbols, int batchRows, int transactionRows)
+            throws SQLException {
+        if (batchRows <= 0 || transactionRows <= 0) {
+            throw new IllegalArgumentException("batchRows and transactionRows must be positive: "
+                + batchRows + ", " + transactionRows);
+        }
+        this.connection = connection;
+        this.symbols = symbols;
+        this.batchRows = batchRows;
+        this.transactionRows = transactionRows;
+        this.startNanos = System.nanoTime();
+        this.createdAtBase = System.currentTimeMillis() * 1_000_000L;
+        try {
+            try (Statement stmt = connection.createStatement()) {
+                for (String[] index : PersistenceService.SECONDARY_INDEXES) {
+                    stmt.execute("DROP INDEX IF EXISTS " + index[0]);
+                }
+            }
+            connection.setAutoCommit(false);
+            merge = connection.prepareStatement(MERGE_ORDER);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Write every order in {@code batch}.
+     *
+     * @throws IllegalStateException if the database rejects a batch; rows
+     *         since the last commit are rolled back
+     */
+    public void append(OrderBatch batch) {
+        checkOpen();
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                add(batch.get(i, record));
+            }
+        } catch (SQLException e) {
+            rollback();
+            throw new IllegalStateException("Bulk load failed after " + rows + " committed rows", e);
+        }
+    }
+
+    /**
+     * Write one order.
+     */
+    public void append(OrderRecord order) {
+        checkOpen();
+        try {
+            add(order);
+        } catch (SQLException e) {
+            rollback();
+            throw new IllegalStateException("Bulk load failed after " + rows + " committed rows", e);
+        }
+    }
+
+    /**
+     * Commit the remaining rows and rebuild the secondary indexes. Further
+     * appends fail; calling it again does nothing.
+     *
+     * @return rows loaded
+     */
+    public long finish() {
+        if (finished) {
+            return rows;
+        }
+        finished = true;
+        try {
+            if (!failed) {
+                flushBatch();
+                commit();
+            }
+        } catch (SQLException e) {
+            rollback();
+            throw new IllegalStateException("Bulk load failed after " + rows + " committed rows", e);
+        } finally {
+            rebuildIndexes();
+        }
+        MetricsCollector.getInstance().recordTime("persistence.bulk.load", System.nanoTime() - startNanos);
+        return rows;
+    }
+
+    /** Rows committed so far. */
+    public long getRows() { return rows; }
+
+    public long getCommits() { return commits; }
+
+    /** Time {@link #finish} spent rebuilding indexes; 0 before then. */
+    public long getIndexRebuildNanos() { return indexRebuildNanos; }
+
+    /**
+     * {@link #finish} if not done yet - so the indexes are restored even
+     * when the load failed - and close the connection.
+     */
+    @Override
+    public void close() {
+        try {
+            finish();
+        } finally {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // Nothing left to write; the load is committed or rolled back
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (finished || failed) {
+            throw new IllegalStateException(finished ? "Bulk load already finished" : "Bulk load failed");
+        }
+    }
+
+    private void add(OrderRecord order) throws SQLException {
+        long sequence = rows + uncommitted;
+        merge.setString(1, OrderIds.format(order.getOrderId()));
+        merge.setString(2, symbols.symbol(order.getSymbolId()));
+        merge.setString(3, order.getSide() == Order.Side.BUY ? "BUY" : "SELL");
+        merge.setBigDecimal(4, price(order.getPriceTicks()));
+        merge.setInt(5, order.getQuantity());
+        merge.setLong(6, createdAtBase + sequence);
+        merge.addBatch();
+        uncommitted++;
+        if (++batched == batchRows) {
+            flushBatch();
+        }
+        if (uncommitted >= transactionRows) {
+            flushBatch();
+            commit();
+        }
+    }
+
+    /**
+     * Prices repeat heavily across a file; reuse the BigDecimal per tick
+     * value instead of allocating one per row.
+     */
+    private BigDecimal price(long ticks) {
+        int slot = (int) (ticks & (PRICE_CACHE_SIZE - 1));
+        BigDecimal price = prices[slot];
+        if (price == null || priceTicks[slot] != ticks) {
+            price = BigDecimal.valueOf(ticks, OrderRecord.PRICE_SCALE);
+            prices[slot] = price;
+            priceTicks[slot] = ticks;
+        }
+        return price;
+    }
+
+    private void flushBatch() throws SQLException {
+        if (batched > 0) {
+            merge.executeBatch();
+            batched = 0;
+        }
+    }
+
+    private void commit() throws SQLException {
+        if (uncommitted == 0) return;
+        connection.commit();
+        rows += uncommitted;
+        commits++;
+        MetricsCollector metrics = MetricsCollector.getInstance();
+        metrics.incrementBy("persistence.bulk.rows", uncommitted);
+        metrics.increment("persistence.bulk.commits");
+        uncommitted = 0;
+    }
+
+    private void rollback() {
+        failed = true;
+        batched = 0;
+        uncommitted = 0;
+        try {
+            merge.clearBatch();
+            connection.rollback();
+        } catch (SQLException e) {
+            // The connection is closed with the loader; H2 discards the open transaction
+        }
+    }
+
+    private void rebuildIndexes() {
+        long start = System.nanoTime();
+        try {
+            connection.setAutoCommit(true);
+            try (Statement stmt = connection.createStatement()) {
+                for (String[] index : PersistenceService.SECONDARY_INDEXES) {
+                    stmt.execute(index[1]);
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Index rebuild after bulk load failed", e);
+        }
+        indexRebuildNanos = System.nanoTime() - start;
+        MetricsCollector.getInstance().recordTime("persistence.bulk.indexRebuild", indexRebuildNanos);
+    }
+}
@@ -0,0 +1,306 @@
+package com.orderflow.service;
+
+import com.orderflow.util.MetricsCollector;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size JDBC connection pool with a prepared-statement cache per
+ * connection, for {@link PersistenceService}.
+ *
+ * All connections are opened up front. Checkout takes a permit from a
+ * semaphore sized to the pool - a single CAS while connections are free -
+ * then claims a free slot by CAS, starting at a slot picked from the
+ * thread id so threads rarely collide. No lock is taken unless the pool
+ * is exhausted, in which case callers wait up to the checkout timeout.
+ *
+ * Each connection keeps its prepared statements for as long as it lives,
+ * so the INSERT and SELECT statements are parsed once per connection, not
+ * once per call. A connection idle longer than the validation interval is
+ * checked with {@link Connection#isValid} at checkout, and one that
+ * failed (see {@link Lease#invalidate}) is reopened before reuse.
+ *
+ * Every checkout gets its own {@link Lease}; once closed, a lease throws
+ * instead of reaching a connection that may be someone else's by then.
+ *
+ * Metrics:
+ *   persistence.pool.wait            time spent waiting for a connection (timer)
+ *   persistence.pool.reconnects      connections reopened (counter)
+ *
+ * PERF-LAB: Lab F - PersistenceBenchmark.insert*
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    public static final long DEFAULT_CHECKOUT_TIMEOUT_MILLIS = 5_000;
+    public static final long DEFAULT_VALIDATION_INTERVAL_MILLIS = 30_000;
+
+    private static final int FREE = 0;
+    private static final int IN_USE = 1;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    /** One pooled connection and its statement cache. */
+    private static final class Slot {
+        final int index;
+        final Map<String, PreparedStatement> statements = new HashMap<>();
+        Connection connection;
+        long lastUsedNanos;
+        boolean broken;
+
+        Slot(int index, Connection connection) {
+            this.index = index;
+            this.connection = connection;
+            this.lastUsedNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * A checked-out connection. Close it to return it to the pool; use it
+     * from one thread at a time.
+     */
+    public final class Lease implements AutoCloseable {
+        private final Slot slot;
+        private boolean held = true;
+
+        private Lease(Slot slot) {
+            this.slot = slot;
+        }
+
+        /**
+         * @throws IllegalStateException if the lease has been closed
+         */
+        public Connection connection() {
+            return held().connection;
+        }
+
+        /**
+         * This connection's prepared statement for {@code sql}, prepared on
+         * first use and kept until the connection is closed.
+         *
+         * @throws IllegalStateException if the lease has been closed
+         */
+        public PreparedStatement statement(String sql) throws SQLException {
+            Slot slot = held();
+            PreparedStatement statement = slot.statements.get(sql);
+            if (statement == null) {
+                statement = slot.connection.prepareStatement(sql);
+                slot.statements.put(sql, statement);
+            }
+            return statement;
+        }
+
+        /**
+         * Mark the connection as failed, so it is reopened rather than
+         * handed out again. Does nothing once the lease is closed.
+         */
+        public void invalidate() {
+            if (held) {
+                slot.broken = true;
+            }
+        }
+
+        /** Return the connection to the pool. */
+        @Override
+        public void close() {
+            if (held) {
+                held = false;
+                release(slot);
+            }
+        }
+
+        private Slot held() {
+            if (!held) {
+                throw new IllegalStateException("Connection lease already closed");
+            }
+            return slot;
+        }
+    }
+
+    private final String jdbcUrl;
+    private final String username;
+    private final String password;
+    private final long checkoutTimeoutNanos;
+    private final long validationIntervalNanos;
+
+    private final Slot[] slots;
+    private final AtomicIntegerArray states;
+    private final Semaphore available;
+    private volatile boolean closed;
+
+    private final LongAdder checkouts = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder reconnects = new LongAdder();
+
+    public ConnectionPool(String jdbcUrl, String username, String password, int size, long checkoutTimeoutMillis) {
+        this(jdbcUrl, username, password, size, checkoutTimeoutMillis, DEFAULT_VALIDATION_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param size connections, all opened now
+     * @param checkoutTimeoutMillis longest {@link #acquire} waits for a free connection
+     * @param validationIntervalMillis idle time after which a connection is validated at checkout
+     */
+    public ConnectionPool(String jdbcUrl, String username, String password, int size, long checkoutTimeoutMillis,
+                          long validationIntervalMillis) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive: " + size);
+        }
+        this.jdbcUrl = jdbcUrl;
+        this.username = username;
+        this.password = password;
+        this.checkoutTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(checkoutTimeoutMillis);
+        this.validationIntervalNanos = TimeUnit.MILLISECONDS.toNanos(validationIntervalMillis);
+        this.slots = new Slot[size];
+        this.states = new AtomicIntegerArray(size);
+        this.available = new Semaphore(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                slots[i] = new Slot(i, open());
+            }
+        } catch (SQLException e) {
+            close();
+            throw new IllegalStateException("Cannot open connection pool for " + jdbcUrl, e);
+        }
+    }
+
+    /**
+     * Check out a connection, waiting up to the checkout timeout if all
+     * are in use.
+     *
+     * @throws IllegalStateException if the pool is closed, on timeout or
+     *         interrupt, or if a connection needed reopening and could not be
+     */
+    public Lease acquire() {
+        checkOpen();
+        if (!available.tryAcquire()) {
+            long start = System.nanoTime();
+            try {
+                if (!available.tryAcquire(checkoutTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                    throw new IllegalStateException("No connection free within "
+                        + TimeUnit.NANOSECONDS.toMillis(checkoutTimeoutNanos) + " ms (pool size " + slots.length + ")");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a connection", e);
+            }
+            long waited = System.nanoTime() - start;
+            waits.increment();
+            waitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            MetricsCollector.getInstance().recordTime("persistence.pool.wait", waited);
+        }
+        checkouts.increment();
+
+        // Holding a permit guarantees a free slot
+        int n = slots.length;
+        int index = (int) (Thread.currentThread().getId() % n);
+        while (!states.compareAndSet(index, FREE, IN_USE)) {
+            index = index + 1 == n ? 0 : index + 1;
+        }
+        Slot slot = slots[index];
+        try {
+            // close() may have run while this caller waited
+            checkOpen();
+            validate(slot);
+        } catch (SQLException | RuntimeException e) {
+            states.set(index, FREE);
+            available.release();
+            if (e instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Cannot reopen pooled connection to " + jdbcUrl, e);
+        }
+        return new Lease(slot);
+    }
+
+    /** Connections in the pool. */
+    public int size() { return slots.length; }
+
+    /** Connections free right now. */
+    public int available() { return available.availablePermits(); }
+
+    public long getCheckouts() { return checkouts.sum(); }
+
+    /** Checkouts that found the pool exhausted and had to wait. */
+    public long getWaits() { return waits.sum(); }
+
+    public long getTotalWaitNanos() { return waitNanos.sum(); }
+    public long getMaxWaitNanos() { return maxWaitNanos.get(); }
+    public long getReconnects() { return reconnects.sum(); }
+
+    /**
+     * Close every connection, including ones still checked out. Later
+     * checkouts fail.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Slot slot : slots) {
+            if (slot != null) {
+                closeQuietly(slot);
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Connection pool is closed");
+        }
+    }
+
+    private void release(Slot slot) {
+        try {
+            if (!slot.broken && !slot.connection.getAutoCommit()) {
+                // Don't hand a half-done transaction to the next caller
+                slot.connection.rollback();
+                slot.connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            slot.broken = true;
+        }
+        slot.lastUsedNanos = System.nanoTime();
+        states.set(slot.index, FREE);
+        available.release();
+    }
+
+    /**
+     * Reopen a connection that failed, or that has been idle past the
+     * validation interval and no longer answers.
+     */
+    private void validate(Slot slot) throws SQLException {
+        boolean stale = System.nanoTime() - slot.lastUsedNanos > validationIntervalNanos;
+        if (!slot.broken && !(stale && !slot.connection.isValid(VALIDATION_TIMEOUT_SECONDS))) {
+            return;
+        }
+        closeQuietly(slot);
+        slot.connection = open();
+        slot.broken = false;
+        slot.lastUsedNanos = System.nanoTime();
+        reconnects.increment();
+        MetricsCollector.getInstance().increment("persistence.pool.reconnects");
+    }
+
+    private Connection open() throws SQLException {
+        return DriverManager.getConnection(jdbcUrl, username, password);
+    }
+
+    private static void closeQuietly(Slot slot) {
+        slot.statements.clear();
+        try {
+            // Closing the connection closes its statements
+            slot.connection.close();
+        } catch (SQLException e) {
+            // Already unusable; it is being replaced or the pool is shutting down
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.orderflow.service;
+
+import com.orderflow.model.Order;
+import com.orderflow.model.TradeResult;
+import com.orderflow.util.MetricsCollector;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One demand-driven ingestion run: subscribes to a source of raw orders
+ * and publishes the resulting trades to a single downstream subscriber.
+ *
+ * Nothing is pulled from the source until the trade subscriber asks for
+ * trades. Each upstream request is one batch of at most
+ * {@code min(batchSize, outstanding trade demand)} items; when the batch
+ * has arrived it is matched and persisted in one go, its trades are
+ * queued, and the next batch is requested only once those trades have
+ * been delivered. A slow subscriber therefore slows the source down
+ * instead of filling a queue, and no thread is dedicated to a source:
+ * work runs on whichever thread delivers the signals.
+ *
+ * PERF-LAB: Lab D - compare against OrderExecutorPool's unbounded queue
+ *
+ * @param <T> raw order type delivered by the source
+ */
+class FlowIngestion<T> implements Flow.Subscriber<T>, Flow.Subscription {
+
+    /**
+     * Turns one upstream item into zero or more orders.
+     */
+    @FunctionalInterface
+    interface Decoder<T> {
+        void decode(T item, List<Order> out);
+    }
+
+    private final Decoder<T> decoder;
+    private final MatchingEngine matchingEngine;
+    private final PersistenceService persistenceService;
+    private final Flow.Subscriber<? super TradeResult> downstream;
+    private final int batchSize;
+
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final Queue<TradeResult> readyTrades = new ConcurrentLinkedQueue<>();
+
+    // Touched only from upstream signals, which the Flow contract serializes
+    private final List<Order> batch;
+    private int received;
+
+    private volatile Flow.Subscription upstream;
+    private volatile int requested;
+    private volatile boolean batchOpen;
+    private volatile boolean upstreamDone;
+    private volatile Throwable upstreamError;
+    private volatile Throwable protocolError;
+    private volatile boolean cancelled;
+    private boolean terminated;
+
+    FlowIngestion(Decoder<T> decoder, MatchingEngine matchingEngine, PersistenceService persistenceService,
+                  Flow.Subscriber<? super TradeResult> downstream, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.decoder = decoder;
+        this.matchingEngine = matchingEngine;
+        this.persistenceService = persistenceService;
+        this.downstream = downstream;
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    // ---- upstream side ------------------------------------------------
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (upstream != null) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        downstream.onSubscribe(this);
+        drain();
+    }
+
+    @Override
+    public void onNext(T item) {
+        Objects.requireNonNull(item);
+        // Items may still arrive after a failure cancelled upstream
+        if (cancelled || upstreamDone) return;
+        try {
+            decoder.decode(item, batch);
+        } catch (IllegalArgumentException e) {
+            MetricsCollector.getInstance().increment("ingestion.rejected");
+        } catch (RuntimeException e) {
+            // Must not throw back into the publisher (Flow rule 2.13):
+            // fail the run as completeBatch does
+            fail(e);
+            return;
+        }
+        if (++received == requested) {
+            completeBatch();
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        upstreamError = throwable;
+        upstreamDone = true;
+        batch.clear();
+        received = 0;
+        batchOpen = false;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        upstreamDone = true;
+        if (batchOpen) {
+            completeBatch(); // partial final batch
+        } else {
+            drain();
+        }
+    }
+
+    /**
+     * Match and persist the current batch, then queue its trades.
+     */
+    private void completeBatch() {
+        try {
+            List<TradeResult> trades = new ArrayList<>();
+            for (Order order : batch) {
+                trades.addAll(matchingEngine.submitOrder(order));
+            }
+            if (!batch.isEmpty()) {
+                persistenceService.saveOrders(batch);
+                MetricsCollector.getInstance().incrementBy("ingestion.orders", batch.size());
+            }
+            if (!trades.isEmpty()) {
+                persistenceService.saveTrades(trades);
+                readyTrades.addAll(trades);
+            }
+        } catch (RuntimeException e) {
+            fail(e);
+            return;
+        } finally {
+            batch.clear();
+            received = 0;
+            batchOpen = false;
+        }
+        drain();
+    }
+
+    /**
+     * Cancel upstream, drop the open batch and pass {@code error} on to
+     * the downstream subscriber once its queued trades are delivered.
+     */
+    private void fail(RuntimeException error) {
+        upstreamError = error;
+        upstreamDone = true;
+        upstream.cancel();
+        batch.clear();
+        received = 0;
+        batchOpen = false;
+        drain();
+    }
+
+    // ---- downstream side ----------------------------------------------
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            protocolError = new IllegalArgumentException("request must be positive: " + n);
+        } else {
+            demand.accumulateAndGet(n, (current, add) -> {
+                long sum = current + add;
+                return sum < 0 ? Long.MAX_VALUE : sum;
+            });
+        }
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        Flow.Subscription s = upstream;
+        if (s != null) {
+            s.cancel();
+        }
+    }
+
+    /**
+     * Deliver ready trades against demand, then either ask upstream for the
+     * next batch or signal completion. Serialized with a work-in-progress
+     * counter so it can be called from any thread.
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) return;
+        do {
+            if (terminated) {
+                readyTrades.clear();
+                continue;
+            }
+            if (protocolError != null) {
+                terminated = true;
+                upstream.cancel();
+                downstream.onError(protocolError);
+                continue;
+            }
+            while (demand.get() > 0 && !readyTrades.isEmpty() && !cancelled) {
+                downstream.onNext(readyTrades.poll());
+                demand.decrementAndGet();
+            }
+            if (cancelled) {
+                readyTrades.clear();
+                terminated = true;
+                continue;
+            }
+            if (readyTrades.isEmpty() && !batchOpen) {
+                if (upstreamDone) {
+                    terminated = true;
+                    Throwable error = upstreamError;
+                    if (error != null) {
+                        downstream.onError(error);
+                    } else {
+                        downstream.onComplete();
+                    }
+                } else if (demand.get() > 0 && upstream != null) {
+                    int n = (int) Math.min(batchSize, demand.get());
+                    requested = n;
+                    batchOpen = true;
+                    upstream.request(n);
+                }
+            }
+        } while (wip.decrementAndGet() != 0);
+    }
+}
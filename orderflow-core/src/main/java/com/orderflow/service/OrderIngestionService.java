@@ -1,11 +1,42 @@
 package com.orderflow.service;
 
+import com.orderflow.executor.SymbolLaneExecutor;
+import com.orderflow.io.BinaryOrderFileReader;
+import com.orderflow.io.BlockCompressedFormat;
+import com.orderflow.io.BlockCompressedOrderFileReader;
+import com.orderflow.io.MappedOrderFileReader;
+import com.orderflow.io.StreamingOrderFileReader;
 import com.orderflow.model.Order;
+import com.orderflow.model.OrderBatch;
+import com.orderflow.model.OrderRecord;
+import com.orderflow.model.TradeResult;
+import com.orderflow.util.ByteOrderParser;
+import com.orderflow.util.MetricsCollector;
+import com.orderflow.util.OrderIdDeduplicator;
 import com.orderflow.util.OrderParser;
+import com.orderflow.util.RejectJournal;
+import com.orderflow.util.RejectResult;
+import com.orderflow.util.SymbolTable;
 import java.io.BufferedReader;
 import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Service responsible for ingesting orders from various sources.
@@ -38,12 +69,88 @@ public class OrderIngestionService {
     private final MatchingEngine matchingEngine;
     private final PersistenceService persistenceService;
     
+    private static final int STREAM_BATCH_SIZE = 1024;
+    private static final long STREAM_PROGRESS_INTERVAL = 1_000_000;
+    private static final int GZIP_BATCH_SIZE = 64 * 1024;
+    
+    // Shared by the byte-level ingestion paths so symbol ids stay stable
+    private final SymbolTable symbols = new SymbolTable();
+    
+    // Rejected lines from the byte-level paths; rendered only when read
+    private final RejectJournal rejectJournal = new RejectJournal();
+    
+    // Recent order IDs across all ingestion paths; guarded by its own monitor
+    private final OrderIdDeduplicator deduplicator;
+    
     public OrderIngestionService(OrderParser parser, 
                                   MatchingEngine matchingEngine,
                                   PersistenceService persistenceService) {
+        this(parser, matchingEngine, persistenceService, new OrderIdDeduplicator());
+    }
+    
+    /**
+     * @param deduplicator window of recent order IDs; an order whose ID is
+     *        still in the window is dropped as a retried delivery
+     */
+    public OrderIngestionService(OrderParser parser, 
+                                  MatchingEngine matchingEngine,
+                                  PersistenceService persistenceService,
+                                  OrderIdDeduplicator deduplicator) {
         this.parser = parser;
         this.matchingEngine = matchingEngine;
         this.persistenceService = persistenceService;
+        this.deduplicator = deduplicator;
+    }
+    
+    /**
+     * Receives parsed orders in place of matching and persistence, for the
+     * overloads of {@link #processFileParallel}, {@link #processCompressedFile},
+     * {@link #processFileStreaming} and {@link #processBinaryFile} that take one.
+     * 
+     * Orders arrive after rejects and duplicates are dropped, in file order
+     * within each symbol. On the lane paths one sink is called from every
+     * lane thread, but all orders of a symbol come from the same lane.
+     */
+    @FunctionalInterface
+    public interface OrderSink {
+        
+        /**
+         * @param order reused for the next order once this returns
+         */
+        void accept(OrderRecord order);
+        
+        /**
+         * Called after the orders of one batch, or of one lane's share of it.
+         */
+        default void endBatch() {
+        }
+    }
+    
+    /**
+     * The sink behind the overloads without one: match each order, then
+     * persist a batch's orders together.
+     */
+    private final class MatchingSink implements OrderSink {
+        
+        private final List<Order> accepted = new ArrayList<>();
+        
+        @Override
+        public void accept(OrderRecord record) {
+            Order order = record.toOrder(symbols);
+            matchingEngine.submitOrder(order);
+            accepted.add(order);
+        }
+        
+        @Override
+        public void endBatch() {
+            if (accepted.isEmpty()) return;
+            try {
+                persistenceService.saveOrders(accepted);
+                MetricsCollector.getInstance().incrementBy("ingestion.orders", accepted.size());
+            } finally {
+                accepted.clear();
+            }
+        }
     }
     
     /**
@@ -88,23 +195,557 @@ public class OrderIngestionService {
     /**
      * Process all orders from a file.
      * 
-     * PERF-HINT: File reading + parsing + processing in one method.
+     * Compressed input (block-compressed or .gz) is detected by its magic
+     * bytes and handed to {@link #processCompressedFile}; plain CSV goes to
+     * {@link #processFileParallel}. Both use one parser thread and one
+     * matching lane per available processor.
+     * 
      * PERF-LAB: Lab F - I/O patterns
+     * 
+     * @return number of orders processed
      */
-    public int processFile(String filePath) {
-        // TODO: Implement file processing
-        //
-        // INTENTIONAL INEFFICIENCY:
-        // 1. Read ALL lines into memory first (no streaming)
-        // 2. For each line, call processOrder individually
-        // 3. No batching for persistence
-        //
-        // Consider (but don't implement yet):
-        // - Streaming with BufferedReader
-        // - Batch size for persistence
-        // - Parallel processing?
-        //
-        throw new UnsupportedOperationException("Implement processFile");
+    public long processFile(String filePath) {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        if (isCompressed(filePath)) {
+            return processCompressedFile(filePath, parallelism);
+        }
+        return processFileParallel(filePath, parallelism);
+    }
+    
+    /**
+     * Process all orders from a file using memory-mapped, parallel parsing.
+     * 
+     * The file is split into line-aligned chunks that are parsed on a
+     * fork-join pool. Parsed orders are then routed to one lane per symbol
+     * group, so within each symbol orders reach the matching engine in
+     * file order. Different symbols are matched and persisted in parallel.
+     * 
+     * Until the Order model, MatchingEngine.submitOrder and saveOrders lab
+     * stubs are implemented, this throws UnsupportedOperationException at
+     * the first valid order, as do {@link #processFile}, {@link #processCompressedFile},
+     * {@link #processFileStreaming} and {@link #processBinaryFile}. Their
+     * {@link OrderSink} overloads run reading, parsing, duplicate dropping
+     * and lane routing without the stubs.
+     * 
+     * PERF-LAB: Lab F - compare lines/sec against processFileStreaming
+     * 
+     * @param parallelism number of parser threads and matching lanes
+     * @return number of orders processed
+     */
+    public long processFileParallel(String filePath, int parallelism) {
+        return processInLanes(parallelism, mappedFile(filePath, parallelism), MatchingSink::new);
+    }
+    
+    /**
+     * {@link #processFileParallel(String, int)} with {@code sink} in place of
+     * matching and persistence.
+     */
+    public long processFileParallel(String filePath, int parallelism, OrderSink sink) {
+        return processInLanes(parallelism, mappedFile(filePath, parallelism), () -> sink);
+    }
+    
+    private BatchSource mappedFile(String filePath, int parallelism) {
+        return (pool, sink) -> new MappedOrderFileReader(Path.of(filePath), symbols,
+            MappedOrderFileReader.DEFAULT_CHUNK_SIZE, pool, parallelism * 2).read(sink);
+    }
+    
+    /**
+     * Process a compressed order file.
+     * 
+     * Block-compressed files (see {@link BlockCompressedFormat}) are
+     * inflated and parsed block by block on a fork-join pool, then matched
+     * in per-symbol lanes exactly like {@link #processFileParallel}.
+     * Plain gzip files cannot be split, so they are inflated as a single
+     * stream and parsed through a fixed buffer, with matching still in lanes.
+     * Neither path ever holds the whole inflated file.
+     * 
+     * PERF-LAB: Lab F - compare block-compressed vs .gz on the same data
+     * 
+     * @param parallelism number of inflate/parse threads and matching lanes
+     * @return number of orders processed
+     */
+    public long processCompressedFile(String filePath, int parallelism) {
+        return processInLanes(parallelism, compressedFile(filePath, parallelism), MatchingSink::new);
+    }
+    
+    /**
+     * {@link #processCompressedFile(String, int)} with {@code sink} in place
+     * of matching and persistence.
+     */
+    public long processCompressedFile(String filePath, int parallelism, OrderSink sink) {
+        return processInLanes(parallelism, compressedFile(filePath, parallelism), () -> sink);
+    }
+    
+    private BatchSource compressedFile(String filePath, int parallelism) {
+        Path path = Path.of(filePath);
+        try {
+            if (BlockCompressedFormat.isBlockCompressed(path)) {
+                return (pool, sink) -> {
+                    try (BlockCompressedOrderFileReader reader =
+                            new BlockCompressedOrderFileReader(path, symbols, pool, parallelism * 2)) {
+                        return reader.read(sink);
+                    }
+                };
+            }
+            if (BlockCompressedFormat.isGzip(path)) {
+                return (pool, sink) -> {
+                    try (StreamingOrderFileReader reader = new StreamingOrderFileReader(
+                            Channels.newChannel(new GZIPInputStream(Files.newInputStream(path), 1 << 16)),
+                            symbols, StreamingOrderFileReader.DEFAULT_BUFFER_SIZE, GZIP_BATCH_SIZE)) {
+                        long[] parsed = {0};
+                        reader.read(() -> new OrderBatch(GZIP_BATCH_SIZE), batch -> {
+                            parsed[0] += batch.size();
+                            sink.accept(batch);
+                        });
+                        return parsed[0];
+                    }
+                };
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        throw new IllegalArgumentException("Not a block-compressed or gzip file: " + filePath);
+    }
+    
+    /**
+     * Produces parsed batches, in file order, for {@link #processInLanes}.
+     */
+    @FunctionalInterface
+    private interface BatchSource {
+        long read(ForkJoinPool parsePool, Consumer<OrderBatch> sink) throws IOException;
+    }
+    
+    /**
+     * Route each batch from {@code source} to one lane per symbol group, so
+     * within each symbol orders reach the sink in source order.
+     * 
+     * @param sinks called once per lane
+     * @return number of orders the source parsed, less duplicates
+     */
+    private long processInLanes(int parallelism, BatchSource source, Supplier<OrderSink> sinks) {
+        ForkJoinPool parsePool = new ForkJoinPool(parallelism);
+        SymbolLaneExecutor lanes = new SymbolLaneExecutor(parallelism, "ingest-lane");
+        OrderSink[] laneSinks = new OrderSink[lanes.laneCount()];
+        for (int lane = 0; lane < laneSinks.length; lane++) {
+            laneSinks[lane] = sinks.get();
+        }
+        // Bounds parsed-but-unmatched chunks, and with it heap use
+        Semaphore chunksInFlight = new Semaphore(parallelism * 2);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        long[] duplicates = {0};
+        long processed;
+        try {
+            processed = source.read(parsePool, batch -> {
+                chunksInFlight.acquireUninterruptibly();
+                // A lane failed: stop the reader instead of parsing the rest of the input
+                if (failure.get() != null) {
+                    chunksInFlight.release();
+                    throw failure.get();
+                }
+                // Batches arrive in source order, so the first copy of an ID wins
+                duplicates[0] += dropDuplicates(batch);
+                MetricsCollector.getInstance().incrementBy("ingestion.rejected", batch.getRejected());
+                rejectJournal.append(batch);
+                
+                // Partition once here, so each lane walks only its own orders
+                int[] laneStart = new int[lanes.laneCount() + 1];
+                int[] rows = partitionByLane(batch, lanes, laneStart);
+                int busyLanes = 0;
+                for (int lane = 0; lane < lanes.laneCount(); lane++) {
+                    if (laneStart[lane + 1] > laneStart[lane]) busyLanes++;
+                }
+                if (busyLanes == 0) {
+                    chunksInFlight.release();
+                    return;
+                }
+                AtomicInteger lanesPending = new AtomicInteger(busyLanes);
+                for (int lane = 0; lane < lanes.laneCount(); lane++) {
+                    int from = laneStart[lane];
+                    int to = laneStart[lane + 1];
+                    if (from == to) continue;
+                    OrderSink sink = laneSinks[lane];
+                    lanes.execute(lane, () -> {
+                        try {
+                            if (failure.get() == null) {
+                                processLane(batch, rows, from, to, sink);
+                            }
+                        } catch (RuntimeException e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            if (lanesPending.decrementAndGet() == 0) {
+                                chunksInFlight.release();
+                            }
+                        }
+                    });
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lanes.close();
+            parsePool.shutdown();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return processed - duplicates[0];
+    }
+    
+    /**
+     * Counting sort of a batch's rows by lane. Lane {@code l}'s rows are
+     * {@code rows[laneStart[l]]} up to {@code rows[laneStart[l + 1]]},
+     * still in batch order.
+     */
+    private static int[] partitionByLane(OrderBatch batch, SymbolLaneExecutor lanes, int[] laneStart) {
+        int size = batch.size();
+        int[] laneOf = new int[size];
+        for (int i = 0; i < size; i++) {
+            int lane = lanes.laneFor(batch.getSymbolId(i));
+            laneOf[i] = lane;
+            laneStart[lane + 1]++;
+        }
+        for (int lane = 0; lane < lanes.laneCount(); lane++) {
+            laneStart[lane + 1] += laneStart[lane];
+        }
+        int[] next = laneStart.clone();
+        int[] rows = new int[size];
+        for (int i = 0; i < size; i++) {
+            rows[next[laneOf[i]]++] = i;
+        }
+        return rows;
+    }
+    
+    /**
+     * Hand one lane's rows of a chunk, {@code rows[from]} to {@code rows[to - 1]},
+     * to its sink.
+     */
+    private static void processLane(OrderBatch batch, int[] rows, int from, int to, OrderSink sink) {
+        OrderRecord record = new OrderRecord();
+        for (int i = from; i < to; i++) {
+            sink.accept(batch.get(rows[i], record));
+        }
+        sink.endBatch();
+    }
+    
+    /**
+     * Process all orders from a file in bounded memory.
+     * 
+     * The file is read through a fixed-size buffer and parsed into a fixed
+     * pool of batches. A single consumer thread matches and persists each
+     * batch in file order and then returns it to the pool. When matching or
+     * persistence falls behind, the pool runs dry and the reader blocks, so
+     * at most {@code maxInFlightOrders} parsed orders exist at any time -
+     * heap use is the same for a 1 MB file and a 10 GB file.
+     * 
+     * Progress is reported through {@link MetricsCollector}:
+     *   ingestion.stream.lines          lines consumed (counter)
+     *   ingestion.stream.bytes          bytes read (counter)
+     *   ingestion.stream.linesPerSec    rate since start of this file (gauge)
+     *   ingestion.stream.inFlight       orders parsed but not yet processed (gauge)
+     * 
+     * PERF-LAB: Lab F - compare heap and GC logs against processFile
+     * 
+     * @return number of lines consumed, including rejected and duplicate ones
+     */
+    public long processFileStreaming(String filePath, int maxInFlightOrders) {
+        return processFileStreaming(filePath, maxInFlightOrders, new MatchingSink());
+    }
+    
+    /**
+     * {@link #processFileStreaming(String, int)} with {@code sink} in place
+     * of matching and persistence. The sink is called from one consumer
+     * thread.
+     */
+    public long processFileStreaming(String filePath, int maxInFlightOrders, OrderSink sink) {
+        int batchSize = Math.max(1, Math.min(STREAM_BATCH_SIZE, maxInFlightOrders / 2));
+        int batchCount = Math.max(2, maxInFlightOrders / batchSize);
+        BlockingQueue<OrderBatch> free = new ArrayBlockingQueue<>(batchCount);
+        BlockingQueue<OrderBatch> full = new ArrayBlockingQueue<>(batchCount + 1);
+        for (int i = 0; i < batchCount; i++) {
+            free.add(new OrderBatch(batchSize));
+        }
+        OrderBatch endOfInput = new OrderBatch(1);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        MetricsCollector metrics = MetricsCollector.getInstance();
+        long startNanos = System.nanoTime();
+        
+        Thread consumer = new Thread(() -> {
+            OrderRecord record = new OrderRecord();
+            long lines = 0;
+            long nextReport = STREAM_PROGRESS_INTERVAL;
+            for (OrderBatch batch = take(full); batch != endOfInput; batch = take(full)) {
+                try {
+                    if (failure.get() == null) {
+                        int duplicates = dropDuplicates(batch);
+                        for (int i = 0; i < batch.size(); i++) {
+                            sink.accept(batch.get(i, record));
+                        }
+                        sink.endBatch();
+                        
+                        int consumed = batch.size() + duplicates + batch.getRejected();
+                        lines += consumed;
+                        metrics.incrementBy("ingestion.stream.lines", consumed);
+                        metrics.incrementBy("ingestion.rejected", batch.getRejected());
+                        rejectJournal.append(batch);
+                        metrics.setGauge("ingestion.stream.inFlight", (long) full.size() * batchSize);
+                        if (lines >= nextReport) {
+                            long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+                            metrics.setGauge("ingestion.stream.linesPerSec", lines * 1_000_000_000L / elapsedNanos);
+                            nextReport += STREAM_PROGRESS_INTERVAL;
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    // Always hand the batch back and keep draining, so the
+                    // reader is never left blocked on an empty pool
+                    batch.clear();
+                    put(free, batch);
+                }
+            }
+        }, "ingest-stream-consumer");
+        consumer.start();
+        
+        long lines;
+        try (StreamingOrderFileReader reader = StreamingOrderFileReader.open(Path.of(filePath), symbols, batchSize)) {
+            lines = reader.read(() -> take(free), batch -> put(full, batch));
+            metrics.incrementBy("ingestion.stream.bytes", reader.getBytesRead());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            put(full, endOfInput);
+            try {
+                consumer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+        metrics.setGauge("ingestion.stream.linesPerSec", lines * 1_000_000_000L / elapsedNanos);
+        metrics.setGauge("ingestion.stream.inFlight", 0);
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return lines;
+    }
+    
+    /**
+     * Load all orders from a CSV file straight into the orders table, for
+     * historical loads.
+     * 
+     * Orders are parsed in batches and written through a
+     * {@link BulkOrderLoader}: secondary indexes are dropped for the load
+     * and rebuilt at the end, and rows go in as batched MERGEs committed
+     * every {@code transactionRows} rows. Orders are not matched. Rejected
+     * lines are journaled and duplicates dropped as on the other paths.
+     * 
+     * @return number of orders loaded
+     */
+    public long processFileBulk(String filePath, int transactionRows) {
+        OrderBatch batch = new OrderBatch(STREAM_BATCH_SIZE);
+        MetricsCollector metrics = MetricsCollector.getInstance();
+        try (BulkOrderLoader loader = persistenceService.openBulkLoader(symbols, transactionRows);
+             StreamingOrderFileReader reader = StreamingOrderFileReader.open(Path.of(filePath), symbols,
+                 STREAM_BATCH_SIZE)) {
+            reader.read(() -> batch, full -> {
+                dropDuplicates(full);
+                loader.append(full);
+                metrics.incrementBy("ingestion.rejected", full.getRejected());
+                rejectJournal.append(full);
+                full.clear();
+            });
+            metrics.incrementBy("ingestion.stream.bytes", reader.getBytesRead());
+            long loaded = loader.finish();
+            metrics.incrementBy("ingestion.orders", loaded);
+            return loaded;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Process all orders from a binary file written in {@link com.orderflow.io.OrderWireFormat}.
+     * 
+     * Fixed-length records are decoded in place from memory-mapped windows,
+     * so there is no line scanning or number parsing. Orders are matched in
+     * file order and persisted in batches.
+     * 
+     * @return number of orders processed
+     */
+    public long processBinaryFile(String filePath) {
+        return processBinaryFile(filePath, new MatchingSink());
+    }
+    
+    /**
+     * {@link #processBinaryFile(String)} with {@code sink} in place of
+     * matching and persistence.
+     */
+    public long processBinaryFile(String filePath, OrderSink sink) {
+        OrderRecord record = new OrderRecord();
+        BinaryOrderFileReader reader = new BinaryOrderFileReader(Path.of(filePath), symbols, STREAM_BATCH_SIZE);
+        long[] duplicates = {0};
+        try {
+            return reader.read(batch -> {
+                duplicates[0] += dropDuplicates(batch);
+                for (int i = 0; i < batch.size(); i++) {
+                    sink.accept(batch.get(i, record));
+                }
+                sink.endBatch();
+            }) - duplicates[0];
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Ingest CSV lines from a reactive source, one line per item.
+     * 
+     * Returns a cold publisher of the resulting trades: each subscriber
+     * starts its own subscription to {@code source}. The trade subscriber's
+     * request(n) drives everything - lines are pulled in batches of at most
+     * min(batchSize, n), and each batch is matched and persisted together
+     * before the next one is requested. No threads or unbounded queues are
+     * involved; processing runs on the threads that deliver the signals.
+     * 
+     * Lines are parsed by a {@link ByteOrderParser} from a byte copy
+     * reused across lines. Malformed lines are skipped, counted under
+     * "ingestion.rejected" and journaled with their offset in the stream
+     * as if the lines were joined by "\n"; orders whose ID was seen
+     * recently are dropped and counted under "ingestion.duplicates".
+     */
+    public Flow.Publisher<TradeResult> ingest(Flow.Publisher<String> source, int batchSize) {
+        return subscriber -> {
+            ByteOrderParser byteParser = new ByteOrderParser(symbols);
+            OrderRecord record = new OrderRecord();
+            RejectResult result = new RejectResult();
+            byte[][] bytes = {new byte[64]};
+            long[] streamOffset = {0}; // characters before the current line
+            source.subscribe(new FlowIngestion<String>((line, out) -> {
+                int length = line.length();
+                if (length > bytes[0].length) {
+                    bytes[0] = new byte[Math.max(length, bytes[0].length * 2)];
+                }
+                byte[] data = bytes[0];
+                for (int i = 0; i < length; i++) {
+                    char c = line.charAt(i);
+                    // Anything outside ASCII cannot be part of a valid line
+                    data[i] = c < 0x80 ? (byte) c : (byte) '?';
+                }
+                if (byteParser.tryParse(data, 0, length, record, result)) {
+                    if (isFirstSeen(record.getOrderId())) {
+                        out.add(record.toOrder(symbols));
+                    }
+                } else {
+                    result.reject(result.getField(), result.getReason(), streamOffset[0]);
+                    rejectJournal.record(result);
+                    MetricsCollector.getInstance().increment("ingestion.rejected");
+                }
+                streamOffset[0] += length + 1;
+            }, matchingEngine, persistenceService, subscriber, batchSize));
+        };
+    }
+    
+    /**
+     * Ingest CSV bytes from a reactive source. Each buffer holds one or more
+     * complete lines between its position and limit; buffers are read but
+     * not modified. Batching and backpressure work as in {@link #ingest}.
+     */
+    public Flow.Publisher<TradeResult> ingestBuffers(Flow.Publisher<ByteBuffer> source, int batchSize) {
+        return subscriber -> {
+            ByteOrderParser byteParser = new ByteOrderParser(symbols);
+            OrderRecord record = new OrderRecord();
+            RejectResult result = new RejectResult();
+            long[] streamOffset = {0}; // bytes consumed before the current buffer
+            source.subscribe(new FlowIngestion<ByteBuffer>((buf, out) -> {
+                int base = buf.position();
+                int limit = buf.limit();
+                for (int pos = base; pos < limit; ) {
+                    int next = ByteOrderParser.nextLine(buf, pos, limit);
+                    byte first = buf.get(pos);
+                    if (first != '\n' && first != '\r') {
+                        if (byteParser.tryParse(buf, pos, next, record, result)) {
+                            if (isFirstSeen(record.getOrderId())) {
+                                out.add(record.toOrder(symbols));
+                            }
+                        } else {
+                            result.reject(result.getField(), result.getReason(), streamOffset[0] + pos - base);
+                            rejectJournal.record(result);
+                            MetricsCollector.getInstance().increment("ingestion.rejected");
+                        }
+                    }
+                    pos = next;
+                }
+                streamOffset[0] += limit - base;
+            }, matchingEngine, persistenceService, subscriber, batchSize));
+        };
+    }
+    
+    /**
+     * Remove orders whose ID is still in the duplicate window, recording
+     * the rest. Must be called in source order.
+     * 
+     * @return number of orders removed
+     */
+    private int dropDuplicates(OrderBatch batch) {
+        int removed;
+        synchronized (deduplicator) {
+            // One clock read for the batch, for windows with a time limit
+            long now = System.nanoTime();
+            removed = batch.retainIf(orderId -> deduplicator.firstSeen(orderId, now));
+        }
+        if (removed > 0) {
+            MetricsCollector.getInstance().incrementBy("ingestion.duplicates", removed);
+        }
+        return removed;
+    }
+    
+    private boolean isFirstSeen(long orderId) {
+        boolean first;
+        synchronized (deduplicator) {
+            first = deduplicator.firstSeen(orderId);
+        }
+        if (!first) {
+            MetricsCollector.getInstance().increment("ingestion.duplicates");
+        }
+        return first;
+    }
+    
+    private static boolean isCompressed(String filePath) {
+        Path path = Path.of(filePath);
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+        try {
+            return BlockCompressedFormat.isBlockCompressed(path) || BlockCompressedFormat.isGzip(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Rejected lines seen by the byte-level ingestion paths.
+     */
+    public RejectJournal getRejectJournal() {
+        return rejectJournal;
+    }
+    
+    private static <T> T take(BlockingQueue<T> queue) {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for ingestion batch", e);
+        }
+    }
+    
+    private static <T> void put(BlockingQueue<T> queue, T item) {
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while handing off ingestion batch", e);
+        }
     }
     
     /**
@@ -0,0 +1,121 @@
+package com.orderflow.service;
+
+import com.orderflow.model.OrderBatch;
+import com.orderflow.model.OrderRecord;
+import java.util.Arrays;
+
+/**
+ * A reusable page of persisted orders, and the keyset position to read
+ * the next page from.
+ *
+ * Rows are columnar - an {@link OrderBatch} for the order fields plus
+ * created_at and filled quantity columns - and are overwritten by each
+ * fetch, so reading any number of orders through one page allocates
+ * nothing per row.
+ *
+ * The position is the (created_at, order_id) of the last row read.
+ * Orders of a symbol are read in that order, and a page continues
+ * strictly after the position, so paging stays correct while new orders
+ * are inserted and costs the same at the millionth row as at the first
+ * (no OFFSET). A client paging over requests can keep
+ * {@link #getLastCreatedAtNanos} and {@link #getLastOrderId} as its
+ * continuation token and {@link #seek} to them later.
+ *
+ * Not thread-safe.
+ */
+public final class OrderPage {
+
+    private final int capacity;
+    private final OrderBatch orders;
+    private final OrderRecord record = new OrderRecord();
+    private long[] createdAtNanos;
+    private int[] filledQuantities;
+
+    private long lastCreatedAtNanos;
+    private long lastOrderId;
+    private boolean started;
+    private boolean hasMore = true;
+
+    /**
+     * @param capacity rows per page, also the JDBC fetch size
+     */
+    public OrderPage(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.orders = new OrderBatch(capacity);
+        this.createdAtNanos = new long[capacity];
+        this.filledQuantities = new int[capacity];
+    }
+
+    public int capacity() { return capacity; }
+
+    public int size() { return orders.size(); }
+
+    /** Order fields of this page's rows. */
+    public OrderBatch getOrders() { return orders; }
+
+    public OrderRecord get(int index, OrderRecord out) { return orders.get(index, out); }
+
+    public long getCreatedAtNanos(int index) { return createdAtNanos[index]; }
+
+    public int getFilledQuantity(int index) { return filledQuantities[index]; }
+
+    /**
+     * False once a fetch returned fewer rows than the capacity: the end of
+     * the orders as of that fetch.
+     */
+    public boolean hasMore() { return hasMore; }
+
+    public long getLastCreatedAtNanos() { return lastCreatedAtNanos; }
+
+    public long getLastOrderId() { return lastOrderId; }
+
+    /**
+     * Continue after (createdAtNanos, orderId) on the next fetch.
+     */
+    public void seek(long createdAtNanos, long orderId) {
+        orders.clear();
+        lastCreatedAtNanos = createdAtNanos;
+        lastOrderId = orderId;
+        started = true;
+        hasMore = true;
+    }
+
+    /**
+     * Start again from the first order on the next fetch.
+     */
+    public void rewind() {
+        orders.clear();
+        started = false;
+        hasMore = true;
+    }
+
+    /** Whether the next fetch continues after a position rather than from the start. */
+    boolean isStarted() { return started; }
+
+    void clear() {
+        orders.clear();
+    }
+
+    void add(OrderRecord order, long createdAtNanos, int filledQuantity) {
+        int i = orders.size();
+        orders.add(order);
+        if (i == this.createdAtNanos.length) {
+            this.createdAtNanos = Arrays.copyOf(this.createdAtNanos, i * 2);
+            filledQuantities = Arrays.copyOf(filledQuantities, i * 2);
+        }
+        this.createdAtNanos[i] = createdAtNanos;
+        filledQuantities[i] = filledQuantity;
+        lastCreatedAtNanos = createdAtNanos;
+        lastOrderId = order.getOrderId();
+        started = true;
+    }
+
+    void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    OrderRecord record() { return record; }
+}
@@ -0,0 +1,650 @@
+package com.orderflow.service;
+
+import com.orderflow.io.OrderArchiveSegment;
+import com.orderflow.model.Order;
+import com.orderflow.model.OrderRecord;
+import com.orderflow.model.OrderState;
+import com.orderflow.util.MetricsCollector;
+import com.orderflow.util.SymbolTable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Order lifecycle store that keeps open orders in memory and moves
+ * terminal ones - filled or cancelled - out to disk once they are older
+ * than {@code tierAfterNanos}.
+ *
+ * Live orders sit in primitive slot columns indexed by an open-addressing
+ * long-to-slot table, so an order costs about 60 bytes and no objects.
+ * Terminal orders are also queued in the order they closed. {@link #tier}
+ * takes those that closed before {@code now - tierAfterNanos}, groups
+ * them by closing-time partition ({@code partitionNanos} wide), writes
+ * one {@link OrderArchiveSegment} per partition and frees their slots.
+ * The heap therefore holds open orders, terminal orders younger than the
+ * threshold, and the segments' sparse indexes (24 bytes per block of
+ * {@link OrderArchiveSegment#DEFAULT_ROWS_PER_BLOCK} orders). Slot
+ * columns grow by doubling; when a pass leaves fewer than a quarter of
+ * the slots live, the columns, id table and terminal ring are compacted
+ * to about twice the live count, so a burst does not pin its peak
+ * footprint.
+ *
+ * {@link #lookup} answers from the live table first and then from the
+ * segments, newest first, skipping those whose order-id range cannot
+ * hold the id. An archived order costs one block read and inflate, fewer
+ * when consecutive lookups fall in the same block. Whole partitions are
+ * retired with {@link #dropPartitionsBefore}.
+ *
+ * Events are expected in time order: an order that closes with an older
+ * timestamp than one already queued waits behind it to be tiered.
+ *
+ * Metrics:
+ *   archive.tiered           orders moved to segments (counter)
+ *   archive.tier             time per tier pass (timer)
+ *   archive.compactions      slot column compactions (counter)
+ *   archive.segments         segments on disk (gauge)
+ *   archive.lookups.live     lookups answered from memory (counter)
+ *   archive.lookups.archived lookups answered from segments (counter)
+ *
+ * PERF-LAB: Lab F - PersistenceBenchmark.archive*
+ *
+ * Thread-safe. Event methods and the live part of a lookup synchronize
+ * on this; segment reads and writes happen outside that lock, so a tier
+ * pass or an archived lookup does not stall order events.
+ */
+public class OrderTiering implements AutoCloseable {
+
+    public static final long DEFAULT_TIER_AFTER_NANOS = 60_000_000_000L;    // 1 minute
+    public static final long DEFAULT_PARTITION_NANOS = 3_600_000_000_000L;  // 1 hour
+
+    private static final Order.Side[] SIDES = Order.Side.values();
+    private static final Order.Status[] STATUSES = Order.Status.values();
+    private static final byte PARTIALLY_FILLED = (byte) Order.Status.PARTIALLY_FILLED.ordinal();
+    private static final byte FILLED = (byte) Order.Status.FILLED.ordinal();
+    private static final byte CANCELLED = (byte) Order.Status.CANCELLED.ordinal();
+    private static final byte NEW = (byte) Order.Status.NEW.ordinal();
+
+    private static final long EMPTY = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Path directory;
+    private final SymbolTable symbols;
+    private final long tierAfterNanos;
+    private final long partitionNanos;
+    private final int rowsPerBlock;
+
+    // Live orders, guarded by this. Slots are reused through the free stack.
+    private long[] orderIds = new long[INITIAL_CAPACITY];
+    private long[] priceTicks = new long[INITIAL_CAPACITY];
+    private long[] createdAt = new long[INITIAL_CAPACITY];
+    private long[] closedAt = new long[INITIAL_CAPACITY];
+    private int[] symbolIds = new int[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private int[] filled = new int[INITIAL_CAPACITY];
+    private byte[] sides = new byte[INITIAL_CAPACITY];
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeCount;
+    private int slotsUsed;
+    private int liveCount;
+    private int openCount;
+
+    // order id -> slot, linear probing with backward-shift deletion
+    private long[] indexKeys;
+    private int[] indexSlots;
+    private int indexMask;
+
+    // Terminal slots in closing order, a ring
+    private int[] terminal = new int[INITIAL_CAPACITY];
+    private int terminalHead;
+    private int terminalCount;
+
+    // Newest last; replaced, never modified, so lookups read it unlocked
+    private volatile OrderArchiveSegment[] segments;
+    private long nextSegmentSequence;
+    private long archivedCount;
+
+    private final Object tierLock = new Object();
+    private final OrderArchiveSegment.Lookup lookup = new OrderArchiveSegment.Lookup();
+    private final OrderState scratch = new OrderState();
+    private boolean closed;
+
+    public OrderTiering(Path directory, SymbolTable symbols) {
+        this(directory, symbols, DEFAULT_TIER_AFTER_NANOS, DEFAULT_PARTITION_NANOS);
+    }
+
+    /**
+     * Open the store, loading segments already in {@code directory} and
+     * deleting temporary files left by an interrupted tier pass.
+     *
+     * @param symbols table to resolve symbol ids; archived symbols are
+     *                interned into it
+     * @param tierAfterNanos how long a terminal order stays in memory
+     * @param partitionNanos width of a segment's closing-time partition
+     */
+    public OrderTiering(Path directory, SymbolTable symbols, long tierAfterNanos, long partitionNanos) {
+        if (tierAfterNanos < 0 || partitionNanos <= 0) {
+            throw new IllegalArgumentException("tierAfterNanos must not be negative and partitionNanos must be "
+                + "positive: " + tierAfterNanos + ", " + partitionNanos);
+        }
+        this.directory = directory;
+        this.symbols = symbols;
+        this.tierAfterNanos = tierAfterNanos;
+        this.partitionNanos = partitionNanos;
+        this.rowsPerBlock = OrderArchiveSegment.DEFAULT_ROWS_PER_BLOCK;
+        this.indexKeys = new long[INITIAL_CAPACITY * 2];
+        this.indexSlots = new int[INITIAL_CAPACITY * 2];
+        this.indexMask = indexKeys.length - 1;
+        Arrays.fill(indexKeys, EMPTY);
+        this.segments = loadSegments();
+        MetricsCollector.getInstance().setGauge("archive.segments", segments.length);
+    }
+
+    /**
+     * Record a new open order.
+     *
+     * @throws IllegalStateException if the id is already live
+     */
+    public synchronized void onNew(OrderRecord order, long createdAtNanos) {
+        checkOpen();
+        long id = order.getOrderId();
+        if (id < 0) {
+            throw new IllegalArgumentException("Order id must not be negative: " + id);
+        }
+        if (find(id) >= 0) {
+            throw new IllegalStateException("Order " + id + " is already live");
+        }
+        int slot = allocateSlot();
+        orderIds[slot] = id;
+        priceTicks[slot] = order.getPriceTicks();
+        createdAt[slot] = createdAtNanos;
+        closedAt[slot] = 0;
+        symbolIds[slot] = order.getSymbolId();
+        quantities[slot] = order.getQuantity();
+        filled[slot] = 0;
+        sides[slot] = (byte) order.getSide().ordinal();
+        statuses[slot] = NEW;
+        insert(id, slot);
+        liveCount++;
+        openCount++;
+    }
+
+    /**
+     * Record a fill of {@code quantity}; the order becomes FILLED, and
+     * terminal, once its whole quantity is filled.
+     *
+     * @throws IllegalStateException if the order is not live and open
+     */
+    public synchronized void onFill(long orderId, int quantity, long nowNanos) {
+        int slot = openSlot(orderId);
+        if (quantity <= 0 || quantity > quantities[slot] - filled[slot]) {
+            throw new IllegalArgumentException("Fill of " + quantity + " exceeds the remaining "
+                + (quantities[slot] - filled[slot]) + " of order " + orderId);
+        }
+        filled[slot] += quantity;
+        if (filled[slot] == quantities[slot]) {
+            close(slot, FILLED, nowNanos);
+        } else {
+            statuses[slot] = PARTIALLY_FILLED;
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if the order is not live and open
+     */
+    public synchronized void onCancel(long orderId, long nowNanos) {
+        close(openSlot(orderId), CANCELLED, nowNanos);
+    }
+
+    /**
+     * Look up an order, live or archived.
+     *
+     * @return true, with {@code out} filled, if the order is known
+     */
+    public boolean lookup(long orderId, OrderState out) {
+        if (lookupLive(orderId, out)) {
+            return true;
+        }
+        synchronized (lookup) {
+            return lookupArchived(orderId, out, lookup);
+        }
+    }
+
+    /**
+     * {@link #lookup} with the caller's own block cache, so lookups on
+     * several threads run in parallel.
+     */
+    public boolean lookup(long orderId, OrderState out, OrderArchiveSegment.Lookup own) {
+        return lookupLive(orderId, out) || lookupArchived(orderId, out, own);
+    }
+
+    /**
+     * Move terminal orders that closed at or before
+     * {@code nowNanos - tierAfterNanos} to segments.
+     *
+     * The orders stay visible in memory until their segments are on disk
+     * and registered. If a write fails they stay live and are retried by
+     * the next pass.
+     *
+     * @return orders moved
+     * @throws UncheckedIOException if a segment cannot be written
+     */
+    public long tier(long nowNanos) {
+        synchronized (tierLock) {
+            long start = System.nanoTime();
+            long cutoff = nowNanos - tierAfterNanos;
+            int[] taken;
+            Map<Long, OrderArchiveSegment.Rows> partitions = new TreeMap<>();
+            synchronized (this) {
+                checkOpen();
+                int n = 0;
+                while (n < terminalCount && closedAt[terminal[(terminalHead + n) & (terminal.length - 1)]] <= cutoff) {
+                    n++;
+                }
+                taken = new int[n];
+                for (int i = 0; i < n; i++) {
+                    int slot = terminal[(terminalHead + i) & (terminal.length - 1)];
+                    taken[i] = slot;
+                    read(slot, scratch);
+                    long partition = closedAt[slot] - Math.floorMod(closedAt[slot], partitionNanos);
+                    partitions.computeIfAbsent(partition, p -> new OrderArchiveSegment.Rows()).add(scratch);
+                }
+            }
+            if (taken.length == 0) {
+                return 0;
+            }
+
+            // Terminal orders never change, so the rows are safe to write unlocked
+            List<OrderArchiveSegment> written = new ArrayList<>(partitions.size());
+            try {
+                for (Map.Entry<Long, OrderArchiveSegment.Rows> e : partitions.entrySet()) {
+                    Path path = directory.resolve(String.format("orders-%020d-%06d%s",
+                        e.getKey(), nextSegmentSequence++, OrderArchiveSegment.EXTENSION));
+                    written.add(OrderArchiveSegment.write(path, e.getValue(), symbols, rowsPerBlock));
+                }
+            } catch (IOException | RuntimeException e) {
+                for (OrderArchiveSegment segment : written) {
+                    try {
+                        segment.close();
+                        Files.deleteIfExists(segment.getPath());
+                    } catch (IOException ignored) {
+                        // A stray complete segment only duplicates live rows
+                    }
+                }
+                throw e instanceof IOException ? new UncheckedIOException((IOException) e) : (RuntimeException) e;
+            }
+
+            synchronized (this) {
+                OrderArchiveSegment[] current = segments;
+                OrderArchiveSegment[] next = Arrays.copyOf(current, current.length + written.size());
+                for (int i = 0; i < written.size(); i++) {
+                    next[current.length + i] = written.get(i);
+                }
+                segments = next;
+                // Nothing but tier removes from the ring, so its head still holds `taken`
+                terminalHead = (terminalHead + taken.length) & (terminal.length - 1);
+                terminalCount -= taken.length;
+                for (int slot : taken) {
+                    remove(orderIds[slot]);
+                    freeSlots[freeCount++] = slot;
+                    liveCount--;
+                }
+                archivedCount += taken.length;
+                // Slot numbers change here; only tier holds them across the lock
+                if (slotsUsed > INITIAL_CAPACITY && liveCount < slotsUsed / 4) {
+                    compact();
+                    MetricsCollector.getInstance().increment("archive.compactions");
+                }
+            }
+            MetricsCollector metrics = MetricsCollector.getInstance();
+            metrics.incrementBy("archive.tiered", taken.length);
+            metrics.recordTime("archive.tier", System.nanoTime() - start);
+            metrics.setGauge("archive.segments", segments.length);
+            return taken.length;
+        }
+    }
+
+    /**
+     * Delete the segments whose orders all closed before {@code nanos}.
+     * A lookup reading one of them concurrently may fail with an
+     * UncheckedIOException.
+     *
+     * @return segments deleted
+     */
+    public int dropPartitionsBefore(long nanos) {
+        synchronized (tierLock) {
+            List<OrderArchiveSegment> dropped = new ArrayList<>();
+            synchronized (this) {
+                checkOpen();
+                List<OrderArchiveSegment> kept = new ArrayList<>();
+                for (OrderArchiveSegment segment : segments) {
+                    (segment.getMaxClosedAtNanos() < nanos ? dropped : kept).add(segment);
+                }
+                segments = kept.toArray(new OrderArchiveSegment[0]);
+                for (OrderArchiveSegment segment : dropped) {
+                    archivedCount -= segment.rowCount();
+                }
+            }
+            synchronized (lookup) {
+                lookup.invalidate();
+            }
+            try {
+                for (OrderArchiveSegment segment : dropped) {
+                    segment.close();
+                    Files.deleteIfExists(segment.getPath());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            MetricsCollector.getInstance().setGauge("archive.segments", segments.length);
+            return dropped.size();
+        }
+    }
+
+    /** Orders held in memory, open and terminal. */
+    public synchronized int liveCount() { return liveCount; }
+
+    /** Orders not yet filled or cancelled. */
+    public synchronized int openCount() { return openCount; }
+
+    /** Terminal orders waiting to be tiered. */
+    public synchronized int terminalCount() { return terminalCount; }
+
+    /** Orders in segments. */
+    public synchronized long archivedCount() { return archivedCount; }
+
+    public int segmentCount() { return segments.length; }
+
+    /**
+     * Close the segments and the shared lookup. Terminal orders not yet
+     * tiered are not written; call {@link #tier} first to keep them.
+     * Lookups passed in by callers are theirs to close.
+     */
+    @Override
+    public void close() {
+        synchronized (tierLock) {
+            OrderArchiveSegment[] current;
+            synchronized (this) {
+                if (closed) return;
+                closed = true;
+                current = segments;
+                segments = new OrderArchiveSegment[0];
+            }
+            for (OrderArchiveSegment segment : current) {
+                try {
+                    segment.close();
+                } catch (IOException e) {
+                    // Read-only; nothing to lose
+                }
+            }
+            synchronized (lookup) {
+                lookup.close();
+            }
+        }
+    }
+
+    private synchronized boolean lookupLive(long orderId, OrderState out) {
+        checkOpen();
+        int slot = find(orderId);
+        if (slot < 0) {
+            return false;
+        }
+        read(slot, out);
+        MetricsCollector.getInstance().increment("archive.lookups.live");
+        return true;
+    }
+
+    private boolean lookupArchived(long orderId, OrderState out, OrderArchiveSegment.Lookup own) {
+        OrderArchiveSegment[] current = segments;
+        try {
+            for (int i = current.length - 1; i >= 0; i--) {
+                OrderArchiveSegment segment = current[i];
+                if (orderId >= segment.getMinOrderId() && orderId <= segment.getMaxOrderId()
+                        && segment.find(orderId, out, own)) {
+                    MetricsCollector.getInstance().increment("archive.lookups.archived");
+                    return true;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return false;
+    }
+
+    private OrderArchiveSegment[] loadSegments() {
+        List<OrderArchiveSegment> loaded = new ArrayList<>();
+        try {
+            Files.createDirectories(directory);
+            List<Path> paths = new ArrayList<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "orders-*")) {
+                for (Path path : files) {
+                    String name = path.getFileName().toString();
+                    if (name.endsWith(OrderArchiveSegment.EXTENSION + ".tmp")) {
+                        Files.delete(path);
+                    } else if (name.endsWith(OrderArchiveSegment.EXTENSION)) {
+                        paths.add(path);
+                    }
+                }
+            }
+            // Load in sequence order, so newest is last as tier() keeps it
+            paths.sort((a, b) -> Long.compare(sequenceOf(a), sequenceOf(b)));
+            for (Path path : paths) {
+                loaded.add(OrderArchiveSegment.open(path, symbols));
+                nextSegmentSequence = Math.max(nextSegmentSequence, sequenceOf(path) + 1);
+                archivedCount += loaded.get(loaded.size() - 1).rowCount();
+            }
+        } catch (IOException e) {
+            for (OrderArchiveSegment segment : loaded) {
+                try {
+                    segment.close();
+                } catch (IOException ignored) {
+                    // Already failing
+                }
+            }
+            throw new UncheckedIOException(e);
+        }
+        return loaded.toArray(new OrderArchiveSegment[0]);
+    }
+
+    /** The sequence in "orders-&lt;partition&gt;-&lt;sequence&gt;.ofa". */
+    private static long sequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        int end = name.length() - OrderArchiveSegment.EXTENSION.length();
+        return Long.parseLong(name.substring(name.lastIndexOf('-', end) + 1, end));
+    }
+
+    private int openSlot(long orderId) {
+        checkOpen();
+        int slot = find(orderId);
+        if (slot < 0) {
+            throw new IllegalStateException("Order " + orderId + " is not live");
+        }
+        if (statuses[slot] == FILLED || statuses[slot] == CANCELLED) {
+            throw new IllegalStateException("Order " + orderId + " is already " + STATUSES[statuses[slot]]);
+        }
+        return slot;
+    }
+
+    private void close(int slot, byte status, long nowNanos) {
+        statuses[slot] = status;
+        closedAt[slot] = nowNanos;
+        openCount--;
+        if (terminalCount == terminal.length) {
+            // Unroll the ring into a larger one
+            int[] grown = new int[terminal.length * 2];
+            for (int i = 0; i < terminalCount; i++) {
+                grown[i] = terminal[(terminalHead + i) & (terminal.length - 1)];
+            }
+            terminal = grown;
+            terminalHead = 0;
+        }
+        terminal[(terminalHead + terminalCount++) & (terminal.length - 1)] = slot;
+    }
+
+    private void read(int slot, OrderState out) {
+        out.set(orderIds[slot], symbolIds[slot], SIDES[sides[slot]], priceTicks[slot], quantities[slot],
+            filled[slot], STATUSES[statuses[slot]], createdAt[slot], closedAt[slot]);
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slotsUsed == orderIds.length) {
+            int capacity = slotsUsed * 2;
+            orderIds = Arrays.copyOf(orderIds, capacity);
+            priceTicks = Arrays.copyOf(priceTicks, capacity);
+            createdAt = Arrays.copyOf(createdAt, capacity);
+            closedAt = Arrays.copyOf(closedAt, capacity);
+            symbolIds = Arrays.copyOf(symbolIds, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            filled = Arrays.copyOf(filled, capacity);
+            sides = Arrays.copyOf(sides, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            freeSlots = Arrays.copyOf(freeSlots, capacity);
+        }
+        return slotsUsed++;
+    }
+
+    /**
+     * Move live slots to the front, keeping their order, and shrink the
+     * columns, id table and terminal ring to fit them.
+     */
+    private void compact() {
+        int[] moved = new int[slotsUsed];
+        for (int i = 0; i < freeCount; i++) {
+            moved[freeSlots[i]] = -1;
+        }
+        int capacity = Math.max(INITIAL_CAPACITY, liveCount * 2);
+        long[] newOrderIds = new long[capacity];
+        long[] newPriceTicks = new long[capacity];
+        long[] newCreatedAt = new long[capacity];
+        long[] newClosedAt = new long[capacity];
+        int[] newSymbolIds = new int[capacity];
+        int[] newQuantities = new int[capacity];
+        int[] newFilled = new int[capacity];
+        byte[] newSides = new byte[capacity];
+        byte[] newStatuses = new byte[capacity];
+        int next = 0;
+        for (int slot = 0; slot < slotsUsed; slot++) {
+            if (moved[slot] < 0) continue;
+            newOrderIds[next] = orderIds[slot];
+            newPriceTicks[next] = priceTicks[slot];
+            newCreatedAt[next] = createdAt[slot];
+            newClosedAt[next] = closedAt[slot];
+            newSymbolIds[next] = symbolIds[slot];
+            newQuantities[next] = quantities[slot];
+            newFilled[next] = filled[slot];
+            newSides[next] = sides[slot];
+            newStatuses[next] = statuses[slot];
+            moved[slot] = next++;
+        }
+        orderIds = newOrderIds;
+        priceTicks = newPriceTicks;
+        createdAt = newCreatedAt;
+        closedAt = newClosedAt;
+        symbolIds = newSymbolIds;
+        quantities = newQuantities;
+        filled = newFilled;
+        sides = newSides;
+        statuses = newStatuses;
+        freeSlots = new int[capacity];
+        freeCount = 0;
+        slotsUsed = next;
+
+        for (int i = 0; i < indexKeys.length; i++) {
+            if (indexKeys[i] != EMPTY) {
+                indexSlots[i] = moved[indexSlots[i]];
+            }
+        }
+        rehash(Math.max(INITIAL_CAPACITY * 2, Integer.highestOneBit(Math.max(1, liveCount * 2 - 1)) << 1));
+
+        int[] ring = new int[Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, terminalCount)) << 1)];
+        for (int i = 0; i < terminalCount; i++) {
+            ring[i] = moved[terminal[(terminalHead + i) & (terminal.length - 1)]];
+        }
+        terminal = ring;
+        terminalHead = 0;
+    }
+
+    private int find(long id) {
+        for (int i = (int) mix(id) & indexMask; ; i = (i + 1) & indexMask) {
+            long key = indexKeys[i];
+            if (key == id) return indexSlots[i];
+            if (key == EMPTY) return -1;
+        }
+    }
+
+    private void insert(long id, int slot) {
+        if ((liveCount + 1) * 2 > indexKeys.length) {
+            rehash(indexKeys.length * 2);
+        }
+        int i = (int) mix(id) & indexMask;
+        while (indexKeys[i] != EMPTY) {
+            i = (i + 1) & indexMask;
+        }
+        indexKeys[i] = id;
+        indexSlots[i] = slot;
+    }
+
+    /**
+     * Backward-shift deletion: pull later entries of the probe run into
+     * the hole, so lookups need no tombstones and the table never fills
+     * up with them under constant insert and remove.
+     */
+    private void remove(long id) {
+        int hole = (int) mix(id) & indexMask;
+        while (indexKeys[hole] != id) {
+            hole = (hole + 1) & indexMask;
+        }
+        for (int i = (hole + 1) & indexMask; indexKeys[i] != EMPTY; i = (i + 1) & indexMask) {
+            int home = (int) mix(indexKeys[i]) & indexMask;
+            // Move the entry if its home is not cyclically within (hole, i]
+            if (((i - home) & indexMask) >= ((i - hole) & indexMask)) {
+                indexKeys[hole] = indexKeys[i];
+                indexSlots[hole] = indexSlots[i];
+                hole = i;
+            }
+        }
+        indexKeys[hole] = EMPTY;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = indexKeys;
+        int[] oldSlots = indexSlots;
+        indexKeys = new long[capacity];
+        indexSlots = new int[capacity];
+        indexMask = capacity - 1;
+        Arrays.fill(indexKeys, EMPTY);
+        for (int j = 0; j < oldKeys.length; j++) {
+            long key = oldKeys[j];
+            if (key == EMPTY) continue;
+            int i = (int) mix(key) & indexMask;
+            while (indexKeys[i] != EMPTY) {
+                i = (i + 1) & indexMask;
+            }
+            indexKeys[i] = key;
+            indexSlots[i] = oldSlots[j];
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Order tiering is closed");
+        }
+    }
+
+    // Stafford variant 13 of the MurmurHash3 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
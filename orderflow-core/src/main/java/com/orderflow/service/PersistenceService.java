@@ -1,12 +1,21 @@
 package com.orderflow.service;
 
+import com.orderflow.io.WriteAheadLog;
 import com.orderflow.model.Order;
+import com.orderflow.model.OrderRecord;
 import com.orderflow.model.TradeResult;
+import com.orderflow.util.MetricsCollector;
+import com.orderflow.util.OrderIds;
+import com.orderflow.util.SymbolTable;
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Service for persisting orders and trades to database.
@@ -33,26 +42,214 @@ import java.util.List;
  *   - What's the overhead of connection per write?
  *   - How does batch size affect throughput?
  *   - What's the optimal commit frequency?
+ * 
+ * For sustained write rates, {@link #openWriteBehind} returns a
+ * {@link WriteBehindWriter}: rows are queued in memory and written by
+ * one thread over one connection, with JDBC batches and a commit per
+ * group of rows rather than per row.
+ * 
+ * Constructed with a pool size, the service keeps a {@link ConnectionPool}
+ * of open connections with cached prepared statements instead of opening
+ * a connection per call.
+ * 
+ * Historical loads go through {@link #openBulkLoader}: secondary indexes
+ * dropped for the load, batched MERGEs in large transactions, indexes
+ * rebuilt at the end.
+ * 
+ * A {@link WriteAheadLog} can take the durability role instead, with a
+ * {@link WalCompactor} from {@link #openWalCompactor} copying it into the
+ * tables off the hot path.
+ * 
+ * Orders of a symbol are read a page at a time into a reusable
+ * {@link OrderPage}, either page by page with keyset pagination
+ * ({@link #findOrdersBySymbol(String, SymbolTable, OrderPage)}) or as one
+ * forward-only cursor ({@link #scanOrdersBySymbol}); memory stays at one
+ * page whatever the number of orders.
  */
-public class PersistenceService {
+public class PersistenceService implements AutoCloseable {
+    
+    // Prices are stored as DECIMAL with OrderRecord.PRICE_SCALE places;
+    // times as epoch nanoseconds
+    static final String CREATE_ORDERS =
+        "CREATE TABLE IF NOT EXISTS orders ("
+            + "order_id VARCHAR(16) PRIMARY KEY, "
+            + "symbol VARCHAR(16) NOT NULL, "
+            + "side VARCHAR(4) NOT NULL, "
+            + "price DECIMAL(18, 2) NOT NULL, "
+            + "quantity INT NOT NULL, "
+            + "filled_quantity INT DEFAULT 0 NOT NULL, "
+            + "status VARCHAR(16) DEFAULT 'NEW' NOT NULL, "
+            + "created_at BIGINT NOT NULL)";
+    
+    static final String CREATE_TRADES =
+        "CREATE TABLE IF NOT EXISTS trades ("
+            + "trade_id BIGINT PRIMARY KEY, "
+            + "buy_order_id VARCHAR(16) NOT NULL, "
+            + "sell_order_id VARCHAR(16) NOT NULL, "
+            + "symbol VARCHAR(16) NOT NULL, "
+            + "price DECIMAL(18, 2) NOT NULL, "
+            + "quantity INT NOT NULL, "
+            + "executed_at BIGINT NOT NULL)";
+    
+    static final String INSERT_ORDER =
+        "INSERT INTO orders (order_id, symbol, side, price, quantity, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+    
+    static final String INSERT_TRADE =
+        "INSERT INTO trades (trade_id, buy_order_id, sell_order_id, symbol, price, quantity, executed_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    
+    /**
+     * Indexes beyond the primary keys, as {name, CREATE statement}. The
+     * orders index matches the keyset order of orders by symbol, so a
+     * page is one index range read in order with no sort.
+     */
+    static final String[][] SECONDARY_INDEXES = {
+        {"idx_orders_symbol",
+            "CREATE INDEX IF NOT EXISTS idx_orders_symbol ON orders (symbol, created_at, order_id)"},
+        {"idx_trades_symbol", "CREATE INDEX IF NOT EXISTS idx_trades_symbol ON trades (symbol)"},
+    };
+    
+    // Orders of one symbol in keyset order: (symbol, created_at, order_id)
+    static final String SELECT_ORDERS_BY_SYMBOL =
+        "SELECT order_id, side, price, quantity, filled_quantity, created_at FROM orders "
+            + "WHERE symbol = ? ORDER BY symbol, created_at, order_id";
+    
+    static final String SELECT_ORDERS_BY_SYMBOL_AFTER =
+        "SELECT order_id, side, price, quantity, filled_quantity, created_at FROM orders "
+            + "WHERE symbol = ? AND (created_at, order_id) > (?, ?) ORDER BY symbol, created_at, order_id";
+    
+    static final String PAGE_LIMIT = " FETCH FIRST ? ROWS ONLY";
+    
+    // Last write-ahead log sequence copied into the tables (see WalCompactor)
+    static final String CREATE_WAL_CHECKPOINT =
+        "CREATE TABLE IF NOT EXISTS wal_checkpoint (id INT PRIMARY KEY, compacted_sequence BIGINT NOT NULL)";
+    
+    static final String SELECT_WAL_CHECKPOINT = "SELECT compacted_sequence FROM wal_checkpoint WHERE id = 1";
+    
+    static final String MERGE_WAL_CHECKPOINT = "MERGE INTO wal_checkpoint (id, compacted_sequence) KEY (id) VALUES (1, ?)";
+    
+    static final String COUNT_ORDERS = "SELECT COUNT(*) FROM orders";
     
     private final String jdbcUrl;
     private final String username;
     private final String password;
+    private final ConnectionPool pool;
     
     public PersistenceService(String jdbcUrl, String username, String password) {
         this.jdbcUrl = jdbcUrl;
         this.username = username;
         this.password = password;
+        this.pool = null;
     }
     
     /**
-     * Initialize the database schema.
+     * A service drawing connections from a pool of {@code poolSize},
+     * opened now, with {@link ConnectionPool#DEFAULT_CHECKOUT_TIMEOUT_MILLIS}.
+     */
+    public PersistenceService(String jdbcUrl, String username, String password, int poolSize) {
+        this(jdbcUrl, username, password, poolSize, ConnectionPool.DEFAULT_CHECKOUT_TIMEOUT_MILLIS);
+    }
+    
+    /**
+     * @param checkoutTimeoutMillis longest a call waits for a free pooled connection
+     */
+    public PersistenceService(String jdbcUrl, String username, String password, int poolSize,
+                              long checkoutTimeoutMillis) {
+        this.jdbcUrl = jdbcUrl;
+        this.username = username;
+        this.password = password;
+        this.pool = new ConnectionPool(jdbcUrl, username, password, poolSize, checkoutTimeoutMillis);
+    }
+    
+    /**
+     * Create the orders and trades tables and their secondary indexes, if
+     * they do not exist yet.
      */
     public void initializeSchema() {
-        // TODO: Create orders and trades tables
-        // Use H2 in-memory or file database
-        throw new UnsupportedOperationException("Implement schema initialization");
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(CREATE_ORDERS);
+            stmt.execute(CREATE_TRADES);
+            stmt.execute(CREATE_WAL_CHECKPOINT);
+            for (String[] index : SECONDARY_INDEXES) {
+                stmt.execute(index[1]);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Schema initialization failed", e);
+        }
+    }
+    
+    /**
+     * Start a write-behind writer over its own connection.
+     * 
+     * @param symbols resolves the symbol ids of queued rows
+     * @param capacity rows buffered before callers block
+     * @param maxGroupRows rows per commit group
+     * @param maxGroupDelayMillis longest a row waits for its group to fill
+     */
+    public WriteBehindWriter openWriteBehind(SymbolTable symbols, int capacity, int maxGroupRows,
+                                             long maxGroupDelayMillis) {
+        try {
+            return new WriteBehindWriter(getConnection(), symbols, capacity, maxGroupRows, maxGroupDelayMillis);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot open write-behind connection", e);
+        }
+    }
+    
+    /**
+     * Start a bulk load of orders over its own connection. Secondary
+     * indexes are dropped until the loader is finished or closed.
+     * 
+     * @param symbols resolves the symbol ids of loaded rows
+     * @param transactionRows rows per commit
+     */
+    public BulkOrderLoader openBulkLoader(SymbolTable symbols, int transactionRows) {
+        try {
+            return new BulkOrderLoader(getConnection(), symbols, BulkOrderLoader.DEFAULT_BATCH_ROWS, transactionRows);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot open bulk load connection", e);
+        }
+    }
+    
+    /**
+     * Start copying a write-ahead log into the orders and trades tables
+     * in the background, over its own connection.
+     * 
+     * @param symbols table to resolve the log's symbols into
+     * @param intervalMillis pause between compaction passes
+     */
+    public WalCompactor openWalCompactor(WriteAheadLog log, SymbolTable symbols, long intervalMillis) {
+        try {
+            return new WalCompactor(getConnection(), log, symbols, WalCompactor.DEFAULT_TRANSACTION_RECORDS,
+                intervalMillis);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot open write-ahead log compactor connection", e);
+        }
+    }
+    
+    /**
+     * Insert one order, auto-committed: through a pooled connection and its
+     * cached statement if the service has a pool, otherwise through a new
+     * connection.
+     */
+    public void saveOrder(OrderRecord order, String symbol, long createdAtNanos) {
+        if (pool == null) {
+            try (Connection conn = getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(INSERT_ORDER)) {
+                insertOrder(stmt, order, symbol, createdAtNanos);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Insert of order " + order.getOrderId() + " failed", e);
+            }
+            return;
+        }
+        try (ConnectionPool.Lease lease = pool.acquire()) {
+            try {
+                insertOrder(lease.statement(INSERT_ORDER), order, symbol, createdAtNanos);
+            } catch (SQLException e) {
+                lease.invalidate();
+                throw new IllegalStateException("Insert of order " + order.getOrderId() + " failed", e);
+            }
+        }
     }
     
     /**
@@ -126,17 +323,208 @@ public class PersistenceService {
      * Query orders by symbol.
      * 
      * PERF-HINT: Another connection per query!
+     * 
+     * Materializes every order of the symbol; see
+     * {@link #findOrdersBySymbol(String, SymbolTable, OrderPage)} and
+     * {@link #scanOrdersBySymbol} for reads in constant memory.
      */
     public List<Order> findOrdersBySymbol(String symbol) {
         // TODO: Implement
         throw new UnsupportedOperationException("Implement findOrdersBySymbol");
     }
     
+    /**
+     * Read the next page of a symbol's orders into {@code page}: up to its
+     * capacity, in (created_at, order_id) order, after the page's position
+     * - or from the first order if the page is new or rewound.
+     * 
+     * Each call is one short indexed query, so pages may be read far apart
+     * in time and across connections.
+     * 
+     * @param symbols interns {@code symbol} for the rows' symbol id
+     * @return false if there were no more orders
+     */
+    public boolean findOrdersBySymbol(String symbol, SymbolTable symbols, OrderPage page) {
+        String sql = (page.isStarted() ? SELECT_ORDERS_BY_SYMBOL_AFTER : SELECT_ORDERS_BY_SYMBOL) + PAGE_LIMIT;
+        int symbolId = symbols.intern(symbol);
+        if (pool == null) {
+            try (Connection conn = getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                return readPage(stmt, symbol, symbolId, page);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Query of orders for " + symbol + " failed", e);
+            }
+        }
+        try (ConnectionPool.Lease lease = pool.acquire()) {
+            try {
+                return readPage(lease.statement(sql), symbol, symbolId, page);
+            } catch (SQLException e) {
+                lease.invalidate();
+                throw new IllegalStateException("Query of orders for " + symbol + " failed", e);
+            }
+        }
+    }
+    
+    /**
+     * Stream all of a symbol's orders after the page's position through
+     * one forward-only, read-only cursor, fetched {@code page.capacity()}
+     * rows at a time. The page is refilled and passed to {@code pages}
+     * each time it is full, and once more with the remaining rows.
+     * 
+     * The query runs lazily, so the database produces rows as the cursor
+     * advances instead of buffering the result. A connection is held until
+     * the scan ends; for reads spread over time, page with
+     * {@link #findOrdersBySymbol(String, SymbolTable, OrderPage)} instead.
+     * 
+     * Metrics:
+     *   persistence.scan.rows    orders read by scans (counter)
+     * 
+     * @param pages called on the scanning thread; must not keep the page
+     * @return number of orders read
+     */
+    public long scanOrdersBySymbol(String symbol, SymbolTable symbols, OrderPage page, Consumer<OrderPage> pages) {
+        String sql = page.isStarted() ? SELECT_ORDERS_BY_SYMBOL_AFTER : SELECT_ORDERS_BY_SYMBOL;
+        int symbolId = symbols.intern(symbol);
+        long rows;
+        if (pool == null) {
+            try (Connection conn = getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                rows = scan(conn, stmt, symbol, symbolId, page, pages);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Scan of orders for " + symbol + " failed", e);
+            }
+        } else {
+            try (ConnectionPool.Lease lease = pool.acquire()) {
+                try {
+                    rows = scan(lease.connection(), lease.statement(sql), symbol, symbolId, page, pages);
+                } catch (SQLException e) {
+                    lease.invalidate();
+                    throw new IllegalStateException("Scan of orders for " + symbol + " failed", e);
+                }
+            }
+        }
+        MetricsCollector.getInstance().incrementBy("persistence.scan.rows", rows);
+        return rows;
+    }
+    
     /**
      * Count orders (for testing).
      */
     public int countOrders() {
-        // TODO: Implement
-        throw new UnsupportedOperationException("Implement countOrders");
+        if (pool == null) {
+            try (Connection conn = getConnection();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(COUNT_ORDERS)) {
+                rs.next();
+                return rs.getInt(1);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Order count failed", e);
+            }
+        }
+        try (ConnectionPool.Lease lease = pool.acquire()) {
+            try (ResultSet rs = lease.statement(COUNT_ORDERS).executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            } catch (SQLException e) {
+                lease.invalidate();
+                throw new IllegalStateException("Order count failed", e);
+            }
+        }
+    }
+    
+    /** The connection pool, or null if the service opens a connection per call. */
+    public ConnectionPool getPool() {
+        return pool;
+    }
+    
+    /**
+     * Close the pool's connections, if the service has a pool.
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+    
+    private Connection getConnection() throws SQLException {
+        return DriverManager.getConnection(jdbcUrl, username, password);
+    }
+    
+    private static boolean readPage(PreparedStatement stmt, String symbol, int symbolId, OrderPage page)
+            throws SQLException {
+        int limit = page.capacity();
+        int next = bindSymbolQuery(stmt, symbol, page);
+        stmt.setInt(next, limit);
+        page.clear();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                addRow(rs, symbolId, page);
+            }
+        }
+        page.setHasMore(page.size() == limit);
+        return page.size() > 0;
+    }
+    
+    private static long scan(Connection conn, PreparedStatement stmt, String symbol, int symbolId, OrderPage page,
+                             Consumer<OrderPage> pages) throws SQLException {
+        bindSymbolQuery(stmt, symbol, page);
+        stmt.setFetchSize(page.capacity());
+        page.clear();
+        long rows = 0;
+        try (Statement session = conn.createStatement()) {
+            session.execute("SET LAZY_QUERY_EXECUTION TRUE");
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    addRow(rs, symbolId, page);
+                    if (page.size() == page.capacity()) {
+                        rows += page.size();
+                        pages.accept(page);
+                        page.clear();
+                    }
+                }
+            } finally {
+                session.execute("SET LAZY_QUERY_EXECUTION FALSE");
+            }
+        }
+        rows += page.size();
+        page.setHasMore(false);
+        if (page.size() > 0) {
+            pages.accept(page);
+        }
+        return rows;
+    }
+    
+    /**
+     * Bind the symbol and, if the page has a position, the keyset bounds.
+     * 
+     * @return index of the next parameter
+     */
+    private static int bindSymbolQuery(PreparedStatement stmt, String symbol, OrderPage page) throws SQLException {
+        stmt.setString(1, symbol);
+        if (!page.isStarted()) {
+            return 2;
+        }
+        stmt.setLong(2, page.getLastCreatedAtNanos());
+        stmt.setString(3, OrderIds.format(page.getLastOrderId()));
+        return 4;
+    }
+    
+    private static void addRow(ResultSet rs, int symbolId, OrderPage page) throws SQLException {
+        OrderRecord record = page.record().set(OrderIds.parse(rs.getString(1)), symbolId,
+            "BUY".equals(rs.getString(2)) ? Order.Side.BUY : Order.Side.SELL,
+            OrderRecord.toTicks(rs.getBigDecimal(3)), rs.getInt(4));
+        page.add(record, rs.getLong(6), rs.getInt(5));
+    }
+    
+    private static void insertOrder(PreparedStatement stmt, OrderRecord order, String symbol, long createdAtNanos)
+            throws SQLException {
+        stmt.setString(1, OrderIds.format(order.getOrderId()));
+        stmt.setString(2, symbol);
+        stmt.setString(3, order.getSide() == Order.Side.BUY ? "BUY" : "SELL");
+        stmt.setBigDecimal(4, BigDecimal.valueOf(order.getPriceTicks(), OrderRecord.PRICE_SCALE));
+        stmt.setInt(5, order.getQuantity());
+        stmt.setLong(6, createdAtNanos);
+        stmt.executeUpdate();
     }
 }
@@ -0,0 +1,277 @@
+package com.orderflow.service;
+
+import com.orderflow.io.WriteAheadLog;
+import com.orderflow.model.Order;
+import com.orderflow.model.OrderRecord;
+import com.orderflow.util.MetricsCollector;
+import com.orderflow.util.OrderIds;
+import com.orderflow.util.SymbolTable;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Copies a {@link WriteAheadLog} into the orders and trades tables in the
+ * background, and deletes log segments once they are copied.
+ *
+ * Only durable records are copied, so the tables never hold anything the
+ * log could still lose. Each pass replays from the checkpoint - the last
+ * sequence copied, kept in the wal_checkpoint table - in transactions of
+ * up to {@code transactionRecords} records. Each transaction writes MERGE
+ * batches together with the new checkpoint, so the tables and the
+ * checkpoint move together. After a crash the copy resumes where the
+ * last commit left it. Replaying a record twice would only rewrite the
+ * same row.
+ *
+ * A failed pass is rolled back and counted, and the next pass retries
+ * from the same checkpoint; the log keeps everything until then.
+ *
+ * Metrics:
+ *   persistence.wal.compacted           records copied to the tables (counter)
+ *   persistence.wal.compaction          time per pass (timer)
+ *   persistence.wal.compactionFailures  passes rolled back (counter)
+ *
+ * PERF-LAB: Lab F - PersistenceBenchmark.wal*
+ *
+ * Thread-safe: passes run one at a time, on the compactor thread or on a
+ * caller of {@link #compact}.
+ */
+public class WalCompactor implements AutoCloseable {
+
+    public static final int DEFAULT_TRANSACTION_RECORDS = 32 * 1024;
+
+    static final String MERGE_TRADE =
+        "MERGE INTO trades (trade_id, buy_order_id, sell_order_id, symbol, price, quantity, executed_at) "
+            + "KEY (trade_id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int BATCH_ROWS = 1024;
+
+    private final Connection connection;
+    private final WriteAheadLog log;
+    private final SymbolTable symbols;
+    private final int transactionRecords;
+    private final PreparedStatement mergeOrder;
+    private final PreparedStatement mergeTrade;
+    private final PreparedStatement mergeCheckpoint;
+    private final Thread thread;
+
+    // Guarded by this
+    private long compactedSequence;
+    private int batchedOrders;
+    private int batchedTrades;
+    private long failures;
+    private boolean stopping;
+    private boolean closed;
+
+    /**
+     * Takes ownership of {@code connection} and starts the compactor
+     * thread.
+     *
+     * @param symbols table to resolve the log's symbols into
+     * @param intervalMillis pause between passes
+     */
+    WalCompactor(Connection connection, WriteAheadLog log, SymbolTable symbols, int transactionRecords,
+                 long intervalMillis) throws SQLException {
+        if (transactionRecords <= 0 || intervalMillis <= 0) {
+            throw new IllegalArgumentException("transactionRecords and intervalMillis must be positive: "
+                + transactionRecords + ", " + intervalMillis);
+        }
+        this.connection = connection;
+        this.log = log;
+        this.symbols = symbols;
+        this.transactionRecords = transactionRecords;
+        try {
+            connection.setAutoCommit(false);
+            try (PreparedStatement select = connection.prepareStatement(PersistenceService.SELECT_WAL_CHECKPOINT);
+                 ResultSet rs = select.executeQuery()) {
+                compactedSequence = rs.next() ? rs.getLong(1) : 0;
+            }
+            connection.commit();
+            mergeOrder = connection.prepareStatement(BulkOrderLoader.MERGE_ORDER);
+            mergeTrade = connection.prepareStatement(MERGE_TRADE);
+            mergeCheckpoint = connection.prepareStatement(PersistenceService.MERGE_WAL_CHECKPOINT);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        this.thread = new Thread(() -> run(intervalMillis), "wal-compactor");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Copy every durable record not copied yet.
+     *
+     * @return records copied
+     * @throws IllegalStateException if the database rejects a transaction;
+     *         records before it stay copied
+     */
+    public synchronized long compact() {
+        if (closed) {
+            throw new IllegalStateException("Compactor is closed");
+        }
+        long start = System.nanoTime();
+        long copied = 0;
+        long durable = log.getDurableSequence();
+        while (compactedSequence < durable) {
+            long to = Math.min(durable, compactedSequence + transactionRecords);
+            copied += copy(compactedSequence + 1, to);
+        }
+        log.truncateBefore(compactedSequence + 1);
+        if (copied > 0) {
+            MetricsCollector metrics = MetricsCollector.getInstance();
+            metrics.incrementBy("persistence.wal.compacted", copied);
+            metrics.recordTime("persistence.wal.compaction", System.nanoTime() - start);
+        }
+        return copied;
+    }
+
+    /** Every record up to this sequence is in the tables. */
+    public synchronized long getCompactedSequence() { return compactedSequence; }
+
+    /** Passes that failed and were rolled back. */
+    public synchronized long getFailures() { return failures; }
+
+    /**
+     * Stop the compactor thread, copy what is durable, and close the
+     * connection. Call {@link WriteAheadLog#sync} first to include
+     * everything appended.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            stopping = true;
+            notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                if (!closed) {
+                    compact();
+                }
+            } finally {
+                closed = true;
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    // Everything copied is committed
+                }
+            }
+        }
+    }
+
+    /**
+     * Pass loop. Stopped with a flag rather than an interrupt, which would
+     * close the database's file channels under it.
+     */
+    private synchronized void run(long intervalMillis) {
+        while (!stopping) {
+            try {
+                wait(intervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (stopping) return;
+            try {
+                compact();
+            } catch (RuntimeException e) {
+                // Counted and rolled back; the next pass retries
+            }
+        }
+    }
+
+    /**
+     * Copy records [from, to] and the checkpoint in one transaction.
+     */
+    private long copy(long from, long to) {
+        WriteAheadLog.Visitor visitor = new WriteAheadLog.Visitor() {
+            @Override
+            public void onOrder(long sequence, OrderRecord order, long createdAtNanos) {
+                try {
+                    mergeOrder.setString(1, OrderIds.format(order.getOrderId()));
+                    mergeOrder.setString(2, symbols.symbol(order.getSymbolId()));
+                    mergeOrder.setString(3, order.getSide() == Order.Side.BUY ? "BUY" : "SELL");
+                    mergeOrder.setBigDecimal(4, BigDecimal.valueOf(order.getPriceTicks(), OrderRecord.PRICE_SCALE));
+                    mergeOrder.setInt(5, order.getQuantity());
+                    mergeOrder.setLong(6, createdAtNanos);
+                    mergeOrder.addBatch();
+                    if (++batchedOrders == BATCH_ROWS) {
+                        mergeOrder.executeBatch();
+                        batchedOrders = 0;
+                    }
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Compaction of record " + sequence + " failed", e);
+                }
+            }
+
+            @Override
+            public void onTrade(long sequence, long tradeId, long buyOrderId, long sellOrderId, int symbolId,
+                                long priceTicks, int quantity, long executedAtNanos) {
+                try {
+                    mergeTrade.setLong(1, tradeId);
+                    mergeTrade.setString(2, OrderIds.format(buyOrderId));
+                    mergeTrade.setString(3, OrderIds.format(sellOrderId));
+                    mergeTrade.setString(4, symbols.symbol(symbolId));
+                    mergeTrade.setBigDecimal(5, BigDecimal.valueOf(priceTicks, OrderRecord.PRICE_SCALE));
+                    mergeTrade.setInt(6, quantity);
+                    mergeTrade.setLong(7, executedAtNanos);
+                    mergeTrade.addBatch();
+                    if (++batchedTrades == BATCH_ROWS) {
+                        mergeTrade.executeBatch();
+                        batchedTrades = 0;
+                    }
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Compaction of record " + sequence + " failed", e);
+                }
+            }
+        };
+        try {
+            long reached = log.replay(from, to, symbols, visitor);
+            if (reached < to) {
+                // Checkpointing past the end of what was read would let
+                // truncateBefore delete records never copied
+                throw new IllegalStateException("Write-ahead log ends at record " + reached
+                    + ", before durable record " + to);
+            }
+            if (batchedOrders > 0) {
+                mergeOrder.executeBatch();
+            }
+            if (batchedTrades > 0) {
+                mergeTrade.executeBatch();
+            }
+            // replay counts symbol records too, so `to` was reached even when
+            // the last records replayed were not orders or trades
+            mergeCheckpoint.setLong(1, to);
+            mergeCheckpoint.executeUpdate();
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            rollback();
+            throw e instanceof IllegalStateException ? (IllegalStateException) e
+                : new IllegalStateException("Compaction of records " + from + ".." + to + " failed", e);
+        } finally {
+            batchedOrders = 0;
+            batchedTrades = 0;
+        }
+        long copied = to - from + 1;
+        compactedSequence = to;
+        return copied;
+    }
+
+    private void rollback() {
+        failures++;
+        MetricsCollector.getInstance().increment("persistence.wal.compactionFailures");
+        try {
+            mergeOrder.clearBatch();
+            mergeTrade.clearBatch();
+            connection.rollback();
+        } catch (SQLException e) {
+            // The next pass fails too if the connection is gone
+        }
+    }
+}
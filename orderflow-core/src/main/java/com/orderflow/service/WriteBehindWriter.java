@@ -0,0 +1,453 @@
+package com.orderflow.service;
+
+import com.orderflow.model.Order;
+import com.orderflow.model.OrderBatch;
+import com.orderflow.model.OrderRecord;
+import com.orderflow.util.MetricsCollector;
+import com.orderflow.util.OrderIds;
+import com.orderflow.util.SymbolTable;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind persistence of orders and trades: callers queue rows in
+ * memory and return, and one writer thread inserts them over one
+ * long-lived connection.
+ *
+ * Rows are collected into a group - primitive columns, no object per row
+ * - until it holds {@code maxGroupRows} rows or its first row has waited
+ * {@code maxGroupDelayMillis}. The writer then swaps in an empty group
+ * and writes the full one as JDBC batches in a single transaction: one
+ * commit per group instead of per row (group commit). While it writes,
+ * callers fill the other group; once that holds {@code capacity} rows
+ * they block, so memory is bounded and a slow database slows producers
+ * rather than growing the queue.
+ *
+ * Durability is opt-in: {@link #commitFuture} returns a future that
+ * completes when everything queued so far is committed, or completes
+ * exceptionally if any of it was lost. A failed group - a database error,
+ * or a row the writer cannot convert such as an unknown symbol id - is
+ * rolled back and counted; later groups are still written, but their
+ * futures fail too, since each future also covers the lost rows before
+ * it. If the writer itself stops, pending futures fail and producers get
+ * an IllegalStateException instead of blocking.
+ *
+ * Metrics:
+ *   persistence.writeBehind.rows      rows committed (counter)
+ *   persistence.writeBehind.commits   groups committed (counter)
+ *   persistence.writeBehind.failed    rows in failed groups (counter)
+ *
+ * PERF-LAB: Lab F - PersistenceBenchmark.writeBehind vs perRowAutoCommit
+ *
+ * Thread-safe for any number of producers.
+ */
+public class WriteBehindWriter implements AutoCloseable {
+
+    /** One group's rows; the writer owns it once it is swapped out. */
+    private static final class Group {
+        final OrderBatch orders;
+        long[] orderTimes;
+        long[] tradeIds = new long[16];
+        long[] buyOrderIds = new long[16];
+        long[] sellOrderIds = new long[16];
+        int[] tradeSymbols = new int[16];
+        long[] tradePrices = new long[16];
+        int[] tradeQuantities = new int[16];
+        long[] tradeTimes = new long[16];
+        int trades;
+        long openedAtNanos;
+        CompletableFuture<Void> committed;
+
+        Group(int capacity) {
+            orders = new OrderBatch(capacity);
+            orderTimes = new long[Math.max(capacity, 16)];
+        }
+
+        int rows() {
+            return orders.size() + trades;
+        }
+
+        void addOrder(OrderRecord order, long createdAtNanos) {
+            int i = orders.size();
+            orders.add(order);
+            if (i == orderTimes.length) {
+                orderTimes = Arrays.copyOf(orderTimes, i * 2);
+            }
+            orderTimes[i] = createdAtNanos;
+        }
+
+        void addTrade(long tradeId, long buyOrderId, long sellOrderId, int symbolId, long priceTicks,
+                      int quantity, long executedAtNanos) {
+            int i = trades++;
+            if (i == tradeIds.length) {
+                int length = i * 2;
+                tradeIds = Arrays.copyOf(tradeIds, length);
+                buyOrderIds = Arrays.copyOf(buyOrderIds, length);
+                sellOrderIds = Arrays.copyOf(sellOrderIds, length);
+                tradeSymbols = Arrays.copyOf(tradeSymbols, length);
+                tradePrices = Arrays.copyOf(tradePrices, length);
+                tradeQuantities = Arrays.copyOf(tradeQuantities, length);
+                tradeTimes = Arrays.copyOf(tradeTimes, length);
+            }
+            tradeIds[i] = tradeId;
+            buyOrderIds[i] = buyOrderId;
+            sellOrderIds[i] = sellOrderId;
+            tradeSymbols[i] = symbolId;
+            tradePrices[i] = priceTicks;
+            tradeQuantities[i] = quantity;
+            tradeTimes[i] = executedAtNanos;
+        }
+
+        void clear() {
+            orders.clear();
+            trades = 0;
+            committed = null;
+        }
+    }
+
+    private final Connection connection;
+    private final SymbolTable symbols;
+    private final int capacity;
+    private final int maxGroupRows;
+    private final long maxGroupDelayNanos;
+    private final Thread writer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition groupReady = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    // Guarded by lock
+    private Group open;
+    private Group spare;
+    private Group writing;
+    private boolean flushRequested;
+    private boolean closed;
+    private Exception firstFailure; // fails every future from the failed group on
+
+    // Written by the writer thread only
+    private volatile long rowsCommitted;
+    private volatile long commits;
+    private volatile long rowsFailed;
+    private volatile Exception lastFailure;
+
+    /**
+     * @param connection owned by the writer from here on and closed by {@link #close}
+     */
+    WriteBehindWriter(Connection connection, SymbolTable symbols, int capacity, int maxGroupRows,
+                      long maxGroupDelayMillis) throws SQLException {
+        if (capacity <= 0 || maxGroupRows <= 0 || maxGroupDelayMillis < 0) {
+            throw new IllegalArgumentException("capacity and maxGroupRows must be positive, delay non-negative: "
+                + capacity + ", " + maxGroupRows + ", " + maxGroupDelayMillis);
+        }
+        this.connection = connection;
+        this.symbols = symbols;
+        this.capacity = capacity;
+        this.maxGroupRows = Math.min(maxGroupRows, capacity);
+        this.maxGroupDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxGroupDelayMillis);
+        this.open = new Group(capacity);
+        this.spare = new Group(capacity);
+        connection.setAutoCommit(false);
+        writer = new Thread(this::run, "persistence-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queue an order, created now. Blocks while the buffer is full.
+     */
+    public void saveOrder(OrderRecord order) {
+        saveOrder(order, System.currentTimeMillis() * 1_000_000L);
+    }
+
+    /**
+     * Queue an order. Blocks while the buffer is full.
+     */
+    public void saveOrder(OrderRecord order, long createdAtNanos) {
+        lock.lock();
+        try {
+            Group group = awaitRoom();
+            group.addOrder(order, createdAtNanos);
+            rowAdded(group);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queue a trade. Blocks while the buffer is full.
+     */
+    public void saveTrade(long tradeId, long buyOrderId, long sellOrderId, int symbolId, long priceTicks,
+                          int quantity, long executedAtNanos) {
+        lock.lock();
+        try {
+            Group group = awaitRoom();
+            group.addTrade(tradeId, buyOrderId, sellOrderId, symbolId, priceTicks, quantity, executedAtNanos);
+            rowAdded(group);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A future completing when every row queued so far is committed, or
+     * exceptionally once any group has failed - that group's rows are
+     * among those queued so far. Rows of a group share one future, so
+     * asking costs nothing per row.
+     */
+    public CompletableFuture<Void> commitFuture() {
+        lock.lock();
+        try {
+            if (firstFailure != null) {
+                return CompletableFuture.failedFuture(firstFailure);
+            }
+            // Groups commit in order, so the newest pending group covers all earlier rows
+            Group pending = open.rows() > 0 ? open : writing;
+            if (pending == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (pending.committed == null) {
+                pending.committed = new CompletableFuture<>();
+            }
+            return pending.committed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Close the open group now instead of at its size or time limit, and
+     * wait until everything queued so far is committed.
+     *
+     * @throws IllegalStateException if any group failed to commit, now or before
+     */
+    public void flush() {
+        CompletableFuture<Void> committed = commitFuture();
+        lock.lock();
+        try {
+            flushRequested = true;
+            groupReady.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            committed.join();
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Write-behind commit failed", e.getCause() != null ? e.getCause() : e);
+        }
+    }
+
+    /**
+     * Write what is queued, stop the writer and close the connection.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            groupReady.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Closing write-behind connection failed", e);
+        }
+    }
+
+    public long getRowsCommitted() { return rowsCommitted; }
+    public long getCommits() { return commits; }
+    public long getRowsFailed() { return rowsFailed; }
+
+    /**
+     * The most recent commit failure, or null: an SQLException, or a
+     * RuntimeException such as an order whose symbol id is not in the
+     * symbol table.
+     */
+    public Exception getLastFailure() { return lastFailure; }
+
+    // ---- producer side, under lock --------------------------------------
+
+    private Group awaitRoom() {
+        while (open.rows() >= capacity && !closed) {
+            notFull.awaitUninterruptibly();
+        }
+        if (closed) {
+            throw new IllegalStateException("Write-behind writer is closed");
+        }
+        return open;
+    }
+
+    private void rowAdded(Group group) {
+        int rows = group.rows();
+        if (rows == 1) {
+            group.openedAtNanos = System.nanoTime();
+            groupReady.signal();
+        } else if (rows == maxGroupRows) {
+            groupReady.signal();
+        }
+    }
+
+    // ---- writer thread ----------------------------------------------------
+
+    private void run() {
+        try (PreparedStatement insertOrder = connection.prepareStatement(PersistenceService.INSERT_ORDER);
+             PreparedStatement insertTrade = connection.prepareStatement(PersistenceService.INSERT_TRADE)) {
+            Group group;
+            while ((group = nextGroup()) != null) {
+                write(group, insertOrder, insertTrade);
+            }
+        } catch (SQLException | RuntimeException e) {
+            // The statements or the connection are gone: nothing more can be written
+            lastFailure = e;
+            failPending(e);
+        }
+    }
+
+    /**
+     * Wait for a group to fill, time out or be flushed, then swap it out.
+     *
+     * @return the group to write, or null once closed and drained
+     */
+    private Group nextGroup() {
+        lock.lock();
+        try {
+            while (open.rows() == 0) {
+                if (closed) return null;
+                flushRequested = false;
+                groupReady.awaitUninterruptibly();
+            }
+            long wait;
+            while (open.rows() < maxGroupRows && !closed && !flushRequested
+                    && (wait = open.openedAtNanos + maxGroupDelayNanos - System.nanoTime()) > 0) {
+                try {
+                    groupReady.awaitNanos(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            flushRequested = false;
+            writing = open;
+            open = spare;
+            spare = writing;
+            notFull.signalAll();
+            return writing;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(Group group, PreparedStatement insertOrder, PreparedStatement insertTrade) {
+        Exception failure = null;
+        try {
+            OrderRecord order = new OrderRecord();
+            for (int i = 0; i < group.orders.size(); i++) {
+                group.orders.get(i, order);
+                insertOrder.setString(1, OrderIds.format(order.getOrderId()));
+                insertOrder.setString(2, symbols.symbol(order.getSymbolId()));
+                insertOrder.setString(3, order.getSide() == Order.Side.BUY ? "BUY" : "SELL");
+                insertOrder.setBigDecimal(4, BigDecimal.valueOf(order.getPriceTicks(), OrderRecord.PRICE_SCALE));
+                insertOrder.setInt(5, order.getQuantity());
+                insertOrder.setLong(6, group.orderTimes[i]);
+                insertOrder.addBatch();
+                if ((i + 1) % maxGroupRows == 0) {
+                    insertOrder.executeBatch();
+                }
+            }
+            for (int i = 0; i < group.trades; i++) {
+                insertTrade.setLong(1, group.tradeIds[i]);
+                insertTrade.setString(2, OrderIds.format(group.buyOrderIds[i]));
+                insertTrade.setString(3, OrderIds.format(group.sellOrderIds[i]));
+                insertTrade.setString(4, symbols.symbol(group.tradeSymbols[i]));
+                insertTrade.setBigDecimal(5, BigDecimal.valueOf(group.tradePrices[i], OrderRecord.PRICE_SCALE));
+                insertTrade.setInt(6, group.tradeQuantities[i]);
+                insertTrade.setLong(7, group.tradeTimes[i]);
+                insertTrade.addBatch();
+                if ((i + 1) % maxGroupRows == 0) {
+                    insertTrade.executeBatch();
+                }
+            }
+            insertOrder.executeBatch();
+            insertTrade.executeBatch();
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            // A bad row fails its group only; the writer goes on with the next one
+            failure = e;
+            try {
+                insertOrder.clearBatch();
+                insertTrade.clearBatch();
+                connection.rollback();
+            } catch (SQLException rollbackFailure) {
+                e.addSuppressed(rollbackFailure);
+            }
+        }
+
+        MetricsCollector metrics = MetricsCollector.getInstance();
+        int rows = group.rows();
+        if (failure == null) {
+            rowsCommitted += rows;
+            commits++;
+            metrics.incrementBy("persistence.writeBehind.rows", rows);
+            metrics.increment("persistence.writeBehind.commits");
+        } else {
+            lastFailure = failure;
+            rowsFailed += rows;
+            metrics.incrementBy("persistence.writeBehind.failed", rows);
+        }
+        CompletableFuture<Void> committed;
+        Exception lost;
+        lock.lock();
+        try {
+            if (failure != null && firstFailure == null) {
+                firstFailure = failure;
+            }
+            lost = firstFailure;
+            committed = group.committed;
+            group.clear();
+            writing = null;
+        } finally {
+            lock.unlock();
+        }
+        if (committed != null) {
+            if (lost == null) {
+                committed.complete(null);
+            } else {
+                committed.completeExceptionally(lost);
+            }
+        }
+    }
+
+    private void failPending(Exception e) {
+        lock.lock();
+        try {
+            closed = true;
+            if (firstFailure == null) {
+                firstFailure = e;
+            }
+            for (Group group : new Group[] {open, writing}) {
+                if (group == null) continue;
+                if (group.committed != null) {
+                    group.committed.completeExceptionally(e);
+                }
+                group.clear();
+            }
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.orderflow.util;
+
+import com.orderflow.model.Order;
+import com.orderflow.model.OrderRecord;
+import com.orderflow.util.RejectResult.Field;
+import com.orderflow.util.RejectResult.Reason;
+import java.nio.ByteBuffer;
+
+/**
+ * Zero-copy CSV order parser working directly on bytes.
+ *
+ * Same format as {@link OrderParser}: orderId,symbol,side,price,quantity
+ * Example: "ORD00000001,AAPL,BUY,150.50,100"
+ *
+ * Compared with {@link OrderParser#parse(String)} there is no String per
+ * line, no split() array, no substring and no BigDecimal:
+ *   - delimiters are found by scanning bytes in place
+ *   - the order ID and quantity are accumulated as digits
+ *   - the price goes straight to fixed-point ticks
+ *   - the symbol is resolved through a {@link SymbolTable}
+ * Results are written into a caller-supplied {@link OrderRecord}.
+ *
+ * {@link #tryParse} reports bad lines as a {@link RejectResult} code
+ * instead of an exception; the {@code parse} variants wrap it and throw.
+ *
+ * PERF-LAB: Lab B - compare gc.alloc.rate.norm with OrderParser
+ *   java -jar benchmarks.jar OrderParsingBenchmark -prof gc
+ *
+ * Not thread-safe (it caches the last wrapped array); use one per thread.
+ * The SymbolTable may be shared.
+ */
+public class ByteOrderParser {
+
+    private static final byte COMMA = ',';
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+    private static final byte DOT = '.';
+
+    private final SymbolTable symbols;
+
+    // Re-used wrapper so byte[] callers don't pay for ByteBuffer.wrap per line
+    private byte[] wrappedArray;
+    private ByteBuffer wrapped;
+
+    // Backs the throwing parse() variants
+    private final RejectResult scratch = new RejectResult();
+
+    public ByteOrderParser() {
+        this(new SymbolTable());
+    }
+
+    public ByteOrderParser(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbols;
+    }
+
+    /**
+     * Parse one line held in {@code data[offset, offset + length)}.
+     * A trailing "\n" or "\r\n" is tolerated.
+     *
+     * @throws IllegalArgumentException if the line is malformed
+     */
+    public OrderRecord parse(byte[] data, int offset, int length, OrderRecord out) {
+        return parse(wrap(data), offset, offset + length, out);
+    }
+
+    /**
+     * Parse one line held in {@code buf[start, end)} using absolute indexing;
+     * the buffer's position and limit are not touched.
+     *
+     * @throws IllegalArgumentException if the line is malformed
+     */
+    public OrderRecord parse(ByteBuffer buf, int start, int end, OrderRecord out) {
+        if (!tryParse(buf, start, end, out, scratch)) {
+            // Only pays for the message when a line is actually rejected
+            throw new IllegalArgumentException(scratch.message());
+        }
+        return out;
+    }
+
+    /**
+     * Exception-free variant of {@link #parse(byte[], int, int, OrderRecord)}.
+     */
+    public boolean tryParse(byte[] data, int offset, int length, OrderRecord out, RejectResult result) {
+        return tryParse(wrap(data), offset, offset + length, out, result);
+    }
+
+    /**
+     * Exception-free variant of {@link #parse(ByteBuffer, int, int, OrderRecord)}.
+     *
+     * @return true if {@code out} holds the parsed order; false if the line
+     *         was rejected, with the field and reason in {@code result}
+     *         and its offset set to {@code start}
+     */
+    public boolean tryParse(ByteBuffer buf, int start, int end, OrderRecord out, RejectResult result) {
+        while (end > start && (buf.get(end - 1) == LF || buf.get(end - 1) == CR)) {
+            end--;
+        }
+        if (end == start) return result.reject(Field.LINE, Reason.MISSING, start);
+        int pos = start;
+
+        // orderId: "ORD" + digits
+        if (end - pos < 4 || buf.get(pos) != 'O' || buf.get(pos + 1) != 'R' || buf.get(pos + 2) != 'D') {
+            return result.reject(Field.ORDER_ID, Reason.MALFORMED, start);
+        }
+        pos += 3;
+        long orderId = 0;
+        int digitsStart = pos;
+        byte b;
+        while (pos < end && (b = buf.get(pos)) != COMMA) {
+            int digit = b - '0';
+            if (digit < 0 || digit > 9) return result.reject(Field.ORDER_ID, Reason.MALFORMED, start);
+            if (pos - digitsStart >= 18) return result.reject(Field.ORDER_ID, Reason.OUT_OF_RANGE, start);
+            orderId = orderId * 10 + digit;
+            pos++;
+        }
+        if (pos == digitsStart) return result.reject(Field.ORDER_ID, Reason.MISSING, start);
+        if (pos == end) return result.reject(Field.SYMBOL, Reason.MISSING, start);
+        pos++;
+
+        // symbol: interned only once the whole line is valid (below), so
+        // rejected lines never grow the table
+        int symbolStart = pos;
+        while (pos < end && buf.get(pos) != COMMA) {
+            pos++;
+        }
+        if (pos == symbolStart) return result.reject(Field.SYMBOL, Reason.MISSING, start);
+        if (pos == end) return result.reject(Field.SIDE, Reason.MISSING, start);
+        int symbolLength = pos - symbolStart;
+        pos++;
+
+        // side: BUY or SELL
+        Order.Side side;
+        if (end - pos > 3 && buf.get(pos) == 'B' && buf.get(pos + 1) == 'U' && buf.get(pos + 2) == 'Y'
+                && buf.get(pos + 3) == COMMA) {
+            side = Order.Side.BUY;
+            pos += 4;
+        } else if (end - pos > 4 && buf.get(pos) == 'S' && buf.get(pos + 1) == 'E' && buf.get(pos + 2) == 'L'
+                && buf.get(pos + 3) == 'L' && buf.get(pos + 4) == COMMA) {
+            side = Order.Side.SELL;
+            pos += 5;
+        } else {
+            return result.reject(Field.SIDE, pos == end ? Reason.MISSING : Reason.MALFORMED, start);
+        }
+
+        // price: digits[.digits] straight to ticks
+        long ticks = 0;
+        int fractionDigits = -1;
+        int priceStart = pos;
+        while (pos < end && (b = buf.get(pos)) != COMMA) {
+            if (b == DOT && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                int digit = b - '0';
+                if (digit < 0 || digit > 9) return result.reject(Field.PRICE, Reason.MALFORMED, start);
+                if (fractionDigits == OrderRecord.PRICE_SCALE || pos - priceStart >= 17) {
+                    return result.reject(Field.PRICE, Reason.OUT_OF_RANGE, start);
+                }
+                ticks = ticks * 10 + digit;
+                if (fractionDigits >= 0) fractionDigits++;
+            }
+            pos++;
+        }
+        if (pos == priceStart) return result.reject(Field.PRICE, Reason.MISSING, start);
+        if (fractionDigits == 0) return result.reject(Field.PRICE, Reason.MALFORMED, start);
+        if (pos == end) return result.reject(Field.QUANTITY, Reason.MISSING, start);
+        for (int i = Math.max(fractionDigits, 0); i < OrderRecord.PRICE_SCALE; i++) {
+            ticks *= 10;
+        }
+        if (ticks <= 0) return result.reject(Field.PRICE, Reason.NOT_POSITIVE, start);
+        pos++;
+
+        // quantity: positive int
+        long quantity = 0;
+        int quantityStart = pos;
+        while (pos < end) {
+            int digit = buf.get(pos) - '0';
+            if (digit < 0 || digit > 9) return result.reject(Field.QUANTITY, Reason.MALFORMED, start);
+            quantity = quantity * 10 + digit;
+            if (quantity > Integer.MAX_VALUE) return result.reject(Field.QUANTITY, Reason.OUT_OF_RANGE, start);
+            pos++;
+        }
+        if (pos == quantityStart) return result.reject(Field.QUANTITY, Reason.MISSING, start);
+        if (quantity == 0) return result.reject(Field.QUANTITY, Reason.NOT_POSITIVE, start);
+
+        int symbolId = symbols.intern(buf, symbolStart, symbolLength);
+        out.set(orderId, symbolId, side, ticks, (int) quantity);
+        return true;
+    }
+
+    /**
+     * Parse the line starting at {@code from} and ending at the next '\n'
+     * (or {@code limit}).
+     *
+     * @return the index just past the line terminator, i.e. the start of the next line
+     */
+    public int parseLine(ByteBuffer buf, int from, int limit, OrderRecord out) {
+        int next = nextLine(buf, from, limit);
+        parse(buf, from, next, out);
+        return next;
+    }
+
+    /**
+     * Find the start of the line following {@code from}.
+     *
+     * @return the index just past the next '\n', or {@code limit} if there is none
+     */
+    public static int nextLine(ByteBuffer buf, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (buf.get(i) == LF) return i + 1;
+        }
+        return limit;
+    }
+
+    /**
+     * Skip the CSV header line ("orderId,...") if {@code from} points at it.
+     *
+     * @return the start of the first data line
+     */
+    public static int skipHeader(ByteBuffer buf, int from, int limit) {
+        if (from < limit && buf.get(from) == 'o') {
+            return nextLine(buf, from, limit);
+        }
+        return from;
+    }
+
+    private ByteBuffer wrap(byte[] data) {
+        if (data != wrappedArray) {
+            wrappedArray = data;
+            wrapped = ByteBuffer.wrap(data);
+        }
+        return wrapped;
+    }
+}
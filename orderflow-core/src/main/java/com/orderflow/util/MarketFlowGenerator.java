@@ -0,0 +1,312 @@
+package com.orderflow.util;
+
+import com.orderflow.model.Order;
+import com.orderflow.model.OrderRecord;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic order flow with basic market microstructure, for replaying
+ * into the matching engine.
+ *
+ * Compared with {@link OrderDataGenerator#generateOrder}, which draws
+ * prices uniformly from a range (so books cross constantly or never build
+ * depth), this generator models:
+ *
+ *   - arrivals: messages form a Poisson process at {@code eventsPerSecond};
+ *     symbols are picked with Zipf-like weights (the first is busiest)
+ *   - price: each symbol's mid follows a Gaussian random walk in event
+ *     time, scaled to {@value #ANNUAL_VOLATILITY} annualized volatility
+ *   - depth: passive orders rest {@code d} ticks behind the touch, with
+ *     {@code d} geometric (mean {@value #DEPTH_DECAY_TICKS}), so depth
+ *     decays exponentially away from the mid; a
+ *     {@value #MARKETABLE_FRACTION} fraction of new orders cross the
+ *     spread instead
+ *   - lifecycle: cancels and amends (quantity down or a one-tick
+ *     reprice) refer to orders the generator still considers live
+ *
+ * The generator does not run a matching engine. It tracks passive orders
+ * it has issued and treats one as filled - dropping it, never cancelling
+ * it - once the mid has moved through its price. Replayed against a
+ * price-time book, about 88% of cancels find their order resting; the
+ * rest race a fill by a marketable order, as in real flow. Marketable
+ * orders are never tracked.
+ * Live orders per symbol are capped; at the cap the next message for that
+ * symbol is a cancel, which keeps book depth stationary.
+ *
+ * Symbol ids match {@link OrderDataGenerator#symbolTable()}. The sequence
+ * depends only on the seed and the configuration.
+ *
+ * PERF-LAB: Lab E - MatchingEngineBenchmark.replayMarketFlow
+ *
+ * Not thread-safe.
+ */
+public class MarketFlowGenerator {
+
+    public enum MessageType { NEW, CANCEL, AMEND }
+
+    public static final double DEFAULT_EVENTS_PER_SECOND = 50_000;
+    public static final double DEFAULT_CANCEL_RATIO = 0.35;
+    public static final double DEFAULT_AMEND_RATIO = 0.10;
+    public static final int DEFAULT_MAX_LIVE_PER_SYMBOL = 4096;
+
+    static final double ANNUAL_VOLATILITY = 0.30;
+    static final double DEPTH_DECAY_TICKS = 6.0;
+    static final double MARKETABLE_FRACTION = 0.08;
+
+    private static final double TRADING_SECONDS_PER_YEAR = 252 * 6.5 * 3600;
+    private static final int LOT = 100;
+    private static final double MEAN_EXTRA_LOTS = 2.0;
+    private static final int MAX_LOTS = 50;
+    private static final int LIVE_PICK_ATTEMPTS = 4;
+
+    /** Orders a symbol's book is believed to hold; removal swaps in the last entry. */
+    private static final class LiveOrders {
+        final long[] orderIds;
+        final long[] priceTicks;
+        final int[] quantities;
+        final boolean[] buys;
+        int size;
+
+        LiveOrders(int capacity) {
+            orderIds = new long[capacity];
+            priceTicks = new long[capacity];
+            quantities = new int[capacity];
+            buys = new boolean[capacity];
+        }
+
+        void add(long orderId, long price, int quantity, boolean buy) {
+            orderIds[size] = orderId;
+            priceTicks[size] = price;
+            quantities[size] = quantity;
+            buys[size] = buy;
+            size++;
+        }
+
+        void remove(int i) {
+            int last = --size;
+            orderIds[i] = orderIds[last];
+            priceTicks[i] = priceTicks[last];
+            quantities[i] = quantities[last];
+            buys[i] = buys[last];
+        }
+    }
+
+    private final SplittableRandom random;
+    private final double meanGapNanos;
+    private final double cancelRatio;
+    private final double amendRatio;
+    private final int maxLivePerSymbol;
+
+    private final double[] symbolWeights;
+    private final double[] mids; // in ticks
+    private final long[] lastUpdateNanos;
+    private final LiveOrders[] live;
+
+    private long timestampNanos;
+    private long nextOrderId = 1;
+
+    private long newOrders;
+    private long marketableOrders;
+    private long cancels;
+    private long amends;
+    private long assumedFilled;
+
+    public MarketFlowGenerator(long seed) {
+        this(seed, DEFAULT_EVENTS_PER_SECOND, DEFAULT_CANCEL_RATIO, DEFAULT_AMEND_RATIO,
+            DEFAULT_MAX_LIVE_PER_SYMBOL);
+    }
+
+    /**
+     * @param eventsPerSecond mean message rate across all symbols
+     * @param cancelRatio share of messages that cancel a live order
+     * @param amendRatio share of messages that amend a live order
+     * @param maxLivePerSymbol cap on tracked resting orders per symbol
+     */
+    public MarketFlowGenerator(long seed, double eventsPerSecond, double cancelRatio, double amendRatio,
+                               int maxLivePerSymbol) {
+        if (eventsPerSecond <= 0) {
+            throw new IllegalArgumentException("eventsPerSecond must be positive: " + eventsPerSecond);
+        }
+        if (cancelRatio < 0 || amendRatio < 0 || cancelRatio + amendRatio >= 1) {
+            throw new IllegalArgumentException("cancelRatio + amendRatio must be in [0, 1): "
+                + cancelRatio + " + " + amendRatio);
+        }
+        if (maxLivePerSymbol <= 0) {
+            throw new IllegalArgumentException("maxLivePerSymbol must be positive: " + maxLivePerSymbol);
+        }
+        this.random = new SplittableRandom(seed);
+        this.meanGapNanos = 1e9 / eventsPerSecond;
+        this.cancelRatio = cancelRatio;
+        this.amendRatio = amendRatio;
+        this.maxLivePerSymbol = maxLivePerSymbol;
+
+        int symbols = OrderDataGenerator.SYMBOLS.length;
+        this.symbolWeights = new double[symbols];
+        this.mids = new double[symbols];
+        this.lastUpdateNanos = new long[symbols];
+        this.live = new LiveOrders[symbols];
+        double total = 0;
+        for (int i = 0; i < symbols; i++) {
+            total += 1.0 / (i + 1);
+        }
+        double cumulative = 0;
+        for (int i = 0; i < symbols; i++) {
+            cumulative += 1.0 / (i + 1) / total;
+            symbolWeights[i] = cumulative;
+            double[] range = OrderDataGenerator.PRICE_RANGES[i];
+            mids[i] = (range[0] + range[1]) / 2 * OrderRecord.TICKS_PER_UNIT;
+            live[i] = new LiveOrders(maxLivePerSymbol);
+        }
+    }
+
+    /**
+     * Produce the next message into {@code out}.
+     *
+     * NEW carries a fresh order. CANCEL carries the cancelled order as it
+     * was last issued. AMEND carries the order's ID, symbol and side with
+     * its new price and quantity.
+     */
+    public MessageType next(OrderRecord out) {
+        timestampNanos += (long) (exponential() * meanGapNanos);
+        int symbol = pickSymbol();
+        double mid = advanceMid(symbol);
+        LiveOrders orders = live[symbol];
+
+        double u = random.nextDouble();
+        if (orders.size >= maxLivePerSymbol || u < cancelRatio) {
+            int i = pickLive(orders, mid);
+            if (i >= 0) {
+                out.set(orders.orderIds[i], symbol, side(orders.buys[i]), orders.priceTicks[i], orders.quantities[i]);
+                orders.remove(i);
+                cancels++;
+                return MessageType.CANCEL;
+            }
+        } else if (u < cancelRatio + amendRatio) {
+            int i = pickLive(orders, mid);
+            if (i >= 0) {
+                amend(orders, i, mid);
+                out.set(orders.orderIds[i], symbol, side(orders.buys[i]), orders.priceTicks[i], orders.quantities[i]);
+                amends++;
+                return MessageType.AMEND;
+            }
+        }
+        return newOrder(symbol, mid, orders, out);
+    }
+
+    private MessageType newOrder(int symbol, double mid, LiveOrders orders, OrderRecord out) {
+        boolean buy = random.nextBoolean();
+        int quantity = LOT * (1 + Math.min(MAX_LOTS - 1, (int) (exponential() * MEAN_EXTRA_LOTS)));
+        long price;
+        if (random.nextDouble() < MARKETABLE_FRACTION) {
+            // Through the touch by 0-2 ticks
+            int through = random.nextInt(3);
+            price = buy ? bestAsk(mid) + through : bestBid(mid) - through;
+            marketableOrders++;
+        } else {
+            long depth = (long) (exponential() * DEPTH_DECAY_TICKS);
+            price = buy ? bestBid(mid) - depth : bestAsk(mid) + depth;
+        }
+        price = Math.max(1, price);
+        long orderId = nextOrderId++;
+        boolean resting = buy ? price < bestAsk(mid) : price > bestBid(mid);
+        if (resting && orders.size < maxLivePerSymbol) {
+            orders.add(orderId, price, quantity, buy);
+        }
+        newOrders++;
+        out.set(orderId, symbol, side(buy), price, quantity);
+        return MessageType.NEW;
+    }
+
+    /**
+     * Reduce the quantity (70%) or move the price one tick, never across the touch.
+     */
+    private void amend(LiveOrders orders, int i, double mid) {
+        if (orders.quantities[i] > LOT && random.nextDouble() < 0.7) {
+            orders.quantities[i] = LOT * (1 + random.nextInt(orders.quantities[i] / LOT - 1));
+        } else {
+            long price = orders.priceTicks[i] + (random.nextBoolean() ? 1 : -1);
+            orders.priceTicks[i] = orders.buys[i]
+                ? Math.max(1, Math.min(price, bestBid(mid)))
+                : Math.max(bestAsk(mid), price);
+        }
+    }
+
+    /**
+     * Pick a random live order, dropping any the mid has moved through.
+     *
+     * @return index in {@code orders}, or -1 if none was found
+     */
+    private int pickLive(LiveOrders orders, double mid) {
+        for (int attempt = 0; attempt < LIVE_PICK_ATTEMPTS && orders.size > 0; attempt++) {
+            int i = random.nextInt(orders.size);
+            boolean filled = orders.buys[i]
+                ? orders.priceTicks[i] >= bestAsk(mid)
+                : orders.priceTicks[i] <= bestBid(mid);
+            if (!filled) {
+                return i;
+            }
+            orders.remove(i);
+            assumedFilled++;
+        }
+        return -1;
+    }
+
+    private int pickSymbol() {
+        double u = random.nextDouble();
+        int last = symbolWeights.length - 1;
+        for (int i = 0; i < last; i++) {
+            if (u < symbolWeights[i]) return i;
+        }
+        return last;
+    }
+
+    /**
+     * Move the symbol's mid by a Gaussian step scaled to the time since its last message.
+     */
+    private double advanceMid(int symbol) {
+        double dtSeconds = (timestampNanos - lastUpdateNanos[symbol]) / 1e9;
+        lastUpdateNanos[symbol] = timestampNanos;
+        double sigma = mids[symbol] * ANNUAL_VOLATILITY * Math.sqrt(dtSeconds / TRADING_SECONDS_PER_YEAR);
+        double mid = Math.max(OrderRecord.TICKS_PER_UNIT, mids[symbol] + sigma * random.nextGaussian());
+        mids[symbol] = mid;
+        return mid;
+    }
+
+    // Touch prices implied by the mid: at least one tick apart
+    private static long bestBid(double mid) {
+        return (long) Math.ceil(mid) - 1;
+    }
+
+    private static long bestAsk(double mid) {
+        return (long) Math.floor(mid) + 1;
+    }
+
+    private double exponential() {
+        return -Math.log(1 - random.nextDouble());
+    }
+
+    private static Order.Side side(boolean buy) {
+        return buy ? Order.Side.BUY : Order.Side.SELL;
+    }
+
+    /** Simulated time of the last message, from 0. */
+    public long getTimestampNanos() { return timestampNanos; }
+
+    public long getNewOrders() { return newOrders; }
+    public long getMarketableOrders() { return marketableOrders; }
+    public long getCancels() { return cancels; }
+    public long getAmends() { return amends; }
+
+    /** Passive orders dropped from tracking because the mid moved through them. */
+    public long getAssumedFilled() { return assumedFilled; }
+
+    /** Resting orders currently tracked for a symbol. */
+    public int getLiveOrders(int symbolId) {
+        return live[symbolId].size;
+    }
+
+    /** Current mid price of a symbol, in ticks. */
+    public double getMidTicks(int symbolId) {
+        return mids[symbolId];
+    }
+}
@@ -15,6 +15,7 @@ public class MetricsCollector {
     
     private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
     private final Map<String, AtomicLong> timers = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> gauges = new ConcurrentHashMap<>();
     private volatile long startTime;
     
     private MetricsCollector() {
@@ -46,6 +47,13 @@ public class MetricsCollector {
         timers.computeIfAbsent(name, k -> new AtomicLong()).addAndGet(nanos);
     }
     
+    /**
+     * Set a gauge to its latest value (queue depth, current rate, ...).
+     */
+    public void setGauge(String name, long value) {
+        gauges.computeIfAbsent(name, k -> new AtomicLong()).set(value);
+    }
+    
     /**
      * Get counter value.
      */
@@ -62,6 +70,14 @@ public class MetricsCollector {
         return timer != null ? timer.get() / 1_000_000 : 0;
     }
     
+    /**
+     * Get last gauge value.
+     */
+    public long getGauge(String name) {
+        AtomicLong gauge = gauges.get(name);
+        return gauge != null ? gauge.get() : 0;
+    }
+    
     /**
      * Get elapsed time since start in milliseconds.
      */
@@ -85,6 +101,7 @@ public class MetricsCollector {
     public void reset() {
         counters.clear();
         timers.clear();
+        gauges.clear();
         startTime = System.nanoTime();
     }
     
@@ -101,6 +118,11 @@ public class MetricsCollector {
         System.out.println("\nTimers (ms):");
         timers.forEach((name, value) -> 
             System.out.printf("  %s: %d ms%n", name, value.get() / 1_000_000));
+        if (!gauges.isEmpty()) {
+            System.out.println("\nGauges:");
+            gauges.forEach((name, value) -> 
+                System.out.printf("  %s: %d%n", name, value.get()));
+        }
     }
     
     /**
@@ -1,19 +1,44 @@
 package com.orderflow.util;
 
+import com.orderflow.io.BlockCompressedFormat;
+import com.orderflow.io.BlockCompressedWriter;
+import com.orderflow.io.OrderFlyweight;
+import com.orderflow.io.OrderWireFormat;
+import com.orderflow.model.Order;
+import com.orderflow.model.OrderRecord;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Generates synthetic order data for performance testing.
  * 
  * Usage:
  *   java -cp orderflow-core.jar com.orderflow.util.OrderDataGenerator --count 100000 --output orders-100k.csv
+ *   java -cp orderflow-core.jar com.orderflow.util.OrderDataGenerator --count 100000 --format binary --output orders-100k.ofb
+ *   java -cp orderflow-core.jar com.orderflow.util.OrderDataGenerator --count 100000 --format block --output orders-100k.ofz
+ *   java -cp orderflow-core.jar com.orderflow.util.OrderDataGenerator --count 100000000 --threads 8 --output orders-100m.csv
+ *   java -cp orderflow-core.jar com.orderflow.util.OrderDataGenerator --count 1000000 --format flow --output flow-1m.csv
  */
 public class OrderDataGenerator {
     
-    private static final String[] SYMBOLS = {
+    static final String[] SYMBOLS = {
         "AAPL", "GOOG", "MSFT", "AMZN", "META", 
         "NVDA", "TSLA", "JPM", "V", "WMT"
     };
@@ -21,7 +46,7 @@ public class OrderDataGenerator {
     private static final String[] SIDES = {"BUY", "SELL"};
     
     // Price ranges per symbol (for realistic data)
-    private static final double[][] PRICE_RANGES = {
+    static final double[][] PRICE_RANGES = {
         {170, 200},  // AAPL
         {130, 160},  // GOOG
         {350, 420},  // MSFT
@@ -34,9 +59,25 @@ public class OrderDataGenerator {
         {150, 180}   // WMT
     };
     
+    /** Orders per chunk for {@link #generateToFileParallel}. */
+    public static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+    
+    // Upper bound on one CSV line; sizes the per-chunk buffers
+    private static final int MAX_LINE_LENGTH = 64;
+    
+    private static final byte[] CSV_HEADER =
+        "orderId,symbol,side,price,quantity\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FLOW_HEADER =
+        "timeNanos,type,orderId,symbol,side,price,quantity\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FLOW_TYPES = {'N', 'C', 'A'}; // by MessageType ordinal
+    private static final byte[][] SYMBOL_BYTES = ascii(SYMBOLS);
+    private static final byte[][] SIDE_BYTES = ascii(SIDES);
+    
+    private final long seed;
     private final Random random;
     
     public OrderDataGenerator(long seed) {
+        this.seed = seed;
         this.random = new Random(seed);
     }
     
@@ -55,26 +96,333 @@ public class OrderDataGenerator {
             orderId, symbol, side, price, quantity);
     }
     
+    /**
+     * Generate a single order into a primitive record.
+     * Draws from the random sequence in the same order as {@link #generateOrder}.
+     * Symbol ids are indexes into the table from {@link #symbolTable()}.
+     */
+    public OrderRecord generateRecord(long orderId, OrderRecord out) {
+        int symbolIndex = random.nextInt(SYMBOLS.length);
+        Order.Side side = random.nextInt(2) == 0 ? Order.Side.BUY : Order.Side.SELL;
+        double[] priceRange = PRICE_RANGES[symbolIndex];
+        double price = priceRange[0] + random.nextDouble() * (priceRange[1] - priceRange[0]);
+        int quantity = 10 + random.nextInt(991); // 10 to 1000
+        
+        return out.set(orderId, symbolIndex, side, Math.round(price * OrderRecord.TICKS_PER_UNIT), quantity);
+    }
+    
+    /**
+     * Symbol table whose ids match the symbol indexes used by {@link #generateRecord}.
+     */
+    public static SymbolTable symbolTable() {
+        SymbolTable symbols = new SymbolTable(SYMBOLS.length);
+        for (String symbol : SYMBOLS) {
+            symbols.intern(symbol);
+        }
+        return symbols;
+    }
+    
     /**
      * Generate orders to a file.
      */
     public void generateToFile(String filename, int count) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename), 65536)) {
+            writeCsv(writer, filename, count);
+        }
+    }
+    
+    /**
+     * Generate CSV orders into a block-compressed file (see {@link BlockCompressedFormat}).
+     * The text is identical to {@link #generateToFile} for the same seed.
+     */
+    public void generateToBlockFile(String filename, int count, int blockSize) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                new BlockCompressedWriter(Path.of(filename), blockSize, Deflater.DEFAULT_COMPRESSION),
+                StandardCharsets.US_ASCII), 65536)) {
+            writeCsv(writer, filename, count);
+        }
+    }
+    
+    /**
+     * Generate CSV orders into a single gzip stream.
+     */
+    public void generateToGzipFile(String filename, int count) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(Path.of(filename)), 65536),
+                StandardCharsets.US_ASCII), 65536)) {
+            writeCsv(writer, filename, count);
+        }
+    }
+    
+    private void writeCsv(BufferedWriter writer, String filename, int count) throws IOException {
         long startTime = System.currentTimeMillis();
         System.out.printf("Generating %,d orders...%n", count);
         
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename), 65536)) {
-            // Write header
-            writer.write("orderId,symbol,side,price,quantity");
+        // Write header
+        writer.write("orderId,symbol,side,price,quantity");
+        writer.newLine();
+        
+        for (int i = 1; i <= count; i++) {
+            writer.write(generateOrder(i));
             writer.newLine();
             
+            if (i % 100_000 == 0) {
+                System.out.printf("  Generated %,d orders...%n", i);
+            }
+        }
+        writer.flush();
+        
+        long elapsed = System.currentTimeMillis() - startTime;
+        System.out.printf("Done! Generated %,d orders in %.2fs%n", count, elapsed / 1000.0);
+        System.out.printf("Output: %s%n", filename);
+    }
+    
+    /**
+     * Generate CSV orders to a file on {@code parallelism} threads.
+     * 
+     * Orders are cut into chunks of {@code chunkSize}. Each chunk draws from
+     * its own {@link SplittableRandom}, split from one seeded by this
+     * generator's seed in chunk order, and is formatted straight into a
+     * byte buffer with no String or formatter per line. A chunk's offset in
+     * the file is known once every chunk before it is formatted; the pool
+     * thread that gets there then writes it with a positional write, so
+     * chunks reach the file in parallel and the calling thread only
+     * recycles buffers. At most two chunks per thread are in memory.
+     * 
+     * The file is byte-identical for the same seed and chunk size whatever
+     * the thread count. It differs from {@link #generateToFile}, which draws
+     * from a single {@link Random}.
+     * 
+     * PERF-LAB: Lab F - compare MB/s against generateToFile and raw disk bandwidth
+     * 
+     * @return number of orders written
+     */
+    public long generateToFileParallel(String filename, long count, int chunkSize, int parallelism)
+            throws IOException {
+        if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE / MAX_LINE_LENGTH) {
+            throw new IllegalArgumentException("chunkSize out of range: " + chunkSize);
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        long startTime = System.currentTimeMillis();
+        System.out.printf("Generating %,d orders on %d threads...%n", count, parallelism);
+        
+        SplittableRandom root = new SplittableRandom(seed);
+        int maxChunksInFlight = parallelism * 2;
+        ArrayDeque<CompletableFuture<Void>> pending = new ArrayDeque<>(maxChunksInFlight);
+        ArrayDeque<byte[]> pendingBuffers = new ArrayDeque<>(maxChunksInFlight);
+        ArrayDeque<byte[]> freeBuffers = new ArrayDeque<>(maxChunksInFlight);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // Offset of the next chunk: the end of the one before it
+            CompletableFuture<Long> nextOffset =
+                CompletableFuture.completedFuture(writeFully(channel, ByteBuffer.wrap(CSV_HEADER), 0));
+            long nextOrderId = 1;
+            long nextReport = 10_000_000;
+            while (nextOrderId <= count || !pending.isEmpty()) {
+                while (nextOrderId <= count && pending.size() < maxChunksInFlight) {
+                    int orders = (int) Math.min(chunkSize, count - nextOrderId + 1);
+                    byte[] buffer = freeBuffers.isEmpty() ? new byte[chunkSize * MAX_LINE_LENGTH] : freeBuffers.pop();
+                    SplittableRandom chunkRandom = root.split();
+                    long firstOrderId = nextOrderId;
+                    CompletableFuture<Integer> length = CompletableFuture.supplyAsync(
+                        () -> formatChunk(chunkRandom, firstOrderId, orders, buffer), pool);
+                    CompletableFuture<Long> offset = nextOffset;
+                    nextOffset = offset.thenCombine(length, (start, bytes) -> start + bytes);
+                    pending.add(offset.thenAcceptBothAsync(length, (start, bytes) -> {
+                        try {
+                            writeFully(channel, ByteBuffer.wrap(buffer, 0, bytes), start);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, pool));
+                    pendingBuffers.add(buffer);
+                    nextOrderId += orders;
+                }
+                try {
+                    pending.poll().join();
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof UncheckedIOException io) {
+                        throw io.getCause();
+                    }
+                    throw e;
+                }
+                freeBuffers.push(pendingBuffers.poll());
+                
+                written = Math.min(count, written + chunkSize); // only the last chunk is short
+                if (written >= nextReport) {
+                    System.out.printf("  Generated %,d orders...%n", written);
+                    nextReport += 10_000_000;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        
+        long elapsed = System.currentTimeMillis() - startTime;
+        System.out.printf("Done! Generated %,d orders in %.2fs%n", count, elapsed / 1000.0);
+        System.out.printf("Output: %s%n", filename);
+        return written;
+    }
+    
+    /**
+     * Format {@code orders} lines starting at {@code firstOrderId} into {@code dst}.
+     * 
+     * @return number of bytes written
+     */
+    private static int formatChunk(SplittableRandom random, long firstOrderId, int orders, byte[] dst) {
+        int pos = 0;
+        for (long orderId = firstOrderId, end = firstOrderId + orders; orderId < end; orderId++) {
+            int symbolIndex = random.nextInt(SYMBOLS.length);
+            byte[] side = SIDE_BYTES[random.nextInt(2)];
+            double[] priceRange = PRICE_RANGES[symbolIndex];
+            double price = priceRange[0] + random.nextDouble() * (priceRange[1] - priceRange[0]);
+            long ticks = Math.round(price * OrderRecord.TICKS_PER_UNIT);
+            int quantity = 10 + random.nextInt(991); // 10 to 1000
+            
+            pos = OrderIds.formatTo(orderId, dst, pos);
+            dst[pos++] = ',';
+            pos = put(SYMBOL_BYTES[symbolIndex], dst, pos);
+            dst[pos++] = ',';
+            pos = put(side, dst, pos);
+            dst[pos++] = ',';
+            pos = formatDigits(ticks / OrderRecord.TICKS_PER_UNIT, 1, dst, pos);
+            dst[pos++] = '.';
+            pos = formatDigits(ticks % OrderRecord.TICKS_PER_UNIT, OrderRecord.PRICE_SCALE, dst, pos);
+            dst[pos++] = ',';
+            pos = formatDigits(quantity, 1, dst, pos);
+            dst[pos++] = '\n';
+        }
+        return pos;
+    }
+    
+    /**
+     * Generate a message stream from {@link MarketFlowGenerator} as CSV:
+     * 
+     *   timeNanos,type,orderId,symbol,side,price,quantity
+     * 
+     * where type is N (new), C (cancel) or A (amend). This is a replay
+     * format for the matching engine, not an input for the order file
+     * readers, which expect the five-field layout of {@link #generateToFile}.
+     */
+    public void generateToFlowFile(String filename, int count, double eventsPerSecond) throws IOException {
+        long startTime = System.currentTimeMillis();
+        System.out.printf("Generating %,d market-flow messages...%n", count);
+        
+        MarketFlowGenerator flow = new MarketFlowGenerator(seed, eventsPerSecond,
+            MarketFlowGenerator.DEFAULT_CANCEL_RATIO, MarketFlowGenerator.DEFAULT_AMEND_RATIO,
+            MarketFlowGenerator.DEFAULT_MAX_LIVE_PER_SYMBOL);
+        OrderRecord record = new OrderRecord();
+        byte[] buffer = new byte[1 << 16];
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, ByteBuffer.wrap(FLOW_HEADER));
+            int pos = 0;
+            for (int i = 1; i <= count; i++) {
+                if (pos > buffer.length - MAX_LINE_LENGTH * 2) {
+                    writeFully(channel, ByteBuffer.wrap(buffer, 0, pos));
+                    pos = 0;
+                }
+                MarketFlowGenerator.MessageType type = flow.next(record);
+                pos = formatDigits(flow.getTimestampNanos(), 1, buffer, pos);
+                buffer[pos++] = ',';
+                buffer[pos++] = FLOW_TYPES[type.ordinal()];
+                buffer[pos++] = ',';
+                pos = OrderIds.formatTo(record.getOrderId(), buffer, pos);
+                buffer[pos++] = ',';
+                pos = put(SYMBOL_BYTES[record.getSymbolId()], buffer, pos);
+                buffer[pos++] = ',';
+                pos = put(SIDE_BYTES[record.getSide().ordinal()], buffer, pos);
+                buffer[pos++] = ',';
+                pos = formatDigits(record.getPriceTicks() / OrderRecord.TICKS_PER_UNIT, 1, buffer, pos);
+                buffer[pos++] = '.';
+                pos = formatDigits(record.getPriceTicks() % OrderRecord.TICKS_PER_UNIT, OrderRecord.PRICE_SCALE,
+                    buffer, pos);
+                buffer[pos++] = ',';
+                pos = formatDigits(record.getQuantity(), 1, buffer, pos);
+                buffer[pos++] = '\n';
+                
+                if (i % 1_000_000 == 0) {
+                    System.out.printf("  Generated %,d messages...%n", i);
+                }
+            }
+            writeFully(channel, ByteBuffer.wrap(buffer, 0, pos));
+        }
+        
+        long elapsed = System.currentTimeMillis() - startTime;
+        System.out.printf("Done! Generated %,d messages in %.2fs (%.1fs simulated)%n", count, elapsed / 1000.0,
+            flow.getTimestampNanos() / 1e9);
+        System.out.printf("  new %,d (%,d marketable), cancel %,d, amend %,d%n", flow.getNewOrders(),
+            flow.getMarketableOrders(), flow.getCancels(), flow.getAmends());
+        System.out.printf("Output: %s%n", filename);
+    }
+    
+    private static int put(byte[] src, byte[] dst, int pos) {
+        System.arraycopy(src, 0, dst, pos, src.length);
+        return pos + src.length;
+    }
+    
+    /**
+     * Write a non-negative value as at least {@code minDigits} ASCII digits.
+     */
+    private static int formatDigits(long value, int minDigits, byte[] dst, int pos) {
+        int digits = 1;
+        for (long v = value / 10; v != 0; v /= 10) {
+            digits++;
+        }
+        int end = pos + Math.max(minDigits, digits);
+        for (int i = end - 1; i >= pos; i--) {
+            dst[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+    
+    private static byte[][] ascii(String[] values) {
+        byte[][] bytes = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = values[i].getBytes(StandardCharsets.US_ASCII);
+        }
+        return bytes;
+    }
+    
+    /**
+     * Generate orders to a binary file (see {@link OrderWireFormat}).
+     */
+    public void generateToBinaryFile(String filename, int count) throws IOException {
+        long startTime = System.currentTimeMillis();
+        System.out.printf("Generating %,d binary orders...%n", count);
+        
+        SymbolTable symbols = symbolTable();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(OrderFlyweight.LENGTH * 4096);
+        OrderFlyweight flyweight = new OrderFlyweight();
+        OrderRecord record = new OrderRecord();
+        
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(OrderWireFormat.headerSize(symbols));
+            OrderWireFormat.writeHeader(header, OrderWireFormat.RECORD_TYPE_ORDER, symbols);
+            header.flip();
+            writeFully(channel, header);
+            
             for (int i = 1; i <= count; i++) {
-                writer.write(generateOrder(i));
-                writer.newLine();
+                flyweight.wrap(buffer, buffer.position()).encode(generateRecord(i, record));
+                buffer.position(buffer.position() + OrderFlyweight.LENGTH);
+                if (!buffer.hasRemaining()) {
+                    buffer.flip();
+                    writeFully(channel, buffer);
+                    buffer.clear();
+                }
                 
                 if (i % 100_000 == 0) {
                     System.out.printf("  Generated %,d orders...%n", i);
                 }
             }
+            buffer.flip();
+            writeFully(channel, buffer);
         }
         
         long elapsed = System.currentTimeMillis() - startTime;
@@ -82,10 +430,33 @@ public class OrderDataGenerator {
         System.out.printf("Output: %s%n", filename);
     }
     
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+    
+    /**
+     * Positional write of the whole buffer.
+     * 
+     * @return position after the written bytes
+     */
+    private static long writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        return position;
+    }
+    
     public static void main(String[] args) {
         int count = 10_000;
         String output = "datasets/orders.csv";
         long seed = 42;
+        String format = "csv";
+        int blockSize = BlockCompressedFormat.DEFAULT_BLOCK_SIZE;
+        int threads = 0;
+        int chunkSize = DEFAULT_CHUNK_SIZE;
+        double rate = MarketFlowGenerator.DEFAULT_EVENTS_PER_SECOND;
         
         // Parse arguments
         for (int i = 0; i < args.length; i++) {
@@ -93,6 +464,11 @@ public class OrderDataGenerator {
                 case "--count", "-c" -> count = Integer.parseInt(args[++i]);
                 case "--output", "-o" -> output = args[++i];
                 case "--seed", "-s" -> seed = Long.parseLong(args[++i]);
+                case "--format", "-f" -> format = args[++i];
+                case "--block-size" -> blockSize = Integer.parseInt(args[++i]);
+                case "--threads", "-t" -> threads = Integer.parseInt(args[++i]);
+                case "--chunk-size" -> chunkSize = Integer.parseInt(args[++i]);
+                case "--rate" -> rate = Double.parseDouble(args[++i]);
                 case "--help", "-h" -> {
                     printUsage();
                     return;
@@ -102,7 +478,19 @@ public class OrderDataGenerator {
         
         try {
             OrderDataGenerator generator = new OrderDataGenerator(seed);
-            generator.generateToFile(output, count);
+            switch (format) {
+                case "binary" -> generator.generateToBinaryFile(output, count);
+                case "block" -> generator.generateToBlockFile(output, count, blockSize);
+                case "gzip" -> generator.generateToGzipFile(output, count);
+                case "flow" -> generator.generateToFlowFile(output, count, rate);
+                default -> {
+                    if (threads > 0) {
+                        generator.generateToFileParallel(output, count, chunkSize, threads);
+                    } else {
+                        generator.generateToFile(output, count);
+                    }
+                }
+            }
         } catch (IOException e) {
             System.err.println("Error writing file: " + e.getMessage());
             System.exit(1);
@@ -116,9 +504,18 @@ public class OrderDataGenerator {
         System.out.println("  --count, -c <n>     Number of orders to generate (default: 10000)");
         System.out.println("  --output, -o <file> Output file path (default: datasets/orders.csv)");
         System.out.println("  --seed, -s <n>      Random seed for reproducibility (default: 42)");
+        System.out.println("  --format, -f <fmt>  Output format: csv, binary, block, gzip or flow (default: csv)");
+        System.out.println("  --block-size <n>    Uncompressed bytes per block for -f block (default: 4194304)");
+        System.out.println("  --threads, -t <n>   Generate CSV on n threads; output depends on seed and chunk size only");
+        System.out.println("  --chunk-size <n>    Orders per chunk with --threads (default: 262144)");
+        System.out.println("  --rate <n>          Messages per simulated second for -f flow (default: 50000)");
         System.out.println("  --help, -h          Show this help");
         System.out.println();
         System.out.println("Examples:");
         System.out.println("  java -cp orderflow-core.jar com.orderflow.util.OrderDataGenerator -c 100000 -o orders-100k.csv");
+        System.out.println("  java -cp orderflow-core.jar com.orderflow.util.OrderDataGenerator -c 100000 -f binary -o orders-100k.ofb");
+        System.out.println("  java -cp orderflow-core.jar com.orderflow.util.OrderDataGenerator -c 100000 -f block -o orders-100k.ofz");
+        System.out.println("  java -cp orderflow-core.jar com.orderflow.util.OrderDataGenerator -c 100000000 -t 8 -o orders-100m.csv");
+        System.out.println("  java -cp orderflow-core.jar com.orderflow.util.OrderDataGenerator -c 1000000 -f flow -o flow-1m.csv");
     }
 }
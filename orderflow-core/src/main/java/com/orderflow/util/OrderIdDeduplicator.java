@@ -0,0 +1,253 @@
+package com.orderflow.util;
+
+import java.util.Arrays;
+
+/**
+ * Remembers recently seen numeric order IDs so retried deliveries of the
+ * same order can be dropped.
+ *
+ * The window is split into {@value #SLICES} slices. Each slice holds the
+ * IDs first seen while it was current, in a primitive long open-addressing
+ * set fronted by a blocked Bloom filter (all of an ID's bits in one 64-bit
+ * word, so a test is a single memory read) and by the slice's min/max ID.
+ * A lookup tests every older slice's range and filter and only probes the
+ * sets of slices that may contain the ID, so a new ID - the common case -
+ * touches no hash table except the current slice's on insert.
+ *
+ * Only {@code id >>> 3} is hashed; the low three bits pick the word or
+ * slot within a 64-byte line. Eight consecutive IDs therefore share one
+ * cache line in every filter and set, so the usual near-sequential ID
+ * stream pays about one miss per eight orders, while strided or random
+ * IDs still spread evenly. An ID above every older slice's range - a new
+ * order in an increasing stream - skips those slices without a read.
+ *
+ * The current slice is retired when it holds {@code windowSize / SLICES}
+ * IDs or, if {@code windowNanos > 0}, once it is older than
+ * {@code windowNanos / SLICES}; the oldest slice is then cleared and
+ * reused. With a time limit the clock is read on every call, and after a
+ * quiet spell every slice that expired meanwhile is retired before the
+ * lookup. Memory is fixed at construction (about 18 bytes per window
+ * entry), and an ID is remembered for at least (SLICES - 1) / SLICES of
+ * the window and never longer than {@code windowNanos}.
+ *
+ * Negative IDs (e.g. {@link OrderIds#parse} failures) are never recorded
+ * and never reported as duplicates.
+ *
+ * PERF-LAB: Lab B - OrderParsingBenchmark.dedupe*
+ *
+ * Not thread-safe.
+ */
+public class OrderIdDeduplicator {
+
+    public static final int DEFAULT_WINDOW = 1 << 20;
+    public static final int SLICES = 4;
+
+    private static final long EMPTY = -1;
+    private static final int BLOOM_BITS_PER_ID = 16;
+
+    private final Slice[] slices = new Slice[SLICES];
+    private final int sliceCapacity;
+    private final long sliceNanos;
+
+    private int current;
+    private long sliceStartNanos;
+
+    /** One generation of the window. */
+    private static final class Slice {
+        final long[] bloom;
+        final int bloomMask; // over words, not bits
+        final long[] keys;
+        final int keyMask;
+        int size;
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+
+        Slice(int capacity) {
+            this.bloom = new long[tableSizeFor((long) capacity * BLOOM_BITS_PER_ID) >>> 6];
+            this.bloomMask = bloom.length - 1;
+            // Load factor <= 0.5 keeps linear probes short
+            this.keys = new long[tableSizeFor((long) capacity * 2)];
+            this.keyMask = keys.length - 1;
+            Arrays.fill(keys, EMPTY);
+        }
+
+        boolean mightContain(long id, long hash) {
+            if (id < minId || id > maxId) return false;
+            long pattern = pattern(hash);
+            return (bloom[word(id, hash)] & pattern) == pattern;
+        }
+
+        boolean contains(long id, long hash) {
+            for (int i = slot(id, hash); ; i = (i + 1) & keyMask) {
+                long key = keys[i];
+                if (key == id) return true;
+                if (key == EMPTY) return false;
+            }
+        }
+
+        /**
+         * @return false if the ID was already present
+         */
+        boolean add(long id, long hash) {
+            int i = slot(id, hash);
+            for (long key; (key = keys[i]) != EMPTY; i = (i + 1) & keyMask) {
+                if (key == id) return false;
+            }
+            keys[i] = id;
+            size++;
+            minId = Math.min(minId, id);
+            maxId = Math.max(maxId, id);
+            bloom[word(id, hash)] |= pattern(hash);
+            return true;
+        }
+
+        void clear() {
+            if (size == 0) return;
+            Arrays.fill(bloom, 0);
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+            minId = Long.MAX_VALUE;
+            maxId = Long.MIN_VALUE;
+        }
+
+        private int slot(long id, long hash) {
+            return ((int) (hash >>> 24) << 3 | (int) id & 7) & keyMask;
+        }
+
+        private int word(long id, long hash) {
+            return ((int) hash << 3 | (int) id & 7) & bloomMask;
+        }
+    }
+
+    public OrderIdDeduplicator() {
+        this(DEFAULT_WINDOW, 0);
+    }
+
+    /**
+     * @param windowSize maximum number of IDs remembered
+     * @param windowNanos maximum age of a remembered ID, or 0 for no time limit
+     */
+    public OrderIdDeduplicator(int windowSize, long windowNanos) {
+        if (windowSize < SLICES) {
+            throw new IllegalArgumentException("windowSize must be at least " + SLICES + ": " + windowSize);
+        }
+        if (windowNanos < 0) {
+            throw new IllegalArgumentException("windowNanos must not be negative: " + windowNanos);
+        }
+        this.sliceCapacity = windowSize / SLICES;
+        this.sliceNanos = windowNanos / SLICES;
+        for (int i = 0; i < SLICES; i++) {
+            slices[i] = new Slice(sliceCapacity);
+        }
+        this.sliceStartNanos = sliceNanos > 0 ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record {@code orderId} unless it is already in the window.
+     *
+     * @return true if the ID was not seen within the window (keep the order),
+     *         false if it is a duplicate (drop it)
+     */
+    public boolean firstSeen(long orderId) {
+        return firstSeen(orderId, sliceNanos > 0 ? System.nanoTime() : 0);
+    }
+
+    /**
+     * {@link #firstSeen(long)} at a caller-supplied {@link System#nanoTime}
+     * reading, so a batch of IDs can share one clock read. Readings must
+     * not go backwards between calls.
+     */
+    public boolean firstSeen(long orderId, long nowNanos) {
+        if (orderId < 0) return true;
+        if (sliceNanos > 0) {
+            expire(nowNanos);
+        }
+        long hash = mix(orderId >>> 3);
+        for (int i = 0; i < SLICES; i++) {
+            Slice slice = slices[i];
+            if (i != current && slice.mightContain(orderId, hash) && slice.contains(orderId, hash)) {
+                return false;
+            }
+        }
+        if (!slices[current].add(orderId, hash)) {
+            return false;
+        }
+        if (slices[current].size >= sliceCapacity) {
+            rotate();
+            sliceStartNanos = nowNanos;
+        }
+        return true;
+    }
+
+    /**
+     * Number of IDs currently remembered.
+     */
+    public int size() {
+        int total = 0;
+        for (Slice slice : slices) {
+            total += slice.size;
+        }
+        return total;
+    }
+
+    public void clear() {
+        for (Slice slice : slices) {
+            slice.clear();
+        }
+        current = 0;
+        if (sliceNanos > 0) {
+            sliceStartNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Retire one slice per whole slice interval since the current one
+     * started. Slice starts stay on that grid, so a slice is never older
+     * than {@code sliceNanos} at a lookup.
+     */
+    private void expire(long now) {
+        long elapsed = now - sliceStartNanos;
+        if (elapsed < sliceNanos) return;
+        long steps = elapsed / sliceNanos;
+        if (steps >= SLICES) {
+            for (Slice slice : slices) {
+                slice.clear();
+            }
+            sliceStartNanos = now;
+            return;
+        }
+        for (long i = 0; i < steps; i++) {
+            rotate();
+        }
+        sliceStartNanos += steps * sliceNanos;
+    }
+
+    private void rotate() {
+        current = (current + 1) % SLICES;
+        slices[current].clear();
+    }
+
+    /**
+     * Three bits of one 64-bit word, chosen by hash bits the word index
+     * and the set slot do not use. IDs of the same group of eight sit in
+     * different words, so they may share a pattern.
+     */
+    private static long pattern(long hash) {
+        return (1L << (hash >>> 58)) | (1L << (hash >>> 52)) | (1L << (hash >>> 46));
+    }
+
+    // Stafford variant 13 of the MurmurHash3 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int tableSizeFor(long n) {
+        long size = Long.highestOneBit(Math.max(n, 64) - 1) << 1;
+        if (size > 1 << 30) {
+            throw new IllegalArgumentException("window too large: " + n);
+        }
+        return (int) size;
+    }
+}
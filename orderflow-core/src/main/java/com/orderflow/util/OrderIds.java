@@ -0,0 +1,75 @@
+package com.orderflow.util;
+
+/**
+ * Conversions between textual order IDs ("ORD00000042") and their
+ * numeric form (42).
+ *
+ * The primitive form lets hot paths key, compare and encode orders
+ * without holding a String per order; the text form is only rebuilt
+ * when an {@link com.orderflow.model.Order} is needed.
+ */
+public final class OrderIds {
+
+    public static final String PREFIX = "ORD";
+
+    /** Minimum digit count used by {@link #format(long)}, matching the data generator. */
+    public static final int DIGITS = 8;
+
+    private OrderIds() {
+    }
+
+    /**
+     * Parse "ORD" followed by decimal digits.
+     *
+     * @return the numeric id, or -1 if the text is not in that form
+     */
+    public static long parse(CharSequence orderId) {
+        int length = orderId.length();
+        if (length <= PREFIX.length() || length > PREFIX.length() + 18) return -1;
+        for (int i = 0; i < PREFIX.length(); i++) {
+            if (orderId.charAt(i) != PREFIX.charAt(i)) return -1;
+        }
+        long value = 0;
+        for (int i = PREFIX.length(); i < length; i++) {
+            int digit = orderId.charAt(i) - '0';
+            if (digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Format a numeric id as "ORD" followed by at least {@link #DIGITS} digits.
+     */
+    public static String format(long id) {
+        String digits = Long.toString(id);
+        StringBuilder sb = new StringBuilder(PREFIX.length() + Math.max(DIGITS, digits.length()));
+        sb.append(PREFIX);
+        for (int i = digits.length(); i < DIGITS; i++) {
+            sb.append('0');
+        }
+        return sb.append(digits).toString();
+    }
+
+    /**
+     * Write the {@link #format(long)} form of a non-negative id as ASCII
+     * into {@code dst} at {@code pos}, without allocating.
+     *
+     * @return position after the last byte written
+     */
+    public static int formatTo(long id, byte[] dst, int pos) {
+        dst[pos++] = 'O';
+        dst[pos++] = 'R';
+        dst[pos++] = 'D';
+        int digits = 1;
+        for (long v = id / 10; v != 0; v /= 10) {
+            digits++;
+        }
+        int end = pos + Math.max(DIGITS, digits);
+        for (int i = end - 1; i >= pos; i--) {
+            dst[i] = (byte) ('0' + id % 10);
+            id /= 10;
+        }
+        return end;
+    }
+}
@@ -28,6 +28,8 @@ import java.util.regex.Pattern;
  * Questions to answer:
  *   - What's the allocation rate per order parsed?
  *   - What percentage of CPU is spent in regex?
+ *
+ * See {@link ByteOrderParser} for the zero-copy byte-level entry point.
  */
 public class OrderParser {
     
@@ -0,0 +1,113 @@
+package com.orderflow.util;
+
+import com.orderflow.model.OrderBatch;
+import com.orderflow.util.RejectResult.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded journal of rejected input lines.
+ *
+ * Rejects are stored as packed {@link RejectResult} codes and line
+ * offsets in a primitive ring holding the most recent {@code capacity}
+ * entries; older ones are overwritten but still counted. Parsers record
+ * rejects into their {@link OrderBatch}, and the whole batch is appended
+ * under one lock acquisition, so a burst of garbage costs a few array
+ * stores per line. Messages are rendered only by {@link #messages(int)}.
+ *
+ * PERF-LAB: Lab B - compare against per-line exception + log statement
+ *
+ * Thread-safe.
+ */
+public class RejectJournal {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final int[] codes;
+    private final long[] offsets;
+    private final long[] fieldCounts = new long[Field.values().length];
+    private long total;
+
+    public RejectJournal() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public RejectJournal(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.codes = new int[capacity];
+        this.offsets = new long[capacity];
+    }
+
+    /**
+     * Append every reject recorded in {@code batch}.
+     */
+    public void append(OrderBatch batch) {
+        int n = batch.getRejected();
+        if (n == 0) return;
+        synchronized (this) {
+            for (int i = 0; i < n; i++) {
+                store(batch.getRejectCode(i), batch.getRejectOffset(i));
+            }
+        }
+    }
+
+    /**
+     * Append a single reject. Prefer {@link #append(OrderBatch)} on bulk paths.
+     */
+    public synchronized void record(RejectResult result) {
+        if (result.isRejected()) {
+            store(result.getCode(), result.getOffset());
+        }
+    }
+
+    private void store(int code, long offset) {
+        int slot = (int) (total % codes.length);
+        codes[slot] = code;
+        offsets[slot] = offset;
+        fieldCounts[RejectResult.field(code).ordinal()]++;
+        total++;
+    }
+
+    /**
+     * Total rejects recorded, including ones no longer retained.
+     */
+    public synchronized long getCount() {
+        return total;
+    }
+
+    public synchronized long getCount(Field field) {
+        return fieldCounts[field.ordinal()];
+    }
+
+    /**
+     * Render up to {@code max} of the most recent rejects, oldest first.
+     */
+    public List<String> messages(int max) {
+        int n;
+        int[] codeCopy;
+        long[] offsetCopy;
+        synchronized (this) {
+            n = (int) Math.min(Math.min(max, total), codes.length);
+            codeCopy = new int[n];
+            offsetCopy = new long[n];
+            for (int i = 0; i < n; i++) {
+                int slot = (int) ((total - n + i) % codes.length);
+                codeCopy[i] = codes[slot];
+                offsetCopy[i] = offsets[slot];
+            }
+        }
+        // Render outside the lock
+        List<String> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            out.add(RejectResult.render(codeCopy[i], offsetCopy[i]));
+        }
+        return out;
+    }
+
+    public synchronized void clear() {
+        total = 0;
+        java.util.Arrays.fill(fieldCounts, 0);
+    }
+}
@@ -0,0 +1,137 @@
+package com.orderflow.util;
+
+/**
+ * Reusable outcome of parsing or validating one order.
+ *
+ * A reject is a (field, reason) pair plus the offset of the offending
+ * line, packed into an int code so it can be stored in primitive arrays
+ * (see {@link com.orderflow.model.OrderBatch} and {@link RejectJournal}).
+ * Nothing is allocated on the reject path: no exception, no stack trace,
+ * no message. {@link #message()} renders text only when somebody asks.
+ *
+ * PERF-HINT: Compare with throwing IllegalArgumentException per bad line;
+ *   fillInStackTrace dominates the profile on a malformed burst.
+ * PERF-LAB: Lab B - OrderParsingBenchmark.parseGarbage*
+ *
+ * Not thread-safe; keep one per parsing thread.
+ */
+public final class RejectResult {
+
+    public enum Field {
+        LINE("line"),
+        ORDER_ID("orderId"),
+        SYMBOL("symbol"),
+        SIDE("side"),
+        PRICE("price"),
+        QUANTITY("quantity");
+
+        private final String label;
+
+        Field(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    public enum Reason {
+        /** Field is empty or the line ends before it. */
+        MISSING,
+        /** Unexpected character or format. */
+        MALFORMED,
+        /** Too many digits, too much precision, or overflow. */
+        OUT_OF_RANGE,
+        /** Zero or negative where a positive value is required. */
+        NOT_POSITIVE,
+        /** Value is well-formed but not known (e.g. an unlisted symbol). */
+        UNKNOWN
+    }
+
+    /** Code of a result that has not been rejected. */
+    public static final int OK = 0;
+
+    private static final Field[] FIELDS = Field.values();
+    private static final Reason[] REASONS = Reason.values();
+
+    private int code;
+    private long offset;
+
+    /**
+     * Clear any previous reject.
+     */
+    public RejectResult reset() {
+        code = OK;
+        offset = 0;
+        return this;
+    }
+
+    /**
+     * Record a reject.
+     *
+     * @return always false, so parsers can {@code return result.reject(...)}
+     */
+    public boolean reject(Field field, Reason reason, long offset) {
+        this.code = code(field, reason);
+        this.offset = offset;
+        return false;
+    }
+
+    public boolean isRejected() {
+        return code != OK;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public Field getField() {
+        return field(code);
+    }
+
+    public Reason getReason() {
+        return reason(code);
+    }
+
+    /**
+     * Offset of the rejected line: a buffer index for parsers, rebased to a
+     * file offset by the readers.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Render the reject for humans. Allocates; keep off the hot path.
+     */
+    public String message() {
+        return isRejected() ? render(code, offset) : "OK";
+    }
+
+    @Override
+    public String toString() {
+        return message();
+    }
+
+    // ---- packed codes ---------------------------------------------------
+
+    /**
+     * Pack a (field, reason) pair. Never equal to {@link #OK}.
+     */
+    public static int code(Field field, Reason reason) {
+        return ((field.ordinal() + 1) << 8) | reason.ordinal();
+    }
+
+    public static Field field(int code) {
+        return FIELDS[(code >>> 8) - 1];
+    }
+
+    public static Reason reason(int code) {
+        return REASONS[code & 0xFF];
+    }
+
+    public static String render(int code, long offset) {
+        return "Invalid " + field(code).label() + " (" + reason(code) + ") in line at offset " + offset;
+    }
+}
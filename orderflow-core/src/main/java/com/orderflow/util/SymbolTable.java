@@ -0,0 +1,225 @@
+package com.orderflow.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Interning table mapping ASCII symbol names to dense integer ids.
+ *
+ * Lookups hash the raw bytes (or chars) in place and probe an immutable
+ * open-addressing snapshot, so resolving a known symbol allocates nothing
+ * and takes no lock. Only the first sighting of a symbol takes the lock
+ * and publishes a new snapshot (copy-on-write) - symbols are few and
+ * long-lived, so that path is cold.
+ *
+ * PERF-LAB: Lab B - compare against HashMap<String, ...> keyed lookups
+ *
+ * Ids are assigned in first-seen order starting at 0 and never change,
+ * so they can index primitive arrays directly.
+ */
+public class SymbolTable {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /** Immutable entry, published through the volatile snapshot. */
+    private static final class Entry {
+        final byte[] bytes;
+        final int hash;
+        final int id;
+
+        Entry(byte[] bytes, int hash, int id) {
+            this.bytes = bytes;
+            this.hash = hash;
+            this.id = id;
+        }
+    }
+
+    private volatile Entry[] table;
+    private volatile String[] names;
+    private volatile int size;
+
+    public SymbolTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SymbolTable(int expectedSymbols) {
+        this.table = new Entry[tableSizeFor(expectedSymbols)];
+        this.names = new String[Math.max(expectedSymbols, 1)];
+    }
+
+    /**
+     * Resolve a symbol held in a byte array, interning it on first sight.
+     */
+    public int intern(byte[] src, int offset, int length) {
+        int hash = hash(src, offset, length);
+        Entry[] snapshot = table;
+        int mask = snapshot.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            Entry e = snapshot[i];
+            if (e == null) break;
+            if (e.hash == hash && Arrays.equals(e.bytes, 0, e.bytes.length, src, offset, offset + length)) {
+                return e.id;
+            }
+        }
+        return add(Arrays.copyOfRange(src, offset, offset + length), hash);
+    }
+
+    /**
+     * Resolve a symbol held in a buffer (absolute indexing, position untouched).
+     */
+    public int intern(ByteBuffer buf, int offset, int length) {
+        if (buf.hasArray()) {
+            return intern(buf.array(), buf.arrayOffset() + offset, length);
+        }
+        int hash = hash(buf, offset, length);
+        Entry[] snapshot = table;
+        int mask = snapshot.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            Entry e = snapshot[i];
+            if (e == null) break;
+            if (e.hash == hash && equals(e.bytes, buf, offset, length)) {
+                return e.id;
+            }
+        }
+        byte[] copy = new byte[length];
+        buf.get(offset, copy);
+        return add(copy, hash);
+    }
+
+    /**
+     * Resolve a symbol given as text, interning it on first sight.
+     */
+    public int intern(CharSequence symbol) {
+        int id = lookup(symbol);
+        if (id >= 0) return id;
+        int length = symbol.length();
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) symbol.charAt(i);
+        }
+        return add(bytes, hash(symbol));
+    }
+
+    /**
+     * Find the id of a symbol without interning it.
+     *
+     * @return the id, or -1 if the symbol has never been seen
+     */
+    public int lookup(CharSequence symbol) {
+        int hash = hash(symbol);
+        Entry[] snapshot = table;
+        int mask = snapshot.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            Entry e = snapshot[i];
+            if (e == null) return -1;
+            if (e.hash == hash && equals(e.bytes, symbol)) {
+                return e.id;
+            }
+        }
+    }
+
+    /**
+     * Get the symbol name for an id. The returned String is shared.
+     */
+    public String symbol(int id) {
+        return names[id];
+    }
+
+    /**
+     * Number of interned symbols; valid ids are 0..size()-1.
+     */
+    public int size() {
+        return size;
+    }
+
+    private synchronized int add(byte[] bytes, int hash) {
+        // Re-probe under the lock: another thread may have added it meanwhile
+        Entry[] current = table;
+        int mask = current.length - 1;
+        int slot = hash & mask;
+        for (; current[slot] != null; slot = (slot + 1) & mask) {
+            Entry e = current[slot];
+            if (e.hash == hash && Arrays.equals(e.bytes, bytes)) {
+                return e.id;
+            }
+        }
+
+        int id = size;
+        String[] newNames = names;
+        if (id == newNames.length) {
+            newNames = Arrays.copyOf(newNames, id * 2);
+        }
+        newNames[id] = new String(bytes, StandardCharsets.US_ASCII);
+        names = newNames;
+
+        Entry[] next;
+        if ((id + 1) * 2 > current.length) {
+            next = new Entry[current.length * 2];
+            int nextMask = next.length - 1;
+            for (Entry e : current) {
+                if (e == null) continue;
+                int i = e.hash & nextMask;
+                while (next[i] != null) i = (i + 1) & nextMask;
+                next[i] = e;
+            }
+            slot = hash & nextMask;
+            while (next[slot] != null) slot = (slot + 1) & nextMask;
+        } else {
+            next = current.clone();
+        }
+        next[slot] = new Entry(bytes, hash, id);
+        size = id + 1;
+        table = next;
+        return id;
+    }
+
+    private static int hash(byte[] src, int offset, int length) {
+        int h = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            h = 31 * h + (src[i] & 0xFF);
+        }
+        return spread(h);
+    }
+
+    private static int hash(ByteBuffer buf, int offset, int length) {
+        int h = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            h = 31 * h + (buf.get(i) & 0xFF);
+        }
+        return spread(h);
+    }
+
+    private static int hash(CharSequence symbol) {
+        int h = 0;
+        for (int i = 0, n = symbol.length(); i < n; i++) {
+            h = 31 * h + (symbol.charAt(i) & 0xFF);
+        }
+        return spread(h);
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equals(byte[] bytes, ByteBuffer buf, int offset, int length) {
+        if (bytes.length != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] != buf.get(offset + i)) return false;
+        }
+        return true;
+    }
+
+    private static boolean equals(byte[] bytes, CharSequence symbol) {
+        if (bytes.length != symbol.length()) return false;
+        for (int i = 0; i < bytes.length; i++) {
+            if ((bytes[i] & 0xFF) != symbol.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int tableSizeFor(int expected) {
+        int n = Integer.highestOneBit(Math.max(expected, 2) * 2 - 1) << 1;
+        return Math.max(n, 4);
+    }
+}
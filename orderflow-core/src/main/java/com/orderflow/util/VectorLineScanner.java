@@ -0,0 +1,50 @@
+package com.orderflow.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API kernel for {@link VectorOrderParser}: classifies bytes 32 or
+ * 64 at a time into a non-digit bitmap. Delimiters are non-digits too, so
+ * the parser finds commas and newlines by walking the set bits rather
+ * than paying for a separate compare and mask per delimiter.
+ *
+ * This is the only class that touches jdk.incubator.vector, so a JVM
+ * started without {@code --add-modules jdk.incubator.vector} fails to load
+ * it and {@link VectorOrderParser} falls back to scalar scanning.
+ */
+final class VectorLineScanner {
+
+    // 64 lanes on AVX-512 hardware, 32 elsewhere
+    private static final VectorSpecies<Byte> SPECIES =
+        ByteVector.SPECIES_PREFERRED.length() >= 64 ? ByteVector.SPECIES_512 : ByteVector.SPECIES_256;
+    private static final int LANES = SPECIES.length();
+
+    private VectorLineScanner() {
+    }
+
+    static int lanes() {
+        return LANES;
+    }
+
+    /**
+     * Mark non-digit bytes in {@code buf[from, from + 64 * words)}; bit
+     * {@code i} of word {@code w} is set if byte {@code from + 64 * w + i}
+     * is outside '0'..'9'. Every word must lie entirely within the buffer.
+     */
+    static void scan(ByteBuffer buf, int from, int words, long[] nonDigits) {
+        for (int w = 0; w < words; w++) {
+            int base = from + (w << 6);
+            long nonDigit = 0;
+            for (int k = 0; k < 64; k += LANES) {
+                ByteVector v = ByteVector.fromByteBuffer(SPECIES, buf, base + k, ByteOrder.LITTLE_ENDIAN);
+                nonDigit |= v.compare(VectorOperators.LT, (byte) '0')
+                    .or(v.compare(VectorOperators.GT, (byte) '9')).toLong() << k;
+            }
+            nonDigits[w] = nonDigit;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.orderflow.util;
+
+import com.orderflow.model.Order;
+import com.orderflow.model.OrderBatch;
+import com.orderflow.model.OrderRecord;
+import java.nio.ByteBuffer;
+
+/**
+ * Bulk CSV parser that finds delimiters and validates digit runs with the
+ * JDK Vector API.
+ *
+ * Input is classified 64 bytes at a time (see {@link VectorLineScanner})
+ * into a non-digit bitmap for a 64 KB window. Each line is then walked
+ * bit by bit: its commas and newline are among the set bits, and a
+ * numeric field is valid exactly when no other bit (bar one '.' in the
+ * price) falls inside it, so digit runs are never tested byte by byte.
+ * Anything unusual (a reject, a CR, an over-long field) is handed to
+ * {@link ByteOrderParser}, so the output - orders, rejects and their
+ * codes - is identical to the scalar parser.
+ *
+ * The vector path is off unless the JVM runs with
+ *   --add-modules jdk.incubator.vector -Dorderflow.parser.vector=true
+ * Otherwise (or if the incubator module cannot be loaded) every line goes
+ * through the scalar parser.
+ *
+ * PERF-LAB: Lab B - OrderParsingBenchmark.parseMillion*
+ *
+ * Not thread-safe; use one per thread. The SymbolTable may be shared.
+ */
+public class VectorOrderParser {
+
+    /** System property that enables the vector path. */
+    public static final String VECTOR_PROPERTY = "orderflow.parser.vector";
+
+    private static final int WINDOW_WORDS = 1024; // 64 KB of input per scan
+    private static final boolean VECTOR_AVAILABLE = probeVectorSupport();
+    private static final long[] POW10 = {1, 10, 100, 1000};
+
+    private final ByteOrderParser scalar;
+    private final SymbolTable symbols;
+    private final boolean vector;
+    private final OrderRecord record = new OrderRecord();
+    private final RejectResult result = new RejectResult();
+
+    private final long[] nonDigits;
+    private int lines;
+
+    public VectorOrderParser(SymbolTable symbols) {
+        this(symbols, Boolean.getBoolean(VECTOR_PROPERTY));
+    }
+
+    /**
+     * @param useVector request the vector path; ignored if the Vector API is unavailable
+     */
+    public VectorOrderParser(SymbolTable symbols, boolean useVector) {
+        this.symbols = symbols;
+        this.scalar = new ByteOrderParser(symbols);
+        this.vector = useVector && VECTOR_AVAILABLE;
+        this.nonDigits = new long[vector ? WINDOW_WORDS : 0];
+    }
+
+    /**
+     * Whether jdk.incubator.vector could be loaded in this JVM.
+     */
+    public static boolean isVectorAvailable() {
+        return VECTOR_AVAILABLE;
+    }
+
+    public boolean isVectorEnabled() {
+        return vector;
+    }
+
+    /**
+     * Parse every line in {@code buf[from, limit)} into {@code batch}.
+     * Blank lines are skipped; rejected lines are recorded in the batch
+     * with offset {@code baseOffset + index}.
+     *
+     * @return number of non-blank lines seen
+     */
+    public int parse(ByteBuffer buf, int from, int limit, OrderBatch batch, long baseOffset) {
+        lines = 0;
+        int pos = from;
+        if (vector) {
+            while (limit - pos >= 64) {
+                int windowStart = pos;
+                int words = Math.min((limit - pos) >> 6, WINDOW_WORDS);
+                VectorLineScanner.scan(buf, windowStart, words, nonDigits);
+
+                int next;
+                while ((next = parseLine(buf, pos, windowStart, words, batch, baseOffset)) > 0) {
+                    pos = next;
+                }
+                if (pos == windowStart) {
+                    // Line longer than a whole window
+                    next = ByteOrderParser.nextLine(buf, pos, limit);
+                    parseScalar(buf, pos, next, batch, baseOffset);
+                    pos = next;
+                }
+            }
+        }
+        while (pos < limit) {
+            int next = ByteOrderParser.nextLine(buf, pos, limit);
+            parseScalar(buf, pos, next, batch, baseOffset);
+            pos = next;
+        }
+        return lines;
+    }
+
+    /**
+     * Parse the line starting at {@code start} by walking the window's
+     * non-digit bits: commas cut the fields, and any other non-digit in a
+     * numeric field (other than one '.' in the price) sends the line to
+     * the scalar parser.
+     *
+     * @return start of the next line, or -1 if the line does not end inside the window
+     */
+    private int parseLine(ByteBuffer buf, int start, int ws, int words, OrderBatch batch, long baseOffset) {
+        int c1 = -1, c2 = -1, c3 = -1, c4 = -1;
+        int commaCount = 0;
+        int dot = -1;
+        int end;
+        boolean regular = true;
+
+        int w = (start - ws) >> 6;
+        if (w >= words) return -1;
+        long word = nonDigits[w] & (-1L << ((start - ws) & 63));
+        while (true) {
+            while (word == 0) {
+                if (++w >= words) return -1;
+                word = nonDigits[w];
+            }
+            int p = ws + (w << 6) + Long.numberOfTrailingZeros(word);
+            word &= word - 1;
+            byte b = buf.get(p);
+            if (b == '\n') {
+                end = p;
+                break;
+            }
+            if (b == ',') {
+                switch (commaCount++) {
+                    case 0: c1 = p; break;
+                    case 1: c2 = p; break;
+                    case 2: c3 = p; break;
+                    case 3: c4 = p; break;
+                    default: regular = false;
+                }
+            } else if (commaCount == 0) {
+                regular &= p < start + 3; // "ORD", then digits only
+            } else if (commaCount == 3) {
+                if (b == '.' && dot < 0) {
+                    dot = p;
+                } else {
+                    regular = false;
+                }
+            } else if (commaCount >= 4) {
+                regular = false; // quantity: digits only (this also catches CR)
+            }
+        }
+        int next = end + 1;
+        if (!regular || c4 < 0) {
+            return parseScalar(buf, start, next, batch, baseOffset);
+        }
+
+        // orderId: "ORD" + 1..18 digits
+        int idDigits = c1 - start - 3;
+        if (idDigits < 1 || idDigits > 18
+                || buf.get(start) != 'O' || buf.get(start + 1) != 'R' || buf.get(start + 2) != 'D') {
+            return parseScalar(buf, start, next, batch, baseOffset);
+        }
+
+        // symbol: non-empty
+        if (c2 == c1 + 1) {
+            return parseScalar(buf, start, next, batch, baseOffset);
+        }
+
+        // side
+        Order.Side side;
+        int sideLength = c3 - c2 - 1;
+        if (sideLength == 3 && buf.get(c2 + 1) == 'B' && buf.get(c2 + 2) == 'U' && buf.get(c2 + 3) == 'Y') {
+            side = Order.Side.BUY;
+        } else if (sideLength == 4 && buf.get(c2 + 1) == 'S' && buf.get(c2 + 2) == 'E'
+                && buf.get(c2 + 3) == 'L' && buf.get(c2 + 4) == 'L') {
+            side = Order.Side.SELL;
+        } else {
+            return parseScalar(buf, start, next, batch, baseOffset);
+        }
+
+        // price: 1..17 bytes; a '.' must be followed by 1..PRICE_SCALE digits
+        int priceLength = c4 - c3 - 1;
+        int fraction = dot < 0 ? 0 : c4 - dot - 1;
+        if (priceLength < 1 || priceLength > 17 || (dot >= 0 && (fraction < 1 || fraction > OrderRecord.PRICE_SCALE))) {
+            return parseScalar(buf, start, next, batch, baseOffset);
+        }
+
+        // quantity: 1..10 digits
+        int quantityLength = end - c4 - 1;
+        if (quantityLength < 1 || quantityLength > 10) {
+            return parseScalar(buf, start, next, batch, baseOffset);
+        }
+
+        // Field shapes are valid; accumulate values
+        long orderId = digits(buf, start + 3, c1);
+        long ticks = dot < 0
+            ? digits(buf, c3 + 1, c4)
+            : digits(buf, c3 + 1, dot) * POW10[fraction] + digits(buf, dot + 1, c4);
+        ticks *= POW10[OrderRecord.PRICE_SCALE - fraction];
+        long quantity = digits(buf, c4 + 1, end);
+        if (ticks <= 0 || quantity <= 0 || quantity > Integer.MAX_VALUE) {
+            return parseScalar(buf, start, next, batch, baseOffset);
+        }
+
+        int symbolId = symbols.intern(buf, c1 + 1, c2 - c1 - 1);
+        batch.add(record.set(orderId, symbolId, side, ticks, (int) quantity));
+        lines++;
+        return next;
+    }
+
+    /**
+     * Scalar path for one line; same blank-line and reject handling as the readers.
+     *
+     * @return {@code next}
+     */
+    private int parseScalar(ByteBuffer buf, int start, int next, OrderBatch batch, long baseOffset) {
+        if (isBlank(buf, start, next)) {
+            return next;
+        }
+        lines++;
+        if (scalar.tryParse(buf, start, next, record, result)) {
+            batch.add(record);
+        } else {
+            batch.reject(result.getCode(), baseOffset + start);
+        }
+        return next;
+    }
+
+    private static long digits(ByteBuffer buf, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            value = value * 10 + (buf.get(i) - '0');
+        }
+        return value;
+    }
+
+    private static boolean isBlank(ByteBuffer buf, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = buf.get(i);
+            if (b != '\n' && b != '\r') return false;
+        }
+        return true;
+    }
+
+    private static boolean probeVectorSupport() {
+        try {
+            return VectorLineScanner.lanes() > 0;
+        } catch (LinkageError e) {
+            // jdk.incubator.vector not resolved in this JVM
+            return false;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.orderflow.loadgen;
+
+import com.orderflow.io.OrderFlyweight;
+import com.orderflow.model.Order;
+import com.orderflow.model.OrderRecord;
+import com.orderflow.net.GatewayProtocol;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Socket client for {@link com.orderflow.net.OrderGateway}.
+ *
+ * One thread paces NEW_ORDER frames at the profile's target rate; a second
+ * thread reads responses and records wire-to-ack latency (send time to
+ * ACK receipt) per order. Order IDs are the send sequence, so the send
+ * timestamp is a plain array lookup on the receive side.
+ *
+ * Symbol ids on the wire are the indexes of {@link WorkloadProfile#getSymbols()};
+ * the gateway's symbol table must be interned in the same order.
+ */
+public class GatewayClient {
+
+    private static final int SEND_BATCH = 64;
+
+    private final SocketAddress address;
+    private final WorkloadProfile profile;
+    private final LatencyRecorder latencyRecorder;
+    private final AtomicLong acked = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong fills = new AtomicLong();
+
+    public GatewayClient(SocketAddress address, WorkloadProfile profile, LatencyRecorder latencyRecorder) {
+        this.address = address;
+        this.profile = profile;
+        this.latencyRecorder = latencyRecorder;
+    }
+
+    /**
+     * Send the profile's orders and wait for every ACK.
+     */
+    public void run() throws IOException, InterruptedException {
+        int count = profile.getOrderCount();
+        long[] sendNanos = new long[count + 1];
+
+        try (SocketChannel channel = address instanceof UnixDomainSocketAddress
+                ? SocketChannel.open(StandardProtocolFamily.UNIX)
+                : SocketChannel.open()) {
+            channel.connect(address);
+            if (!(address instanceof UnixDomainSocketAddress)) {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            }
+
+            Thread receiver = new Thread(() -> receive(channel, count, sendNanos), "gateway-client-rx");
+            receiver.start();
+            send(channel, count, sendNanos);
+            receiver.join();
+        }
+    }
+
+    private void send(SocketChannel channel, int count, long[] sendNanos) throws IOException {
+        String[] symbols = profile.getSymbols();
+        Random random = new Random(42);
+        OrderRecord record = new OrderRecord();
+        OrderFlyweight flyweight = new OrderFlyweight();
+        ByteBuffer out = GatewayProtocol.allocate(GatewayProtocol.NEW_ORDER_FRAME * SEND_BATCH);
+
+        // Send in small bursts so the rate limiter is not a syscall per order
+        long intervalNanos = 1_000_000_000L * SEND_BATCH / Math.max(1, profile.getTargetOpsPerSecond());
+        long next = System.nanoTime();
+        for (int seq = 1; seq <= count; ) {
+            out.clear();
+            int end = Math.min(count, seq + SEND_BATCH - 1);
+            long now = System.nanoTime();
+            for (int i = seq; i <= end; i++) {
+                Order.Side side = random.nextDouble() < profile.getBuyRatio() ? Order.Side.BUY : Order.Side.SELL;
+                long ticks = 10_000 + random.nextInt(100); // 100.00 - 100.99
+                record.set(i, random.nextInt(symbols.length), side, ticks, 1 + random.nextInt(100));
+                GatewayProtocol.writeNewOrder(out, record, flyweight);
+                sendNanos[i] = now;
+            }
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            seq = end + 1;
+            next += intervalNanos;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+    }
+
+    private void receive(SocketChannel channel, int count, long[] sendNanos) {
+        ByteBuffer in = GatewayProtocol.allocate(256 * 1024);
+        try {
+            while (acked.get() + rejected.get() < count) {
+                if (channel.read(in) < 0) {
+                    throw new IOException("Gateway closed the connection");
+                }
+                long now = System.nanoTime();
+                in.flip();
+                int pos = 0;
+                int frame;
+                while ((frame = GatewayProtocol.completeFrameLength(in, pos)) > 0) {
+                    byte type = GatewayProtocol.messageType(in, pos);
+                    if (type == GatewayProtocol.ACK) {
+                        long orderId = GatewayProtocol.ackOrderId(in, pos);
+                        latencyRecorder.recordLatency(Math.max(1, now - sendNanos[(int) orderId]));
+                        if (GatewayProtocol.ackStatus(in, pos) == GatewayProtocol.STATUS_ACCEPTED) {
+                            acked.incrementAndGet();
+                        } else {
+                            rejected.incrementAndGet();
+                        }
+                    } else if (type == GatewayProtocol.FILL) {
+                        fills.incrementAndGet();
+                    }
+                    pos += frame;
+                }
+                in.position(pos);
+                in.compact();
+            }
+        } catch (IOException e) {
+            System.err.println("Receive failed: " + e.getMessage());
+        }
+    }
+
+    public long getAcked() { return acked.get(); }
+    public long getRejected() { return rejected.get(); }
+    public long getFills() { return fills.get(); }
+}
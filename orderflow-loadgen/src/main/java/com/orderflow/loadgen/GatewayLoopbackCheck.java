@@ -0,0 +1,252 @@
+package com.orderflow.loadgen;
+
+import com.orderflow.io.OrderFlyweight;
+import com.orderflow.model.Order;
+import com.orderflow.model.OrderRecord;
+import com.orderflow.net.GatewayProtocol;
+import com.orderflow.net.OrderGateway;
+import com.orderflow.service.MatchingEngine;
+import com.orderflow.util.SymbolTable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Loopback check for {@link OrderGateway}: framing and ack accounting
+ * over real sockets, independent of whether orders are accepted.
+ *
+ * <pre>
+ *   tcp        orders sent over 127.0.0.1 in one write each of several
+ *              sizes; every order gets exactly one ACK, with its id, in
+ *              order
+ *   unix       the same over a Unix domain socket
+ *   malformed  a client sends valid orders followed by a frame of the
+ *              wrong type in one write and is disconnected; the next
+ *              client gets acks for its own orders only
+ *   short      a NEW_ORDER frame too short for an order record
+ *              disconnects the client instead of decoding past the frame
+ *   corrupt    a NEW_ORDER with an invalid side byte is acked REJECTED and
+ *              the client stays connected for the order after it
+ * </pre>
+ *
+ * Acks report ACCEPTED or REJECTED. The counts are printed but not
+ * checked: until the Order model and MatchingEngine lab stubs are
+ * implemented every order is rejected, so this measures the gateway's
+ * framing, not matching.
+ *
+ * Usage:
+ *   java -cp loadgen.jar com.orderflow.loadgen.GatewayLoopbackCheck
+ *
+ * Prints one line per check and exits with status 1 if any failed.
+ */
+public class GatewayLoopbackCheck {
+
+    private static final String[] SYMBOLS = {"AAPL", "MSFT", "GOOG"};
+    private static final int SIDE_OFFSET = 18; // in the order record, see OrderFlyweight
+
+    private final OrderFlyweight flyweight = new OrderFlyweight();
+    private final OrderRecord record = new OrderRecord();
+    private long nextOrderId = 1;
+    private int failures;
+
+    public static void main(String[] args) throws Exception {
+        SymbolTable symbols = new SymbolTable();
+        for (String symbol : SYMBOLS) {
+            symbols.intern(symbol);
+        }
+        GatewayLoopbackCheck check = new GatewayLoopbackCheck();
+
+        try (OrderGateway gateway = new OrderGateway(new InetSocketAddress("127.0.0.1", 0), new MatchingEngine(),
+                symbols)) {
+            SocketAddress address = gateway.start();
+            check.orders("tcp", address);
+            check.malformed(address);
+            check.shortFrame(address);
+            check.corrupt(address);
+        }
+
+        Path socket = Files.createTempDirectory("orderflow-gateway-check").resolve("gateway.sock");
+        try (OrderGateway gateway = new OrderGateway(UnixDomainSocketAddress.of(socket), new MatchingEngine(),
+                symbols)) {
+            check.orders("unix", gateway.start());
+        } finally {
+            Files.deleteIfExists(socket);
+            Files.deleteIfExists(socket.getParent());
+        }
+
+        System.out.println(check.failures == 0 ? "All checks passed" : check.failures + " check(s) failed");
+        System.exit(check.failures == 0 ? 0 : 1);
+    }
+
+    private void orders(String check, SocketAddress address) throws IOException {
+        int sent = 0;
+        int[] counts = new int[2];
+        boolean ok = true;
+        try (SocketChannel channel = open(address)) {
+            for (int size : new int[] {1, 7, 64, 1000}) {
+                ByteBuffer out = GatewayProtocol.allocate(size * GatewayProtocol.NEW_ORDER_FRAME);
+                long first = nextOrderId;
+                for (int i = 0; i < size; i++) {
+                    newOrder(out, nextOrderId++);
+                }
+                write(channel, out);
+                ok &= readAcks(channel, first, size, counts);
+                sent += size;
+            }
+        }
+        report(check, ok, sent + " orders, " + (counts[0] + counts[1]) + " acks in order (" + counts[0]
+            + " accepted, " + counts[1] + " rejected)");
+    }
+
+    private void malformed(SocketAddress address) throws IOException {
+        boolean disconnected;
+        try (SocketChannel bad = open(address)) {
+            ByteBuffer out = GatewayProtocol.allocate(4 * GatewayProtocol.NEW_ORDER_FRAME);
+            for (int i = 0; i < 3; i++) {
+                newOrder(out, nextOrderId++);
+            }
+            out.putInt(1 + OrderFlyweight.LENGTH).put(GatewayProtocol.FILL);
+            out.position(out.position() + OrderFlyweight.LENGTH);
+            write(bad, out);
+            disconnected = closedByPeer(bad);
+        }
+        boolean clean;
+        try (SocketChannel good = open(address)) {
+            ByteBuffer out = GatewayProtocol.allocate(5 * GatewayProtocol.NEW_ORDER_FRAME);
+            long first = nextOrderId;
+            for (int i = 0; i < 5; i++) {
+                newOrder(out, nextOrderId++);
+            }
+            write(good, out);
+            clean = readAcks(good, first, 5, new int[2]);
+        }
+        report("malformed", disconnected && clean, (disconnected ? "bad client disconnected" : "bad client kept")
+            + ", next client " + (clean ? "got only its own acks" : "got stray acks"));
+    }
+
+    private void shortFrame(SocketAddress address) throws IOException {
+        boolean disconnected;
+        try (SocketChannel channel = open(address)) {
+            ByteBuffer out = GatewayProtocol.allocate(16);
+            out.putInt(1 + 4).put(GatewayProtocol.NEW_ORDER).putInt(0);
+            write(channel, out);
+            disconnected = closedByPeer(channel);
+        }
+        report("short", disconnected, disconnected ? "client disconnected" : "client kept");
+    }
+
+    private void corrupt(SocketAddress address) throws IOException {
+        int[] counts = new int[2];
+        boolean ok;
+        try (SocketChannel channel = open(address)) {
+            ByteBuffer out = GatewayProtocol.allocate(2 * GatewayProtocol.NEW_ORDER_FRAME);
+            long first = nextOrderId;
+            newOrder(out, nextOrderId++);
+            out.put(GatewayProtocol.payloadOffset(0) + SIDE_OFFSET, (byte) 7);
+            newOrder(out, nextOrderId++);
+            write(channel, out);
+            ok = readAcks(channel, first, 2, counts) && counts[1] >= 1;
+        }
+        report("corrupt", ok, ok ? "rejected, client kept (" + counts[0] + " accepted, " + counts[1] + " rejected)"
+            : "no reject or client dropped");
+    }
+
+    private void newOrder(ByteBuffer out, long orderId) {
+        record.set(orderId, (int) (orderId % SYMBOLS.length), (orderId & 1) == 0 ? Order.Side.BUY : Order.Side.SELL,
+            10_000 + orderId % 100, 100);
+        GatewayProtocol.writeNewOrder(out, record, flyweight);
+    }
+
+    /**
+     * Read {@code count} ACK frames and check their ids run from
+     * {@code firstOrderId}; counts[0] and counts[1] add up accepted and
+     * rejected acks. FILL frames are skipped.
+     */
+    private static boolean readAcks(SocketChannel channel, long firstOrderId, int count, int[] counts)
+            throws IOException {
+        ByteBuffer in = GatewayProtocol.allocate(64 * 1024);
+        int acks = 0;
+        boolean ordered = true;
+        while (acks < count) {
+            if (channel.read(in) < 0) {
+                return false;
+            }
+            in.flip();
+            int pos = 0;
+            int frame;
+            while ((frame = GatewayProtocol.completeFrameLength(in, pos)) > 0) {
+                if (GatewayProtocol.messageType(in, pos) == GatewayProtocol.ACK) {
+                    ordered &= GatewayProtocol.ackOrderId(in, pos) == firstOrderId + acks;
+                    counts[GatewayProtocol.ackStatus(in, pos) == GatewayProtocol.STATUS_ACCEPTED ? 0 : 1]++;
+                    acks++;
+                }
+                pos += frame;
+            }
+            in.position(pos);
+            in.compact();
+        }
+        // Nothing beyond the expected acks may arrive
+        return ordered && in.position() == 0 && !hasMore(channel);
+    }
+
+    private static boolean hasMore(SocketChannel channel) throws IOException {
+        channel.configureBlocking(false);
+        try {
+            long deadline = System.nanoTime() + 200_000_000L;
+            ByteBuffer probe = ByteBuffer.allocate(1);
+            while (System.nanoTime() < deadline) {
+                int read = channel.read(probe);
+                if (read != 0) {
+                    return read > 0;
+                }
+                Thread.onSpinWait();
+            }
+            return false;
+        } finally {
+            channel.configureBlocking(true);
+        }
+    }
+
+    private static boolean closedByPeer(SocketChannel channel) {
+        try {
+            ByteBuffer in = ByteBuffer.allocate(4096);
+            int read;
+            while ((read = channel.read(in)) >= 0) {
+                in.clear();
+                if (read == 0) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            return true; // reset by the gateway
+        }
+    }
+
+    private static SocketChannel open(SocketAddress address) throws IOException {
+        SocketChannel channel = address instanceof UnixDomainSocketAddress
+            ? SocketChannel.open(StandardProtocolFamily.UNIX) : SocketChannel.open();
+        channel.connect(address);
+        return channel;
+    }
+
+    private static void write(SocketChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+    }
+
+    private void report(String check, boolean ok, String detail) {
+        if (!ok) {
+            failures++;
+        }
+        System.out.printf("%-10s %s  %s%n", check, ok ? "PASS" : "FAIL", detail);
+    }
+}
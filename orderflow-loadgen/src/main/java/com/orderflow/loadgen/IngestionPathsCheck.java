@@ -0,0 +1,244 @@
+package com.orderflow.loadgen;
+
+import com.orderflow.model.OrderRecord;
+import com.orderflow.service.MatchingEngine;
+import com.orderflow.service.OrderIngestionService;
+import com.orderflow.util.OrderDataGenerator;
+import com.orderflow.util.OrderParser;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Check of the batch file ingestion paths of {@link OrderIngestionService}
+ * up to the point where orders would be matched: each path runs with an
+ * {@link OrderIngestionService.OrderSink} that records what reaches it.
+ *
+ * <pre>
+ *   parallel    processFileParallel over a CSV file with malformed and
+ *               duplicate lines appended
+ *   streaming   processFileStreaming over the same file
+ *   block       processCompressedFile over a block-compressed file
+ *   gzip        processCompressedFile over a gzip file
+ *   binary      processBinaryFile over an OrderWireFormat file
+ * </pre>
+ *
+ * Every file holds the same generated orders. Each check requires that
+ * every order reaches the sink exactly once with the generated symbol,
+ * side, price and quantity; that malformed and duplicate lines do not;
+ * that within each symbol orders arrive in file order; and that on the
+ * lane paths all orders of a symbol arrive on one thread.
+ *
+ * Matching and persistence are not exercised: until the Order model,
+ * MatchingEngine and persistence lab stubs are implemented the paths
+ * without a sink fail at the first valid order.
+ *
+ * Usage:
+ *   java -cp loadgen.jar com.orderflow.loadgen.IngestionPathsCheck [--orders n] [--parallelism n]
+ *
+ * Prints one line per check and exits with status 1 if any failed.
+ */
+public class IngestionPathsCheck {
+
+    private static final long SEED = 42;
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    // Appended to the CSV file: two repeated order ids and two malformed lines
+    private static final String[] EXTRA_LINES = {
+        "ORD00000003,AAPL,BUY,100.00,10",
+        "not,an,order",
+        "ORD00000007,MSFT,SELL,abc,10",
+        "ORD00000011,GOOG,SELL,150.00,20",
+    };
+    private static final int EXTRA_REJECTS = 2;
+
+    private final int orders;
+    private final int parallelism;
+    private final OrderRecord[] expected;
+    private int failures;
+
+    private IngestionPathsCheck(int orders, int parallelism) {
+        this.orders = orders;
+        this.parallelism = parallelism;
+        this.expected = new OrderRecord[orders + 1];
+        OrderDataGenerator generator = new OrderDataGenerator(SEED);
+        for (int id = 1; id <= orders; id++) {
+            expected[id] = generator.generateRecord(id, new OrderRecord());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int orders = 200_000;
+        int parallelism = 4;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--orders" -> orders = Integer.parseInt(args[++i]);
+                case "--parallelism" -> parallelism = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        IngestionPathsCheck check = new IngestionPathsCheck(orders, parallelism);
+
+        Path dir = Files.createTempDirectory("orderflow-ingestion-check");
+        try {
+            String csv = dir.resolve("orders.csv").toString();
+            String block = dir.resolve("orders.ofb").toString();
+            String gzip = dir.resolve("orders.csv.gz").toString();
+            String binary = dir.resolve("orders.bin").toString();
+            new OrderDataGenerator(SEED).generateToFile(csv, orders);
+            Files.writeString(Path.of(csv), String.join("\n", EXTRA_LINES) + "\n", StandardCharsets.US_ASCII,
+                StandardOpenOption.APPEND);
+            new OrderDataGenerator(SEED).generateToBlockFile(block, orders, BLOCK_SIZE);
+            new OrderDataGenerator(SEED).generateToGzipFile(gzip, orders);
+            new OrderDataGenerator(SEED).generateToBinaryFile(binary, orders);
+            System.out.println();
+
+            check.run("parallel", true, orders, EXTRA_REJECTS, (service, sink) ->
+                service.processFileParallel(csv, check.parallelism, sink));
+            // Streaming counts every line after the header it consumed
+            check.run("streaming", false, orders + EXTRA_LINES.length, EXTRA_REJECTS, (service, sink) ->
+                service.processFileStreaming(csv, 4096, sink));
+            check.run("block", true, orders, 0, (service, sink) ->
+                service.processCompressedFile(block, check.parallelism, sink));
+            check.run("gzip", true, orders, 0, (service, sink) ->
+                service.processCompressedFile(gzip, check.parallelism, sink));
+            check.run("binary", false, orders, 0, (service, sink) ->
+                service.processBinaryFile(binary, sink));
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+
+        System.out.println(check.failures == 0 ? "All checks passed" : check.failures + " check(s) failed");
+        System.exit(check.failures == 0 ? 0 : 1);
+    }
+
+    @FunctionalInterface
+    private interface IngestionRun {
+        long run(OrderIngestionService service, OrderIngestionService.OrderSink sink) throws IOException;
+    }
+
+    private void run(String check, boolean lanes, long expectedReturn, long expectedRejects, IngestionRun path)
+            throws IOException {
+        // A fresh service per path: the duplicate window is per service
+        OrderIngestionService service = new OrderIngestionService(new OrderParser(), new MatchingEngine(), null);
+        RecordingSink sink = new RecordingSink(orders);
+        long returned = path.run(service, sink);
+        String problem = sink.verify(expected, lanes);
+        if (problem == null && returned != expectedReturn) {
+            problem = "returned " + returned + ", expected " + expectedReturn;
+        }
+        if (problem == null && service.getRejectJournal().getCount() != expectedRejects) {
+            problem = service.getRejectJournal().getCount() + " rejects journaled, expected " + expectedRejects;
+        }
+        report(check, problem == null, problem != null ? problem
+            : String.format("%,d orders in %d batches, %d symbols", sink.received, sink.batches,
+                sink.symbolCount()));
+    }
+
+    /**
+     * Records each order by id. Symbol ids are the service's own, so they
+     * are mapped to the generator's on first sight.
+     */
+    private static final class RecordingSink implements OrderIngestionService.OrderSink {
+
+        private final OrderRecord[] seen;
+        private final int[] generatorSymbol = new int[64];
+        private final long[] lastOrderId = new long[64];
+        private final String[] thread = new String[64];
+        private int received;
+        private int batches;
+        private String problem;
+
+        RecordingSink(int orders) {
+            seen = new OrderRecord[orders + 1];
+            Arrays.fill(generatorSymbol, -1);
+        }
+
+        @Override
+        public synchronized void accept(OrderRecord order) {
+            received++;
+            long id = order.getOrderId();
+            int symbol = order.getSymbolId();
+            if (id <= 0 || id >= seen.length) {
+                fail("unexpected order id " + id);
+                return;
+            }
+            if (seen[(int) id] != null) {
+                fail("order " + id + " delivered twice");
+                return;
+            }
+            seen[(int) id] = new OrderRecord().set(id, symbol, order.getSide(), order.getPriceTicks(),
+                order.getQuantity());
+            if (id < lastOrderId[symbol]) {
+                fail("order " + id + " after " + lastOrderId[symbol] + " in its symbol");
+            }
+            lastOrderId[symbol] = id;
+            String name = Thread.currentThread().getName();
+            if (thread[symbol] == null) {
+                thread[symbol] = name;
+            } else if (!thread[symbol].equals(name)) {
+                fail("symbol " + symbol + " on " + thread[symbol] + " and " + name);
+            }
+        }
+
+        @Override
+        public synchronized void endBatch() {
+            batches++;
+        }
+
+        synchronized String verify(OrderRecord[] expected, boolean lanes) {
+            for (int id = 1; id < expected.length && problem == null; id++) {
+                OrderRecord want = expected[id];
+                OrderRecord got = seen[id];
+                if (got == null) {
+                    fail("order " + id + " missing");
+                    break;
+                }
+                int symbol = got.getSymbolId();
+                if (generatorSymbol[symbol] < 0) {
+                    generatorSymbol[symbol] = want.getSymbolId();
+                }
+                if (generatorSymbol[symbol] != want.getSymbolId() || got.getSide() != want.getSide()
+                        || got.getQuantity() != want.getQuantity()
+                        // CSV prices are rounded by the formatter, records by Math.round
+                        || Math.abs(got.getPriceTicks() - want.getPriceTicks()) > 1) {
+                    fail("order " + id + " differs from the generated one");
+                }
+            }
+            if (problem == null && received != expected.length - 1) {
+                fail(received + " orders received, expected " + (expected.length - 1));
+            }
+            if (problem == null && lanes && Arrays.stream(thread).anyMatch(t -> t != null
+                    && !t.startsWith("ingest-lane-"))) {
+                fail("orders outside the ingest lanes");
+            }
+            return problem;
+        }
+
+        int symbolCount() {
+            return (int) Arrays.stream(thread).filter(t -> t != null).count();
+        }
+
+        private void fail(String message) {
+            if (problem == null) {
+                problem = message;
+            }
+        }
+    }
+
+    private void report(String check, boolean ok, String detail) {
+        if (!ok) {
+            failures++;
+        }
+        System.out.printf("%-10s %s  %s%n", check, ok ? "PASS" : "FAIL", detail);
+    }
+}
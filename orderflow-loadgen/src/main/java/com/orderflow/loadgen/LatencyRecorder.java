@@ -1,6 +1,6 @@
 package com.orderflow.loadgen;
 
-import org.hdrhistogram.Histogram;
+import org.HdrHistogram.Histogram;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
 
@@ -2,7 +2,14 @@ package com.orderflow.loadgen;
 
 import com.orderflow.OrderFlowApplication;
 import com.orderflow.model.Order;
+import com.orderflow.net.OrderGateway;
+import com.orderflow.util.SymbolTable;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Path;
 import java.util.Random;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
@@ -28,6 +35,13 @@ import java.util.concurrent.atomic.AtomicLong;
  * 
  * # With output file for results
  * java -jar loadgen.jar --profile medium --output results.txt
+ * 
+ * # Wire-to-ack latency against an in-process gateway on loopback
+ * java -jar loadgen.jar --profile heavy --mode socket --gateway-local --connect 127.0.0.1:0
+ * java -jar loadgen.jar --profile heavy --mode socket --gateway-local --unix /tmp/orderflow.sock
+ * 
+ * # Against a gateway running elsewhere
+ * java -jar loadgen.jar --profile heavy --mode socket --connect host:9000
  */
 public class LoadGenerator {
     
@@ -78,6 +92,48 @@ public class LoadGenerator {
         throw new UnsupportedOperationException("Implement run method");
     }
     
+    /**
+     * Run the load test over the binary gateway protocol and report
+     * wire-to-ack latency.
+     *
+     * @param address gateway address
+     * @param startLocal start an in-process gateway on {@code address} first
+     */
+    public void runSocket(SocketAddress address, boolean startLocal) throws IOException, InterruptedException {
+        System.out.println("=== Load Generator (socket) ===");
+        System.out.println("Profile: " + profile.getName());
+        System.out.println("Orders: " + profile.getOrderCount());
+        System.out.println("Target rate: " + profile.getTargetOpsPerSecond() + " ops/sec");
+
+        OrderGateway gateway = null;
+        if (startLocal) {
+            // Wire symbol ids are profile indexes; intern in the same order
+            SymbolTable symbols = new SymbolTable();
+            for (String symbol : profile.getSymbols()) {
+                symbols.intern(symbol);
+            }
+            gateway = new OrderGateway(address, app.getMatchingEngine(), symbols);
+            address = gateway.start();
+        }
+        System.out.println("Gateway: " + address);
+        System.out.println();
+
+        try {
+            GatewayClient client = new GatewayClient(address, profile, latencyRecorder);
+            long startTime = System.nanoTime();
+            client.run();
+            long elapsed = System.nanoTime() - startTime;
+            ordersProcessed.set(client.getAcked());
+            ordersFailed.set(client.getRejected());
+            printReport(elapsed);
+            System.out.printf("Fills received:  %,d%n", client.getFills());
+        } finally {
+            if (gateway != null) {
+                gateway.close();
+            }
+        }
+    }
+    
     /**
      * Generate a random order string.
      */
@@ -120,6 +176,9 @@ public class LoadGenerator {
         
         // Default to medium profile
         WorkloadProfile profile = WorkloadProfile.medium();
+        String mode = "direct";
+        SocketAddress gatewayAddress = null;
+        boolean gatewayLocal = false;
         
         // Parse args
         for (int i = 0; i < args.length; i++) {
@@ -147,6 +206,21 @@ public class LoadGenerator {
                 case "--threads":
                     // TODO: Custom thread count
                     break;
+                case "--mode":
+                    mode = args[++i];
+                    break;
+                case "--connect":
+                    String hostPort = args[++i];
+                    int colon = hostPort.lastIndexOf(':');
+                    gatewayAddress = new InetSocketAddress(hostPort.substring(0, colon),
+                        Integer.parseInt(hostPort.substring(colon + 1)));
+                    break;
+                case "--unix":
+                    gatewayAddress = UnixDomainSocketAddress.of(Path.of(args[++i]));
+                    break;
+                case "--gateway-local":
+                    gatewayLocal = true;
+                    break;
                 case "--help":
                     printUsage();
                     return;
@@ -157,7 +231,18 @@ public class LoadGenerator {
         LoadGenerator generator = new LoadGenerator(app, profile);
         
         try {
-            generator.run();
+            if ("socket".equals(mode)) {
+                if (gatewayAddress == null) {
+                    gatewayAddress = new InetSocketAddress("127.0.0.1", gatewayLocal ? 0 : 9000);
+                }
+                generator.runSocket(gatewayAddress, gatewayLocal);
+            } else {
+                generator.run();
+            }
+        } catch (IOException e) {
+            System.err.println("Gateway error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } finally {
             app.shutdown();
         }
@@ -172,6 +257,10 @@ public class LoadGenerator {
         System.out.println("  --rate <n>          Target operations per second");
         System.out.println("  --threads <n>       Number of worker threads");
         System.out.println("  --output <file>     Save results to file");
+        System.out.println("  --mode <mode>       direct (in-process, default) or socket (gateway protocol)");
+        System.out.println("  --connect <h:p>     Gateway TCP address for socket mode");
+        System.out.println("  --unix <path>       Gateway Unix domain socket for socket mode");
+        System.out.println("  --gateway-local     Start an in-process gateway at the given address");
         System.out.println("  --help              Show this help");
     }
 }
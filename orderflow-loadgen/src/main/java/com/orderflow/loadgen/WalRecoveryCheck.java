@@ -0,0 +1,335 @@
+package com.orderflow.loadgen;
+
+import com.orderflow.io.WriteAheadLog;
+import com.orderflow.model.Order;
+import com.orderflow.model.OrderRecord;
+import com.orderflow.service.PersistenceService;
+import com.orderflow.service.WalCompactor;
+import com.orderflow.util.SymbolTable;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Recovery check for {@link WriteAheadLog}: no acknowledged record may be
+ * lost, whatever happens to the process or the tail of the log.
+ *
+ * <pre>
+ *   crash      a child JVM appends and reports each record it has waited
+ *              to be durable for; it is killed (SIGKILL) mid-run, the log
+ *              is reopened and every reported record must replay with the
+ *              same order id. Repeated over the same log, so recovery of
+ *              a recovered log is covered too.
+ *   torn       one byte in the middle of a segment is corrupted; recovery
+ *              must keep every record before it, drop the rest, and later
+ *              appends must survive another reopen.
+ *   rolled     the same in the segment before the active one, as if the
+ *              crash came before the sync that forces a segment after
+ *              rolling over it; the active segment must go too.
+ *   rejected   appends the formats cannot hold (price ticks over 31 bits,
+ *              unknown symbol id) fail without leaving a hole, so the
+ *              records acknowledged after them survive a reopen.
+ *   compaction a WalCompactor copies a log into H2 and checkpoints exactly
+ *              the last record copied.
+ * </pre>
+ *
+ * Usage:
+ *   java -cp loadgen.jar com.orderflow.loadgen.WalRecoveryCheck [--dir path] [--runs n] [--millis n]
+ *
+ * Prints one line per check and exits with status 1 if any failed.
+ */
+public class WalRecoveryCheck {
+
+    private static final String[] SYMBOLS = {"AAPL", "MSFT", "GOOG", "AMZN"};
+    private static final int SEGMENT_BYTES = 1 << 20;
+
+    // Segment layout, see WriteAheadLog: 16-byte header, then a 32-byte
+    // SYMBOL record for AAPL, then 48-byte ORDER records
+    private static final int FIRST_ORDER_OFFSET = 16 + 32;
+    private static final int ORDER_RECORD_BYTES = 48;
+
+    private int failures;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && args[0].equals("--writer")) {
+            write(Path.of(args[1]));
+            return;
+        }
+        Path dir = null;
+        int runs = 3;
+        long millis = 1500;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--dir" -> dir = Path.of(args[++i]);
+                case "--runs" -> runs = Integer.parseInt(args[++i]);
+                case "--millis" -> millis = Long.parseLong(args[++i]);
+                default -> {
+                    System.err.println("Usage: WalRecoveryCheck [--dir path] [--runs n] [--millis n]");
+                    System.exit(2);
+                }
+            }
+        }
+        boolean temporary = dir == null;
+        if (temporary) {
+            dir = Files.createTempDirectory("orderflow-wal-check");
+        }
+        WalRecoveryCheck check = new WalRecoveryCheck();
+        try {
+            check.crash(dir.resolve("crash"), runs, millis);
+            check.torn(dir.resolve("torn"));
+            check.rolled(dir.resolve("rolled"));
+            check.rejected(dir.resolve("rejected"));
+            check.compaction(dir.resolve("compaction"));
+        } finally {
+            if (temporary) {
+                delete(dir);
+            }
+        }
+        System.out.println(check.failures == 0 ? "All checks passed" : check.failures + " check(s) failed");
+        System.exit(check.failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Child process: append orders forever, printing "sequence orderId"
+     * for every 16th record once it is durable.
+     */
+    private static void write(Path dir) {
+        SymbolTable symbols = new SymbolTable();
+        PrintStream out = new PrintStream(new FileOutputStream(FileDescriptor.out), true);
+        WriteAheadLog log = WriteAheadLog.open(dir, symbols, SEGMENT_BYTES, 256, 2);
+        long base = (log.getLastSequence() + 1) * 1_000L;
+        OrderRecord record = new OrderRecord();
+        for (long i = 0; ; i++) {
+            long orderId = base + i;
+            long sequence = log.appendOrder(order(record, symbols, orderId), i);
+            if ((i & 15) == 0) {
+                log.awaitDurable(sequence);
+                out.println(sequence + " " + orderId);
+            }
+        }
+    }
+
+    private void crash(Path dir, int runs, long millis) throws Exception {
+        Map<Long, Long> acknowledged = new HashMap<>();
+        for (int run = 0; run < runs; run++) {
+            Process child = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), WalRecoveryCheck.class.getName(),
+                "--writer", dir.toString())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+            Thread reader = new Thread(() -> {
+                try (BufferedReader in = new BufferedReader(
+                        new InputStreamReader(child.getInputStream(), StandardCharsets.US_ASCII))) {
+                    for (String line; (line = in.readLine()) != null; ) {
+                        int space = line.indexOf(' ');
+                        if (space > 0) {
+                            synchronized (acknowledged) {
+                                acknowledged.put(Long.parseLong(line.substring(0, space)),
+                                    Long.parseLong(line.substring(space + 1)));
+                            }
+                        }
+                    }
+                } catch (IOException | NumberFormatException e) {
+                    // A line cut by the kill was never acknowledged
+                }
+            });
+            reader.start();
+            Thread.sleep(millis);
+            child.destroyForcibly().waitFor();
+            reader.join();
+        }
+
+        Map<Long, Long> replayed = replay(dir);
+        long lost = acknowledged.entrySet().stream()
+            .filter(e -> !e.getValue().equals(replayed.get(e.getKey())))
+            .count();
+        report("crash", acknowledged.size() > 0 && lost == 0,
+            runs + " kills, " + acknowledged.size() + " acknowledged records checked, " + lost + " lost");
+    }
+
+    private void torn(Path dir) {
+        SymbolTable symbols = new SymbolTable();
+        OrderRecord record = new OrderRecord();
+        try (WriteAheadLog log = WriteAheadLog.open(dir, symbols, SEGMENT_BYTES, 1024, 0)) {
+            for (int i = 0; i < 100; i++) {
+                log.appendOrder(order(record, symbols, i, SYMBOLS[0]), i);
+            }
+        }
+        // Sequence 1 is the symbol record, so orders have sequence i + 2;
+        // corrupt the payload of the order with sequence 50
+        try (Stream<Path> files = Files.list(dir);
+             FileChannel channel = FileChannel.open(files.sorted().findFirst().orElseThrow(),
+                 StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0x5A}), FIRST_ORDER_OFFSET + 48L * ORDER_RECORD_BYTES + 30);
+        } catch (IOException e) {
+            report("torn", false, e.toString());
+            return;
+        }
+        long recovered;
+        try (WriteAheadLog log = WriteAheadLog.open(dir, symbols, SEGMENT_BYTES, 1, 0)) {
+            recovered = log.getLastSequence();
+            log.appendOrder(order(record, symbols, 500, SYMBOLS[0]), 0);
+            log.appendOrder(order(record, symbols, 501, SYMBOLS[0]), 0);
+        }
+        Map<Long, Long> replayed = replay(dir);
+        boolean kept = true;
+        for (long sequence = 2; sequence <= 49; sequence++) {
+            kept &= Long.valueOf(sequence - 2).equals(replayed.get(sequence));
+        }
+        // After a restart the symbol is defined again, at sequence 50
+        boolean ok = recovered == 49 && kept && Long.valueOf(500).equals(replayed.get(51L))
+            && Long.valueOf(501).equals(replayed.get(52L)) && replayed.size() == 50;
+        report("torn", ok, "recovered to " + recovered + " (expected 49), " + replayed.size()
+            + " orders after appending 2 more (expected 50)");
+    }
+
+    private void rolled(Path dir) {
+        SymbolTable symbols = new SymbolTable();
+        OrderRecord record = new OrderRecord();
+        int perSegment = (SEGMENT_BYTES - FIRST_ORDER_OFFSET) / ORDER_RECORD_BYTES;
+        int segments;
+        try (WriteAheadLog log = WriteAheadLog.open(dir, symbols, SEGMENT_BYTES, 1024, 0)) {
+            for (int i = 0; i < perSegment + 100; i++) {
+                log.appendOrder(order(record, symbols, i, SYMBOLS[0]), i);
+            }
+            segments = log.segmentCount();
+        }
+        // Corrupt the order with sequence 1002 in the first segment
+        try (Stream<Path> files = Files.list(dir);
+             FileChannel channel = FileChannel.open(files.sorted().findFirst().orElseThrow(),
+                 StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0x5A}), FIRST_ORDER_OFFSET + 1000L * ORDER_RECORD_BYTES + 30);
+        } catch (IOException e) {
+            report("rolled", false, e.toString());
+            return;
+        }
+        long recovered;
+        int reopenedSegments;
+        try (WriteAheadLog log = WriteAheadLog.open(dir, symbols, SEGMENT_BYTES, 1, 0)) {
+            recovered = log.getLastSequence();
+            reopenedSegments = log.segmentCount();
+            log.appendOrder(order(record, symbols, 5000, SYMBOLS[0]), 0);
+        } catch (IllegalStateException e) {
+            report("rolled", false, e.getMessage());
+            return;
+        }
+        Map<Long, Long> replayed = replay(dir);
+        boolean ok = segments == 2 && recovered == 1001 && reopenedSegments == 1 && replayed.size() == 1001
+            && Long.valueOf(999).equals(replayed.get(1001L)) && Long.valueOf(5000).equals(replayed.get(1003L));
+        report("rolled", ok, segments + " segments written, recovered to " + recovered + " (expected 1001) in "
+            + reopenedSegments + " segment(s), " + replayed.size() + " orders after appending 1 more (expected 1001)");
+    }
+
+    private void rejected(Path dir) {
+        SymbolTable symbols = new SymbolTable();
+        OrderRecord record = new OrderRecord();
+        int rejected = 0;
+        long last;
+        try (WriteAheadLog log = WriteAheadLog.open(dir, symbols, SEGMENT_BYTES, 1, 0)) {
+            log.appendOrder(order(record, symbols, 1, SYMBOLS[0]), 0);
+            try {
+                log.appendOrder(record.set(2, symbols.intern(SYMBOLS[0]), Order.Side.BUY, 1L << 40, 100), 0);
+            } catch (IllegalArgumentException e) {
+                rejected++;
+            }
+            try {
+                log.appendTrade(3, 1, 2, symbols.size() + 5, 100, 100, 0);
+            } catch (IllegalArgumentException e) {
+                rejected++;
+            }
+            for (long id = 4; id < 10; id++) {
+                log.awaitDurable(log.appendOrder(order(record, symbols, id, SYMBOLS[0]), 0));
+            }
+            last = log.getLastSequence();
+        }
+        Map<Long, Long> replayed = replay(dir);
+        long reopenedLast;
+        try (WriteAheadLog log = WriteAheadLog.open(dir, symbols, SEGMENT_BYTES, 1, 0)) {
+            reopenedLast = log.getLastSequence();
+        }
+        report("rejected", rejected == 2 && reopenedLast == last && replayed.size() == 7,
+            rejected + " appends rejected, last sequence " + last + " before and " + reopenedLast
+                + " after reopen, " + replayed.size() + " orders replayed (expected 7)");
+    }
+
+    private void compaction(Path dir) {
+        SymbolTable symbols = new SymbolTable();
+        OrderRecord record = new OrderRecord();
+        String url = "jdbc:h2:file:" + dir.resolve("orders").toAbsolutePath();
+        try (PersistenceService persistence = new PersistenceService(url, "sa", "");
+             WriteAheadLog log = WriteAheadLog.open(dir.resolve("wal"), symbols, 64 << 10, 1024, 0)) {
+            persistence.initializeSchema();
+            for (long id = 0; id < 5_000; id++) {
+                log.appendOrder(order(record, symbols, id), id);
+            }
+            log.sync();
+            long compacted;
+            try (WalCompactor compactor = persistence.openWalCompactor(log, symbols, 60_000)) {
+                compactor.compact();
+                compacted = compactor.getCompactedSequence();
+            }
+            report("compaction", compacted == log.getLastSequence() && log.segmentCount() == 1,
+                "checkpoint " + compacted + " of " + log.getLastSequence() + ", " + log.segmentCount()
+                    + " segment(s) left");
+        }
+    }
+
+    private static Map<Long, Long> replay(Path dir) {
+        Map<Long, Long> replayed = new HashMap<>();
+        try (WriteAheadLog log = WriteAheadLog.open(dir, new SymbolTable(), SEGMENT_BYTES, 1, 0)) {
+            log.replay(1, Long.MAX_VALUE, new SymbolTable(), new WriteAheadLog.Visitor() {
+                @Override
+                public void onOrder(long sequence, OrderRecord order, long createdAtNanos) {
+                    replayed.put(sequence, order.getOrderId());
+                }
+
+                @Override
+                public void onTrade(long sequence, long tradeId, long buyOrderId, long sellOrderId, int symbolId,
+                                    long priceTicks, int quantity, long executedAtNanos) {
+                }
+            });
+        }
+        return replayed;
+    }
+
+    private static OrderRecord order(OrderRecord record, SymbolTable symbols, long orderId) {
+        return order(record, symbols, orderId, SYMBOLS[(int) (orderId % SYMBOLS.length)]);
+    }
+
+    private static OrderRecord order(OrderRecord record, SymbolTable symbols, long orderId, String symbol) {
+        return record.set(orderId, symbols.intern(symbol), (orderId & 1) == 0 ? Order.Side.BUY : Order.Side.SELL,
+            10_000 + orderId % 100, 100);
+    }
+
+    private void report(String check, boolean ok, String detail) {
+        if (!ok) {
+            failures++;
+        }
+        System.out.printf("%-10s %s  %s%n", check, ok ? "PASS" : "FAIL", detail);
+    }
+
+    private static void delete(Path dir) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(paths::add);
+        }
+        for (Path path : paths) {
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+@echo off
+REM Check order gateway framing and acks over TCP and Unix domain sockets
+REM Usage: check-gateway-loopback.bat
+
+cd /d "%~dp0\.."
+
+REM Build if needed
+if not exist "orderflow-loadgen\target\loadgen.jar" (
+    echo Building project...
+    call mvn clean package -DskipTests -q
+)
+
+java -cp orderflow-loadgen\target\loadgen.jar com.orderflow.loadgen.GatewayLoopbackCheck %*
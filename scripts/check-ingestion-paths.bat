@@ -0,0 +1,13 @@
+@echo off
+REM Check the batch file ingestion paths up to matching: parse, duplicates, lanes, order
+REM Usage: check-ingestion-paths.bat [--orders n] [--parallelism n]
+
+cd /d "%~dp0\.."
+
+REM Build if needed
+if not exist "orderflow-loadgen\target\loadgen.jar" (
+    echo Building project...
+    call mvn clean package -DskipTests -q
+)
+
+java -cp orderflow-loadgen\target\loadgen.jar com.orderflow.loadgen.IngestionPathsCheck %*
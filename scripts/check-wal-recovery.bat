@@ -0,0 +1,14 @@
+@echo off
+REM Check that the write-ahead log loses no acknowledged record across
+REM a SIGKILL, a corrupted segment and rejected appends
+REM Usage: check-wal-recovery.bat [--runs n] [--millis n] [--dir path]
+
+cd /d "%~dp0\.."
+
+REM Build if needed
+if not exist "orderflow-loadgen\target\loadgen.jar" (
+    echo Building project...
+    call mvn clean package -DskipTests -q
+)
+
+java -cp orderflow-loadgen\target\loadgen.jar com.orderflow.loadgen.WalRecoveryCheck %*